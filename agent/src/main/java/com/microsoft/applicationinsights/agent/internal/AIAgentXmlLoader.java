@@ -62,6 +62,8 @@ class AIAgentXmlLoader {
         boolean jdbcEnabled = builtInConfiguration.isJdbcEnabled();
         boolean loggingEnabled = builtInConfiguration.isLoggingEnabled();
         boolean redisEnabled = builtInConfiguration.isJedisEnabled();
+        boolean kafkaEnabled = builtInConfiguration.isKafkaEnabled();
+        boolean jmsEnabled = builtInConfiguration.isJmsEnabled();
 
         List<InstrumentationDescriptor> instrumentationDescriptors = new ArrayList<>();
         for (InstrumentationDescriptor instrumentationDescriptor : InstrumentationDescriptors.read()) {
@@ -89,6 +91,16 @@ class AIAgentXmlLoader {
                         instrumentationDescriptors.add(instrumentationDescriptor);
                     }
                     break;
+                case "kafka":
+                    if (kafkaEnabled) {
+                        instrumentationDescriptors.add(instrumentationDescriptor);
+                    }
+                    break;
+                case "jms":
+                    if (jmsEnabled) {
+                        instrumentationDescriptors.add(instrumentationDescriptor);
+                    }
+                    break;
                 default:
                     instrumentationDescriptors.add(instrumentationDescriptor);
                     break;
@@ -21,6 +21,7 @@
 
 package com.microsoft.applicationinsights.agent.internal;
 
+import com.microsoft.applicationinsights.agent.internal.model.IncomingSpanImpl;
 import com.microsoft.applicationinsights.agent.internal.model.NopThreadSpan;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.api.Getter;
@@ -38,6 +39,13 @@ class AgentImpl implements AgentSPI {
                                       ThreadContextThreadLocal.Holder threadContextHolder, int rootNestingGroupId,
                                       int rootSuppressionKeyId) {
 
+        // a received message on a thread with no request bound (e.g. a Kafka poll loop or a JMS MessageListener)
+        Span incomingSpan = IncomingSpanImpl.start(transactionType, transactionName, getter, carrier, messageSupplier,
+                threadContextHolder, rootNestingGroupId, rootSuppressionKeyId);
+        if (incomingSpan != null) {
+            return incomingSpan;
+        }
+
         // this is a little more complicated than desired, but part of the contract of startIncomingSpan is that it
         // sets a ThreadContext in the threadContextHolder before returning, and NopThreadSpan makes sure to clear
         // the threadContextHolder at the end of the thread
@@ -29,6 +29,12 @@ import java.util.List;
 import com.microsoft.applicationinsights.agent.internal.config.AgentConfiguration;
 import com.microsoft.applicationinsights.agent.internal.config.BuiltInInstrumentation;
 import com.microsoft.applicationinsights.agent.internal.model.Global;
+import com.microsoft.applicationinsights.agent.internal.model.LoggingFilter;
+import com.microsoft.applicationinsights.agent.internal.model.MethodGovernor;
+import com.microsoft.applicationinsights.agent.internal.model.OverheadMeter;
+import com.microsoft.applicationinsights.agent.internal.model.QueryPlanCapture;
+import com.microsoft.applicationinsights.agent.internal.model.SqlNormalizer;
+import com.microsoft.applicationinsights.agent.internal.model.StartupProfile;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.engine.config.InstrumentationDescriptor;
 import org.glowroot.instrumentation.engine.impl.InstrumentationServiceImpl.ConfigServiceFactory;
@@ -46,10 +52,14 @@ public class MainEntryPoint {
 
     public static void premain(Instrumentation instrumentation, File agentJarFile) {
         try {
+            StartupProfile startupProfile = new StartupProfile();
             startupLogger = initLogging(instrumentation, agentJarFile);
             startupLogger.info("ApplicationInsights agent starting...");
-            start(instrumentation, agentJarFile);
-            startupLogger.info("ApplicationInsights agent started");
+            startupProfile.endPhase("logging");
+            start(instrumentation, agentJarFile, startupProfile);
+            startupLogger.info("ApplicationInsights agent started in {} ms ({})", startupProfile.getTotalMillis(),
+                    startupProfile);
+            Global.setUnreportedStartupProfile(startupProfile);
         } catch (ThreadDeath td) {
             throw td;
         } catch (Throwable t) {
@@ -72,7 +82,8 @@ public class MainEntryPoint {
         }
     }
 
-    private static void start(Instrumentation instrumentation, File agentJarFile) throws Exception {
+    private static void start(Instrumentation instrumentation, File agentJarFile, StartupProfile startupProfile)
+            throws Exception {
 
         File agentJarParentFile = agentJarFile.getParentFile();
         File javaTmpDir = new File(System.getProperty("java.io.tmpdir"));
@@ -82,6 +93,7 @@ public class MainEntryPoint {
         }
 
         AgentConfiguration agentConfiguration = AIAgentXmlLoader.load(agentJarParentFile);
+        startupProfile.endPhase("configuration");
 
         BuiltInInstrumentation builtInInstrumentation = agentConfiguration.getBuiltInInstrumentation();
 
@@ -91,16 +103,42 @@ public class MainEntryPoint {
 
         Global.setOutboundW3CEnabled(builtInInstrumentation.isW3cEnabled());
         Global.setOutboundW3CBackCompatEnabled(builtInInstrumentation.isW3cBackCompatEnabled());
+        if (builtInInstrumentation.isJdbcNormalizeStatements()) {
+            Global.setSqlNormalizer(new SqlNormalizer(builtInInstrumentation.getJdbcStatementTextIntervalInSeconds()));
+        }
+        Global.setDependencyAggregationThreshold(builtInInstrumentation.getDependencyAggregationThreshold());
+        if (builtInInstrumentation.getOverheadMetricsIntervalInSeconds() > 0) {
+            Global.setOverheadMeter(new OverheadMeter(builtInInstrumentation.getOverheadMetricsIntervalInSeconds()));
+        }
+        if (!builtInInstrumentation.getLoggerThresholds().isEmpty()
+                || builtInInstrumentation.getLoggingMaxEventsPerSecondPerLogger() > 0) {
+            Global.setLoggingFilter(new LoggingFilter(builtInInstrumentation.getLoggerThresholds(),
+                    builtInInstrumentation.getLoggingMaxEventsPerSecondPerLogger()));
+        }
+        Global.setMessagingEnabled(builtInInstrumentation.isKafkaEnabled() || builtInInstrumentation.isJmsEnabled());
+        if (agentConfiguration.getCustomMethodCallsPerSecond() > 0
+                || agentConfiguration.getCustomMethodOverheadInMSPerSecond() > 0) {
+            Global.setMethodGovernor(new MethodGovernor(agentConfiguration.getCustomMethodCallsPerSecond(),
+                    agentConfiguration.getCustomMethodOverheadInMSPerSecond()));
+        }
+        if (builtInInstrumentation.isJdbcEnabled()) {
+            // the worker thread is only started when the first plan is captured
+            Global.setQueryPlanCapture(
+                    new QueryPlanCapture(builtInInstrumentation.getQueryPlanDedupeIntervalInSeconds(),
+                            builtInInstrumentation.getQueryPlansPerMinute()));
+        }
 
         List<InstrumentationDescriptor> instrumentationDescriptors =
                 AIAgentXmlLoader.getInstrumentationDescriptors(agentConfiguration);
 
         ConfigServiceFactory configServiceFactory = new SimpleConfigServiceFactory(instrumentationDescriptors,
                 AIAgentXmlLoader.getInstrumentationConfig(builtInInstrumentation));
+        startupProfile.endPhase("instrumentation descriptors");
 
         EngineModule.createWithSomeDefaults(instrumentation, tmpDir, Global.getThreadContextThreadLocal(),
                 instrumentationDescriptors, configServiceFactory, new AgentImpl(), false,
                 Collections.singletonList("com.microsoft.applicationinsights.agent"),
                 Collections.singletonList("com.microsoft.applicationinsights.agent"), agentJarFile);
+        startupProfile.endPhase("engine");
     }
 }
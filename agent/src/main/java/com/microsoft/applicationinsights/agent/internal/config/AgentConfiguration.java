@@ -30,6 +30,10 @@ public class AgentConfiguration {
     private Map<String, ClassInstrumentationData> classesToInstrument;
     private BuiltInInstrumentation builtInInstrumentation = new BuiltInInstrumentationBuilder().create();
 
+    // budget per custom instrumented method, 0 for no limit, custom methods are not sampled unless one is set
+    private int customMethodCallsPerSecond;
+    private long customMethodOverheadInMSPerSecond;
+
     public void setClassesToInstrument(Map<String, ClassInstrumentationData> classesToInstrument) {
         this.classesToInstrument = classesToInstrument;
     }
@@ -45,4 +49,17 @@ public class AgentConfiguration {
     public void setBuiltInData(BuiltInInstrumentation builtInInstrumentation) {
         this.builtInInstrumentation = builtInInstrumentation;
     }
+
+    public int getCustomMethodCallsPerSecond() {
+        return customMethodCallsPerSecond;
+    }
+
+    public long getCustomMethodOverheadInMSPerSecond() {
+        return customMethodOverheadInMSPerSecond;
+    }
+
+    public void setCustomMethodBudget(int customMethodCallsPerSecond, long customMethodOverheadInMSPerSecond) {
+        this.customMethodCallsPerSecond = customMethodCallsPerSecond;
+        this.customMethodOverheadInMSPerSecond = customMethodOverheadInMSPerSecond;
+    }
 }
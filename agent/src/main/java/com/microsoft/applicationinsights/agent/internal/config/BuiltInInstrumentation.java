@@ -21,6 +21,8 @@
 
 package com.microsoft.applicationinsights.agent.internal.config;
 
+import java.util.Map;
+
 public class BuiltInInstrumentation {
 
     private final boolean enabled;
@@ -30,32 +32,64 @@ public class BuiltInInstrumentation {
     private final boolean w3cBackCompatEnabled;
 
     private final boolean jdbcEnabled;
+    private final boolean jdbcNormalizeStatements;
+    private final long jdbcStatementTextIntervalInSeconds;
 
     private final boolean loggingEnabled;
     private final String loggingThreshold;
+    private final Map<String, String> loggerThresholds;
+    private final int loggingMaxEventsPerSecondPerLogger;
 
     private final boolean jedisEnabled;
 
+    private final boolean kafkaEnabled;
+    private final boolean jmsEnabled;
+
     private final long queryPlanThresholdInMS;
+    private final int queryPlansPerMinute;
+    private final long queryPlanDedupeIntervalInSeconds;
+
+    private final int dependencyAggregationThreshold;
+    private final long overheadMetricsIntervalInSeconds;
 
     public BuiltInInstrumentation(boolean enabled,
                                   boolean httpEnabled,
                                   boolean w3cEnabled,
                                   boolean w3cBackCompatEnabled,
                                   boolean jdbcEnabled,
+                                  boolean jdbcNormalizeStatements,
+                                  long jdbcStatementTextIntervalInSeconds,
                                   boolean loggingEnabled,
                                   String loggingThreshold,
+                                  Map<String, String> loggerThresholds,
+                                  int loggingMaxEventsPerSecondPerLogger,
                                   boolean jedisEnabled,
-                                  long queryPlanThresholdInMS) {
+                                  boolean kafkaEnabled,
+                                  boolean jmsEnabled,
+                                  long queryPlanThresholdInMS,
+                                  int queryPlansPerMinute,
+                                  long queryPlanDedupeIntervalInSeconds,
+                                  int dependencyAggregationThreshold,
+                                  long overheadMetricsIntervalInSeconds) {
         this.enabled = enabled;
         this.httpEnabled = httpEnabled;
         this.w3cEnabled = w3cEnabled;
         this.w3cBackCompatEnabled = w3cBackCompatEnabled;
         this.jdbcEnabled = jdbcEnabled;
+        this.jdbcNormalizeStatements = jdbcNormalizeStatements;
+        this.jdbcStatementTextIntervalInSeconds = jdbcStatementTextIntervalInSeconds;
         this.loggingEnabled = loggingEnabled;
         this.loggingThreshold = loggingThreshold;
+        this.loggerThresholds = loggerThresholds;
+        this.loggingMaxEventsPerSecondPerLogger = loggingMaxEventsPerSecondPerLogger;
         this.jedisEnabled = jedisEnabled;
+        this.kafkaEnabled = kafkaEnabled;
+        this.jmsEnabled = jmsEnabled;
         this.queryPlanThresholdInMS = queryPlanThresholdInMS;
+        this.queryPlansPerMinute = queryPlansPerMinute;
+        this.queryPlanDedupeIntervalInSeconds = queryPlanDedupeIntervalInSeconds;
+        this.dependencyAggregationThreshold = dependencyAggregationThreshold;
+        this.overheadMetricsIntervalInSeconds = overheadMetricsIntervalInSeconds;
     }
 
     public boolean isEnabled() {
@@ -78,6 +112,14 @@ public class BuiltInInstrumentation {
         return jdbcEnabled;
     }
 
+    public boolean isJdbcNormalizeStatements() {
+        return jdbcNormalizeStatements;
+    }
+
+    public long getJdbcStatementTextIntervalInSeconds() {
+        return jdbcStatementTextIntervalInSeconds;
+    }
+
     public String getLoggingThreshold() {
         return loggingThreshold;
     }
@@ -86,11 +128,43 @@ public class BuiltInInstrumentation {
         return loggingEnabled;
     }
 
+    public Map<String, String> getLoggerThresholds() {
+        return loggerThresholds;
+    }
+
+    public int getLoggingMaxEventsPerSecondPerLogger() {
+        return loggingMaxEventsPerSecondPerLogger;
+    }
+
     public boolean isJedisEnabled() {
         return jedisEnabled;
     }
 
+    public boolean isKafkaEnabled() {
+        return kafkaEnabled;
+    }
+
+    public boolean isJmsEnabled() {
+        return jmsEnabled;
+    }
+
     public long getQueryPlanThresholdInMS() {
         return queryPlanThresholdInMS;
     }
+
+    public int getQueryPlansPerMinute() {
+        return queryPlansPerMinute;
+    }
+
+    public long getQueryPlanDedupeIntervalInSeconds() {
+        return queryPlanDedupeIntervalInSeconds;
+    }
+
+    public int getDependencyAggregationThreshold() {
+        return dependencyAggregationThreshold;
+    }
+
+    public long getOverheadMetricsIntervalInSeconds() {
+        return overheadMetricsIntervalInSeconds;
+    }
 }
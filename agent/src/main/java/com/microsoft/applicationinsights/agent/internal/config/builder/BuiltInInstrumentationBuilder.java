@@ -21,6 +21,9 @@
 
 package com.microsoft.applicationinsights.agent.internal.config.builder;
 
+import java.util.Collections;
+import java.util.Map;
+
 import com.microsoft.applicationinsights.agent.internal.config.BuiltInInstrumentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +39,25 @@ public class BuiltInInstrumentationBuilder {
     private boolean w3cBackCompatEnabled = true;
 
     private boolean jdbcEnabled;
+    private boolean jdbcNormalizeStatements;
+    private long jdbcStatementTextIntervalInSeconds = 60;
 
     private boolean loggingEnabled;
     private String loggingThreshold;
+    private Map<String, String> loggerThresholds = Collections.emptyMap();
+    private int loggingMaxEventsPerSecondPerLogger;
 
     private boolean jedisEnabled;
 
+    private boolean kafkaEnabled;
+    private boolean jmsEnabled;
+
     private long queryPlanThresholdInMS = 10000;
+    private int queryPlansPerMinute = 10;
+    private long queryPlanDedupeIntervalInSeconds = 60;
+
+    private int dependencyAggregationThreshold;
+    private long overheadMetricsIntervalInSeconds;
 
     public BuiltInInstrumentation create() {
 
@@ -54,10 +69,20 @@ public class BuiltInInstrumentationBuilder {
                 w3cEnabled && enabled,
                 w3cBackCompatEnabled && enabled,
                 jdbcEnabled && enabled,
+                jdbcNormalizeStatements,
+                jdbcStatementTextIntervalInSeconds,
                 loggingEnabled && enabled,
                 loggingThreshold,
+                loggerThresholds,
+                loggingMaxEventsPerSecondPerLogger,
                 jedisEnabled && enabled,
-                queryPlanThresholdInMS
+                kafkaEnabled && enabled,
+                jmsEnabled && enabled,
+                queryPlanThresholdInMS,
+                queryPlansPerMinute,
+                queryPlanDedupeIntervalInSeconds,
+                enabled ? dependencyAggregationThreshold : 0,
+                enabled ? overheadMetricsIntervalInSeconds : 0
         );
     }
 
@@ -75,15 +100,33 @@ public class BuiltInInstrumentationBuilder {
         this.jdbcEnabled = jdbcEnabled;
     }
 
+    public void setJdbcNormalizeStatements(boolean jdbcNormalizeStatements, long jdbcStatementTextIntervalInSeconds) {
+        this.jdbcNormalizeStatements = jdbcNormalizeStatements;
+        this.jdbcStatementTextIntervalInSeconds = jdbcStatementTextIntervalInSeconds;
+    }
+
     public void setLoggingEnabled(boolean loggingEnabled, String loggingThreshold) {
         this.loggingEnabled = loggingEnabled;
         this.loggingThreshold = loggingThreshold;
     }
 
+    public void setLoggingFilter(Map<String, String> loggerThresholds, int loggingMaxEventsPerSecondPerLogger) {
+        this.loggerThresholds = loggerThresholds;
+        this.loggingMaxEventsPerSecondPerLogger = loggingMaxEventsPerSecondPerLogger;
+    }
+
     public void setJedisEnabled(boolean jedisEnabled) {
         this.jedisEnabled = jedisEnabled;
     }
 
+    public void setKafkaEnabled(boolean kafkaEnabled) {
+        this.kafkaEnabled = kafkaEnabled;
+    }
+
+    public void setJmsEnabled(boolean jmsEnabled) {
+        this.jmsEnabled = jmsEnabled;
+    }
+
     public void setQueryPlanThresholdInMS(Long queryPlanThresholdInMS) {
         if (queryPlanThresholdInMS == null) {
             this.queryPlanThresholdInMS = 10000;
@@ -91,4 +134,17 @@ public class BuiltInInstrumentationBuilder {
             this.queryPlanThresholdInMS = queryPlanThresholdInMS;
         }
     }
+
+    public void setQueryPlanLimits(int queryPlansPerMinute, long queryPlanDedupeIntervalInSeconds) {
+        this.queryPlansPerMinute = queryPlansPerMinute;
+        this.queryPlanDedupeIntervalInSeconds = queryPlanDedupeIntervalInSeconds;
+    }
+
+    public void setDependencyAggregationThreshold(int dependencyAggregationThreshold) {
+        this.dependencyAggregationThreshold = dependencyAggregationThreshold;
+    }
+
+    public void setOverheadMetricsIntervalInSeconds(long overheadMetricsIntervalInSeconds) {
+        this.overheadMetricsIntervalInSeconds = overheadMetricsIntervalInSeconds;
+    }
 }
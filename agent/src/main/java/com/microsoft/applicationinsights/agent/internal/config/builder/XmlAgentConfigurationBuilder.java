@@ -53,19 +53,33 @@ public class XmlAgentConfigurationBuilder {
     private static final String INSTRUMENTATION_TAG = "Instrumentation";
     private static final String CLASS_TAG = "Class";
     private static final String METHOD_TAG = "Method";
+    private static final String CUSTOM_METHOD_CALLS_PER_SECOND_ATTRIBUTE = "customMethodCallsPerSecond";
+    private static final String CUSTOM_METHOD_OVERHEAD_ATTRIBUTE = "customMethodOverheadInMSPerSecond";
 
     private static final String BUILT_IN_TAG = "BuiltIn";
+    private static final String DEPENDENCY_AGGREGATION_THRESHOLD_ATTRIBUTE = "dependencyAggregationThreshold";
+    private static final String OVERHEAD_METRICS_INTERVAL_ATTRIBUTE = "overheadMetricsIntervalInSeconds";
 
     private static final String HTTP_TAG = "HTTP";
     private static final String W3C_ENABLED = "W3C";
     private static final String W3C_BACK_COMPAT_ENABLED = "enableW3CBackCompat";
 
     private static final String JDBC_TAG = "JDBC";
+    private static final String JDBC_NORMALIZE_STATEMENTS_ATTRIBUTE = "normalizeStatements";
+    private static final String JDBC_STATEMENT_TEXT_INTERVAL_ATTRIBUTE = "statementTextIntervalInSeconds";
+    private static final String JDBC_QUERY_PLANS_PER_MINUTE_ATTRIBUTE = "queryPlansPerMinute";
+    private static final String JDBC_QUERY_PLAN_DEDUPE_INTERVAL_ATTRIBUTE = "queryPlanDedupeIntervalInSeconds";
 
     private static final String LOGGING_TAG = "Logging";
+    private static final String LOGGER_TAG = "Logger";
+    private static final String LOGGING_MAX_EVENTS_PER_SECOND_ATTRIBUTE = "maxEventsPerSecondPerLogger";
 
     private static final String JEDIS_TAG = "Jedis";
 
+    private static final String KAFKA_TAG = "Kafka";
+
+    private static final String JMS_TAG = "JMS";
+
     private static final String MAX_STATEMENT_QUERY_LIMIT_TAG = "MaxStatementQueryLimitInMS";
 
     private static final String THRESHOLD_ATTRIBUTE = "thresholdInMS";
@@ -103,6 +117,12 @@ public class XmlAgentConfigurationBuilder {
 
             setBuiltInInstrumentation(agentConfiguration, instrumentationTag);
 
+            agentConfiguration.setCustomMethodBudget(
+                    (int) XmlParserUtils.getLongAttribute(instrumentationTag, CUSTOM_METHOD_CALLS_PER_SECOND_ATTRIBUTE,
+                            agentConfiguration.getCustomMethodCallsPerSecond()),
+                    XmlParserUtils.getLongAttribute(instrumentationTag, CUSTOM_METHOD_OVERHEAD_ATTRIBUTE,
+                            agentConfiguration.getCustomMethodOverheadInMSPerSecond()));
+
             NodeList classTags = instrumentationTag.getElementsByTagName(CLASS_TAG);
             if (classTags == null) {
                 return agentConfiguration;
@@ -164,6 +184,10 @@ public class XmlAgentConfigurationBuilder {
             agentConfiguration.setBuiltInData(builtInConfigurationBuilder.create());
             return;
         }
+        builtInConfigurationBuilder.setDependencyAggregationThreshold((int) XmlParserUtils.getLongAttribute(
+                builtInElement, DEPENDENCY_AGGREGATION_THRESHOLD_ATTRIBUTE, 0));
+        builtInConfigurationBuilder.setOverheadMetricsIntervalInSeconds(XmlParserUtils.getLongAttribute(
+                builtInElement, OVERHEAD_METRICS_INTERVAL_ATTRIBUTE, 0));
 
         nodes = builtInElement.getElementsByTagName(HTTP_TAG);
         Element httpElement = XmlParserUtils.getFirst(nodes);
@@ -173,17 +197,34 @@ public class XmlAgentConfigurationBuilder {
                 w3cBackCompatEnabled);
 
         nodes = builtInElement.getElementsByTagName(JDBC_TAG);
-        builtInConfigurationBuilder.setJdbcEnabled(XmlParserUtils.getEnabled(XmlParserUtils.getFirst(nodes), JDBC_TAG));
+        Element jdbcElement = XmlParserUtils.getFirst(nodes);
+        builtInConfigurationBuilder.setJdbcEnabled(XmlParserUtils.getEnabled(jdbcElement, JDBC_TAG));
+        builtInConfigurationBuilder.setJdbcNormalizeStatements(
+                Boolean.parseBoolean(XmlParserUtils.getStringAttribute(jdbcElement, JDBC_NORMALIZE_STATEMENTS_ATTRIBUTE, "false")),
+                XmlParserUtils.getLongAttribute(jdbcElement, JDBC_STATEMENT_TEXT_INTERVAL_ATTRIBUTE, 60));
+        builtInConfigurationBuilder.setQueryPlanLimits(
+                (int) XmlParserUtils.getLongAttribute(jdbcElement, JDBC_QUERY_PLANS_PER_MINUTE_ATTRIBUTE, 10),
+                XmlParserUtils.getLongAttribute(jdbcElement, JDBC_QUERY_PLAN_DEDUPE_INTERVAL_ATTRIBUTE, 60));
 
         nodes = builtInElement.getElementsByTagName(LOGGING_TAG);
+        Element loggingElement = XmlParserUtils.getFirst(nodes);
         builtInConfigurationBuilder.setLoggingEnabled(
-                XmlParserUtils.getEnabled(XmlParserUtils.getFirst(nodes), LOGGING_TAG),
-                XmlParserUtils.getStringAttribute(XmlParserUtils.getFirst(nodes), "threshold", "warn"));
+                XmlParserUtils.getEnabled(loggingElement, LOGGING_TAG),
+                XmlParserUtils.getStringAttribute(loggingElement, "threshold", "warn"));
+        builtInConfigurationBuilder.setLoggingFilter(getLoggerThresholds(loggingElement),
+                (int) XmlParserUtils.getLongAttribute(loggingElement, LOGGING_MAX_EVENTS_PER_SECOND_ATTRIBUTE, 0));
 
         nodes = builtInElement.getElementsByTagName(JEDIS_TAG);
         Element element = XmlParserUtils.getFirst(nodes);
         builtInConfigurationBuilder.setJedisEnabled(XmlParserUtils.getEnabled(element, JEDIS_TAG));
 
+        nodes = builtInElement.getElementsByTagName(KAFKA_TAG);
+        builtInConfigurationBuilder.setKafkaEnabled(
+                XmlParserUtils.getEnabled(XmlParserUtils.getFirst(nodes), KAFKA_TAG));
+
+        nodes = builtInElement.getElementsByTagName(JMS_TAG);
+        builtInConfigurationBuilder.setJmsEnabled(XmlParserUtils.getEnabled(XmlParserUtils.getFirst(nodes), JMS_TAG));
+
         nodes = builtInElement.getElementsByTagName(MAX_STATEMENT_QUERY_LIMIT_TAG);
         builtInConfigurationBuilder.setQueryPlanThresholdInMS(XmlParserUtils.getLong(XmlParserUtils.getFirst(nodes),
                 MAX_STATEMENT_QUERY_LIMIT_TAG));
@@ -191,6 +232,24 @@ public class XmlAgentConfigurationBuilder {
         agentConfiguration.setBuiltInData(builtInConfigurationBuilder.create());
     }
 
+    private Map<String, String> getLoggerThresholds(Element loggingElement) {
+        Map<String, String> loggerThresholds = new HashMap<>();
+        if (loggingElement == null) {
+            return loggerThresholds;
+        }
+        NodeList loggerTags = loggingElement.getElementsByTagName(LOGGER_TAG);
+        for (int i = 0; i < loggerTags.getLength(); i++) {
+            Element loggerTag = (Element) loggerTags.item(i);
+            String loggerName = loggerTag.getAttribute(NAME_ATTRIBUTE);
+            String threshold = loggerTag.getAttribute("threshold");
+            if (Strings.isNullOrEmpty(loggerName) || Strings.isNullOrEmpty(threshold)) {
+                continue;
+            }
+            loggerThresholds.put(loggerName, threshold);
+        }
+        return loggerThresholds;
+    }
+
     private Element getClassDataElement(Node item) {
         if (item.getNodeType() != Node.ELEMENT_NODE) {
             return null;
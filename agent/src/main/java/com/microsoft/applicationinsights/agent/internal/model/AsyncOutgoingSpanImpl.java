@@ -22,6 +22,7 @@
 package com.microsoft.applicationinsights.agent.internal.model;
 
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.api.AsyncSpan;
 import org.glowroot.instrumentation.api.MessageSupplier;
 import org.glowroot.instrumentation.api.Timer;
@@ -29,9 +30,11 @@ import org.glowroot.instrumentation.engine.impl.NopTransactionService;
 
 class AsyncOutgoingSpanImpl extends OutgoingSpanImpl implements AsyncSpan {
 
-    public AsyncOutgoingSpanImpl(SdkBridge sdkBridge, String type, String text, long startTimeMillis,
-                                 String outgoingSpanId, MessageSupplier messageSupplier) {
-        super(sdkBridge, type, text, startTimeMillis, outgoingSpanId, messageSupplier);
+    public AsyncOutgoingSpanImpl(SdkBridge sdkBridge, @Nullable DependencyAggregator dependencyAggregator,
+                                 @Nullable MessagingSpans messagingSpans, String type, String text,
+                                 long startTimeMillis, String outgoingSpanId, MessageSupplier messageSupplier) {
+        super(sdkBridge, dependencyAggregator, messagingSpans, type, text, startTimeMillis, outgoingSpanId,
+                messageSupplier);
     }
 
     @Override
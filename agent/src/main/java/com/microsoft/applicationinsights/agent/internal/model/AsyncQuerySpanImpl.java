@@ -21,7 +21,9 @@
 
 package com.microsoft.applicationinsights.agent.internal.model;
 
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.api.AsyncQuerySpan;
 import org.glowroot.instrumentation.api.QueryMessageSupplier;
 import org.glowroot.instrumentation.api.Timer;
@@ -29,9 +31,10 @@ import org.glowroot.instrumentation.engine.impl.NopTransactionService;
 
 class AsyncQuerySpanImpl extends QuerySpanImpl implements AsyncQuerySpan {
 
-    public AsyncQuerySpanImpl(SdkBridge sdkBridge, String type, String dest, String text,
-                              long startTimeMillis, QueryMessageSupplier messageSupplier) {
-        super(sdkBridge, type, dest, text, startTimeMillis, messageSupplier);
+    public AsyncQuerySpanImpl(SdkBinding<?> sdkBinding, SdkBridge sdkBridge,
+                              @Nullable DependencyAggregator dependencyAggregator, String type, String dest,
+                              String text, long startTimeMillis, QueryMessageSupplier messageSupplier) {
+        super(sdkBinding, sdkBridge, dependencyAggregator, type, dest, text, startTimeMillis, messageSupplier);
     }
 
     @Override
@@ -27,6 +27,7 @@ import org.glowroot.instrumentation.api.Getter;
 import org.glowroot.instrumentation.api.Setter;
 import org.glowroot.instrumentation.api.Span;
 import org.glowroot.instrumentation.api.Timer;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextPlus;
 import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
 import org.glowroot.instrumentation.engine.impl.NopTransactionService;
 
@@ -77,6 +78,10 @@ class AuxThreadRootSpanImpl implements Span {
     }
 
     private void endInternal() {
+        ThreadContextPlus threadContext = threadContextHolder.get();
+        if (threadContext instanceof ThreadContextImpl) {
+            ((ThreadContextImpl<?>) threadContext).flushTelemetry();
+        }
         threadContextHolder.set(null);
         sdkBinding.unbindRequestTelemetryContext();
         sdkBinding.removeAuxThreadContextHolder(threadContextHolder);
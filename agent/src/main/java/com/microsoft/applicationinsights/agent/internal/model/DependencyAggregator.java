@@ -0,0 +1,204 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Merges repeated dependencies of a single thread context into summary dependencies.
+ * <p>
+ * The first {@code threshold} dependencies with the same type, target, name and command fingerprint are tracked as
+ * usual, the following ones are only counted and are tracked as a single summary dependency when the thread context
+ * ends.
+ * A summary is flagged as a possible N+1 access pattern when the repeated dependencies never overlapped in time, and
+ * either the first of them directly followed a different dependency (the statement that drives the loop, e.g. the
+ * query for the parent rows), or the statement texts that share the fingerprint differ (e.g. one inlined id per
+ * row). A statement simply repeated on its own is not flagged.
+ * <p>
+ * Dependencies that end after the thread context ended (e.g. async spans) are tracked as usual. Async spans can end on
+ * other threads, so access is synchronized.
+ */
+class DependencyAggregator {
+
+    static final String AGGREGATED_COUNT_PROPERTY = "Aggregated Count";
+    static final String TOTAL_COUNT_PROPERTY = "Total Count";
+    static final String FAILED_COUNT_PROPERTY = "Failed Count";
+    static final String MIN_DURATION_PROPERTY = "Min Duration";
+    static final String MAX_DURATION_PROPERTY = "Max Duration";
+    static final String POSSIBLE_N_PLUS_ONE_PROPERTY = "Possible N+1";
+
+    private final SdkBridge sdkBridge;
+    private final int threshold;
+
+    private @Nullable Map<String, Aggregate> aggregates;
+    private @Nullable String lastKey;
+    private boolean closed;
+
+    DependencyAggregator(SdkBridge sdkBridge, int threshold) {
+        this.sdkBridge = sdkBridge;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Tracks a dependency, unless it has been seen more than {@code threshold} times already in which case it is
+     * added to the summary.
+     *
+     * @param fingerprint the shape of the statement, dependencies are merged per shape
+     * @param text the statement as it was executed
+     */
+    void track(RemoteDependencyTelemetry telemetry, String fingerprint, String text) {
+        if (!aggregate(telemetry, fingerprint, text)) {
+            sdkBridge.track(telemetry);
+        }
+    }
+
+    /**
+     * Tracks the summary dependencies, dependencies tracked after this are not aggregated anymore.
+     */
+    void flush() {
+        Map<String, Aggregate> toFlush;
+        synchronized (this) {
+            toFlush = aggregates;
+            aggregates = null;
+            closed = true;
+        }
+        if (toFlush == null) {
+            return;
+        }
+        for (Aggregate aggregate : toFlush.values()) {
+            if (aggregate.aggregatedCount > 0) {
+                sdkBridge.track(aggregate.toTelemetry(sdkBridge));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    synchronized boolean aggregate(RemoteDependencyTelemetry telemetry, String fingerprint, String text) {
+        if (closed) {
+            return false;
+        }
+        String key = getKey(telemetry, fingerprint);
+        if (aggregates == null) {
+            aggregates = new HashMap<>();
+        }
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            // the key is new, so any dependency before it is a different one
+            aggregate = new Aggregate(lastKey != null, text);
+            aggregates.put(key, aggregate);
+        }
+        lastKey = key;
+        return aggregate.add(telemetry, text, threshold);
+    }
+
+    private static String getKey(RemoteDependencyTelemetry telemetry, String fingerprint) {
+        // without statement normalization the destination (e.g. the JDBC url) is the name, not the target
+        String target = telemetry.getTarget();
+        String name = telemetry.getName();
+        return telemetry.getType() + '\n' + (target == null ? "" : target) + '\n' + (name == null ? "" : name) + '\n'
+                + fingerprint;
+    }
+
+    private static class Aggregate {
+
+        private final boolean driven;
+        private final String firstText;
+
+        private int totalCount;
+        private boolean overlapping;
+        private boolean distinctTexts;
+        private long lastEndMillis = Long.MIN_VALUE;
+
+        private @Nullable RemoteDependencyTelemetry first;
+        private int aggregatedCount;
+        private int failedCount;
+        private long totalDurationMillis;
+        private long minDurationMillis = Long.MAX_VALUE;
+        private long maxDurationMillis;
+
+        private Aggregate(boolean driven, String firstText) {
+            this.driven = driven;
+            this.firstText = firstText;
+        }
+
+        private boolean add(RemoteDependencyTelemetry telemetry, String text, int threshold) {
+            totalCount++;
+            if (!distinctTexts && !text.equals(firstText)) {
+                distinctTexts = true;
+            }
+            long startMillis = telemetry.getTimestamp();
+            long durationMillis = telemetry.getDurationMillis();
+            if (startMillis < lastEndMillis) {
+                overlapping = true;
+            }
+            lastEndMillis = Math.max(lastEndMillis, startMillis + durationMillis);
+            if (totalCount <= threshold) {
+                return false;
+            }
+            if (first == null) {
+                first = telemetry;
+            }
+            aggregatedCount++;
+            if (!telemetry.isSuccess()) {
+                failedCount++;
+            }
+            totalDurationMillis += durationMillis;
+            minDurationMillis = Math.min(minDurationMillis, durationMillis);
+            maxDurationMillis = Math.max(maxDurationMillis, durationMillis);
+            return true;
+        }
+
+        private RemoteDependencyTelemetry toTelemetry(SdkBridge sdkBridge) {
+            // the summary spans the aggregated dependencies, its duration is the time spent in them
+            RemoteDependencyTelemetry telemetry = sdkBridge.createRemoteDependencyTelemetry(first.getTimestamp(),
+                    totalDurationMillis, first.getType(), failedCount == 0);
+            String name = first.getName();
+            if (name != null) {
+                telemetry.setName(name);
+            }
+            String target = first.getTarget();
+            if (target != null) {
+                telemetry.setTarget(target);
+            }
+            String commandName = first.getCommandName();
+            if (commandName != null) {
+                telemetry.setCommandName(commandName);
+            }
+            Map<String, String> properties = telemetry.getProperties();
+            properties.put(AGGREGATED_COUNT_PROPERTY, Integer.toString(aggregatedCount));
+            properties.put(TOTAL_COUNT_PROPERTY, Integer.toString(totalCount));
+            properties.put(FAILED_COUNT_PROPERTY, Integer.toString(failedCount));
+            properties.put(MIN_DURATION_PROPERTY, Long.toString(minDurationMillis));
+            properties.put(MAX_DURATION_PROPERTY, Long.toString(maxDurationMillis));
+            if (!overlapping && (driven || distinctTexts)) {
+                properties.put(POSSIBLE_N_PLUS_ONE_PROPERTY, "true");
+            }
+            return telemetry;
+        }
+    }
+}
@@ -21,6 +21,10 @@
 
 package com.microsoft.applicationinsights.agent.internal.model;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
 
 // global state used instead of passing these to various classes (e.g. ThreadContextImpl, SpanImpl) in order
@@ -30,6 +34,25 @@ public class Global {
     private static boolean outboundW3CEnabled;
     private static boolean outboundW3CBackCompatEnabled;
 
+    private static @Nullable SqlNormalizer sqlNormalizer;
+    private static @Nullable QueryPlanCapture queryPlanCapture;
+    private static @Nullable MethodGovernor methodGovernor;
+
+    private static int dependencyAggregationThreshold;
+
+    private static boolean messagingEnabled;
+
+    private static @Nullable LoggingFilter loggingFilter;
+
+    private static @Nullable OverheadMeter overheadMeter;
+
+    // the first sdk bridge created by the SDK, for the telemetry that is not part of any request and the requests
+    // started by the agent (there is no sdk bridge during premain)
+    private static final AtomicReference<SdkBridge<?>> firstSdkBridge = new AtomicReference<>();
+
+    // reported once, when the first sdk bridge is registered
+    private static final AtomicReference<StartupProfile> unreportedStartupProfile = new AtomicReference<>();
+
     private static final ThreadContextThreadLocal TCTL = new ThreadContextThreadLocal();
 
     private Global() {
@@ -51,6 +74,82 @@ public class Global {
         Global.outboundW3CBackCompatEnabled = outboundW3CBackCompatEnabled;
     }
 
+    public static @Nullable SqlNormalizer getSqlNormalizer() {
+        return sqlNormalizer;
+    }
+
+    public static void setSqlNormalizer(@Nullable SqlNormalizer sqlNormalizer) {
+        Global.sqlNormalizer = sqlNormalizer;
+    }
+
+    public static @Nullable QueryPlanCapture getQueryPlanCapture() {
+        return queryPlanCapture;
+    }
+
+    public static void setQueryPlanCapture(@Nullable QueryPlanCapture queryPlanCapture) {
+        Global.queryPlanCapture = queryPlanCapture;
+    }
+
+    public static @Nullable MethodGovernor getMethodGovernor() {
+        return methodGovernor;
+    }
+
+    public static void setMethodGovernor(@Nullable MethodGovernor methodGovernor) {
+        Global.methodGovernor = methodGovernor;
+    }
+
+    public static int getDependencyAggregationThreshold() {
+        return dependencyAggregationThreshold;
+    }
+
+    public static void setDependencyAggregationThreshold(int dependencyAggregationThreshold) {
+        Global.dependencyAggregationThreshold = dependencyAggregationThreshold;
+    }
+
+    public static boolean isMessagingEnabled() {
+        return messagingEnabled;
+    }
+
+    public static void setMessagingEnabled(boolean messagingEnabled) {
+        Global.messagingEnabled = messagingEnabled;
+    }
+
+    public static @Nullable LoggingFilter getLoggingFilter() {
+        return loggingFilter;
+    }
+
+    public static void setLoggingFilter(@Nullable LoggingFilter loggingFilter) {
+        Global.loggingFilter = loggingFilter;
+    }
+
+    public static @Nullable OverheadMeter getOverheadMeter() {
+        return overheadMeter;
+    }
+
+    public static void setOverheadMeter(@Nullable OverheadMeter overheadMeter) {
+        Global.overheadMeter = overheadMeter;
+    }
+
+    public static @Nullable SdkBridge<?> getFirstSdkBridge() {
+        return firstSdkBridge.get();
+    }
+
+    // returns true if this is the first sdk bridge
+    public static boolean setFirstSdkBridge(SdkBridge<?> sdkBridge) {
+        return firstSdkBridge.get() == null && firstSdkBridge.compareAndSet(null, sdkBridge);
+    }
+
+    public static void setUnreportedStartupProfile(StartupProfile startupProfile) {
+        unreportedStartupProfile.set(startupProfile);
+    }
+
+    public static @Nullable StartupProfile takeUnreportedStartupProfile() {
+        if (unreportedStartupProfile.get() == null) {
+            return null;
+        }
+        return unreportedStartupProfile.getAndSet(null);
+    }
+
     public static ThreadContextThreadLocal getThreadContextThreadLocal() {
         return TCTL;
     }
@@ -0,0 +1,168 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.glowroot.instrumentation.api.Getter;
+import org.glowroot.instrumentation.api.MessageSupplier;
+import org.glowroot.instrumentation.api.Setter;
+import org.glowroot.instrumentation.api.Span;
+import org.glowroot.instrumentation.api.Timer;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
+import org.glowroot.instrumentation.engine.impl.NopTransactionService;
+
+/**
+ * A request started by the agent for a message received on a thread with no request bound (e.g. a Kafka poll loop or a
+ * JMS MessageListener), named after the topic or queue. The request is correlated to the send that propagated the
+ * message headers, see {@link MessagingSpans}, and the dependencies of the message processing are its children.
+ */
+public class IncomingSpanImpl<T> implements Span {
+
+    private final ThreadContextImpl<T> threadContext;
+    private final ThreadContextThreadLocal.Holder threadContextHolder;
+    private final SdkBinding<T> sdkBinding;
+    private final T requestTelemetryContext;
+
+    private final String type;
+    private final long startTimeMillis;
+    private final MessageSupplier messageSupplier;
+
+    private volatile @MonotonicNonNull Throwable exception;
+
+    private IncomingSpanImpl(ThreadContextImpl<T> threadContext, ThreadContextThreadLocal.Holder threadContextHolder,
+                             SdkBinding<T> sdkBinding, T requestTelemetryContext, String type, long startTimeMillis,
+                             MessageSupplier messageSupplier) {
+        this.threadContext = threadContext;
+        this.threadContextHolder = threadContextHolder;
+        this.sdkBinding = sdkBinding;
+        this.requestTelemetryContext = requestTelemetryContext;
+        this.type = type;
+        this.startTimeMillis = startTimeMillis;
+        this.messageSupplier = messageSupplier;
+    }
+
+    /**
+     * Starts a request and binds its thread context, if the incoming span is a received message (the transaction
+     * name is then the topic or queue).
+     *
+     * @return null if the incoming span is not a received message, or if the SDK has not created an sdk bridge yet
+     */
+    public static <C> @Nullable Span start(String transactionType, String transactionName, Getter<C> getter,
+                                           C carrier, MessageSupplier messageSupplier,
+                                           ThreadContextThreadLocal.Holder threadContextHolder, int rootNestingGroupId,
+                                           int rootSuppressionKeyId) {
+        SdkBridge<?> sdkBridge = Global.getFirstSdkBridge();
+        if (sdkBridge == null) {
+            return null;
+        }
+        return start(sdkBridge, transactionType, transactionName, getter, carrier, messageSupplier,
+                threadContextHolder, rootNestingGroupId, rootSuppressionKeyId);
+    }
+
+    @VisibleForTesting
+    static <C> @Nullable Span start(SdkBridge<?> sdkBridge, String transactionType, String transactionName,
+                                    Getter<C> getter, C carrier, MessageSupplier messageSupplier,
+                                    ThreadContextThreadLocal.Holder threadContextHolder, int rootNestingGroupId,
+                                    int rootSuppressionKeyId) {
+        if (!Global.isMessagingEnabled() || !OutgoingSpanImpl.isMessaging(transactionType)) {
+            return null;
+        }
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(transactionType, true)) {
+            return startRequest(sdkBridge, transactionType, transactionName, getter, carrier, messageSupplier,
+                    threadContextHolder, rootNestingGroupId, rootSuppressionKeyId);
+        }
+    }
+
+    private static <T, C> Span startRequest(SdkBridge<T> sdkBridge, String type, String destination,
+                                            Getter<C> getter, C carrier, MessageSupplier messageSupplier,
+                                            ThreadContextThreadLocal.Holder threadContextHolder,
+                                            int rootNestingGroupId, int rootSuppressionKeyId) {
+        long startTimeMillis = System.currentTimeMillis();
+        // propagate() writes the headers with the outbound W3C setting, so the same setting is used to read them back
+        T requestTelemetryContext = sdkBridge.startRequest("Process " + destination, destination, startTimeMillis,
+                new SdkBridge.Getter<>(getter), carrier, Global.isOutboundW3CEnabled());
+        SdkBinding<T> sdkBinding = new SdkBinding<>(sdkBridge, requestTelemetryContext);
+        ThreadContextImpl<T> threadContext =
+                new ThreadContextImpl<>(sdkBinding, null, rootNestingGroupId, rootSuppressionKeyId);
+        threadContextHolder.set(threadContext);
+        return new IncomingSpanImpl<>(threadContext, threadContextHolder, sdkBinding, requestTelemetryContext, type,
+                startTimeMillis, messageSupplier);
+    }
+
+    @Override
+    public void end() {
+        endInternal();
+    }
+
+    @Override
+    public void endWithLocationStackTrace(long thresholdNanos) {
+        endInternal();
+    }
+
+    @Override
+    public void endWithError(Throwable t) {
+        exception = t;
+        endInternal();
+    }
+
+    @Override
+    public Timer extend() {
+        // timers are not used by ApplicationInsights
+        return NopTransactionService.TIMER;
+    }
+
+    @Override
+    public Object getMessageSupplier() {
+        return messageSupplier;
+    }
+
+    @Override
+    @Deprecated
+    public <R> void propagateToResponse(R response, Setter<R> setter) {
+    }
+
+    @Override
+    @Deprecated
+    public <R> void extractFromResponse(R response, Getter<R> getter) {
+    }
+
+    private void endInternal() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, false)) {
+            // the merged dependencies and the exception are tracked while the request is still bound, so they get its
+            // operation id
+            threadContext.flushTelemetry();
+            SdkBridge<T> sdkBridge = sdkBinding.getSdkBridge();
+            long endTimeMillis = System.currentTimeMillis();
+            if (exception != null) {
+                sdkBridge.track(sdkBridge.createExceptionTelemetry(endTimeMillis, exception, null));
+            }
+            sdkBridge.trackRequest(requestTelemetryContext, endTimeMillis - startTimeMillis, exception == null);
+        } finally {
+            sdkBinding.unbindFromRunawayChildThreads();
+            threadContextHolder.set(null);
+        }
+    }
+}
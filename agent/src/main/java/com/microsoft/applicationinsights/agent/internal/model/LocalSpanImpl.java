@@ -23,7 +23,6 @@ package com.microsoft.applicationinsights.agent.internal.model;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
-import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.ExceptionTelemetry;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -40,19 +39,26 @@ public class LocalSpanImpl implements Span {
 
     static final String PREFIX = "__custom,";
 
+    static final String TYPE = "Custom";
+
     private static final Logger logger = LoggerFactory.getLogger(LocalSpanImpl.class);
 
     private final SdkBridge sdkBridge;
+    private final @Nullable MethodGovernor methodGovernor;
 
     private final String text;
+    private final int samplingInterval;
     private final long startTimeMillis;
     private final MessageSupplier messageSupplier;
 
     private volatile @MonotonicNonNull Throwable exception;
 
-    LocalSpanImpl(SdkBridge sdkBridge, String text, long startTimeMillis, MessageSupplier messageSupplier) {
+    LocalSpanImpl(SdkBridge sdkBridge, @Nullable MethodGovernor methodGovernor, String text, int samplingInterval,
+                  long startTimeMillis, MessageSupplier messageSupplier) {
         this.sdkBridge = sdkBridge;
+        this.methodGovernor = methodGovernor;
         this.text = text;
+        this.samplingInterval = samplingInterval;
         this.startTimeMillis = startTimeMillis;
         this.messageSupplier = messageSupplier;
     }
@@ -95,13 +101,31 @@ public class LocalSpanImpl implements Span {
     }
 
     private void endInternal() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(TYPE, false)) {
+            if (methodGovernor == null) {
+                track();
+                return;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                track();
+            } finally {
+                methodGovernor.recordOverhead(text, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    private void track() {
         RemoteDependencyTelemetry telemetry = createRemoteDependencyTelemetry(text, startTimeMillis, exception);
         if (telemetry == null) {
             return;
         }
+        if (samplingInterval > 1) {
+            telemetry.setSamplingPercentage(100.0 / samplingInterval);
+        }
         sdkBridge.track(telemetry);
         if (exception != null) {
-            sdkBridge.track(new ExceptionTelemetry(exception));
+            sdkBridge.track(sdkBridge.createExceptionTelemetry(System.currentTimeMillis(), exception, null));
         }
     }
 
@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.ExceptionTelemetry;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.TraceTelemetry;
@@ -35,32 +36,52 @@ import org.glowroot.instrumentation.api.internal.ReadableMessage;
 
 class LoggerSpans {
 
+    static final String TYPE = "Logging";
+
+    private static final ThreadLocal<CachedDateFormat> dateFormat = new ThreadLocal<CachedDateFormat>() {
+        @Override
+        protected CachedDateFormat initialValue() {
+            return new CachedDateFormat();
+        }
+    };
+
     static void track(SdkBridge sdkBridge, MessageSupplier messageSupplier, @Nullable Throwable throwable,
                       long timeMillis) {
 
         ReadableMessage message = (ReadableMessage) messageSupplier.get();
-        String formattedMessage = message.getText();
         Map<String, ?> detail = message.getDetail();
         String level = (String) detail.get("Level");
         String loggerName = (String) detail.get("Logger name");
 
+        int droppedCount = 0;
+        LoggingFilter loggingFilter = Global.getLoggingFilter();
+        if (loggingFilter != null) {
+            droppedCount = loggingFilter.accept(loggerName, level, timeMillis);
+            if (droppedCount == -1) {
+                return;
+            }
+        }
+
+        String formattedMessage = message.getText();
         if (throwable == null) {
-            TraceTelemetry telemetry = new TraceTelemetry(formattedMessage, level);
-            setProperties(telemetry.getProperties(), timeMillis, level, loggerName, null, formattedMessage);
+            TraceTelemetry telemetry = sdkBridge.createTraceTelemetry(timeMillis, formattedMessage, level);
+            setProperties(telemetry.getProperties(), timeMillis, level, loggerName, null, formattedMessage,
+                    droppedCount);
             sdkBridge.track(telemetry);
         } else {
-            ExceptionTelemetry telemetry = new ExceptionTelemetry(throwable, level);
-            setProperties(telemetry.getProperties(), timeMillis, level, loggerName, throwable, formattedMessage);
+            ExceptionTelemetry telemetry = sdkBridge.createExceptionTelemetry(timeMillis, throwable, level);
+            setProperties(telemetry.getProperties(), timeMillis, level, loggerName, throwable, formattedMessage,
+                    droppedCount);
             sdkBridge.track(telemetry);
         }
     }
 
     private static void setProperties(Map<String, String> properties, long timeMillis, String level, String loggerName,
-                                      @Nullable Throwable throwable, String formattedMessage) {
+                                      @Nullable Throwable throwable, String formattedMessage, int droppedCount) {
 
         // TODO SourceType? e.g. "Log4j", "LOGBack"
         properties.put("SourceType", "Logger");
-        properties.put("TimeStamp", getFormattedDate(timeMillis));
+        properties.put("TimeStamp", dateFormat.get().format(timeMillis));
         if (level != null) {
             properties.put("LoggingLevel", level);
         }
@@ -72,6 +93,10 @@ class LoggerSpans {
         if (throwable != null) {
             properties.put("Logger Message", formattedMessage);
         }
+        if (droppedCount > 0) {
+            // events of the same logger dropped by the rate limit since the previous one was tracked
+            properties.put("Dropped Count", Integer.toString(droppedCount));
+        }
 
         // TODO log4j: location information? ClassName, FileName, MethodName, LineNumber
 
@@ -81,7 +106,22 @@ class LoggerSpans {
         // TODO: Should check, seems that it is not included in Log4j2.
     }
 
-    private static String getFormattedDate(long dateInMilliseconds) {
-        return new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).format(new Date(dateInMilliseconds));
+    // SimpleDateFormat is not thread safe, and the formatted value only changes once per second
+    @VisibleForTesting
+    static class CachedDateFormat {
+
+        private final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+        private long cachedSecond = Long.MIN_VALUE;
+        private @Nullable String cachedValue;
+
+        String format(long timeMillis) {
+            long second = timeMillis / 1000;
+            if (second != cachedSecond || cachedValue == null) {
+                cachedValue = format.format(new Date(timeMillis));
+                cachedSecond = second;
+            }
+            return cachedValue;
+        }
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Decides whether a captured log event is tracked, before any telemetry is built for it.
+ * <p>
+ * Loggers can be given their own threshold (matched on the logger name and its parent names, e.g. a threshold for
+ * "org.hibernate" applies to "org.hibernate.SQL"). Since events below the global logging threshold are not captured
+ * in the first place, this can only make a logger stricter. Each logger can also be limited to a number of events per
+ * second, the events dropped by the limit are counted and reported on the next event tracked for that logger.
+ */
+public class LoggingFilter {
+
+    private static final int MAX_LOGGERS = 1000;
+
+    private static final int UNKNOWN_LEVEL = -1;
+
+    // level names of log4j and logback
+    private static final Map<String, Integer> LEVELS = new HashMap<>();
+
+    static {
+        LEVELS.put("TRACE", 0);
+        LEVELS.put("DEBUG", 1);
+        LEVELS.put("INFO", 2);
+        LEVELS.put("WARN", 3);
+        LEVELS.put("ERROR", 4);
+        LEVELS.put("FATAL", 5);
+    }
+
+    private final Map<String, Integer> loggerThresholds;
+    private final int maxEventsPerSecond;
+
+    private final ConcurrentMap<String, LoggerState> loggerStates = new ConcurrentHashMap<>();
+
+    /**
+     * @param loggerThresholds thresholds keyed by logger name, e.g. "org.hibernate" -> "error"
+     * @param maxEventsPerSecond the number of events per second tracked per logger, 0 for no limit
+     */
+    public LoggingFilter(Map<String, String> loggerThresholds, int maxEventsPerSecond) {
+        this.loggerThresholds = new HashMap<>();
+        for (Map.Entry<String, String> entry : loggerThresholds.entrySet()) {
+            this.loggerThresholds.put(entry.getKey(), toLevel(entry.getValue()));
+        }
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    /**
+     * @return -1 if the event should not be tracked, otherwise the number of events of this logger that were dropped
+     * by the rate limit since the last event tracked for it
+     */
+    int accept(@Nullable String loggerName, @Nullable String level, long timeMillis) {
+        LoggerState state = getState(loggerName == null ? "" : loggerName);
+        if (state.threshold != UNKNOWN_LEVEL && toLevel(level) < state.threshold) {
+            return -1;
+        }
+        if (maxEventsPerSecond == 0) {
+            return 0;
+        }
+        return state.acquire(timeMillis / 1000, maxEventsPerSecond);
+    }
+
+    private LoggerState getState(String loggerName) {
+        LoggerState state = loggerStates.get(loggerName);
+        if (state != null) {
+            return state;
+        }
+        state = new LoggerState(getThreshold(loggerName));
+        if (loggerStates.size() >= MAX_LOGGERS) {
+            // loggers with generated names are not cached, and are not rate limited
+            return state;
+        }
+        LoggerState existing = loggerStates.putIfAbsent(loggerName, state);
+        return existing == null ? state : existing;
+    }
+
+    @VisibleForTesting
+    int getThreshold(String loggerName) {
+        String name = loggerName;
+        while (true) {
+            Integer threshold = loggerThresholds.get(name);
+            if (threshold != null) {
+                return threshold;
+            }
+            int index = name.lastIndexOf('.');
+            if (index == -1) {
+                return UNKNOWN_LEVEL;
+            }
+            name = name.substring(0, index);
+        }
+    }
+
+    private static int toLevel(@Nullable String level) {
+        if (level == null) {
+            return UNKNOWN_LEVEL;
+        }
+        Integer value = LEVELS.get(level.toUpperCase(Locale.ROOT));
+        return value == null ? UNKNOWN_LEVEL : value;
+    }
+
+    private static class LoggerState {
+
+        private final int threshold;
+
+        private long second;
+        private int count;
+        private int dropped;
+
+        private LoggerState(int threshold) {
+            this.threshold = threshold;
+        }
+
+        private synchronized int acquire(long second, int maxEventsPerSecond) {
+            if (second != this.second) {
+                this.second = second;
+                count = 0;
+            }
+            if (count >= maxEventsPerSecond) {
+                dropped++;
+                return -1;
+            }
+            count++;
+            int droppedSinceLastEvent = dropped;
+            dropped = 0;
+            return droppedSinceLastEvent;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.glowroot.instrumentation.api.Setter;
+
+/**
+ * Kafka and JMS messages sent and received within a single thread context.
+ * <p>
+ * Sends are tracked as one dependency per destination instead of one per message. All messages sent to a destination
+ * propagate the same id, so the consumers of any of them are correlated to that dependency: the headers written for
+ * the first message are replayed on the following ones. The dependency is tracked when the thread context ends, or
+ * when the last send still in flight at that time ends (e.g. Kafka acks records asynchronously, usually after the
+ * request has ended).
+ * <p>
+ * Messages received while the thread context is bound (e.g. a request that polls a topic) are tracked as one consumer
+ * dependency per destination, with the number of messages received.
+ * <p>
+ * Async sends can end on other threads, so access is synchronized.
+ */
+class MessagingSpans {
+
+    static final String MESSAGE_COUNT_PROPERTY = "Message Count";
+
+    private final SdkBridge<?> sdkBridge;
+
+    // keyed by type and destination
+    private final Map<String, Destination> sends = new HashMap<>();
+    private final Map<String, Destination> receives = new HashMap<>();
+
+    private boolean closed;
+
+    MessagingSpans(SdkBridge<?> sdkBridge) {
+        this.sdkBridge = sdkBridge;
+    }
+
+    /**
+     * Writes the correlation headers of the destination to the message and returns the id they propagate.
+     */
+    synchronized <C> String propagate(String type, String destination, Setter<C> setter, C carrier) {
+        Destination send = getDestination(sends, type, destination, true);
+        if (send.id == null) {
+            RecordingSetter<C> recordingSetter = new RecordingSetter<>(setter);
+            send.id = sdkBridge.propagate(new SdkBridge.Setter<>(recordingSetter), carrier,
+                    Global.isOutboundW3CEnabled(), Global.isOutboundW3CBackCompatEnabled());
+            send.headers = recordingSetter.headers;
+        } else {
+            for (Map.Entry<String, String> header : send.headers.entrySet()) {
+                setter.put(carrier, header.getKey(), header.getValue());
+            }
+        }
+        send.inFlight++;
+        return send.id;
+    }
+
+    void endSend(String type, String destination, long startTimeMillis, long durationMillis, boolean success) {
+        Destination send;
+        synchronized (this) {
+            String key = getKey(type, destination);
+            send = sends.get(key);
+            if (send == null) {
+                // not propagated through this thread context
+                return;
+            }
+            send.add(startTimeMillis, durationMillis, success);
+            send.inFlight--;
+            if (!closed || send.inFlight > 0) {
+                return;
+            }
+            sends.remove(key);
+        }
+        sdkBridge.track(send.toTelemetry());
+    }
+
+    void endReceive(String type, String destination, long startTimeMillis, long durationMillis, boolean success) {
+        Destination receive;
+        synchronized (this) {
+            if (!closed) {
+                getDestination(receives, type, destination, false).add(startTimeMillis, durationMillis, success);
+                return;
+            }
+            receive = new Destination(type, destination, false);
+            receive.add(startTimeMillis, durationMillis, success);
+        }
+        sdkBridge.track(receive.toTelemetry());
+    }
+
+    /**
+     * Tracks the messaging dependencies, except for sends that are still in flight which are tracked when the last of
+     * them ends.
+     */
+    void flush() {
+        List<Destination> toTrack = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Iterator<Destination> i = sends.values().iterator(); i.hasNext(); ) {
+                Destination send = i.next();
+                if (send.inFlight == 0) {
+                    toTrack.add(send);
+                    i.remove();
+                }
+            }
+            toTrack.addAll(receives.values());
+            receives.clear();
+        }
+        for (Destination destination : toTrack) {
+            sdkBridge.track(destination.toTelemetry());
+        }
+    }
+
+    private Destination getDestination(Map<String, Destination> destinations, String type, String destination,
+                                       boolean send) {
+        String key = getKey(type, destination);
+        Destination value = destinations.get(key);
+        if (value == null) {
+            value = new Destination(type, destination, send);
+            destinations.put(key, value);
+        }
+        return value;
+    }
+
+    private static String getKey(String type, String destination) {
+        return type + '\n' + destination;
+    }
+
+    private class Destination {
+
+        private final String type;
+        private final String destination;
+        private final boolean send;
+
+        private @Nullable String id;
+        private @Nullable Map<String, String> headers;
+        private int inFlight;
+
+        private int count;
+        private int failedCount;
+        private long startTimeMillis = Long.MAX_VALUE;
+        private long totalDurationMillis;
+        private long minDurationMillis = Long.MAX_VALUE;
+        private long maxDurationMillis;
+
+        private Destination(String type, String destination, boolean send) {
+            this.type = type;
+            this.destination = destination;
+            this.send = send;
+        }
+
+        private void add(long startTimeMillis, long durationMillis, boolean success) {
+            count++;
+            if (!success) {
+                failedCount++;
+            }
+            this.startTimeMillis = Math.min(this.startTimeMillis, startTimeMillis);
+            totalDurationMillis += durationMillis;
+            minDurationMillis = Math.min(minDurationMillis, durationMillis);
+            maxDurationMillis = Math.max(maxDurationMillis, durationMillis);
+        }
+
+        private RemoteDependencyTelemetry toTelemetry() {
+            // like merged dependencies, the duration is the time spent sending or receiving the messages
+            RemoteDependencyTelemetry telemetry = sdkBridge.createRemoteDependencyTelemetry(startTimeMillis,
+                    totalDurationMillis, type, failedCount == 0);
+            if (id != null) {
+                telemetry.setId(id);
+            }
+            telemetry.setName((send ? "Send " : "Receive ") + destination);
+            telemetry.setTarget(destination);
+            Map<String, String> properties = telemetry.getProperties();
+            properties.put(MESSAGE_COUNT_PROPERTY, Integer.toString(count));
+            properties.put(DependencyAggregator.FAILED_COUNT_PROPERTY, Integer.toString(failedCount));
+            properties.put(DependencyAggregator.MIN_DURATION_PROPERTY, Long.toString(minDurationMillis));
+            properties.put(DependencyAggregator.MAX_DURATION_PROPERTY, Long.toString(maxDurationMillis));
+            return telemetry;
+        }
+    }
+
+    private static class RecordingSetter<C> implements Setter<C> {
+
+        private final Setter<C> setter;
+
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        private RecordingSetter(Setter<C> setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void put(C carrier, String key, String value) {
+            setter.put(carrier, key, value);
+            headers.put(key, value);
+        }
+    }
+}
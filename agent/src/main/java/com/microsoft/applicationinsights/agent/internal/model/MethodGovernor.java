@@ -0,0 +1,216 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps custom method instrumentation (see {@link LocalSpanImpl}) within a budget per method.
+ * <p>
+ * For each instrumented method the calls and the time spent by the agent on them are measured per second. When a
+ * method goes over the budget of calls per second or of instrumentation time per second, it is switched to sampled
+ * mode where only 1 in N calls is tracked, N being chosen to bring it back within the budget. The sampling interval
+ * is lowered again once the method has calmed down. The tracked calls of a sampled method carry the matching
+ * sampling percentage, so they are counted correctly.
+ * <p>
+ * Switching a method in and out of sampled mode is logged. It is also tracked as a trace telemetry, but not from the
+ * request that happened to notice it: the traces are queued and tracked with no request bound, see
+ * {@link #trackPendingReports(SdkBridge)}.
+ */
+public class MethodGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MethodGovernor.class);
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // a method only switches when its budget is crossed, so this is only reached if many methods switch between two
+    // reports
+    private static final int MAX_PENDING_REPORTS = 100;
+
+    private final int maxCallsPerSecond;
+    private final long maxOverheadNanosPerSecond;
+
+    // keyed by the local span message, which is unique per instrumented method (see AIAgentXmlLoader)
+    private final ConcurrentMap<String, MethodStats> methodStats = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<SdkBridge.TraceTelemetry> pendingReports =
+            new ArrayBlockingQueue<>(MAX_PENDING_REPORTS);
+
+    /**
+     * @param maxCallsPerSecond the number of calls per second a method can be tracked for, 0 for no limit
+     * @param maxOverheadInMSPerSecond the time per second the agent can spend on a method, 0 for no limit
+     */
+    public MethodGovernor(int maxCallsPerSecond, long maxOverheadInMSPerSecond) {
+        this.maxCallsPerSecond = maxCallsPerSecond;
+        this.maxOverheadNanosPerSecond = TimeUnit.MILLISECONDS.toNanos(maxOverheadInMSPerSecond);
+    }
+
+    /**
+     * @return 0 if this call should not be tracked, otherwise the current sampling interval of the method (1 when it is
+     * not sampled)
+     */
+    int onCall(String text) {
+        return onCall(text, System.nanoTime());
+    }
+
+    @VisibleForTesting
+    int onCall(String text, long nowNanos) {
+        MethodStats stats = methodStats.get(text);
+        if (stats == null) {
+            MethodStats newStats = new MethodStats(nowNanos);
+            stats = methodStats.putIfAbsent(text, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        long windowStartNanos = stats.windowStartNanos.get();
+        if (nowNanos - windowStartNanos >= WINDOW_NANOS && stats.windowStartNanos.compareAndSet(windowStartNanos,
+                nowNanos)) {
+            endWindow(text, stats, nowNanos - windowStartNanos);
+        }
+        int calls = stats.calls.incrementAndGet();
+        int samplingInterval = stats.samplingInterval;
+        return calls % samplingInterval == 0 ? samplingInterval : 0;
+    }
+
+    /**
+     * Records the time the agent spent on a tracked call.
+     */
+    void recordOverhead(String text, long overheadNanos) {
+        MethodStats stats = methodStats.get(text);
+        if (stats != null) {
+            stats.overheadNanos.addAndGet(overheadNanos);
+        }
+    }
+
+    public boolean hasPendingReports() {
+        return !pendingReports.isEmpty();
+    }
+
+    /**
+     * Tracks the traces of the methods that switched in or out of sampled mode since the last call. This must be
+     * called with no request telemetry context bound, since the traces are not part of any request.
+     */
+    public void trackPendingReports(SdkBridge<?> sdkBridge) {
+        SdkBridge.TraceTelemetry telemetry;
+        while ((telemetry = pendingReports.poll()) != null) {
+            sdkBridge.track(telemetry);
+        }
+    }
+
+    private void endWindow(String text, MethodStats stats, long windowNanos) {
+        int calls = stats.calls.getAndSet(0);
+        long overheadNanos = stats.overheadNanos.getAndSet(0);
+        int samplingInterval = stats.samplingInterval;
+        int requiredInterval = getRequiredSamplingInterval(calls, overheadNanos, samplingInterval, windowNanos);
+        int newInterval;
+        if (requiredInterval > samplingInterval) {
+            newInterval = requiredInterval;
+        } else if (requiredInterval * 2 <= samplingInterval) {
+            // only lowered when well within the budget, to avoid switching back and forth around the limit
+            newInterval = Math.max(1, samplingInterval / 2);
+        } else {
+            return;
+        }
+        stats.samplingInterval = newInterval;
+        if (samplingInterval == 1 || newInterval == 1) {
+            report(text, calls, overheadNanos, windowNanos, newInterval);
+        }
+    }
+
+    @VisibleForTesting
+    int getRequiredSamplingInterval(int calls, long overheadNanos, int samplingInterval, long windowNanos) {
+        // calls and overhead are normalized to one second, overhead is only measured on the tracked calls
+        double callsPerSecond = (double) calls * WINDOW_NANOS / windowNanos;
+        double trackedCallsPerSecond = callsPerSecond / samplingInterval;
+        double maxTrackedCallsPerSecond = maxCallsPerSecond > 0 ? maxCallsPerSecond : Double.MAX_VALUE;
+        if (maxOverheadNanosPerSecond > 0 && trackedCallsPerSecond > 0) {
+            double overheadNanosPerCall = (double) overheadNanos * WINDOW_NANOS / windowNanos / trackedCallsPerSecond;
+            if (overheadNanosPerCall > 0) {
+                maxTrackedCallsPerSecond = Math.min(maxTrackedCallsPerSecond,
+                        maxOverheadNanosPerSecond / overheadNanosPerCall);
+            }
+        }
+        if (callsPerSecond <= maxTrackedCallsPerSecond) {
+            return 1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(callsPerSecond / Math.max(1, maxTrackedCallsPerSecond)));
+    }
+
+    private void report(String text, int calls, long overheadNanos, long windowNanos, int samplingInterval) {
+        String methodName = getMethodName(text);
+        String message;
+        if (samplingInterval == 1) {
+            message = "Custom instrumentation of " + methodName + " is back within its budget, all calls are tracked";
+        } else {
+            message = "Custom instrumentation of " + methodName + " is over its budget, only 1 in " + samplingInterval
+                    + " calls is tracked";
+        }
+        logger.warn(message);
+        SdkBridge.TraceTelemetry telemetry = new SdkBridge.TraceTelemetry(System.currentTimeMillis(), message, "WARN");
+        telemetry.getProperties().put("Method", methodName);
+        telemetry.getProperties().put("Sampling Interval", Integer.toString(samplingInterval));
+        double perSecond = (double) WINDOW_NANOS / windowNanos;
+        telemetry.getProperties().put("Calls Per Second", Long.toString(Math.round(calls * perSecond)));
+        telemetry.getProperties().put("Overhead Per Second (ms)",
+                Long.toString(TimeUnit.NANOSECONDS.toMillis(Math.round(overheadNanos * perSecond))));
+        if (!pendingReports.offer(telemetry)) {
+            logger.debug("dropping the trace as too many are pending: {}", message);
+        }
+    }
+
+    // e.g. "__custom,xyz.ABC,abc,0,QRS" -> "xyz.ABC.abc"
+    @VisibleForTesting
+    static String getMethodName(String text) {
+        int classIndex = text.indexOf(',');
+        int methodIndex = text.indexOf(',', classIndex + 1);
+        int thresholdIndex = methodIndex == -1 ? -1 : text.indexOf(',', methodIndex + 1);
+        if (thresholdIndex == -1) {
+            return text;
+        }
+        return text.substring(classIndex + 1, methodIndex) + '.' + text.substring(methodIndex + 1, thresholdIndex);
+    }
+
+    private static class MethodStats {
+
+        private final AtomicLong windowStartNanos;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicLong overheadNanos = new AtomicLong();
+
+        private volatile int samplingInterval = 1;
+
+        private MethodStats(long windowStartNanos) {
+            this.windowStartNanos = new AtomicLong(windowStartNanos);
+        }
+    }
+}
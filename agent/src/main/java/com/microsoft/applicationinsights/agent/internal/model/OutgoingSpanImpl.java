@@ -27,7 +27,6 @@ import java.util.Map;
 
 import com.google.common.base.Strings;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
-import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.ExceptionTelemetry;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -46,6 +45,8 @@ public class OutgoingSpanImpl implements Span {
     private static final Logger logger = LoggerFactory.getLogger(OutgoingSpanImpl.class);
 
     private final SdkBridge sdkBridge;
+    private final @Nullable DependencyAggregator dependencyAggregator;
+    private final @Nullable MessagingSpans messagingSpans;
 
     private final String type;
     private final String text;
@@ -57,9 +58,12 @@ public class OutgoingSpanImpl implements Span {
 
     private volatile @MonotonicNonNull Throwable exception;
 
-    public OutgoingSpanImpl(SdkBridge sdkBridge, String type, String text, long startTimeMillis, String outgoingSpanId,
-                            MessageSupplier messageSupplier) {
+    OutgoingSpanImpl(SdkBridge sdkBridge, @Nullable DependencyAggregator dependencyAggregator,
+                     @Nullable MessagingSpans messagingSpans, String type, String text, long startTimeMillis,
+                     String outgoingSpanId, MessageSupplier messageSupplier) {
         this.sdkBridge = sdkBridge;
+        this.dependencyAggregator = dependencyAggregator;
+        this.messagingSpans = messagingSpans;
         this.type = type;
         this.text = text;
         this.startTimeMillis = startTimeMillis;
@@ -106,22 +110,57 @@ public class OutgoingSpanImpl implements Span {
     }
 
     private void endInternal() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, false)) {
+            track();
+        }
+    }
+
+    private void track() {
         RemoteDependencyTelemetry telemetry = null;
+        boolean aggregatable = false;
         if (type.equals("HTTP")) {
+            // http dependencies carry the id that downstream requests are correlated to, so they are never merged
             telemetry = toHttpTelemetry();
         } else if (type.equals("Redis")) {
-            telemetry = new RemoteDependencyTelemetry(startTimeMillis, System.currentTimeMillis() - startTimeMillis,
-                    type, exception == null);
+            telemetry = sdkBridge.createRemoteDependencyTelemetry(startTimeMillis,
+                    System.currentTimeMillis() - startTimeMillis, type, exception == null);
             telemetry.setName(text);
+            aggregatable = true;
+        } else if (isMessaging(type)) {
+            // text is the topic or queue
+            if (messagingSpans != null) {
+                // sends are merged per destination
+                messagingSpans.endSend(type, text, startTimeMillis, System.currentTimeMillis() - startTimeMillis,
+                        exception == null);
+                trackException();
+                return;
+            }
+            telemetry = sdkBridge.createRemoteDependencyTelemetry(startTimeMillis,
+                    System.currentTimeMillis() - startTimeMillis, type, exception == null);
+            telemetry.setId(outgoingSpanId);
+            telemetry.setName("Send " + text);
+            telemetry.setTarget(text);
         }
         if (telemetry != null) {
-            sdkBridge.track(telemetry);
-            if (exception != null) {
-                sdkBridge.track(new ExceptionTelemetry(exception));
+            if (aggregatable && dependencyAggregator != null) {
+                dependencyAggregator.track(telemetry, text, text);
+            } else {
+                sdkBridge.track(telemetry);
             }
+            trackException();
         }
     }
 
+    private void trackException() {
+        if (exception != null) {
+            sdkBridge.track(sdkBridge.createExceptionTelemetry(System.currentTimeMillis(), exception, null));
+        }
+    }
+
+    static boolean isMessaging(String type) {
+        return type.equalsIgnoreCase("Kafka") || type.equalsIgnoreCase("JMS");
+    }
+
     private @Nullable RemoteDependencyTelemetry toHttpTelemetry() {
 
         ReadableMessage message = (ReadableMessage) messageSupplier.get();
@@ -138,7 +177,7 @@ public class OutgoingSpanImpl implements Span {
         String method = (String) detail.get("Method");
         Integer result = (Integer) detail.get("Result");
 
-        RemoteDependencyTelemetry telemetry = new RemoteDependencyTelemetry(startTimeMillis,
+        RemoteDependencyTelemetry telemetry = sdkBridge.createRemoteDependencyTelemetry(startTimeMillis,
                 System.currentTimeMillis() - startTimeMillis, "Http (tracked component)",
                 result == null || result < 400);
         telemetry.setId(outgoingSpanId);
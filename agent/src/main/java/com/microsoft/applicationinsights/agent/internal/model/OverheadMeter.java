@@ -0,0 +1,244 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the CPU time and the memory the agent itself spends on starting and ending spans, per instrumentation type
+ * (e.g. "SQL", "HTTP", "Logging", "Custom"), including the time spent handing telemetry to the SDK.
+ * <p>
+ * The totals are reported as metrics every interval by a background thread, with the first sdk bridge created by the
+ * SDK, see {@link #reportIfDue(SdkBridge)}. Reading the thread CPU time and allocation counters costs around a
+ * microsecond, which is why this is only enabled on demand.
+ */
+public class OverheadMeter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverheadMeter.class);
+
+    static final String INSTRUMENTATION_TYPE_PROPERTY = "Instrumentation Type";
+
+    // the merged dependencies tracked when a thread context ends
+    static final String FLUSH_TYPE = "Flush";
+
+    private final ThreadMXBean threadBean;
+    private final boolean cpuTimeSupported;
+    private final boolean allocatedBytesSupported;
+
+    private final long intervalMillis;
+    private final AtomicLong nextReportMillis;
+
+    private final ConcurrentMap<String, Stats> statsPerType = new ConcurrentHashMap<>();
+
+    // measurements are not nested, e.g. the telemetry tracked while ending a span is part of the span end
+    private final ThreadLocal<Sample> samples = new ThreadLocal<Sample>() {
+        @Override
+        protected Sample initialValue() {
+            return new Sample(OverheadMeter.this);
+        }
+    };
+
+    public OverheadMeter(long intervalInSeconds) {
+        this(ManagementFactory.getThreadMXBean(), intervalInSeconds, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    OverheadMeter(ThreadMXBean threadBean, long intervalInSeconds, long nowMillis) {
+        this.threadBean = threadBean;
+        cpuTimeSupported = isCpuTimeSupported(threadBean);
+        allocatedBytesSupported = isAllocatedBytesSupported(threadBean);
+        intervalMillis = TimeUnit.SECONDS.toMillis(intervalInSeconds);
+        nextReportMillis = new AtomicLong(nowMillis + intervalMillis);
+    }
+
+    /**
+     * Starts measuring on the current thread, the measurement ends when the returned sample is closed, e.g.
+     * {@code try (OverheadMeter.Sample sample = OverheadMeter.startSample("SQL", true)) { ... }}. Returns null when
+     * the overhead is not measured, or is already being measured further up the stack.
+     *
+     * @param spanStart whether the measurement is a span start, which is what spans are counted on
+     */
+    static @Nullable Sample startSample(String instrumentationType, boolean spanStart) {
+        OverheadMeter overheadMeter = Global.getOverheadMeter();
+        if (overheadMeter == null) {
+            return null;
+        }
+        Sample sample = overheadMeter.start();
+        if (sample != null) {
+            sample.instrumentationType = instrumentationType;
+            sample.spanStart = spanStart;
+        }
+        return sample;
+    }
+
+    private @Nullable Sample start() {
+        Sample sample = samples.get();
+        if (sample.active) {
+            return null;
+        }
+        sample.active = true;
+        sample.startCpuNanos = getCurrentThreadCpuNanos();
+        sample.startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        return sample;
+    }
+
+    private void end(Sample sample, String instrumentationType, boolean spanStart) {
+        long cpuNanos = getCurrentThreadCpuNanos() - sample.startCpuNanos;
+        long allocatedBytes = getCurrentThreadAllocatedBytes() - sample.startAllocatedBytes;
+        sample.active = false;
+        Stats stats = statsPerType.get(instrumentationType);
+        if (stats == null) {
+            Stats newStats = new Stats();
+            stats = statsPerType.putIfAbsent(instrumentationType, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        if (spanStart) {
+            stats.spanCount.incrementAndGet();
+        }
+        stats.cpuNanos.addAndGet(cpuNanos);
+        stats.allocatedBytes.addAndGet(allocatedBytes);
+    }
+
+    /**
+     * Reports the totals since the last report, if the interval has elapsed. This must be called with no request
+     * telemetry context bound, since the metrics are not part of any request.
+     */
+    public void reportIfDue(SdkBridge<?> sdkBridge) {
+        reportIfDue(sdkBridge, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    void reportIfDue(SdkBridge<?> sdkBridge, long nowMillis) {
+        long next = nextReportMillis.get();
+        if (nowMillis < next || !nextReportMillis.compareAndSet(next, nowMillis + intervalMillis)) {
+            return;
+        }
+        for (Map.Entry<String, Stats> entry : statsPerType.entrySet()) {
+            Stats stats = entry.getValue();
+            long spanCount = stats.spanCount.getAndSet(0);
+            long cpuNanos = stats.cpuNanos.getAndSet(0);
+            long allocatedBytes = stats.allocatedBytes.getAndSet(0);
+            if (spanCount == 0 && cpuNanos == 0 && allocatedBytes == 0) {
+                continue;
+            }
+            Map<String, String> properties = new HashMap<>();
+            properties.put(INSTRUMENTATION_TYPE_PROPERTY, entry.getKey());
+            sdkBridge.trackMetric("Agent Span Count", spanCount, properties);
+            if (cpuTimeSupported) {
+                sdkBridge.trackMetric("Agent CPU Time (ms)", cpuNanos / 1000000.0, properties);
+            }
+            if (allocatedBytesSupported) {
+                sdkBridge.trackMetric("Agent Allocated Bytes", allocatedBytes, properties);
+            }
+            logger.debug("agent overhead for {}: {} spans, {} ns cpu, {} bytes allocated", entry.getKey(), spanCount,
+                    cpuNanos, allocatedBytes);
+        }
+    }
+
+    private long getCurrentThreadCpuNanos() {
+        return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long getCurrentThreadAllocatedBytes() {
+        if (!allocatedBytesSupported) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean isCpuTimeSupported(ThreadMXBean threadBean) {
+        try {
+            if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!threadBean.isThreadCpuTimeEnabled()) {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            logger.debug(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static boolean isAllocatedBytesSupported(ThreadMXBean threadBean) {
+        try {
+            // not part of the java.lang.management api, only available on HotSpot based JVMs
+            if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+                return false;
+            }
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (!sunThreadBean.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            if (!sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                sunThreadBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException | NoClassDefFoundError e) {
+            logger.debug(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    static class Sample implements AutoCloseable {
+
+        private final OverheadMeter overheadMeter;
+
+        private boolean active;
+        private String instrumentationType = "";
+        private boolean spanStart;
+        private long startCpuNanos;
+        private long startAllocatedBytes;
+
+        private Sample(OverheadMeter overheadMeter) {
+            this.overheadMeter = overheadMeter;
+        }
+
+        @Override
+        public void close() {
+            overheadMeter.end(this, instrumentationType, spanStart);
+        }
+    }
+
+    private static class Stats {
+
+        private final AtomicLong spanCount = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+    }
+}
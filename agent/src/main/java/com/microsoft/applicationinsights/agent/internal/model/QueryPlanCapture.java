@@ -0,0 +1,222 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Attaches explain plans to slow query dependencies on a background thread.
+ * <p>
+ * Plans are deduped per statement fingerprint within a window and limited by a global budget of plans per minute.
+ * Dependencies whose plan is admitted are handed to a bounded queue and tracked by the worker, with the request
+ * telemetry context of the originating request bound so they stay correlated. When the plan is not admitted, or the
+ * queue is full, the caller tracks the dependency itself without the plan.
+ */
+public class QueryPlanCapture {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanCapture.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private static final int MAX_FINGERPRINTS = 1000;
+    private static final long BUDGET_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final BlockingQueue<Task> queue;
+    private final long dedupeWindowMillis;
+    private final int maxPlansPerMinute;
+
+    private final ConcurrentMap<String, AtomicLong> lastCaptureByFingerprint = new ConcurrentHashMap<>();
+
+    private final AtomicLong budgetWindowStartMillis = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger budgetUsed = new AtomicInteger();
+
+    private volatile boolean started;
+
+    public QueryPlanCapture(long dedupeWindowInSeconds, int maxPlansPerMinute) {
+        this(dedupeWindowInSeconds, maxPlansPerMinute, DEFAULT_QUEUE_SIZE);
+    }
+
+    @VisibleForTesting
+    QueryPlanCapture(long dedupeWindowInSeconds, int maxPlansPerMinute, int queueSize) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.dedupeWindowMillis = TimeUnit.SECONDS.toMillis(dedupeWindowInSeconds);
+        this.maxPlansPerMinute = maxPlansPerMinute;
+    }
+
+    /**
+     * Starts the worker thread, if it is not already running.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        synchronized (this) {
+            if (!started) {
+                startWorker();
+            }
+        }
+    }
+
+    private void startWorker() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWorker();
+            }
+        }, "ApplicationInsights-QueryPlanCapture");
+        thread.setDaemon(true);
+        thread.start();
+        started = true;
+    }
+
+    /**
+     * Hands a dependency and its raw explain plan to the worker.
+     *
+     * @return false if the plan was not admitted (duplicate, over budget or queue full), in which case the caller
+     * still owns the telemetry and should track it without the plan
+     */
+    boolean submit(SdkBinding<?> sdkBinding, RemoteDependencyTelemetry telemetry, String fingerprint,
+                   Object explainPlan, long nowMillis) {
+        if (!tryAcquire(fingerprint, nowMillis)) {
+            return false;
+        }
+        return queue.offer(new Task(sdkBinding, telemetry, explainPlan));
+    }
+
+    @VisibleForTesting
+    boolean tryAcquire(String fingerprint, long nowMillis) {
+        AtomicLong lastCapture = lastCaptureByFingerprint.get(fingerprint);
+        if (lastCapture == null) {
+            if (lastCaptureByFingerprint.size() >= MAX_FINGERPRINTS) {
+                lastCaptureByFingerprint.clear();
+            }
+            AtomicLong newLastCapture = new AtomicLong(Long.MIN_VALUE);
+            lastCapture = lastCaptureByFingerprint.putIfAbsent(fingerprint, newLastCapture);
+            if (lastCapture == null) {
+                lastCapture = newLastCapture;
+            }
+        }
+        long last = lastCapture.get();
+        if (last != Long.MIN_VALUE && nowMillis - last < dedupeWindowMillis) {
+            return false;
+        }
+        if (!tryAcquireBudget(nowMillis)) {
+            return false;
+        }
+        // losing this race means another thread captured the same plan in the meantime, the budget slot is not
+        // given back since that is rare and the budget is an upper bound anyway
+        return lastCapture.compareAndSet(last, nowMillis);
+    }
+
+    private boolean tryAcquireBudget(long nowMillis) {
+        long windowStart = budgetWindowStartMillis.get();
+        if (windowStart == Long.MIN_VALUE || nowMillis - windowStart >= BUDGET_WINDOW_MILLIS) {
+            if (budgetWindowStartMillis.compareAndSet(windowStart, nowMillis)) {
+                budgetUsed.set(0);
+            }
+        }
+        return budgetUsed.incrementAndGet() <= maxPlansPerMinute;
+    }
+
+    @VisibleForTesting
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Formats an explain plan, which the jdbc instrumentation reports either as text or as a map.
+     */
+    static String formatPlan(Object explainPlan) {
+        if (!(explainPlan instanceof Map<?, ?>)) {
+            return (String) explainPlan;
+        }
+        Map<?, ?> map = (Map<?, ?>) explainPlan;
+        StringBuilder sb = new StringBuilder();
+        boolean needsSeparator = false;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (needsSeparator) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey());
+            sb.append(':');
+            sb.append(entry.getValue());
+            needsSeparator = true;
+        }
+        return sb.toString();
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t) {
+                logger.warn("failed to track query plan: {}", t.toString());
+                logger.debug(t.getMessage(), t);
+            }
+        }
+    }
+
+    private static class Task {
+
+        private final SdkBinding<?> sdkBinding;
+        private final RemoteDependencyTelemetry telemetry;
+        private final Object explainPlan;
+
+        private Task(SdkBinding<?> sdkBinding, RemoteDependencyTelemetry telemetry, Object explainPlan) {
+            this.sdkBinding = sdkBinding;
+            this.telemetry = telemetry;
+            this.explainPlan = explainPlan;
+        }
+
+        private void run() {
+            telemetry.getProperties().put("Query Plan", formatPlan(explainPlan));
+            sdkBinding.bindRequestTelemetryContext();
+            try {
+                sdkBinding.getSdkBridge().track(telemetry);
+            } finally {
+                sdkBinding.unbindRequestTelemetryContext();
+            }
+        }
+    }
+}
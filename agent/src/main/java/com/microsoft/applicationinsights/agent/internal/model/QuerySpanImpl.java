@@ -23,10 +23,11 @@ package com.microsoft.applicationinsights.agent.internal.model;
 
 import java.util.Map;
 
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
-import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.ExceptionTelemetry;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.glowroot.instrumentation.api.Getter;
 import org.glowroot.instrumentation.api.QueryMessageSupplier;
 import org.glowroot.instrumentation.api.QuerySpan;
@@ -36,7 +37,9 @@ import org.glowroot.instrumentation.engine.impl.NopTransactionService;
 
 public class QuerySpanImpl implements QuerySpan {
 
+    private final SdkBinding<?> sdkBinding;
     private final SdkBridge sdkBridge;
+    private final @Nullable DependencyAggregator dependencyAggregator;
 
     private final String type;
     private final String dest;
@@ -48,9 +51,12 @@ public class QuerySpanImpl implements QuerySpan {
 
     private volatile long totalMillis = -1;
 
-    QuerySpanImpl(SdkBridge sdkBridge, String type, String dest, String text, long startTimeMillis,
+    QuerySpanImpl(SdkBinding<?> sdkBinding, SdkBridge sdkBridge, @Nullable DependencyAggregator dependencyAggregator,
+                  String type, String dest, String text, long startTimeMillis,
                   QueryMessageSupplier messageSupplier) {
+        this.sdkBinding = sdkBinding;
         this.sdkBridge = sdkBridge;
+        this.dependencyAggregator = dependencyAggregator;
         this.type = type;
         this.dest = dest;
         this.text = text;
@@ -139,14 +145,36 @@ public class QuerySpanImpl implements QuerySpan {
         if (!type.equals("SQL") && !type.equals("MongoDB")) {
             return;
         }
-        RemoteDependencyTelemetry telemetry = new RemoteDependencyTelemetry(startTimeMillis, totalMillis, type,
-                exception == null);
-        if (dest.isEmpty()) {
-            telemetry.setName(type);
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, false)) {
+            track();
+        }
+    }
+
+    private void track() {
+        RemoteDependencyTelemetry telemetry = sdkBridge.createRemoteDependencyTelemetry(startTimeMillis, totalMillis,
+                type, exception == null);
+        SqlNormalizer sqlNormalizer = Global.getSqlNormalizer();
+        SqlNormalizer.Statement statement = null;
+        if (sqlNormalizer != null && type.equals("SQL")) {
+            // the name is the shape of the statement, the full text is only sent once in a while
+            statement = sqlNormalizer.get(text);
+            telemetry.setName(statement.getNormalizedText());
+            if (!dest.isEmpty()) {
+                telemetry.setTarget(dest);
+            }
+            if (sqlNormalizer.shouldSendFullText(statement, startTimeMillis)) {
+                telemetry.setCommandName(text);
+            } else {
+                telemetry.setCommandName(statement.getNormalizedText());
+            }
         } else {
-            telemetry.setName(dest);
+            if (dest.isEmpty()) {
+                telemetry.setName(type);
+            } else {
+                telemetry.setName(dest);
+            }
+            telemetry.setCommandName(text);
         }
-        telemetry.setCommandName(text);
 
         Map<String, ?> detail = messageSupplier.get();
         Integer batchCount = (Integer) detail.get("batchCount");
@@ -158,27 +186,33 @@ public class QuerySpanImpl implements QuerySpan {
             telemetry.getProperties().put("Args", " [Batch]");
         }
         Object explainPlan = detail.get("explainPlan");
-        if (explainPlan instanceof String) {
-            telemetry.getProperties().put("Query Plan", (String) explainPlan);
-        } else if (explainPlan instanceof Map<?, ?>) {
-            Map<?, ?> map = (Map<?, ?>) explainPlan;
-            StringBuilder sb = new StringBuilder();
-            boolean needsSeparator = false;
-            for (Map.Entry<?, ?> entry : map.entrySet()) {
-                if (needsSeparator) {
-                    sb.append(',');
+        if (explainPlan instanceof String || explainPlan instanceof Map<?, ?>) {
+            QueryPlanCapture queryPlanCapture = Global.getQueryPlanCapture();
+            if (queryPlanCapture == null) {
+                telemetry.getProperties().put("Query Plan", QueryPlanCapture.formatPlan(explainPlan));
+            } else {
+                String fingerprint = statement != null ? statement.getFingerprint()
+                        : SqlNormalizer.fingerprint(SqlNormalizer.normalize(text));
+                queryPlanCapture.start();
+                if (queryPlanCapture.submit(sdkBinding, telemetry, fingerprint, explainPlan, startTimeMillis)) {
+                    // the worker formats the plan and tracks the dependency
+                    trackException();
+                    return;
                 }
-                sb.append(entry.getKey());
-                sb.append(':');
-                sb.append(entry.getValue());
-                needsSeparator = true;
             }
-            telemetry.getProperties().put("Query Plan", sb.toString());
         }
 
-        sdkBridge.track(telemetry);
+        if (dependencyAggregator == null) {
+            sdkBridge.track(telemetry);
+        } else {
+            dependencyAggregator.track(telemetry, statement != null ? statement.getFingerprint() : text, text);
+        }
+        trackException();
+    }
+
+    private void trackException() {
         if (exception != null) {
-            sdkBridge.track(new ExceptionTelemetry(exception));
+            sdkBridge.track(sdkBridge.createExceptionTelemetry(startTimeMillis + totalMillis, exception, null));
         }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.glowroot.instrumentation.api.Getter;
+import org.glowroot.instrumentation.api.MessageSupplier;
+import org.glowroot.instrumentation.api.Setter;
+import org.glowroot.instrumentation.api.Span;
+import org.glowroot.instrumentation.api.Timer;
+import org.glowroot.instrumentation.engine.impl.NopTransactionService;
+
+/**
+ * A message received while a thread context is bound, these are counted per destination, see {@link MessagingSpans}.
+ */
+class ReceiveSpanImpl implements Span {
+
+    private final SdkBridge<?> sdkBridge;
+    private final MessagingSpans messagingSpans;
+
+    private final String type;
+    private final String destination;
+    private final long startTimeMillis;
+    private final MessageSupplier messageSupplier;
+
+    private volatile @MonotonicNonNull Throwable exception;
+
+    ReceiveSpanImpl(SdkBridge<?> sdkBridge, MessagingSpans messagingSpans, String type, String destination,
+                    long startTimeMillis, MessageSupplier messageSupplier) {
+        this.sdkBridge = sdkBridge;
+        this.messagingSpans = messagingSpans;
+        this.type = type;
+        this.destination = destination;
+        this.startTimeMillis = startTimeMillis;
+        this.messageSupplier = messageSupplier;
+    }
+
+    @Override
+    public void end() {
+        endInternal();
+    }
+
+    @Override
+    public void endWithLocationStackTrace(long thresholdNanos) {
+        endInternal();
+    }
+
+    @Override
+    public void endWithError(Throwable t) {
+        exception = t;
+        endInternal();
+    }
+
+    @Override
+    public Timer extend() {
+        // timers are not used by ApplicationInsights
+        return NopTransactionService.TIMER;
+    }
+
+    @Override
+    public Object getMessageSupplier() {
+        return messageSupplier;
+    }
+
+    @Override
+    @Deprecated
+    public <R> void propagateToResponse(R response, Setter<R> setter) {
+    }
+
+    @Override
+    @Deprecated
+    public <R> void extractFromResponse(R response, Getter<R> getter) {
+    }
+
+    private void endInternal() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, false)) {
+            messagingSpans.endReceive(type, destination, startTimeMillis,
+                    System.currentTimeMillis() - startTimeMillis, exception == null);
+            if (exception != null) {
+                sdkBridge.track(sdkBridge.createExceptionTelemetry(System.currentTimeMillis(), exception, null));
+            }
+        }
+    }
+}
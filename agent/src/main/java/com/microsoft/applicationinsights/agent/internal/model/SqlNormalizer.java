@@ -0,0 +1,320 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Reduces SQL statements to their shape so the queries can be grouped: literals become '?', IN-lists become '(?)',
+ * comments are dropped, whitespace is collapsed and keywords are lower cased. The shape is identified by a stable
+ * 64 bit fingerprint.
+ * <p>
+ * Results are cached per statement text. Statements with inlined literals could fill the cache with one-off entries,
+ * so the cache is simply cleared when it reaches its maximum size.
+ */
+public class SqlNormalizer {
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The normalized form of a statement, shared by all the statements that have the same shape.
+     */
+    public static final class Statement {
+
+        private final String normalizedText;
+        private final String fingerprint;
+        private final AtomicLong lastFullTextMillis = new AtomicLong(Long.MIN_VALUE);
+
+        Statement(String normalizedText, String fingerprint) {
+            this.normalizedText = normalizedText;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getNormalizedText() {
+            return normalizedText;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    private final int maxCacheSize;
+    private final long fullTextIntervalMillis;
+
+    private final ConcurrentMap<String, Statement> statementsByText = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Statement> statementsByFingerprint = new ConcurrentHashMap<>();
+
+    public SqlNormalizer(long fullTextIntervalInSeconds) {
+        this(fullTextIntervalInSeconds, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    @VisibleForTesting
+    SqlNormalizer(long fullTextIntervalInSeconds, int maxCacheSize) {
+        this.fullTextIntervalMillis = TimeUnit.SECONDS.toMillis(fullTextIntervalInSeconds);
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Gets the normalized form of a statement.
+     */
+    public Statement get(String text) {
+        Statement statement = statementsByText.get(text);
+        if (statement != null) {
+            return statement;
+        }
+
+        String normalizedText = normalize(text);
+        String fingerprint = fingerprint(normalizedText);
+        statement = statementsByFingerprint.get(fingerprint);
+        if (statement == null) {
+            if (statementsByFingerprint.size() >= maxCacheSize) {
+                statementsByFingerprint.clear();
+            }
+            Statement newStatement = new Statement(normalizedText, fingerprint);
+            statement = statementsByFingerprint.putIfAbsent(fingerprint, newStatement);
+            if (statement == null) {
+                statement = newStatement;
+            }
+        }
+
+        if (statementsByText.size() >= maxCacheSize) {
+            statementsByText.clear();
+        }
+        statementsByText.put(text, statement);
+        return statement;
+    }
+
+    /**
+     * Tells whether the full text of a statement should be sent, which happens at most once per interval for each
+     * statement shape.
+     */
+    public boolean shouldSendFullText(Statement statement, long nowMillis) {
+        long last = statement.lastFullTextMillis.get();
+        if (last != Long.MIN_VALUE && nowMillis - last < fullTextIntervalMillis) {
+            return false;
+        }
+        return statement.lastFullTextMillis.compareAndSet(last, nowMillis);
+    }
+
+    @VisibleForTesting
+    int getCacheSize() {
+        return statementsByText.size();
+    }
+
+    @VisibleForTesting
+    static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(length);
+        // index in sb of the '(' opening a list that only contains '?' so far, -1 if there is none
+        int listStart = -1;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                appendToken(sb, '?');
+                continue;
+            }
+            if (c == '"' || c == '`') {
+                // quoted identifier, kept as is
+                int end = skipQuoted(sql, i, c);
+                appendSeparator(sb);
+                sb.append(sql, i, end);
+                listStart = -1;
+                i = end;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && isDigit(sql.charAt(i + 1)) && !endsWithOperand(sb)) {
+                // negative number
+                i = skipNumber(sql, i + 1);
+                appendToken(sb, '?');
+                continue;
+            }
+            if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1)))) {
+                i = skipNumber(sql, i);
+                appendToken(sb, '?');
+                continue;
+            }
+            if (isIdentifierChar(c)) {
+                int end = i;
+                // qualified names such as schema.table stay a single token
+                while (end < length && (isIdentifierChar(sql.charAt(end)) || sql.charAt(end) == '.')) {
+                    end++;
+                }
+                appendSeparator(sb);
+                for (int j = i; j < end; j++) {
+                    sb.append(Character.toLowerCase(sql.charAt(j)));
+                }
+                listStart = -1;
+                i = end;
+                continue;
+            }
+
+            if (c == '(') {
+                appendSeparator(sb);
+                listStart = sb.length();
+                sb.append('(');
+            } else if (c == ')') {
+                if (listStart >= 0 && sb.length() > listStart + 1) {
+                    // (?, ?, ?) becomes (?)
+                    sb.setLength(listStart);
+                    sb.append("(?)");
+                } else {
+                    sb.append(')');
+                }
+                listStart = -1;
+            } else if (c == ',') {
+                sb.append(',');
+            } else if (c == '?') {
+                appendToken(sb, '?');
+            } else {
+                appendSeparator(sb);
+                sb.append(c);
+                listStart = -1;
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Computes the FNV-1a hash of the normalized text, as 16 hexadecimal characters.
+     */
+    @VisibleForTesting
+    static String fingerprint(String normalizedText) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < normalizedText.length(); i++) {
+            char c = normalizedText.charAt(i);
+            hash ^= c & 0xff;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX_CHARS[(int) hash & 0xf];
+            hash >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static void appendToken(StringBuilder sb, char token) {
+        appendSeparator(sb);
+        sb.append(token);
+    }
+
+    /**
+     * Adds a single space between two tokens, except after an opening parenthesis.
+     */
+    private static void appendSeparator(StringBuilder sb) {
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) != '(') {
+            sb.append(' ');
+        }
+    }
+
+    /**
+     * @return The index after the closing quote, a doubled quote is an escaped quote. A backslash is not an escape
+     * character in standard SQL, so it is kept as is.
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i++);
+            if (c == quote) {
+                if (i < sql.length() && sql.charAt(i) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Tells whether the text so far ends with something a binary operator could apply to.
+     */
+    private static boolean endsWithOperand(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char last = sb.charAt(sb.length() - 1);
+        return last == '?' || last == ')' || last == '"' || last == '`' || isIdentifierChar(last);
+    }
+
+    private static int skipNumber(String sql, int start) {
+        int i = start;
+        if (sql.startsWith("0x", i) || sql.startsWith("0X", i)) {
+            i += 2;
+        }
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (isDigit(c) || c == '.' || isHexLetter(c)) {
+                i++;
+            } else if ((c == '+' || c == '-') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexLetter(char c) {
+        return (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '@' || c == '#';
+    }
+}
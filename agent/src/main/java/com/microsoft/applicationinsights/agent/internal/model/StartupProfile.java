@@ -0,0 +1,87 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of the agent startup, which runs in premain on the application's critical startup path.
+ * <p>
+ * Not thread safe, phases are recorded by the premain thread only.
+ */
+public class StartupProfile {
+
+    private final long startNanos;
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    private long lastNanos;
+
+    public StartupProfile() {
+        this(System.nanoTime());
+    }
+
+    StartupProfile(long startNanos) {
+        this.startNanos = startNanos;
+        this.lastNanos = startNanos;
+    }
+
+    public void endPhase(String name) {
+        endPhase(name, System.nanoTime());
+    }
+
+    void endPhase(String name, long nowNanos) {
+        phaseNanos.put(name, nowNanos - lastNanos);
+        lastNanos = nowNanos;
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastNanos - startNanos);
+    }
+
+    /**
+     * Adds the phase durations to the properties of the startup telemetry, e.g. "Startup configuration (ms)" -> "12".
+     */
+    public void addTo(Map<String, String> properties) {
+        for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+            properties.put("Startup " + entry.getKey() + " (ms)",
+                    Long.toString(TimeUnit.NANOSECONDS.toMillis(entry.getValue())));
+        }
+        properties.put("Startup total (ms)", Long.toString(getTotalMillis()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey())
+                    .append(": ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(entry.getValue()))
+                    .append(" ms");
+        }
+        return sb.toString();
+    }
+}
@@ -44,7 +44,10 @@ import org.glowroot.instrumentation.engine.impl.NopTransactionService;
 public class ThreadContextImpl<T> implements ThreadContextPlus {
 
     private final SdkBinding<T> sdkBinding;
+    private final SdkBridge<T> sdkBridge;
     private final @Nullable ServletRequestInfo servletRequestInfo;
+    private final @Nullable DependencyAggregator dependencyAggregator;
+    private final @Nullable MessagingSpans messagingSpans;
 
     private int currentNestingGroupId;
     private int currentSuppressionKeyId;
@@ -53,10 +56,37 @@ public class ThreadContextImpl<T> implements ThreadContextPlus {
                              int rootNestingGroupId, int rootSuppressionKeyId) {
         this.sdkBinding = sdkBinding;
         this.servletRequestInfo = servletRequestInfo;
+        this.sdkBridge = sdkBinding.getSdkBridge();
+        int dependencyAggregationThreshold = Global.getDependencyAggregationThreshold();
+        if (dependencyAggregationThreshold > 0) {
+            dependencyAggregator = new DependencyAggregator(sdkBridge, dependencyAggregationThreshold);
+        } else {
+            dependencyAggregator = null;
+        }
+        if (Global.isMessagingEnabled()) {
+            messagingSpans = new MessagingSpans(sdkBridge);
+        } else {
+            messagingSpans = null;
+        }
         currentNestingGroupId = rootNestingGroupId;
         currentSuppressionKeyId = rootSuppressionKeyId;
     }
 
+    /**
+     * Tracks the dependencies that were merged while this thread context was bound, see {@link DependencyAggregator}
+     * and {@link MessagingSpans}.
+     */
+    public void flushTelemetry() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(OverheadMeter.FLUSH_TYPE, false)) {
+            if (dependencyAggregator != null) {
+                dependencyAggregator.flush();
+            }
+            if (messagingSpans != null) {
+                messagingSpans.flush();
+            }
+        }
+    }
+
     @Override
     public boolean isInTransaction() {
         return true;
@@ -66,6 +96,12 @@ public class ThreadContextImpl<T> implements ThreadContextPlus {
     public <C> Span startIncomingSpan(String transactionType, String transactionName, Getter<C> getter, C carrier,
                                       MessageSupplier messageSupplier, TimerName timerName,
                                       AlreadyInTransactionBehavior alreadyInTransactionBehavior) {
+        if (messagingSpans != null && OutgoingSpanImpl.isMessaging(transactionType)) {
+            // a message received while a request is bound (e.g. the request polls a topic), the transaction name is
+            // the topic or queue
+            return new ReceiveSpanImpl(sdkBridge, messagingSpans, transactionType, transactionName,
+                    System.currentTimeMillis(), messageSupplier);
+        }
         // ApplicationInsights doesn't currently support local spans
         return NopTransactionService.LOCAL_SPAN;
     }
@@ -73,57 +109,81 @@ public class ThreadContextImpl<T> implements ThreadContextPlus {
     @Override
     public Span startLocalSpan(MessageSupplier messageSupplier, TimerName timerName) {
         String text = ((ReadableMessage) messageSupplier.get()).getText();
-        if (text.startsWith(LocalSpanImpl.PREFIX)) {
-            return new LocalSpanImpl(sdkBinding.getSdkBridge(), text, System.currentTimeMillis(), messageSupplier);
-        } else {
+        if (!text.startsWith(LocalSpanImpl.PREFIX)) {
             return NopTransactionService.LOCAL_SPAN;
         }
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(LocalSpanImpl.TYPE, true)) {
+            MethodGovernor methodGovernor = Global.getMethodGovernor();
+            int samplingInterval = 1;
+            if (methodGovernor != null) {
+                samplingInterval = methodGovernor.onCall(text);
+                if (samplingInterval == 0) {
+                    return NopTransactionService.LOCAL_SPAN;
+                }
+            }
+            return new LocalSpanImpl(sdkBridge, methodGovernor, text, samplingInterval, System.currentTimeMillis(),
+                    messageSupplier);
+        }
     }
 
     @Override
     public QuerySpan startQuerySpan(String type, String dest, String text, QueryMessageSupplier queryMessageSupplier,
                                     TimerName timerName) {
-        return new QuerySpanImpl(sdkBinding.getSdkBridge(), type, dest, text, System.currentTimeMillis(),
-                queryMessageSupplier);
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, true)) {
+            return new QuerySpanImpl(sdkBinding, sdkBridge, dependencyAggregator, type, dest, text,
+                    System.currentTimeMillis(), queryMessageSupplier);
+        }
     }
 
     @Override
     public QuerySpan startQuerySpan(String type, String dest, String text, long queryExecutionCount,
                                     QueryMessageSupplier queryMessageSupplier, TimerName timerName) {
-        return new QuerySpanImpl(sdkBinding.getSdkBridge(), type, dest, text, System.currentTimeMillis(),
-                queryMessageSupplier);
+        return startQuerySpan(type, dest, text, queryMessageSupplier, timerName);
     }
 
     @Override
     public AsyncQuerySpan startAsyncQuerySpan(String type, String dest, String text,
                                               QueryMessageSupplier queryMessageSupplier, TimerName timerName) {
-        return new AsyncQuerySpanImpl(sdkBinding.getSdkBridge(), type, dest, text, System.currentTimeMillis(),
-                queryMessageSupplier);
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, true)) {
+            return new AsyncQuerySpanImpl(sdkBinding, sdkBridge, dependencyAggregator, type, dest, text,
+                    System.currentTimeMillis(), queryMessageSupplier);
+        }
     }
 
     @Override
     public <C> Span startOutgoingSpan(String type, String text, Setter<C> setter, C carrier,
                                       MessageSupplier messageSupplier, TimerName timerName) {
-        SdkBridge sdkBridge = sdkBinding.getSdkBridge();
-        String outgoingSpanId = sdkBridge.propagate(new SdkBridge.Setter<>(setter), carrier,
-                Global.isOutboundW3CEnabled(), Global.isOutboundW3CBackCompatEnabled());
-        return new OutgoingSpanImpl(sdkBridge, type, text, System.currentTimeMillis(), outgoingSpanId,
-                messageSupplier);
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, true)) {
+            String outgoingSpanId = propagate(type, text, setter, carrier);
+            return new OutgoingSpanImpl(sdkBridge, dependencyAggregator, messagingSpans, type, text,
+                    System.currentTimeMillis(), outgoingSpanId, messageSupplier);
+        }
     }
 
     @Override
     public <C> AsyncSpan startAsyncOutgoingSpan(String type, String text, Setter<C> setter, C carrier,
                                                 MessageSupplier messageSupplier, TimerName timerName) {
-        SdkBridge sdkBridge = sdkBinding.getSdkBridge();
-        String outgoingSpanId = sdkBridge.propagate(new SdkBridge.Setter<>(setter), carrier,
-                Global.isOutboundW3CEnabled(), Global.isOutboundW3CBackCompatEnabled());
-        return new AsyncOutgoingSpanImpl(sdkBridge, type, text, System.currentTimeMillis(), outgoingSpanId,
-                messageSupplier);
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(type, true)) {
+            String outgoingSpanId = propagate(type, text, setter, carrier);
+            return new AsyncOutgoingSpanImpl(sdkBridge, dependencyAggregator, messagingSpans, type, text,
+                    System.currentTimeMillis(), outgoingSpanId, messageSupplier);
+        }
+    }
+
+    private <C> String propagate(String type, String text, Setter<C> setter, C carrier) {
+        if (messagingSpans != null && OutgoingSpanImpl.isMessaging(type)) {
+            // all messages sent to a destination carry the same id, see MessagingSpans
+            return messagingSpans.propagate(type, text, setter, carrier);
+        }
+        return sdkBridge.propagate(new SdkBridge.Setter<>(setter), carrier, Global.isOutboundW3CEnabled(),
+                Global.isOutboundW3CBackCompatEnabled());
     }
 
     @Override
     public void captureLoggerSpan(MessageSupplier messageSupplier, @Nullable Throwable throwable) {
-        LoggerSpans.track(sdkBinding.getSdkBridge(), messageSupplier, throwable, System.currentTimeMillis());
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(LoggerSpans.TYPE, true)) {
+            LoggerSpans.track(sdkBridge, messageSupplier, throwable, System.currentTimeMillis());
+        }
     }
 
     @Override
@@ -42,12 +42,24 @@ public class AgentBridgeInternal {
         if (threadContext == null) {
             SdkBinding<T> sdkBinding = new SdkBinding<>(sdkBridge, requestTelemetryContext);
             threadContextHolder.set(new ThreadContextImpl<>(sdkBinding, servletRequestInfo, 0, 0));
+            registerSdkBridge(sdkBridge);
             return sdkBinding;
         } else {
             return NOP_BINDING_RESULT;
         }
     }
 
+    /**
+     * Keeps the first sdk bridge, for the telemetry that is not part of any request and for the requests started by the
+     * agent (see {@link com.microsoft.applicationinsights.agent.internal.model.IncomingSpanImpl}). This is called when
+     * the SDK creates its sdk bridge, so that messages can be tracked before the first request, and on each binding.
+     */
+    public static void registerSdkBridge(SdkBridge<?> sdkBridge) {
+        if (Global.setFirstSdkBridge(sdkBridge)) {
+            BackgroundReporter.start(sdkBridge);
+        }
+    }
+
     private static class NopBindingResult implements BindingResult {
 
         @Override
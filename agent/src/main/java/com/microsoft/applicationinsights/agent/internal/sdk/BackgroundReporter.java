@@ -0,0 +1,115 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.sdk;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.applicationinsights.agent.internal.model.Global;
+import com.microsoft.applicationinsights.agent.internal.model.MethodGovernor;
+import com.microsoft.applicationinsights.agent.internal.model.OverheadMeter;
+import com.microsoft.applicationinsights.agent.internal.model.StartupProfile;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the telemetry that is not part of any request: the startup profile, the traces of the methods that switched
+ * in or out of sampled mode and the agent overhead metrics.
+ * <p>
+ * This runs on its own daemon thread, which never has a request telemetry context bound, with the first sdk bridge
+ * created by the SDK (there is no sdk bridge during premain). So this telemetry is reported even when no requests come
+ * in, and it does not add latency to them.
+ */
+class BackgroundReporter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundReporter.class);
+
+    // how often the pending method governor reports are tracked, and the overhead meter checks if its interval elapsed
+    private static final long PERIOD_SECONDS = 5;
+
+    private final SdkBridge<?> sdkBridge;
+
+    private @Nullable StartupProfile startupProfile;
+    private final @Nullable MethodGovernor methodGovernor;
+    private final @Nullable OverheadMeter overheadMeter;
+
+    private BackgroundReporter(SdkBridge<?> sdkBridge, @Nullable StartupProfile startupProfile,
+                               @Nullable MethodGovernor methodGovernor, @Nullable OverheadMeter overheadMeter) {
+        this.sdkBridge = sdkBridge;
+        this.startupProfile = startupProfile;
+        this.methodGovernor = methodGovernor;
+        this.overheadMeter = overheadMeter;
+    }
+
+    static void start(SdkBridge<?> sdkBridge) {
+        StartupProfile startupProfile = Global.takeUnreportedStartupProfile();
+        MethodGovernor methodGovernor = Global.getMethodGovernor();
+        OverheadMeter overheadMeter = Global.getOverheadMeter();
+        if (startupProfile == null && methodGovernor == null && overheadMeter == null) {
+            return;
+        }
+        BackgroundReporter reporter = new BackgroundReporter(sdkBridge, startupProfile, methodGovernor, overheadMeter);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ApplicationInsights-AgentReporter")
+                .build());
+        if (methodGovernor == null && overheadMeter == null) {
+            // only the startup profile to report, the task still runs after shutdown
+            executor.execute(reporter);
+            executor.shutdown();
+        } else {
+            executor.scheduleWithFixedDelay(reporter, 0, PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        // an exception would cancel the following runs
+        try {
+            if (startupProfile != null) {
+                trackStartupProfile(startupProfile);
+                startupProfile = null;
+            }
+            if (methodGovernor != null) {
+                methodGovernor.trackPendingReports(sdkBridge);
+            }
+            if (overheadMeter != null) {
+                overheadMeter.reportIfDue(sdkBridge);
+            }
+        } catch (ThreadDeath td) {
+            throw td;
+        } catch (Throwable t) {
+            logger.warn("failed to report agent telemetry: {}", t.toString());
+            logger.debug(t.getMessage(), t);
+        }
+    }
+
+    private void trackStartupProfile(StartupProfile startupProfile) {
+        SdkBridge.TraceTelemetry telemetry = sdkBridge.createTraceTelemetry(System.currentTimeMillis(),
+                "ApplicationInsights agent started in " + startupProfile.getTotalMillis() + " ms", "INFO");
+        startupProfile.addTo(telemetry.getProperties());
+        sdkBridge.track(telemetry);
+    }
+}
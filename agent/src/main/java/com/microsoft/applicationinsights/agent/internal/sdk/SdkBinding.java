@@ -25,7 +25,9 @@ import java.util.Set;
 
 import com.google.common.collect.Sets;
 import com.microsoft.applicationinsights.agent.internal.model.Global;
+import com.microsoft.applicationinsights.agent.internal.model.ThreadContextImpl;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextPlus;
 import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
 
 public class SdkBinding<T> implements BindingResult {
@@ -37,7 +39,7 @@ public class SdkBinding<T> implements BindingResult {
     // aux thread contexts started by this sdk binding (request)
     private final Set<ThreadContextThreadLocal.Holder> auxThreadContextHolders = Sets.newHashSet();
 
-    SdkBinding(SdkBridge<T> sdkBridge, @Nullable T requestTelemetryContext) {
+    public SdkBinding(SdkBridge<T> sdkBridge, @Nullable T requestTelemetryContext) {
         this.sdkBridge = sdkBridge;
         this.requestTelemetryContext = requestTelemetryContext;
     }
@@ -79,7 +81,9 @@ public class SdkBinding<T> implements BindingResult {
 
     @Override
     public void unbindFromMainThread() {
-        Global.getThreadContextHolder().set(null);
+        ThreadContextThreadLocal.Holder threadContextHolder = Global.getThreadContextHolder();
+        flushTelemetry(threadContextHolder);
+        threadContextHolder.set(null);
     }
 
     @Override
@@ -87,8 +91,16 @@ public class SdkBinding<T> implements BindingResult {
         // this synchronized is to make sure it doesn't detach the holder after it has been picked up by another request
         synchronized (auxThreadContextHolders) {
             for (ThreadContextThreadLocal.Holder auxThreadContextHolder : auxThreadContextHolders) {
+                flushTelemetry(auxThreadContextHolder);
                 auxThreadContextHolder.set(null);
             }
         }
     }
+
+    private static void flushTelemetry(ThreadContextThreadLocal.Holder threadContextHolder) {
+        ThreadContextPlus threadContext = threadContextHolder.get();
+        if (threadContext instanceof ThreadContextImpl) {
+            ((ThreadContextImpl<?>) threadContext).flushTelemetry();
+        }
+    }
 }
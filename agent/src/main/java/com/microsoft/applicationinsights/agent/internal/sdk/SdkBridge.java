@@ -38,12 +38,31 @@ public interface SdkBridge<T> {
 
     <C> String propagate(Setter<C> setter, C carrier, boolean w3c, boolean w3cBackCompat);
 
+    // starts a request for a message received on a thread with no request bound (e.g. a Kafka poll loop or a JMS
+    // MessageListener), its parent is read from the headers written by propagate(), and it is bound to the thread
+    // until trackRequest()
+    <C> T startRequest(String name, String source, long timestamp, Getter<C> getter, C carrier, boolean w3c);
+
+    void trackRequest(T requestTelemetryContext, long durationMillis, boolean success);
+
+    // the telemetry returned by these can be backed directly by the SDK telemetry, which saves copying it over in
+    // track(), the classes below can still be instantiated directly, those are copied over when tracked
+    RemoteDependencyTelemetry createRemoteDependencyTelemetry(long timestamp, long durationMillis, String type,
+                                                              boolean success);
+
+    // the timestamp is the time of the event, not of the track() call, which can be later (e.g. merged dependencies)
+    TraceTelemetry createTraceTelemetry(long timestamp, String message, @Nullable String level);
+
+    ExceptionTelemetry createExceptionTelemetry(long timestamp, Throwable throwable, @Nullable String level);
+
     void track(RemoteDependencyTelemetry telemetry);
 
     void track(TraceTelemetry telemetry);
 
     void track(ExceptionTelemetry telemetry);
 
+    void trackMetric(String name, double value, Map<String, String> properties);
+
     // hides instrumentation api (e.g. so it can be shaded)
     class Setter<C> implements org.glowroot.instrumentation.api.Setter<C> {
 
@@ -58,19 +77,44 @@ public interface SdkBridge<T> {
         }
     }
 
+    // see Setter
+    class Getter<C> implements org.glowroot.instrumentation.api.Getter<C> {
+
+        private final org.glowroot.instrumentation.api.Getter<C> getter;
+
+        public Getter(org.glowroot.instrumentation.api.Getter<C> getter) {
+            this.getter = getter;
+        }
+
+        public @Nullable String get(C carrier, String key) {
+            return getter.get(carrier, key);
+        }
+    }
+
     class TraceTelemetry {
 
+        private final long timestamp;
+
         private final String message;
 
         private final @Nullable String level;
 
-        private final Map<String, String> properties = new HashMap<>();
+        private @Nullable Map<String, String> properties;
 
         public TraceTelemetry(String message, @Nullable String level) {
+            this(System.currentTimeMillis(), message, level);
+        }
+
+        public TraceTelemetry(long timestamp, String message, @Nullable String level) {
+            this.timestamp = timestamp;
             this.message = message;
             this.level = level;
         }
 
+        public long getTimestamp() {
+            return timestamp;
+        }
+
         public String getMessage() {
             return message;
         }
@@ -80,27 +124,41 @@ public interface SdkBridge<T> {
         }
 
         public Map<String, String> getProperties() {
+            if (properties == null) {
+                properties = new HashMap<>();
+            }
             return properties;
         }
     }
 
     class ExceptionTelemetry {
 
+        private final long timestamp;
+
         private final Throwable throwable;
 
         private final @Nullable String level;
 
-        private final Map<String, String> properties = new HashMap<>();
+        private @Nullable Map<String, String> properties;
 
         public ExceptionTelemetry(Throwable throwable) {
             this(throwable, null);
         }
 
         public ExceptionTelemetry(Throwable throwable, @Nullable String level) {
+            this(System.currentTimeMillis(), throwable, level);
+        }
+
+        public ExceptionTelemetry(long timestamp, Throwable throwable, @Nullable String level) {
+            this.timestamp = timestamp;
             this.throwable = throwable;
             this.level = level;
         }
 
+        public long getTimestamp() {
+            return timestamp;
+        }
+
         public Throwable getThrowable() {
             return throwable;
         }
@@ -110,6 +168,9 @@ public interface SdkBridge<T> {
         }
 
         public Map<String, String> getProperties() {
+            if (properties == null) {
+                properties = new HashMap<>();
+            }
             return properties;
         }
     }
@@ -127,8 +188,9 @@ public interface SdkBridge<T> {
         private @Nullable String commandName;
         private @Nullable String target;
         private @Nullable String resultCode;
+        private @Nullable Double samplingPercentage;
 
-        private final Map<String, String> properties = new HashMap<>();
+        private @Nullable Map<String, String> properties;
 
         public RemoteDependencyTelemetry(long timestamp, long durationMillis, String type, boolean success) {
             this.timestamp = timestamp;
@@ -193,7 +255,19 @@ public interface SdkBridge<T> {
             this.resultCode = resultCode;
         }
 
+        public @Nullable Double getSamplingPercentage() {
+            return samplingPercentage;
+        }
+
+        // for telemetry that the agent already sampled, so the SDK samplers and the backend count it correctly
+        public void setSamplingPercentage(double samplingPercentage) {
+            this.samplingPercentage = samplingPercentage;
+        }
+
         public Map<String, String> getProperties() {
+            if (properties == null) {
+                properties = new HashMap<>();
+            }
             return properties;
         }
     }
@@ -0,0 +1,180 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DependencyAggregatorTest {
+
+    @Test
+    public void testDependenciesBelowThresholdAreTrackedAsIs() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 3);
+        for (int i = 0; i < 3; i++) {
+            aggregator.track(newTelemetry(i * 10, 5, true), "abc", "abc");
+        }
+        aggregator.flush();
+
+        Assert.assertEquals(3, sdkBridge.dependencies.size());
+        for (RemoteDependencyTelemetry telemetry : sdkBridge.dependencies) {
+            Assert.assertNull(telemetry.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        }
+    }
+
+    @Test
+    public void testRepeatedDependenciesAreMerged() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 2);
+        for (int i = 0; i < 10; i++) {
+            aggregator.track(newTelemetry(i * 10, i + 1, i != 7), "abc", "abc");
+        }
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+
+        aggregator.flush();
+
+        Assert.assertEquals(3, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry summary = sdkBridge.dependencies.get(2);
+        Assert.assertEquals("SQL", summary.getType());
+        Assert.assertEquals("jdbc:h2:mem:", summary.getTarget());
+        Assert.assertEquals(20, summary.getTimestamp());
+        Assert.assertEquals(3 + 4 + 5 + 6 + 7 + 8 + 9 + 10, summary.getDurationMillis());
+        Assert.assertFalse(summary.isSuccess());
+        Assert.assertEquals("8", summary.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        Assert.assertEquals("10", summary.getProperties().get(DependencyAggregator.TOTAL_COUNT_PROPERTY));
+        Assert.assertEquals("1", summary.getProperties().get(DependencyAggregator.FAILED_COUNT_PROPERTY));
+        Assert.assertEquals("3", summary.getProperties().get(DependencyAggregator.MIN_DURATION_PROPERTY));
+        Assert.assertEquals("10", summary.getProperties().get(DependencyAggregator.MAX_DURATION_PROPERTY));
+    }
+
+    @Test
+    public void testStatementRepeatedOnItsOwnIsNotFlaggedAsNPlusOne() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        for (int i = 0; i < 5; i++) {
+            aggregator.track(newTelemetry(i * 10, 1, true), "abc", "abc");
+        }
+        aggregator.flush();
+
+        RemoteDependencyTelemetry summary = sdkBridge.dependencies.get(1);
+        Assert.assertEquals("4", summary.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        Assert.assertNull(summary.getProperties().get(DependencyAggregator.POSSIBLE_N_PLUS_ONE_PROPERTY));
+    }
+
+    @Test
+    public void testStatementRepeatedAfterDrivingStatementIsFlaggedAsNPlusOne() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        RemoteDependencyTelemetry orders = new RemoteDependencyTelemetry(0, 5, "SQL", true);
+        orders.setName("select * from orders");
+        orders.setTarget("jdbc:h2:mem:");
+        aggregator.track(orders, "orders", "select * from orders");
+        for (int i = 1; i <= 5; i++) {
+            aggregator.track(newTelemetry(i * 10, 1, true), "abc", "abc");
+        }
+        aggregator.flush();
+
+        Assert.assertEquals(3, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry summary = sdkBridge.dependencies.get(2);
+        Assert.assertEquals("abc", summary.getName());
+        Assert.assertEquals("true", summary.getProperties().get(DependencyAggregator.POSSIBLE_N_PLUS_ONE_PROPERTY));
+    }
+
+    @Test
+    public void testStatementRepeatedWithDifferentLiteralsIsFlaggedAsNPlusOne() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        for (int i = 0; i < 5; i++) {
+            aggregator.track(newTelemetry(i * 10, 1, true), "abc", "select * from t where id = " + i);
+        }
+        aggregator.flush();
+
+        RemoteDependencyTelemetry summary = sdkBridge.dependencies.get(1);
+        Assert.assertEquals("true", summary.getProperties().get(DependencyAggregator.POSSIBLE_N_PLUS_ONE_PROPERTY));
+    }
+
+    @Test
+    public void testDifferentFingerprintsAreNotMerged() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        aggregator.track(newTelemetry(0, 1, true), "abc", "abc");
+        aggregator.track(newTelemetry(10, 1, true), "def", "def");
+        aggregator.flush();
+
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+    }
+
+    @Test
+    public void testOverlappingDependenciesAreNotFlaggedAsNPlusOne() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        aggregator.track(newTelemetry(0, 100, true), "def", "def");
+        aggregator.track(newTelemetry(0, 100, true), "abc", "abc");
+        aggregator.track(newTelemetry(10, 100, true), "abc", "abc");
+        aggregator.flush();
+
+        RemoteDependencyTelemetry summary = sdkBridge.dependencies.get(2);
+        Assert.assertEquals("1", summary.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        Assert.assertNull(summary.getProperties().get(DependencyAggregator.POSSIBLE_N_PLUS_ONE_PROPERTY));
+    }
+
+    @Test
+    public void testFlushStartsOver() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        aggregator.track(newTelemetry(0, 1, true), "abc", "abc");
+        aggregator.track(newTelemetry(10, 1, true), "abc", "abc");
+        aggregator.flush();
+        aggregator.flush();
+        aggregator.track(newTelemetry(20, 1, true), "abc", "abc");
+
+        Assert.assertEquals(3, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry telemetry = sdkBridge.dependencies.get(2);
+        Assert.assertNull(telemetry.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+    }
+
+    @Test
+    public void testRepeatedDependenciesAfterFlushAreTrackedAsIs() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        aggregator.track(newTelemetry(0, 1, true), "abc", "abc");
+        aggregator.flush();
+        // e.g. async spans ending after the thread context, nothing flushes them anymore
+        for (int i = 1; i <= 3; i++) {
+            aggregator.track(newTelemetry(i * 10, 1, true), "abc", "abc");
+        }
+        aggregator.flush();
+
+        Assert.assertEquals(4, sdkBridge.dependencies.size());
+        for (RemoteDependencyTelemetry telemetry : sdkBridge.dependencies) {
+            Assert.assertNull(telemetry.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        }
+    }
+
+    @Test
+    public void testSameStatementOnDifferentDatabasesIsNotMerged() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        DependencyAggregator aggregator = new DependencyAggregator(sdkBridge, 1);
+        for (int i = 0; i < 4; i++) {
+            // without statement normalization the JDBC url is the name and there is no target
+            RemoteDependencyTelemetry telemetry = new RemoteDependencyTelemetry(i * 10, 1, "SQL", true);
+            telemetry.setName(i % 2 == 0 ? "jdbc:h2:mem:orders" : "jdbc:h2:mem:payments");
+            telemetry.setCommandName("select * from t");
+            aggregator.track(telemetry, "select * from t", "select * from t");
+        }
+        aggregator.flush();
+
+        Assert.assertEquals(4, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry first = sdkBridge.dependencies.get(2);
+        RemoteDependencyTelemetry second = sdkBridge.dependencies.get(3);
+        Assert.assertFalse(first.getName().equals(second.getName()));
+        Assert.assertEquals("1", first.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+        Assert.assertEquals("1", second.getProperties().get(DependencyAggregator.AGGREGATED_COUNT_PROPERTY));
+    }
+
+    private static RemoteDependencyTelemetry newTelemetry(long timestamp, long durationMillis, boolean success) {
+        RemoteDependencyTelemetry telemetry = new RemoteDependencyTelemetry(timestamp, durationMillis, "SQL", success);
+        telemetry.setName("abc");
+        telemetry.setTarget("jdbc:h2:mem:");
+        return telemetry;
+    }
+}
@@ -0,0 +1,117 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.glowroot.instrumentation.api.Getter;
+import org.glowroot.instrumentation.api.MessageSupplier;
+import org.glowroot.instrumentation.api.Setter;
+import org.glowroot.instrumentation.api.Span;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextPlus;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+// the spans are started the way the kafka and jms instrumentation starts them: the type is "Kafka" or "JMS" and the
+// text (or transaction name) is the topic or queue
+public class IncomingSpanImplTest {
+
+    private static final Setter<Map<String, String>> SETTER = new Setter<Map<String, String>>() {
+        @Override
+        public void put(Map<String, String> carrier, String key, String value) {
+            carrier.put(key, value);
+        }
+    };
+
+    private static final Getter<Map<String, String>> GETTER = new Getter<Map<String, String>>() {
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier.get(key);
+        }
+    };
+
+    private RecordingSdkBridge sdkBridge;
+    private ThreadContextThreadLocal.Holder threadContextHolder;
+
+    @Before
+    public void setUp() {
+        Global.setMessagingEnabled(true);
+        sdkBridge = new RecordingSdkBridge();
+        threadContextHolder = Global.getThreadContextHolder();
+    }
+
+    @After
+    public void tearDown() {
+        threadContextHolder.set(null);
+        Global.setMessagingEnabled(false);
+    }
+
+    @Test
+    public void testMessageReceivedWithNoRequestBoundIsTrackedAsARequest() {
+        ThreadContextImpl<Object> producer =
+                new ThreadContextImpl<>(new SdkBinding<Object>(sdkBridge, new Object()), null, 0, 0);
+        Map<String, String> headers = new HashMap<>();
+        producer.startOutgoingSpan("Kafka", "orders", SETTER, headers, MessageSupplier.create("kafka send"), null)
+                .end();
+        producer.flushTelemetry();
+        RemoteDependencyTelemetry send = MessagingSpansTest.getDependency(sdkBridge, "Send orders");
+
+        Span span = IncomingSpanImpl.start(sdkBridge, "Kafka", "orders", GETTER, headers,
+                MessageSupplier.create("kafka receive"), threadContextHolder, 0, 0);
+        Assert.assertNotNull(span);
+        ThreadContextPlus consumer = threadContextHolder.get();
+        Assert.assertTrue(consumer instanceof ThreadContextImpl);
+        // a message received while the request is bound is merged into the request's receive dependency
+        consumer.startIncomingSpan("Kafka", "payments", GETTER, new HashMap<String, String>(),
+                MessageSupplier.create("kafka receive"), null, null).end();
+        consumer.startOutgoingSpan("Kafka", "payments", SETTER, new HashMap<String, String>(),
+                MessageSupplier.create("kafka send"), null).end();
+        span.end();
+
+        Assert.assertNull(threadContextHolder.get());
+        Assert.assertEquals(1, sdkBridge.requests.size());
+        RecordingSdkBridge.Request request = sdkBridge.requests.get(0);
+        Assert.assertEquals("Process orders", request.name);
+        Assert.assertEquals("orders", request.source);
+        // the parent is the send dependency
+        Assert.assertEquals("00-" + RecordingSdkBridge.TRACE_ID + "-" + send.getId() + "-01",
+                request.parentTraceparent);
+        Assert.assertTrue(request.tracked);
+        Assert.assertTrue(request.success);
+        // the dependencies merged while the request was bound are tracked when it ends
+        Assert.assertEquals(3, sdkBridge.dependencies.size());
+        Assert.assertEquals("Kafka", MessagingSpansTest.getDependency(sdkBridge, "Receive payments").getType());
+        Assert.assertEquals("Kafka", MessagingSpansTest.getDependency(sdkBridge, "Send payments").getType());
+    }
+
+    @Test
+    public void testFailedMessageProcessing() {
+        Span span = IncomingSpanImpl.start(sdkBridge, "JMS", "orders", GETTER, new HashMap<String, String>(),
+                MessageSupplier.create("jms receive"), threadContextHolder, 0, 0);
+        Assert.assertNotNull(span);
+        span.endWithError(new IllegalStateException());
+
+        Assert.assertNull(threadContextHolder.get());
+        RecordingSdkBridge.Request request = sdkBridge.requests.get(0);
+        Assert.assertNull(request.parentTraceparent);
+        Assert.assertTrue(request.tracked);
+        Assert.assertFalse(request.success);
+        Assert.assertEquals(1, sdkBridge.exceptions.size());
+    }
+
+    @Test
+    public void testOtherIncomingSpansAreNotTracked() {
+        Assert.assertNull(IncomingSpanImpl.start(sdkBridge, "Web", "/orders", GETTER, new HashMap<String, String>(),
+                MessageSupplier.create("servlet"), threadContextHolder, 0, 0));
+        Global.setMessagingEnabled(false);
+        Assert.assertNull(IncomingSpanImpl.start(sdkBridge, "Kafka", "orders", GETTER, new HashMap<String, String>(),
+                MessageSupplier.create("kafka receive"), threadContextHolder, 0, 0));
+
+        Assert.assertNull(threadContextHolder.get());
+        Assert.assertEquals(0, sdkBridge.requests.size());
+    }
+}
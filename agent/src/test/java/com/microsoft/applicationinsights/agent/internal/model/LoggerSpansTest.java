@@ -0,0 +1,24 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoggerSpansTest {
+
+    @Test
+    public void testCachedDateFormat() {
+        SimpleDateFormat expected = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        LoggerSpans.CachedDateFormat dateFormat = new LoggerSpans.CachedDateFormat();
+
+        long timeMillis = 1571000000000L;
+        String formatted = dateFormat.format(timeMillis);
+        Assert.assertEquals(expected.format(new Date(timeMillis)), formatted);
+        Assert.assertSame(formatted, dateFormat.format(timeMillis + 999));
+        Assert.assertEquals(expected.format(new Date(timeMillis + 1000)), dateFormat.format(timeMillis + 1000));
+        Assert.assertEquals(expected.format(new Date(timeMillis)), dateFormat.format(timeMillis));
+    }
+}
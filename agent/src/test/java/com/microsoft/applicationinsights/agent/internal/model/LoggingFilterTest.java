@@ -0,0 +1,51 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoggingFilterTest {
+
+    @Test
+    public void testLoggerThresholdAppliesToChildLoggers() {
+        Map<String, String> loggerThresholds = new HashMap<>();
+        loggerThresholds.put("org.hibernate", "error");
+        loggerThresholds.put("org.hibernate.SQL", "warn");
+        LoggingFilter loggingFilter = new LoggingFilter(loggerThresholds, 0);
+
+        Assert.assertEquals(-1, loggingFilter.accept("org.hibernate.engine.Loader", "WARN", 0));
+        Assert.assertEquals(0, loggingFilter.accept("org.hibernate.engine.Loader", "ERROR", 0));
+        Assert.assertEquals(0, loggingFilter.accept("org.hibernate.SQL", "WARN", 0));
+        Assert.assertEquals(-1, loggingFilter.accept("org.hibernate.SQL", "INFO", 0));
+        Assert.assertEquals(0, loggingFilter.accept("com.example.Service", "INFO", 0));
+        Assert.assertEquals(0, loggingFilter.accept(null, "INFO", 0));
+    }
+
+    @Test
+    public void testEventsAreLimitedPerLoggerAndSecond() {
+        LoggingFilter loggingFilter = new LoggingFilter(Collections.<String, String>emptyMap(), 2);
+
+        Assert.assertEquals(0, loggingFilter.accept("a", "WARN", 1000));
+        Assert.assertEquals(0, loggingFilter.accept("a", "WARN", 1100));
+        Assert.assertEquals(-1, loggingFilter.accept("a", "WARN", 1200));
+        Assert.assertEquals(-1, loggingFilter.accept("a", "WARN", 1300));
+        Assert.assertEquals(0, loggingFilter.accept("b", "WARN", 1400));
+
+        // the next event tracked for the logger reports the events that were dropped
+        Assert.assertEquals(2, loggingFilter.accept("a", "WARN", 2000));
+        Assert.assertEquals(0, loggingFilter.accept("a", "WARN", 2100));
+    }
+
+    @Test
+    public void testGetThreshold() {
+        LoggingFilter loggingFilter = new LoggingFilter(Collections.singletonMap("com.example", "Info"), 0);
+
+        Assert.assertEquals(2, loggingFilter.getThreshold("com.example"));
+        Assert.assertEquals(2, loggingFilter.getThreshold("com.example.a.B"));
+        Assert.assertEquals(-1, loggingFilter.getThreshold("com.examples"));
+        Assert.assertEquals(-1, loggingFilter.getThreshold(""));
+    }
+}
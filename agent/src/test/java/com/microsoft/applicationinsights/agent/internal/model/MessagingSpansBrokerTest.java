@@ -0,0 +1,162 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBinding;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.glowroot.instrumentation.api.Getter;
+import org.glowroot.instrumentation.api.MessageSupplier;
+import org.glowroot.instrumentation.api.Setter;
+import org.glowroot.instrumentation.api.Span;
+import org.glowroot.instrumentation.engine.bytecode.api.ThreadContextThreadLocal;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+// sends and receives through an embedded broker, so the headers are checked after a round trip through real messages
+public class MessagingSpansBrokerTest {
+
+    private static final Setter<Message> SETTER = new Setter<Message>() {
+        @Override
+        public void put(Message carrier, String key, String value) {
+            try {
+                carrier.setStringProperty(key, value);
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final Getter<Message> GETTER = new Getter<Message>() {
+        @Override
+        public String get(Message carrier, String key) {
+            try {
+                return carrier.getStringProperty(key);
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private BrokerService broker;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("messaging-spans-test");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+        connection = new ActiveMQConnectionFactory("vm://messaging-spans-test?create=false").createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @Test
+    public void testConsumersAreCorrelatedToTheTrackedSend() throws JMSException {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MessagingSpans messagingSpans = new MessagingSpans(sdkBridge);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("orders");
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < 20; i++) {
+            Message message = session.createTextMessage("order " + i);
+            long startTimeMillis = System.currentTimeMillis();
+            messagingSpans.propagate("JMS", "orders", SETTER, message);
+            producer.send(message);
+            messagingSpans.endSend("JMS", "orders", startTimeMillis, System.currentTimeMillis() - startTimeMillis,
+                    true);
+        }
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int i = 0; i < 20; i++) {
+            long startTimeMillis = System.currentTimeMillis();
+            Message message = consumer.receive(10000);
+            Assert.assertNotNull(message);
+            messagingSpans.endReceive("JMS", "orders", startTimeMillis, System.currentTimeMillis() - startTimeMillis,
+                    true);
+            // every consumer's parent is the one send dependency
+            Assert.assertEquals("00-" + RecordingSdkBridge.TRACE_ID + "-" + String.format("%016x", 1) + "-01",
+                    message.getStringProperty("traceparent"));
+        }
+        messagingSpans.flush();
+
+        Assert.assertEquals(1, sdkBridge.propagateCount);
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry send = MessagingSpansTest.getDependency(sdkBridge, "Send orders");
+        Assert.assertEquals(String.format("%016x", 1), send.getId());
+        Assert.assertEquals("20", send.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+        RemoteDependencyTelemetry receive = MessagingSpansTest.getDependency(sdkBridge, "Receive orders");
+        Assert.assertEquals("20", receive.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+    }
+
+    @Test
+    public void testMessageListenerCallsAreTrackedAsRequests() throws Exception {
+        Global.setMessagingEnabled(true);
+        try {
+            final RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("orders");
+            ThreadContextImpl<Object> producerContext =
+                    new ThreadContextImpl<>(new SdkBinding<Object>(sdkBridge, new Object()), null, 0, 0);
+            MessageProducer producer = session.createProducer(queue);
+            for (int i = 0; i < 5; i++) {
+                Message message = session.createTextMessage("order " + i);
+                Span span = producerContext.startOutgoingSpan("JMS", "orders", SETTER, message,
+                        MessageSupplier.create("jms send"), null);
+                producer.send(message);
+                span.end();
+            }
+            producerContext.flushTelemetry();
+
+            // the listener is called on the session's delivery thread, which has no request bound, and the span is
+            // started around onMessage() the way the jms instrumentation starts it
+            final CountDownLatch latch = new CountDownLatch(5);
+            Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            consumerSession.createConsumer(consumerSession.createQueue("orders")).setMessageListener(
+                    new MessageListener() {
+                        @Override
+                        public void onMessage(Message message) {
+                            ThreadContextThreadLocal.Holder threadContextHolder = Global.getThreadContextHolder();
+                            Span span = IncomingSpanImpl.start(sdkBridge, "JMS", "orders", GETTER, message,
+                                    MessageSupplier.create("jms receive"), threadContextHolder, 0, 0);
+                            if (span != null) {
+                                span.end();
+                            }
+                            latch.countDown();
+                        }
+                    });
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(5, sdkBridge.requests.size());
+            RemoteDependencyTelemetry send = MessagingSpansTest.getDependency(sdkBridge, "Send orders");
+            for (RecordingSdkBridge.Request request : sdkBridge.requests) {
+                Assert.assertEquals("Process orders", request.name);
+                Assert.assertEquals("00-" + RecordingSdkBridge.TRACE_ID + "-" + send.getId() + "-01",
+                        request.parentTraceparent);
+                Assert.assertTrue(request.tracked);
+            }
+        } finally {
+            Global.setMessagingEnabled(false);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.glowroot.instrumentation.api.Setter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessagingSpansTest {
+
+    private static final Setter<Map<String, String>> SETTER = new Setter<Map<String, String>>() {
+        @Override
+        public void put(Map<String, String> carrier, String key, String value) {
+            carrier.put(key, value);
+        }
+    };
+
+    @Test
+    public void testSendsToADestinationShareOneId() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MessagingSpans messagingSpans = new MessagingSpans(sdkBridge);
+        Map<String, String> first = new HashMap<>();
+        String id = messagingSpans.propagate("Kafka", "orders", SETTER, first);
+        for (int i = 1; i < 5; i++) {
+            Map<String, String> headers = new HashMap<>();
+            Assert.assertEquals(id, messagingSpans.propagate("Kafka", "orders", SETTER, headers));
+            Assert.assertEquals(first, headers);
+        }
+        Map<String, String> payments = new HashMap<>();
+        Assert.assertNotEquals(id, messagingSpans.propagate("Kafka", "payments", SETTER, payments));
+        Assert.assertEquals(2, sdkBridge.propagateCount);
+
+        for (int i = 0; i < 5; i++) {
+            messagingSpans.endSend("Kafka", "orders", i * 10, i + 1, i != 3);
+        }
+        messagingSpans.endSend("Kafka", "payments", 0, 1, true);
+        Assert.assertEquals(0, sdkBridge.dependencies.size());
+
+        messagingSpans.flush();
+
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry orders = getDependency(sdkBridge, "Send orders");
+        Assert.assertEquals(id, orders.getId());
+        Assert.assertEquals("Kafka", orders.getType());
+        Assert.assertEquals("orders", orders.getTarget());
+        Assert.assertEquals(0, orders.getTimestamp());
+        Assert.assertEquals(1 + 2 + 3 + 4 + 5, orders.getDurationMillis());
+        Assert.assertFalse(orders.isSuccess());
+        Assert.assertEquals("5", orders.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+        Assert.assertEquals("1", orders.getProperties().get(DependencyAggregator.FAILED_COUNT_PROPERTY));
+        Assert.assertEquals("1", orders.getProperties().get(DependencyAggregator.MIN_DURATION_PROPERTY));
+        Assert.assertEquals("5", orders.getProperties().get(DependencyAggregator.MAX_DURATION_PROPERTY));
+    }
+
+    @Test
+    public void testSendsInFlightAreTrackedWhenTheLastEnds() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MessagingSpans messagingSpans = new MessagingSpans(sdkBridge);
+        String id = messagingSpans.propagate("Kafka", "orders", SETTER, new HashMap<String, String>());
+        messagingSpans.propagate("Kafka", "orders", SETTER, new HashMap<String, String>());
+        messagingSpans.endSend("Kafka", "orders", 0, 1, true);
+
+        // e.g. kafka acks the second record after the request ended
+        messagingSpans.flush();
+        Assert.assertEquals(0, sdkBridge.dependencies.size());
+        messagingSpans.endSend("Kafka", "orders", 5, 20, true);
+
+        Assert.assertEquals(1, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry orders = sdkBridge.dependencies.get(0);
+        Assert.assertEquals(id, orders.getId());
+        Assert.assertEquals("2", orders.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+    }
+
+    @Test
+    public void testSendAfterFlushGetsNewId() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MessagingSpans messagingSpans = new MessagingSpans(sdkBridge);
+        String id = messagingSpans.propagate("JMS", "orders", SETTER, new HashMap<String, String>());
+        messagingSpans.endSend("JMS", "orders", 0, 1, true);
+        messagingSpans.flush();
+
+        String nextId = messagingSpans.propagate("JMS", "orders", SETTER, new HashMap<String, String>());
+        messagingSpans.endSend("JMS", "orders", 10, 1, true);
+
+        Assert.assertNotEquals(id, nextId);
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+        Assert.assertEquals(nextId, sdkBridge.dependencies.get(1).getId());
+    }
+
+    @Test
+    public void testReceivesAreCountedPerDestination() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MessagingSpans messagingSpans = new MessagingSpans(sdkBridge);
+        for (int i = 0; i < 10; i++) {
+            messagingSpans.endReceive("Kafka", i < 7 ? "orders" : "payments", i, 1, true);
+        }
+        Assert.assertEquals(0, sdkBridge.dependencies.size());
+
+        messagingSpans.flush();
+
+        Assert.assertEquals(2, sdkBridge.dependencies.size());
+        RemoteDependencyTelemetry orders = getDependency(sdkBridge, "Receive orders");
+        Assert.assertEquals("7", orders.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+        Assert.assertNull(orders.getId());
+        RemoteDependencyTelemetry payments = getDependency(sdkBridge, "Receive payments");
+        Assert.assertEquals("3", payments.getProperties().get(MessagingSpans.MESSAGE_COUNT_PROPERTY));
+    }
+
+    static RemoteDependencyTelemetry getDependency(RecordingSdkBridge sdkBridge, String name) {
+        for (RemoteDependencyTelemetry telemetry : sdkBridge.dependencies) {
+            if (name.equals(telemetry.getName())) {
+                return telemetry;
+            }
+        }
+        throw new AssertionError("no dependency named " + name);
+    }
+}
@@ -0,0 +1,97 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodGovernorTest {
+
+    private static final String TEXT = "__custom,xyz.ABC,abc,0,QRS";
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testCallsWithinBudgetAreAllTracked() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MethodGovernor governor = new MethodGovernor(100, 0);
+        for (int second = 0; second < 3; second++) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(1, governor.onCall(TEXT, second * SECOND + i));
+            }
+        }
+        Assert.assertFalse(governor.hasPendingReports());
+        governor.trackPendingReports(sdkBridge);
+        Assert.assertEquals(0, sdkBridge.traces.size());
+    }
+
+    @Test
+    public void testMethodOverCallBudgetIsSampled() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MethodGovernor governor = new MethodGovernor(100, 0);
+        for (int i = 0; i < 1000; i++) {
+            governor.onCall(TEXT, i);
+        }
+
+        int tracked = 0;
+        for (int i = 0; i < 1000; i++) {
+            int samplingInterval = governor.onCall(TEXT, SECOND + i);
+            if (samplingInterval != 0) {
+                Assert.assertEquals(10, samplingInterval);
+                tracked++;
+            }
+        }
+        Assert.assertEquals(100, tracked);
+
+        // the trace is only tracked once no request is bound
+        Assert.assertEquals(0, sdkBridge.traces.size());
+        Assert.assertTrue(governor.hasPendingReports());
+        governor.trackPendingReports(sdkBridge);
+        Assert.assertFalse(governor.hasPendingReports());
+        Assert.assertEquals(1, sdkBridge.traces.size());
+        SdkBridge.TraceTelemetry trace = sdkBridge.traces.get(0);
+        Assert.assertEquals("WARN", trace.getLevel());
+        Assert.assertEquals("xyz.ABC.abc", trace.getProperties().get("Method"));
+        Assert.assertEquals("10", trace.getProperties().get("Sampling Interval"));
+        Assert.assertEquals("1000", trace.getProperties().get("Calls Per Second"));
+    }
+
+    @Test
+    public void testSampledMethodRecovers() {
+        RecordingSdkBridge sdkBridge = new RecordingSdkBridge();
+        MethodGovernor governor = new MethodGovernor(100, 0);
+        for (int i = 0; i < 400; i++) {
+            governor.onCall(TEXT, i);
+        }
+        governor.onCall(TEXT, SECOND);
+        governor.onCall(TEXT, 2 * SECOND);
+        Assert.assertEquals(2, governor.onCall(TEXT, 2 * SECOND + 1));
+        governor.onCall(TEXT, 3 * SECOND);
+
+        Assert.assertEquals(1, governor.onCall(TEXT, 3 * SECOND + 1));
+        governor.trackPendingReports(sdkBridge);
+        Assert.assertEquals(2, sdkBridge.traces.size());
+        Assert.assertEquals("1", sdkBridge.traces.get(1).getProperties().get("Sampling Interval"));
+    }
+
+    @Test
+    public void testOverheadBudget() {
+        MethodGovernor governor = new MethodGovernor(0, 10);
+        // 1000 calls per second costing 50 microseconds each is 50 ms per second, 5 times the budget
+        Assert.assertEquals(5, governor.getRequiredSamplingInterval(1000, millis(50), 1, SECOND));
+        // the same method already sampled 1 in 5 only spends 10 ms per second
+        Assert.assertEquals(5, governor.getRequiredSamplingInterval(1000, millis(10), 5, SECOND));
+        Assert.assertEquals(1, governor.getRequiredSamplingInterval(100, millis(5), 1, SECOND));
+    }
+
+    @Test
+    public void testGetMethodName() {
+        Assert.assertEquals("xyz.ABC.abc", MethodGovernor.getMethodName(TEXT));
+        Assert.assertEquals("unexpected", MethodGovernor.getMethodName("unexpected"));
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,117 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OverheadMeterTest {
+
+    private RecordingSdkBridge sdkBridge;
+    private OverheadMeter overheadMeter;
+
+    @Before
+    public void setUp() {
+        sdkBridge = new RecordingSdkBridge();
+        overheadMeter = new OverheadMeter(ManagementFactory.getThreadMXBean(), 60, 0);
+        Global.setOverheadMeter(overheadMeter);
+    }
+
+    @After
+    public void tearDown() {
+        Global.setOverheadMeter(null);
+    }
+
+    @Test
+    public void testNothingIsReportedBeforeTheInterval() {
+        measure("SQL", true);
+
+        overheadMeter.reportIfDue(sdkBridge, 59999);
+
+        Assert.assertTrue(sdkBridge.metrics.isEmpty());
+    }
+
+    @Test
+    public void testSpansAreCountedPerInstrumentationType() {
+        for (int i = 0; i < 3; i++) {
+            measure("SQL", true);
+            measure("SQL", false);
+        }
+        measure("HTTP", true);
+
+        overheadMeter.reportIfDue(sdkBridge, 60000);
+
+        Assert.assertEquals(3, getValue(sdkBridge, "Agent Span Count", "SQL"), 0);
+        Assert.assertEquals(1, getValue(sdkBridge, "Agent Span Count", "HTTP"), 0);
+        for (RecordingSdkBridge.Metric metric : sdkBridge.metrics) {
+            Assert.assertTrue(metric.value >= 0);
+        }
+    }
+
+    @Test
+    public void testNestedMeasurementsAreNotCountedTwice() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample("Logging", true)) {
+            Assert.assertNotNull(sample);
+            Assert.assertNull(OverheadMeter.startSample("Logging", true));
+        }
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample("Logging", true)) {
+            Assert.assertNotNull(sample);
+        }
+    }
+
+    @Test
+    public void testSampleEndsWhenClosed() {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample("Redis", true)) {
+            Assert.assertNotNull(sample);
+            Assert.assertNull(OverheadMeter.startSample("Redis", true));
+        }
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample("Redis", false)) {
+            Assert.assertNotNull(sample);
+        }
+
+        overheadMeter.reportIfDue(sdkBridge, 60000);
+
+        // only span starts are counted, the span end is part of the same span
+        Assert.assertEquals(1, getValue(sdkBridge, "Agent Span Count", "Redis"), 0);
+    }
+
+    @Test
+    public void testTotalsStartOverAfterEachReport() {
+        measure("Custom", true);
+        overheadMeter.reportIfDue(sdkBridge, 60000);
+        sdkBridge.metrics.clear();
+
+        // not due again until a full interval after the last report
+        measure("Custom", true);
+        overheadMeter.reportIfDue(sdkBridge, 119999);
+        Assert.assertTrue(sdkBridge.metrics.isEmpty());
+
+        overheadMeter.reportIfDue(sdkBridge, 120000);
+        Assert.assertEquals(1, getValue(sdkBridge, "Agent Span Count", "Custom"), 0);
+
+        sdkBridge.metrics.clear();
+        overheadMeter.reportIfDue(sdkBridge, 180000);
+        Assert.assertTrue(sdkBridge.metrics.isEmpty());
+    }
+
+    private static void measure(String instrumentationType, boolean spanStart) {
+        try (OverheadMeter.Sample sample = OverheadMeter.startSample(instrumentationType, spanStart)) {
+            Assert.assertNotNull(sample);
+        }
+    }
+
+    private static double getValue(RecordingSdkBridge sdkBridge, String name, String instrumentationType) {
+        Double value = null;
+        for (RecordingSdkBridge.Metric metric : sdkBridge.metrics) {
+            if (metric.name.equals(name) && metric.properties.get(OverheadMeter.INSTRUMENTATION_TYPE_PROPERTY)
+                    .equals(instrumentationType)) {
+                Assert.assertNull(value);
+                value = metric.value;
+            }
+        }
+        Assert.assertNotNull(value);
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge.RemoteDependencyTelemetry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryPlanCaptureTest {
+
+    @Test
+    public void testSamePlanIsCapturedOncePerWindow() {
+        QueryPlanCapture capture = new QueryPlanCapture(60, 100, 10);
+        Assert.assertTrue(capture.tryAcquire("abc", 0));
+        Assert.assertFalse(capture.tryAcquire("abc", 59999));
+        Assert.assertTrue(capture.tryAcquire("def", 59999));
+        Assert.assertTrue(capture.tryAcquire("abc", 60000));
+    }
+
+    @Test
+    public void testPlansAreLimitedPerMinute() {
+        QueryPlanCapture capture = new QueryPlanCapture(0, 2, 10);
+        Assert.assertTrue(capture.tryAcquire("a", 0));
+        Assert.assertTrue(capture.tryAcquire("b", 1000));
+        Assert.assertFalse(capture.tryAcquire("c", 2000));
+        Assert.assertTrue(capture.tryAcquire("c", 60000));
+    }
+
+    @Test
+    public void testSubmitIsRejectedWhenQueueIsFull() {
+        QueryPlanCapture capture = new QueryPlanCapture(60, 100, 1);
+        Assert.assertTrue(capture.submit(null, newTelemetry(), "a", "plan", 0));
+        Assert.assertFalse(capture.submit(null, newTelemetry(), "b", "plan", 0));
+        Assert.assertEquals(1, capture.getQueueSize());
+    }
+
+    @Test
+    public void testFormatPlan() {
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("type", "ALL");
+        plan.put("rows", 1000);
+        Assert.assertEquals("type:ALL,rows:1000", QueryPlanCapture.formatPlan(plan));
+        Assert.assertEquals("Seq Scan on orders", QueryPlanCapture.formatPlan("Seq Scan on orders"));
+    }
+
+    private static RemoteDependencyTelemetry newTelemetry() {
+        return new RemoteDependencyTelemetry(0, 100, "SQL", true);
+    }
+}
@@ -0,0 +1,125 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+
+class RecordingSdkBridge implements SdkBridge<Object> {
+
+    static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    final List<RemoteDependencyTelemetry> dependencies = new ArrayList<>();
+    final List<TraceTelemetry> traces = new ArrayList<>();
+    final List<ExceptionTelemetry> exceptions = new ArrayList<>();
+    final List<Metric> metrics = new ArrayList<>();
+    final List<Request> requests = new ArrayList<>();
+
+    int propagateCount;
+
+    @Override
+    public void bindRequestTelemetryContext(Object requestTelemetryContext) {
+    }
+
+    @Override
+    public void unbindRequestTelemetryContext() {
+    }
+
+    @Override
+    public void setOperationName(Object requestTelemetryContext, String operationName) {
+    }
+
+    @Override
+    public String generateChildDependencyTarget(String requestContext, boolean w3c) {
+        return "";
+    }
+
+    @Override
+    public <C> String propagate(Setter<C> setter, C carrier, boolean w3c, boolean w3cBackCompat) {
+        String spanId = String.format("%016x", ++propagateCount);
+        setter.put(carrier, "traceparent", "00-" + TRACE_ID + "-" + spanId + "-01");
+        return spanId;
+    }
+
+    @Override
+    public <C> Object startRequest(String name, String source, long timestamp, Getter<C> getter, C carrier,
+                                   boolean w3c) {
+        Request request = new Request(name, source, getter.get(carrier, "traceparent"));
+        requests.add(request);
+        return request;
+    }
+
+    @Override
+    public void trackRequest(Object requestTelemetryContext, long durationMillis, boolean success) {
+        Request request = (Request) requestTelemetryContext;
+        request.tracked = true;
+        request.success = success;
+    }
+
+    @Override
+    public RemoteDependencyTelemetry createRemoteDependencyTelemetry(long timestamp, long durationMillis,
+                                                                     String type, boolean success) {
+        return new RemoteDependencyTelemetry(timestamp, durationMillis, type, success);
+    }
+
+    @Override
+    public TraceTelemetry createTraceTelemetry(long timestamp, String message, String level) {
+        return new TraceTelemetry(timestamp, message, level);
+    }
+
+    @Override
+    public ExceptionTelemetry createExceptionTelemetry(long timestamp, Throwable throwable, String level) {
+        return new ExceptionTelemetry(timestamp, throwable, level);
+    }
+
+    @Override
+    public void track(RemoteDependencyTelemetry telemetry) {
+        dependencies.add(telemetry);
+    }
+
+    @Override
+    public void track(TraceTelemetry telemetry) {
+        traces.add(telemetry);
+    }
+
+    @Override
+    public void track(ExceptionTelemetry telemetry) {
+        exceptions.add(telemetry);
+    }
+
+    @Override
+    public void trackMetric(String name, double value, Map<String, String> properties) {
+        metrics.add(new Metric(name, value, new HashMap<>(properties)));
+    }
+
+    static class Metric {
+
+        final String name;
+        final double value;
+        final Map<String, String> properties;
+
+        private Metric(String name, double value, Map<String, String> properties) {
+            this.name = name;
+            this.value = value;
+            this.properties = properties;
+        }
+    }
+
+    static class Request {
+
+        final String name;
+        final String source;
+        final String parentTraceparent;
+
+        boolean tracked;
+        boolean success;
+
+        private Request(String name, String source, String parentTraceparent) {
+            this.name = name;
+            this.source = source;
+            this.parentTraceparent = parentTraceparent;
+        }
+    }
+}
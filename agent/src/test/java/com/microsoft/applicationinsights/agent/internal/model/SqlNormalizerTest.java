@@ -0,0 +1,77 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SqlNormalizerTest {
+
+    @Test
+    public void testLiteralsAreReplaced() {
+        Assert.assertEquals("select * from orders where id = ? and name = ? and total > ?",
+                SqlNormalizer.normalize("SELECT * FROM orders WHERE id = 42 AND name = 'O''Brien' AND total > -1.5e3"));
+    }
+
+    @Test
+    public void testInListsAreCollapsed() {
+        Assert.assertEquals("select a from t where b in (?) and c in (?)",
+                SqlNormalizer.normalize("select a from t where b in (1, 2, 3) and c in (?,?)"));
+    }
+
+    @Test
+    public void testSubqueriesAreKept() {
+        Assert.assertEquals("select a from t where b in (select b from u where c = ?)",
+                SqlNormalizer.normalize("select a from t where b in (select b from u where c = 5)"));
+    }
+
+    @Test
+    public void testCommentsAndWhitespaceAreDropped() {
+        Assert.assertEquals("select a from t where b = ?",
+                SqlNormalizer.normalize("/* report */ select a\n  from t -- all rows\n where\tb = 'x'"));
+    }
+
+    @Test
+    public void testIdentifiersWithDigitsAndQuotedIdentifiersAreKept() {
+        Assert.assertEquals("select col1 from \"Table1\" where t2.x = ?",
+                SqlNormalizer.normalize("select COL1 from \"Table1\" where t2.x = 0x1F"));
+    }
+
+    @Test
+    public void testBackslashDoesNotEscapeAQuote() {
+        Assert.assertEquals("select * from t where path = ? and id = ?",
+                SqlNormalizer.normalize("select * from t where path = 'C:\\' and id = 1"));
+    }
+
+    @Test
+    public void testStatementsWithTheSameShapeShareAFingerprint() {
+        SqlNormalizer normalizer = new SqlNormalizer(60);
+
+        SqlNormalizer.Statement first = normalizer.get("select * from t where id = 1");
+        SqlNormalizer.Statement second = normalizer.get("SELECT *  FROM t WHERE id = 2");
+        SqlNormalizer.Statement other = normalizer.get("select * from u where id = 1");
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(16, first.getFingerprint().length());
+        Assert.assertFalse(first.getFingerprint().equals(other.getFingerprint()));
+        Assert.assertEquals(SqlNormalizer.fingerprint("select * from t where id = ?"), first.getFingerprint());
+    }
+
+    @Test
+    public void testFullTextIsSentOncePerInterval() {
+        SqlNormalizer normalizer = new SqlNormalizer(60);
+        SqlNormalizer.Statement statement = normalizer.get("select * from t where id = ?");
+
+        Assert.assertTrue(normalizer.shouldSendFullText(statement, 1000));
+        Assert.assertFalse(normalizer.shouldSendFullText(statement, 30000));
+        Assert.assertTrue(normalizer.shouldSendFullText(statement, 61000));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        SqlNormalizer normalizer = new SqlNormalizer(60, 10);
+        for (int i = 0; i < 25; i++) {
+            normalizer.get("select * from t where id = " + i);
+        }
+
+        Assert.assertTrue(normalizer.getCacheSize() <= 10);
+    }
+}
@@ -0,0 +1,37 @@
+package com.microsoft.applicationinsights.agent.internal.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StartupProfileTest {
+
+    @Test
+    public void testPhasesAreMeasuredFromThePreviousPhase() {
+        StartupProfile startupProfile = new StartupProfile(0);
+        startupProfile.endPhase("configuration", TimeUnit.MILLISECONDS.toNanos(12));
+        startupProfile.endPhase("engine", TimeUnit.MILLISECONDS.toNanos(150));
+
+        Assert.assertEquals(150, startupProfile.getTotalMillis());
+        Assert.assertEquals("configuration: 12 ms, engine: 138 ms", startupProfile.toString());
+
+        Map<String, String> properties = new HashMap<>();
+        startupProfile.addTo(properties);
+        Assert.assertEquals(3, properties.size());
+        Assert.assertEquals("12", properties.get("Startup configuration (ms)"));
+        Assert.assertEquals("138", properties.get("Startup engine (ms)"));
+        Assert.assertEquals("150", properties.get("Startup total (ms)"));
+    }
+
+    @Test
+    public void testStartupProfileIsReportedOnce() {
+        StartupProfile startupProfile = new StartupProfile();
+        Global.setUnreportedStartupProfile(startupProfile);
+
+        Assert.assertSame(startupProfile, Global.takeUnreportedStartupProfile());
+        Assert.assertNull(Global.takeUnreportedStartupProfile());
+    }
+}
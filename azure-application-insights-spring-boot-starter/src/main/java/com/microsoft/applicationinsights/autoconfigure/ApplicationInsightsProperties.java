@@ -373,6 +373,12 @@ public class ApplicationInsightsProperties {
      */
     private boolean enableW3CBackcompatMode = true;
 
+    /**
+     * Names the requests after the route template they matched, for example "GET /orders/{id}", instead of the
+     * controller and action names. Disabled by default.
+     */
+    private boolean routeTemplateNaming = false;
+
     public boolean isEnableW3CBackcompatMode() {
       return enableW3CBackcompatMode;
     }
@@ -396,6 +402,14 @@ public class ApplicationInsightsProperties {
     public void setEnableW3C(boolean enableW3C) {
       this.enableW3C = enableW3C;
     }
+
+    public boolean isRouteTemplateNaming() {
+      return routeTemplateNaming;
+    }
+
+    public void setRouteTemplateNaming(boolean routeTemplateNaming) {
+      this.routeTemplateNaming = routeTemplateNaming;
+    }
   }
 
   public static class QuickPulse {
@@ -480,6 +494,9 @@ public class ApplicationInsightsProperties {
     private long collectionFrequencyInSeconds =
         PerformanceCounterContainer.DEFAULT_COLLECTION_FREQUENCY_IN_SEC;
 
+    /** Sampling frequency of performance counters, 0 samples once per collection */
+    private long samplingFrequencyInSeconds = 0;
+
     public long getCollectionFrequencyInSeconds() {
       return collectionFrequencyInSeconds;
     }
@@ -487,6 +504,14 @@ public class ApplicationInsightsProperties {
     public void setCollectionFrequencyInSeconds(long collectionFrequencyInSeconds) {
       this.collectionFrequencyInSeconds = collectionFrequencyInSeconds;
     }
+
+    public long getSamplingFrequencyInSeconds() {
+      return samplingFrequencyInSeconds;
+    }
+
+    public void setSamplingFrequencyInSeconds(long samplingFrequencyInSeconds) {
+      this.samplingFrequencyInSeconds = samplingFrequencyInSeconds;
+    }
   }
 
   static class Jmx {
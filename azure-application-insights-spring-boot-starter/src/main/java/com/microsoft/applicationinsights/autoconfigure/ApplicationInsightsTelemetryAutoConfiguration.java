@@ -217,6 +217,7 @@ public class ApplicationInsightsTelemetryAutoConfiguration {
      private void initializePerformanceCounterContainer() {
         ApplicationInsightsProperties.PerformanceCounter performanceCounter = applicationInsightsProperties.getPerformanceCounter();
         PerformanceCounterContainer.INSTANCE.setCollectionFrequencyInSec(performanceCounter.getCollectionFrequencyInSeconds());
+        PerformanceCounterContainer.INSTANCE.setSamplingFrequencyInSec(performanceCounter.getSamplingFrequencyInSeconds());
 
         ApplicationInsightsProperties.Jmx jmx = applicationInsightsProperties.getJmx();
         if (jmx.getJmxCounters() !=null && jmx.getJmxCounters().size() > 0) {
@@ -24,6 +24,7 @@ package com.microsoft.applicationinsights.autoconfigure;
 import com.microsoft.applicationinsights.TelemetryConfiguration;
 import com.microsoft.applicationinsights.web.internal.ApplicationInsightsServletContextListener;
 import com.microsoft.applicationinsights.web.internal.WebRequestTrackingFilter;
+import com.microsoft.applicationinsights.web.spring.RouteTemplateHandlerInterceptorAdapter;
 import com.microsoft.applicationinsights.web.spring.internal.InterceptorRegistry;
 import javax.servlet.ServletContextListener;
 import org.springframework.beans.factory.annotation.Value;
@@ -39,6 +40,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 /**
  * <h1>Configuration for Auto-collection of HTTP requests.</h1>
@@ -47,12 +49,15 @@ import org.springframework.core.Ordered;
  *   This class is responsible for configuring {@link WebRequestTrackingFilter} for auto collection
  *   of incoming HTTP requests
  * </p>
+ * <p>
+ *   Requests are named after the controller and action that handled them, or after the route template they
+ *   matched when {@code azure.application-insights.web.route-template-naming} is enabled.
+ * </p>
  *
  * @author Arthur Gavlyukovskiy, Dhaval Doshi
  */
 
 @Configuration
-@Import(InterceptorRegistry.class)
 @ConditionalOnBean(TelemetryConfiguration.class)
 @ConditionalOnWebApplication
 @ConditionalOnProperty(value = "azure.application-insights.web.enabled", havingValue = "true", matchIfMissing = true)
@@ -108,5 +113,20 @@ public class ApplicationInsightsWebMvcAutoConfiguration {
     public ApplicationInsightsServletContextListener applicationInsightsServletContextListener() {
         return new ApplicationInsightsServletContextListener();
     }
-}
 
+    @Configuration
+    @ConditionalOnProperty(value = "azure.application-insights.web.route-template-naming", havingValue = "false", matchIfMissing = true)
+    @Import(InterceptorRegistry.class)
+    static class HandlerMethodNamingConfiguration {
+    }
+
+    @Configuration
+    @ConditionalOnProperty(value = "azure.application-insights.web.route-template-naming", havingValue = "true")
+    static class RouteTemplateNamingConfiguration extends WebMvcConfigurerAdapter {
+
+        @Override
+        public void addInterceptors(org.springframework.web.servlet.config.annotation.InterceptorRegistry registry) {
+            registry.addInterceptor(new RouteTemplateHandlerInterceptorAdapter());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.agent;
+
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import com.microsoft.applicationinsights.channel.concrete.nop.NopTelemetryChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares tracking an agent dependency through telemetry created by the bridge, which is backed by the SDK telemetry,
+ * with tracking one that is instantiated by the agent and copied over by the bridge.
+ *
+ * Run with: gradlew :core:jmh -PjmhArgs='SdkBridgeBenchmark -prof gc', gc.alloc.rate.norm is the number of bytes
+ * allocated per tracked dependency. Both go through the same TelemetryClient.track with a nop channel, so the
+ * difference between them is the cost of the copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SdkBridgeBenchmark {
+
+    private final String statement = "select id, name from customers where id = ?";
+    private final String url = "jdbc:postgresql://localhost:5432/customers";
+
+    private SdkBridge<Object> sdkBridge;
+
+    @Setup
+    public void setUp() {
+        TelemetryConfiguration configuration = new TelemetryConfiguration();
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000000");
+        configuration.setChannel(NopTelemetryChannel.instance());
+        sdkBridge = new BenchmarkSdkBridge(new TelemetryClient(configuration));
+    }
+
+    @Benchmark
+    public SdkBridge.RemoteDependencyTelemetry trackDependency() {
+        SdkBridge.RemoteDependencyTelemetry telemetry =
+                sdkBridge.createRemoteDependencyTelemetry(System.currentTimeMillis(), 3, "SQL", true);
+        return track(telemetry);
+    }
+
+    @Benchmark
+    public SdkBridge.RemoteDependencyTelemetry trackDependencyCopied() {
+        SdkBridge.RemoteDependencyTelemetry telemetry =
+                new SdkBridge.RemoteDependencyTelemetry(System.currentTimeMillis(), 3, "SQL", true);
+        return track(telemetry);
+    }
+
+    private SdkBridge.RemoteDependencyTelemetry track(SdkBridge.RemoteDependencyTelemetry telemetry) {
+        telemetry.setName(url);
+        telemetry.setCommandName(statement);
+        telemetry.getProperties().put("Args", " [Batch of 10]");
+        sdkBridge.track(telemetry);
+        return telemetry;
+    }
+
+    private static class BenchmarkSdkBridge extends AbstractSdkBridge<Object> {
+
+        BenchmarkSdkBridge(TelemetryClient client) {
+            super(client);
+        }
+
+        @Override
+        public void bindRequestTelemetryContext(Object requestTelemetryContext) {
+        }
+
+        @Override
+        public void unbindRequestTelemetryContext() {
+        }
+
+        @Override
+        public void setOperationName(Object requestTelemetryContext, String operationName) {
+        }
+
+        @Override
+        public String generateChildDependencyTarget(String requestContext, boolean w3c) {
+            return "";
+        }
+
+        @Override
+        public <C> String propagate(Setter<C> setter, C carrier, boolean w3c, boolean w3cBackCompat) {
+            return "";
+        }
+
+        @Override
+        public <C> Object startRequest(String name, String source, long timestamp, Getter<C> getter, C carrier,
+                                       boolean w3c) {
+            return new Object();
+        }
+
+        @Override
+        public void trackRequest(Object requestTelemetryContext, long durationMillis, boolean success) {
+        }
+    }
+}
@@ -22,12 +22,15 @@
 package com.microsoft.applicationinsights.internal.agent;
 
 import java.util.Date;
+import java.util.Map;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.Duration;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
 import com.microsoft.applicationinsights.telemetry.SeverityLevel;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
 
 public abstract class AbstractSdkBridge<T> implements SdkBridge<T> {
 
@@ -37,8 +40,38 @@ public abstract class AbstractSdkBridge<T> implements SdkBridge<T> {
         this.client = client;
     }
 
+    @Override
+    public RemoteDependencyTelemetry createRemoteDependencyTelemetry(long timestamp, long durationMillis, String type,
+                                                                     boolean success) {
+        return new CoreBackedTelemetry.DependencyItem(timestamp, durationMillis, type, success);
+    }
+
+    @Override
+    public TraceTelemetry createTraceTelemetry(long timestamp, String message, String level) {
+        return new CoreBackedTelemetry.TraceItem(timestamp, message, level);
+    }
+
+    @Override
+    public ExceptionTelemetry createExceptionTelemetry(long timestamp, Throwable throwable, String level) {
+        return new CoreBackedTelemetry.ExceptionItem(timestamp, throwable, level);
+    }
+
+    @Override
+    public void trackMetric(String name, double value, Map<String, String> properties) {
+        MetricTelemetry telemetry = new MetricTelemetry(name, value);
+        telemetry.getProperties().putAll(properties);
+        client.track(telemetry);
+    }
+
     @Override
     public void track(RemoteDependencyTelemetry agentTelemetry) {
+        client.track(toTelemetry(agentTelemetry));
+    }
+
+    private static Telemetry toTelemetry(RemoteDependencyTelemetry agentTelemetry) {
+        if (agentTelemetry instanceof CoreBackedTelemetry.DependencyItem) {
+            return ((CoreBackedTelemetry.DependencyItem) agentTelemetry).telemetry;
+        }
 
         com.microsoft.applicationinsights.telemetry.RemoteDependencyTelemetry telemetry =
                 new com.microsoft.applicationinsights.telemetry.RemoteDependencyTelemetry();
@@ -73,17 +106,30 @@ public abstract class AbstractSdkBridge<T> implements SdkBridge<T> {
             telemetry.setResultCode(resultCode);
         }
 
+        Double samplingPercentage = agentTelemetry.getSamplingPercentage();
+        if (samplingPercentage != null) {
+            telemetry.setSamplingPercentage(samplingPercentage);
+        }
+
         telemetry.getProperties().putAll(agentTelemetry.getProperties());
 
-        client.track(telemetry);
+        return telemetry;
     }
 
     @Override
     public void track(TraceTelemetry agentTelemetry) {
+        client.track(toTelemetry(agentTelemetry));
+    }
+
+    private static Telemetry toTelemetry(TraceTelemetry agentTelemetry) {
+        if (agentTelemetry instanceof CoreBackedTelemetry.TraceItem) {
+            return ((CoreBackedTelemetry.TraceItem) agentTelemetry).telemetry;
+        }
 
         com.microsoft.applicationinsights.telemetry.TraceTelemetry telemetry =
                 new com.microsoft.applicationinsights.telemetry.TraceTelemetry();
 
+        telemetry.setTimestamp(new Date(agentTelemetry.getTimestamp()));
         telemetry.setMessage(agentTelemetry.getMessage());
 
         String level = agentTelemetry.getLevel();
@@ -93,15 +139,23 @@ public abstract class AbstractSdkBridge<T> implements SdkBridge<T> {
 
         telemetry.getProperties().putAll(agentTelemetry.getProperties());
 
-        client.track(telemetry);
+        return telemetry;
     }
 
     @Override
     public void track(ExceptionTelemetry agentTelemetry) {
+        client.track(toTelemetry(agentTelemetry));
+    }
+
+    private static Telemetry toTelemetry(ExceptionTelemetry agentTelemetry) {
+        if (agentTelemetry instanceof CoreBackedTelemetry.ExceptionItem) {
+            return ((CoreBackedTelemetry.ExceptionItem) agentTelemetry).telemetry;
+        }
 
         com.microsoft.applicationinsights.telemetry.ExceptionTelemetry telemetry =
                 new com.microsoft.applicationinsights.telemetry.ExceptionTelemetry();
 
+        telemetry.setTimestamp(new Date(agentTelemetry.getTimestamp()));
         telemetry.setException(agentTelemetry.getThrowable());
 
         String level = agentTelemetry.getLevel();
@@ -111,10 +165,10 @@ public abstract class AbstractSdkBridge<T> implements SdkBridge<T> {
 
         telemetry.getProperties().putAll(agentTelemetry.getProperties());
 
-        client.track(telemetry);
+        return telemetry;
     }
 
-    private static SeverityLevel toSeverityLevel(String level) {
+    static SeverityLevel toSeverityLevel(String level) {
         switch (level) {
             case "FATAL":
                 return SeverityLevel.Critical;
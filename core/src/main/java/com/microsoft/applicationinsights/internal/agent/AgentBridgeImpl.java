@@ -36,6 +36,7 @@ class AgentBridgeImpl<T> implements AgentBridge<T> {
 
     AgentBridgeImpl(SdkBridge<T> sdkBridge) {
         this.sdkBridge = sdkBridge;
+        AgentBridgeInternal.registerSdkBridge(sdkBridge);
     }
 
     @Override
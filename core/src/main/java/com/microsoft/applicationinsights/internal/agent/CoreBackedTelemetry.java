@@ -0,0 +1,135 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.agent;
+
+import java.util.Date;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import com.microsoft.applicationinsights.telemetry.Duration;
+
+/**
+ * Agent telemetry that writes straight into the SDK telemetry it wraps, so {@link AbstractSdkBridge} can track it
+ * without copying its fields and properties over.
+ */
+final class CoreBackedTelemetry {
+
+    private CoreBackedTelemetry() {
+    }
+
+    static final class DependencyItem extends SdkBridge.RemoteDependencyTelemetry {
+
+        final com.microsoft.applicationinsights.telemetry.RemoteDependencyTelemetry telemetry =
+                new com.microsoft.applicationinsights.telemetry.RemoteDependencyTelemetry();
+
+        DependencyItem(long timestamp, long durationMillis, String type, boolean success) {
+            super(timestamp, durationMillis, type, success);
+            telemetry.setTimestamp(new Date(timestamp));
+            telemetry.setDuration(new Duration(durationMillis));
+            telemetry.setType(type);
+            telemetry.setSuccess(success);
+        }
+
+        @Override
+        public void setId(String id) {
+            super.setId(id);
+            if (id != null) {
+                telemetry.setId(id);
+            }
+        }
+
+        @Override
+        public void setName(String name) {
+            super.setName(name);
+            telemetry.setName(name);
+        }
+
+        @Override
+        public void setCommandName(String commandName) {
+            super.setCommandName(commandName);
+            telemetry.setCommandName(commandName);
+        }
+
+        @Override
+        public void setTarget(String target) {
+            super.setTarget(target);
+            telemetry.setTarget(target);
+        }
+
+        @Override
+        public void setResultCode(String resultCode) {
+            super.setResultCode(resultCode);
+            telemetry.setResultCode(resultCode);
+        }
+
+        @Override
+        public void setSamplingPercentage(double samplingPercentage) {
+            super.setSamplingPercentage(samplingPercentage);
+            telemetry.setSamplingPercentage(samplingPercentage);
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return telemetry.getProperties();
+        }
+    }
+
+    static final class TraceItem extends SdkBridge.TraceTelemetry {
+
+        final com.microsoft.applicationinsights.telemetry.TraceTelemetry telemetry =
+                new com.microsoft.applicationinsights.telemetry.TraceTelemetry();
+
+        TraceItem(long timestamp, String message, String level) {
+            super(timestamp, message, level);
+            telemetry.setTimestamp(new Date(timestamp));
+            telemetry.setMessage(message);
+            if (level != null) {
+                telemetry.setSeverityLevel(AbstractSdkBridge.toSeverityLevel(level));
+            }
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return telemetry.getProperties();
+        }
+    }
+
+    static final class ExceptionItem extends SdkBridge.ExceptionTelemetry {
+
+        final com.microsoft.applicationinsights.telemetry.ExceptionTelemetry telemetry =
+                new com.microsoft.applicationinsights.telemetry.ExceptionTelemetry();
+
+        ExceptionItem(long timestamp, Throwable throwable, String level) {
+            super(timestamp, throwable, level);
+            telemetry.setTimestamp(new Date(timestamp));
+            telemetry.setException(throwable);
+            if (level != null) {
+                telemetry.setSeverityLevel(AbstractSdkBridge.toSeverityLevel(level));
+            }
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            return telemetry.getProperties();
+        }
+    }
+}
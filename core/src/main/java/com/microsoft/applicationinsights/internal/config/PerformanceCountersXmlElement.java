@@ -38,6 +38,9 @@ public class PerformanceCountersXmlElement {
     @XStreamAsAttribute
     private long collectionFrequencyInSec = 60;
 
+    @XStreamAsAttribute
+    private long samplingFrequencyInSec = 0;
+
     @XStreamAlias("Jvm")
     private PerformanceCounterJvmSectionXmlElement jvmSection;
 
@@ -82,6 +85,14 @@ public class PerformanceCountersXmlElement {
         this.collectionFrequencyInSec = collectionFrequencyInSec;
     }
 
+    public long getSamplingFrequencyInSec() {
+        return samplingFrequencyInSec;
+    }
+
+    public void setSamplingFrequencyInSec(long samplingFrequencyInSec) {
+        this.samplingFrequencyInSec = samplingFrequencyInSec;
+    }
+
     public PerformanceCounterJvmSectionXmlElement getJvmSection() {
         return jvmSection;
     }
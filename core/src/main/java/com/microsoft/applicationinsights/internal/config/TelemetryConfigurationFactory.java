@@ -378,6 +378,7 @@ public enum TelemetryConfigurationFactory {
     @SuppressWarnings("unchecked")
     private List<TelemetryModule> getPerformanceModules(PerformanceCountersXmlElement performanceConfigurationData) {
         PerformanceCounterContainer.INSTANCE.setCollectionFrequencyInSec(performanceConfigurationData.getCollectionFrequencyInSec());
+        PerformanceCounterContainer.INSTANCE.setSamplingFrequencyInSec(performanceConfigurationData.getSamplingFrequencyInSec());
         String pluginName = performanceConfigurationData.getPlugin();
 
         if (!LocalStringsUtils.isNullOrEmpty(pluginName)) {
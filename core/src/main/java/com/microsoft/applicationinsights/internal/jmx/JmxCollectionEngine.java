@@ -0,0 +1,297 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+
+/**
+ * Collects JMX attributes for the performance counters.
+ * <p>
+ * Resolved {@link ObjectName} queries are cached and invalidated through the MBean server delegate
+ * registration notifications, so the (potentially expensive) {@code queryNames} call only runs when the
+ * set of registered MBeans changes.
+ * <p>
+ * Attributes are read with a single {@code getAttributes} call per object. Between {@link #beginCycle()} and
+ * {@link #endCycle()} the values read are kept, so counters that share an MBean within the same collection
+ * cycle do not go back to the MBean server.
+ */
+public enum JmxCollectionEngine {
+    INSTANCE;
+
+    private static final String COMPOSITE_ATTRIBUTE_TYPE = "COMPOSITE";
+    private static final String TABULAR_ATTRIBUTE_TYPE = "TABULAR";
+
+    private static final class ResolvedQuery {
+        final ObjectName pattern;
+        final Set<ObjectName> names;
+
+        ResolvedQuery(ObjectName pattern, Set<ObjectName> names) {
+            this.pattern = pattern;
+            this.names = names;
+        }
+    }
+
+    private final ConcurrentMap<String, ResolvedQuery> resolvedQueries = new ConcurrentHashMap<String, ResolvedQuery>();
+
+    // bumped on every registration notification, so a query that raced with one is not cached
+    private final AtomicLong registrationGeneration = new AtomicLong();
+
+    private volatile ConcurrentMap<ObjectName, Map<String, Object>> cycleValues;
+
+    private volatile long cycleStartNanos;
+
+    private volatile boolean listenerRegistered;
+
+    private final NotificationListener registrationListener = new NotificationListener() {
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!(notification instanceof MBeanServerNotification)) {
+                return;
+            }
+
+            registrationGeneration.incrementAndGet();
+            ObjectName mbeanName = ((MBeanServerNotification) notification).getMBeanName();
+            for (Map.Entry<String, ResolvedQuery> entry : resolvedQueries.entrySet()) {
+                if (entry.getValue().pattern.apply(mbeanName)) {
+                    resolvedQueries.remove(entry.getKey(), entry.getValue());
+                }
+            }
+
+            ConcurrentMap<ObjectName, Map<String, Object>> values = cycleValues;
+            if (values != null) {
+                values.remove(mbeanName);
+            }
+        }
+    };
+
+    /**
+     * Starts a collection cycle, attribute values read until {@link #endCycle()} is called are shared between callers.
+     */
+    public void beginCycle() {
+        cycleStartNanos = System.nanoTime();
+        cycleValues = new ConcurrentHashMap<ObjectName, Map<String, Object>>();
+    }
+
+    /**
+     * Ends the current collection cycle and drops the values read during it.
+     * @return The duration of the cycle in nanoseconds, or 0 if there was no cycle in progress.
+     */
+    public long endCycle() {
+        if (cycleValues == null) {
+            return 0;
+        }
+
+        cycleValues = null;
+        return System.nanoTime() - cycleStartNanos;
+    }
+
+    /**
+     * Gets an object name and its attributes to fetch and will return the data.
+     * @param objectName The object name to search.
+     * @param attributes The attributes that 'belong' to the object name.
+     * @return A map that represent each attribute: the key is the displayed name for that attribute
+     * and the value is a list of values found
+     * @throws Exception In case the object name is not found.
+     */
+    public Map<String, Collection<Object>> fetch(String objectName, Collection<JmxAttributeData> attributes) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> objects = resolve(server, objectName);
+        if (objects.isEmpty()) {
+            String errorMsg = String.format("Cannot find object name '%s'", objectName);
+            throw new IllegalArgumentException(errorMsg);
+        }
+
+        Set<String> topLevelNames = new LinkedHashSet<String>();
+        for (JmxAttributeData attribute : attributes) {
+            topLevelNames.add(getTopLevelName(attribute));
+        }
+
+        Map<ObjectName, Map<String, Object>> valuesPerObject = new HashMap<ObjectName, Map<String, Object>>();
+        for (ObjectName object : objects) {
+            try {
+                valuesPerObject.put(object, getValues(server, object, topLevelNames));
+            } catch (Exception e) {
+                InternalLogger.INSTANCE.error("Failed to fetch JMX object '%s': '%s'", objectName, e.toString());
+                throw e;
+            }
+        }
+
+        Map<String, Collection<Object>> result = new HashMap<String, Collection<Object>>();
+        for (JmxAttributeData attribute : attributes) {
+            ArrayList<Object> resultForAttribute = new ArrayList<Object>(objects.size());
+            try {
+                for (Map<String, Object> values : valuesPerObject.values()) {
+                    Object obj = extract(values, attribute);
+                    if (obj != null) {
+                        resultForAttribute.add(obj);
+                    }
+                }
+            } catch (Exception e) {
+                InternalLogger.INSTANCE.error("Failed to fetch JMX object '%s' with attribute '%s': '%s'", objectName, attribute.name, e.toString());
+                throw e;
+            }
+            result.put(attribute.displayName, resultForAttribute);
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a value read from JMX to a double without going through its string representation
+     * when the value is already numeric.
+     * @param value The JMX value.
+     * @return The numeric value.
+     * @throws NumberFormatException If the value is not a number.
+     */
+    public static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble(String.valueOf(value));
+    }
+
+    void clearCache() {
+        resolvedQueries.clear();
+    }
+
+    private Set<ObjectName> resolve(MBeanServer server, String objectName) throws Exception {
+        ResolvedQuery resolved = resolvedQueries.get(objectName);
+        if (resolved != null) {
+            return resolved.names;
+        }
+
+        ObjectName pattern = new ObjectName(objectName);
+        boolean cacheable = registerListener(server);
+        long generation = registrationGeneration.get();
+        Set<ObjectName> names = Collections.unmodifiableSet(server.queryNames(pattern, null));
+        if (cacheable && generation == registrationGeneration.get()) {
+            resolved = new ResolvedQuery(pattern, names);
+            resolvedQueries.put(objectName, resolved);
+            // a notification that came in before the put did not see the entry, so it is dropped here instead
+            if (generation != registrationGeneration.get()) {
+                resolvedQueries.remove(objectName, resolved);
+            }
+        }
+        return names;
+    }
+
+    private boolean registerListener(MBeanServer server) {
+        if (listenerRegistered) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (!listenerRegistered) {
+                try {
+                    server.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, null, null);
+                    listenerRegistered = true;
+                } catch (Exception e) {
+                    InternalLogger.INSTANCE.warn("Failed to listen to MBean registrations, JMX object names will not be cached: '%s'", e.toString());
+                }
+            }
+            return listenerRegistered;
+        }
+    }
+
+    private Map<String, Object> getValues(MBeanServer server, ObjectName object, Set<String> names) throws Exception {
+        ConcurrentMap<ObjectName, Map<String, Object>> cycle = cycleValues;
+        Map<String, Object> cached = cycle == null ? null : cycle.get(object);
+
+        ArrayList<String> missing = new ArrayList<String>(names.size());
+        for (String name : names) {
+            if (cached == null || !cached.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return cached;
+        }
+
+        Map<String, Object> values = cached == null ? new HashMap<String, Object>() : new HashMap<String, Object>(cached);
+        AttributeList attributeList = server.getAttributes(object, missing.toArray(new String[missing.size()]));
+        for (Object attribute : attributeList) {
+            Attribute a = (Attribute) attribute;
+            values.put(a.getName(), a.getValue());
+        }
+
+        // getAttributes silently omits the attributes it failed to read; read those one by one to surface the error
+        for (String name : missing) {
+            if (!values.containsKey(name)) {
+                values.put(name, server.getAttribute(object, name));
+            }
+        }
+
+        if (cycle != null) {
+            cycle.put(object, values);
+        }
+        return values;
+    }
+
+    private static String getTopLevelName(JmxAttributeData attribute) {
+        if (isNested(attribute)) {
+            int index = attribute.name.indexOf('.');
+            return index < 0 ? attribute.name : attribute.name.substring(0, index);
+        }
+        return attribute.name;
+    }
+
+    private static boolean isNested(JmxAttributeData attribute) {
+        return COMPOSITE_ATTRIBUTE_TYPE.equals(attribute.type) || TABULAR_ATTRIBUTE_TYPE.equals(attribute.type);
+    }
+
+    private static Object extract(Map<String, Object> values, JmxAttributeData attribute) {
+        if (!isNested(attribute)) {
+            return values.get(attribute.name);
+        }
+
+        String[] inners = attribute.name.split("\\.");
+        Object obj = values.get(inners[0]);
+        if (TABULAR_ATTRIBUTE_TYPE.equals(attribute.type)) {
+            CompositeData compositeData = (CompositeData) ((TabularData) obj).get(new Object[] {inners[1]});
+            return compositeData.get(inners[2]);
+        }
+        return ((CompositeData) obj).get(inners[1]);
+    }
+}
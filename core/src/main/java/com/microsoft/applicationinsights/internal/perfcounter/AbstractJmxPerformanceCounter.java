@@ -26,7 +26,7 @@ import java.util.Map;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.jmx.JmxAttributeData;
-import com.microsoft.applicationinsights.internal.jmx.JmxDataFetcher;
+import com.microsoft.applicationinsights.internal.jmx.JmxCollectionEngine;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
@@ -61,14 +61,14 @@ public abstract class AbstractJmxPerformanceCounter implements PerformanceCounte
 
         try {
             Map<String, Collection<Object>> result =
-                    JmxDataFetcher.fetch(objectName, attributes);
+                    JmxCollectionEngine.INSTANCE.fetch(objectName, attributes);
 
             for (Map.Entry<String, Collection<Object>> displayAndValues : result.entrySet()) {
                 boolean ok = true;
                 double value = 0.0;
                 for (Object obj : displayAndValues.getValue()) {
                     try {
-                        value += Double.parseDouble(String.valueOf(obj));
+                        value += JmxCollectionEngine.toDouble(obj);
                     } catch (Exception e) {
                         ok = false;
                         break;
@@ -0,0 +1,111 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+
+/**
+ * Accumulates samples of a metric in process so that a single aggregated {@link MetricTelemetry},
+ * holding the sum, count, min, max and standard deviation, is sent per collection instead of one per sample.
+ */
+public final class AggregatedMetric {
+    private int count;
+    private double sum;
+    private double sumOfSquares;
+    private double min;
+    private double max;
+
+    /**
+     * Records a sample.
+     * @param value The sampled value.
+     */
+    public synchronized void record(double value) {
+        if (count == 0 || value < min) {
+            min = value;
+        }
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        ++count;
+        sum += value;
+        sumOfSquares += value * value;
+    }
+
+    /**
+     * Records the samples of an already aggregated metric.
+     * @param aggregated The aggregated telemetry, its value being the sum of its samples.
+     */
+    public synchronized void merge(MetricTelemetry aggregated) {
+        Integer aggregatedCount = aggregated.getCount();
+        if (aggregatedCount == null || aggregatedCount <= 0) {
+            return;
+        }
+
+        double aggregatedSum = aggregated.getValue();
+        double mean = aggregatedSum / aggregatedCount;
+        Double standardDeviation = aggregated.getStandardDeviation();
+        double variance = standardDeviation == null ? 0.0 : standardDeviation * standardDeviation;
+        double aggregatedMin = aggregated.getMin() == null ? mean : aggregated.getMin();
+        double aggregatedMax = aggregated.getMax() == null ? mean : aggregated.getMax();
+        if (count == 0 || aggregatedMin < min) {
+            min = aggregatedMin;
+        }
+        if (count == 0 || aggregatedMax > max) {
+            max = aggregatedMax;
+        }
+        count += aggregatedCount;
+        sum += aggregatedSum;
+        sumOfSquares += aggregatedCount * (variance + mean * mean);
+    }
+
+    /**
+     * @return The number of samples recorded since the last drain.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Creates the aggregated telemetry of the samples recorded so far and starts a new aggregation.
+     * @param name The name of the metric.
+     * @return The aggregated telemetry, or null if no sample was recorded since the last drain.
+     */
+    public synchronized MetricTelemetry drain(String name) {
+        if (count == 0) {
+            return null;
+        }
+
+        double mean = sum / count;
+        double variance = Math.max(0.0, sumOfSquares / count - mean * mean);
+
+        MetricTelemetry telemetry = new MetricTelemetry(name, sum);
+        telemetry.setCount(count);
+        telemetry.setMin(min);
+        telemetry.setMax(max);
+        telemetry.setStandardDeviation(Math.sqrt(variance));
+
+        count = 0;
+        sum = 0.0;
+        sumOfSquares = 0.0;
+        return telemetry;
+    }
+}
@@ -47,6 +47,14 @@ public final class Constants {
     public final static String PROCESS_IO_PC_ID = PERFORMANCE_COUNTER_PREFIX + "ProcessIOPerformanceCounter";
     public final static String PROCESS_IO_PC_COUNTER_NAME = "IO Data Bytes/sec";
 
+    public final static String CONTAINER_CPU_THROTTLING_PC_ID = PERFORMANCE_COUNTER_PREFIX + "ContainerCpuThrottlingPerformanceCounter";
+    public final static String CONTAINER_CPU_THROTTLING_PC_COUNTER_NAME = "% Container CPU Throttled Periods";
+
+    public final static String CONTAINER_MEMORY_PC_ID = PERFORMANCE_COUNTER_PREFIX + "ContainerMemoryPerformanceCounter";
+    public final static String CONTAINER_MEMORY_PC_COUNTER_NAME = "% Container Memory Limit Used";
+
+    public final static String COLLECTION_DURATION_METRIC_NAME = "Performance Counters Collection Duration";
+
     public final static String INSTANCE_NAME_TOTAL = "_Total";
 
     public final static String PROCESS_CATEGORY = "Process";
@@ -0,0 +1,82 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.io.File;
+
+/**
+ * Locates the cgroup files of the container the process runs in, for both cgroup v1 and cgroup v2 hierarchies.
+ */
+final class ContainerCGroup {
+    private final static String CGROUP_ROOT = "/sys/fs/cgroup";
+    private final static String CGROUP_V2_CONTROLLERS = "cgroup.controllers";
+
+    private final File cpuStatFile;
+    private final File memoryUsageFile;
+    private final File memoryLimitFile;
+
+    private ContainerCGroup(File cpuStatFile, File memoryUsageFile, File memoryLimitFile) {
+        this.cpuStatFile = cpuStatFile;
+        this.memoryUsageFile = memoryUsageFile;
+        this.memoryLimitFile = memoryLimitFile;
+    }
+
+    /**
+     * @return The cgroup files of the process, or null if the process does not run under a cgroup hierarchy.
+     */
+    static ContainerCGroup detect() {
+        return detect(new File(CGROUP_ROOT));
+    }
+
+    static ContainerCGroup detect(File root) {
+        if (new File(root, CGROUP_V2_CONTROLLERS).canRead()) {
+            return new ContainerCGroup(
+                    new File(root, "cpu.stat"),
+                    new File(root, "memory.current"), new File(root, "memory.max"));
+        }
+
+        File cpuDirectory = new File(root, "cpu,cpuacct");
+        if (!cpuDirectory.isDirectory()) {
+            cpuDirectory = new File(root, "cpu");
+        }
+        File memoryDirectory = new File(root, "memory");
+        if (!cpuDirectory.isDirectory() && !memoryDirectory.isDirectory()) {
+            return null;
+        }
+
+        return new ContainerCGroup(
+                new File(cpuDirectory, "cpu.stat"),
+                new File(memoryDirectory, "memory.usage_in_bytes"), new File(memoryDirectory, "memory.limit_in_bytes"));
+    }
+
+    File getCpuStatFile() {
+        return cpuStatFile;
+    }
+
+    File getMemoryUsageFile() {
+        return memoryUsageFile;
+    }
+
+    File getMemoryLimitFile() {
+        return memoryLimitFile;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+
+/**
+ * The class supplies the percentage of CPU quota enforcement periods in which the container's cgroup was throttled
+ * since the last collection, based on the 'nr_periods' and 'nr_throttled' counts of the cgroup 'cpu.stat' file.
+ * <p>
+ * The counts are the same in cgroup v1 and v2. The throttled time is not used, since it is summed over the CPUs
+ * of the cgroup and can exceed the wall time on multi-CPU hosts.
+ */
+final class ContainerCpuThrottlingPerformanceCounter extends AbstractUnixPerformanceCounter {
+    private final ProcFsSampler sampler = new ProcFsSampler(1024);
+
+    private long prevPeriods = -1;
+    private long prevThrottledPeriods;
+
+    public ContainerCpuThrottlingPerformanceCounter(ContainerCGroup cgroup) {
+        super(cgroup.getCpuStatFile().getPath());
+    }
+
+    @Override
+    public String getId() {
+        return Constants.CONTAINER_CPU_THROTTLING_PC_ID;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+        long periods;
+        long throttledPeriods;
+        try {
+            sampler.read(getProcessFile());
+            periods = sampler.getValue("nr_periods");
+            throttledPeriods = sampler.getValue("nr_throttled");
+        } catch (Exception e) {
+            logPerfCounterErrorError("Error while parsing file: '%s'", e.toString());
+            return;
+        }
+
+        if (periods == ProcFsSampler.NOT_FOUND || throttledPeriods == ProcFsSampler.NOT_FOUND) {
+            return;
+        }
+
+        if (prevPeriods != -1) {
+            long elapsedPeriods = periods - prevPeriods;
+            // no period elapsed when the cgroup has no quota or did not run at all
+            double value = elapsedPeriods <= 0 ? 0.0 : 100.0 * (throttledPeriods - prevThrottledPeriods) / elapsedPeriods;
+
+            InternalLogger.INSTANCE.trace("Sending Performance Counter: %s: %s", Constants.CONTAINER_CPU_THROTTLING_PC_COUNTER_NAME, value);
+            MetricTelemetry telemetry = new MetricTelemetry(Constants.CONTAINER_CPU_THROTTLING_PC_COUNTER_NAME, value);
+            telemetry.markAsCustomPerfCounter();
+            telemetryClient.track(telemetry);
+        }
+
+        prevPeriods = periods;
+        prevThrottledPeriods = throttledPeriods;
+    }
+}
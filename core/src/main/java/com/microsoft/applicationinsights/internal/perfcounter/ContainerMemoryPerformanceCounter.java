@@ -0,0 +1,78 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+
+/**
+ * The class supplies the memory used by the container's cgroup as a percentage of its memory limit.
+ * Nothing is sent when the cgroup has no memory limit.
+ */
+final class ContainerMemoryPerformanceCounter extends AbstractUnixPerformanceCounter {
+    // cgroup v1 reports 'no limit' as the largest page aligned long
+    private final static long UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+
+    private final ContainerCGroup cgroup;
+    private final ProcFsSampler sampler = new ProcFsSampler(64);
+
+    public ContainerMemoryPerformanceCounter(ContainerCGroup cgroup) {
+        super(cgroup.getMemoryUsageFile().getPath());
+        this.cgroup = cgroup;
+    }
+
+    @Override
+    public String getId() {
+        return Constants.CONTAINER_MEMORY_PC_ID;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+        long limit;
+        long usage;
+        try {
+            sampler.read(cgroup.getMemoryLimitFile());
+            limit = sampler.getSingleValue();
+            if (limit == ProcFsSampler.NOT_FOUND || limit <= 0 || limit >= UNLIMITED_THRESHOLD) {
+                return;
+            }
+
+            sampler.read(getProcessFile());
+            usage = sampler.getSingleValue();
+        } catch (Exception e) {
+            logPerfCounterErrorError("Error while parsing file: '%s'", e.toString());
+            return;
+        }
+
+        if (usage == ProcFsSampler.NOT_FOUND) {
+            return;
+        }
+
+        double value = 100.0 * usage / limit;
+
+        InternalLogger.INSTANCE.trace("Sending Performance Counter: %s: %s", Constants.CONTAINER_MEMORY_PC_COUNTER_NAME, value);
+        MetricTelemetry telemetry = new MetricTelemetry(Constants.CONTAINER_MEMORY_PC_COUNTER_NAME, value);
+        telemetry.markAsCustomPerfCounter();
+        telemetryClient.track(telemetry);
+    }
+}
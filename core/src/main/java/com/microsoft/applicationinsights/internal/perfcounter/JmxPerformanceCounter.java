@@ -25,7 +25,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.jmx.JmxAttributeData;
-import com.microsoft.applicationinsights.internal.jmx.JmxDataFetcher;
+import com.microsoft.applicationinsights.internal.jmx.JmxCollectionEngine;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.system.SystemInformation;
 import com.microsoft.applicationinsights.telemetry.PerformanceCounterTelemetry;
@@ -82,7 +82,7 @@ public final class JmxPerformanceCounter implements PerformanceCounter {
         if (entry == null) {
             for (Map.Entry<String, Collection<JmxAttributeData>> entry : objectToAttributes.entrySet()) {
                 try {
-                    data = JmxDataFetcher.fetch(entry.getKey(), entry.getValue());
+                    data = JmxCollectionEngine.INSTANCE.fetch(entry.getKey(), entry.getValue());
                     this.entry = entry;
                     break;
                 } catch (Exception e) {
@@ -96,7 +96,7 @@ public final class JmxPerformanceCounter implements PerformanceCounter {
             }
         } else {
             try {
-                data = JmxDataFetcher.fetch(entry.getKey(), entry.getValue());
+                data = JmxCollectionEngine.INSTANCE.fetch(entry.getKey(), entry.getValue());
             } catch (Exception e) {
                 InternalLogger.INSTANCE.error("Failed to fetch JMX data for '%s'..", getId());
                 return;
@@ -112,7 +112,7 @@ public final class JmxPerformanceCounter implements PerformanceCounter {
             double value = 0.0;
             for (Object obj : displayAndValues.getValue()) {
                 try {
-                    value += Double.parseDouble(String.valueOf(obj));
+                    value += JmxCollectionEngine.toDouble(obj);
                 } catch (Exception e) {
                     ok = false;
                     InternalLogger.INSTANCE.error("Error while parsing JMX value for '%s:%s': '%s'", getId(), displayAndValues.getKey(), e.toString());
@@ -27,8 +27,10 @@ import java.util.HashSet;
 
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.DeadLockDetectorPerformanceCounter;
+import com.microsoft.applicationinsights.internal.perfcounter.jvm.GCNotificationPerformanceCounter;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.GCPerformanceCounter;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.JvmHeapMemoryUsedPerformanceCounter;
+import com.microsoft.applicationinsights.internal.perfcounter.jvm.ThreadContentionPerformanceCounter;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 /**
@@ -44,29 +46,33 @@ public class JvmPerformanceCountersFactory implements PerformanceCountersFactory
     public Collection<PerformanceCounter> getPerformanceCounters() {
         ArrayList<PerformanceCounter> pcs = new ArrayList<PerformanceCounter>();
         if (isEnabled) {
-            addDeadLockDetector(pcs);
+            DeadLockDetectorPerformanceCounter deadLockDetector = createDeadLockDetector();
+            if (!addThreadContentionPerformanceCounter(pcs, deadLockDetector) && deadLockDetector != null) {
+                pcs.add(deadLockDetector);
+            }
             addJvmMemoryPerformanceCounter(pcs);
             addGCPerformanceCounter(pcs);
+            addGCNotificationPerformanceCounter(pcs);
         } else {
             InternalLogger.INSTANCE.trace("JvmPerformanceCountersFactory is disabled");
         }
         return pcs;
     }
 
-    private void addDeadLockDetector(ArrayList<PerformanceCounter> pcs) {
+    private DeadLockDetectorPerformanceCounter createDeadLockDetector() {
         try {
             if (disabledJvmPCs.contains(DeadLockDetectorPerformanceCounter.NAME)) {
                 InternalLogger.INSTANCE.trace("DeadLockDetectorPerformanceCounter is disabled");
-                return;
+                return null;
             }
 
             DeadLockDetectorPerformanceCounter dlpc = new DeadLockDetectorPerformanceCounter();
             if (!dlpc.isSupported()) {
                 InternalLogger.INSTANCE.trace("DeadLockDetectorPerformanceCounter is not supported");
-                return;
+                return null;
             }
 
-            pcs.add(dlpc);
+            return dlpc;
         } catch (ThreadDeath td) {
             throw td;
         } catch (Throwable t) {
@@ -79,6 +85,35 @@ public class JvmPerformanceCountersFactory implements PerformanceCountersFactory
                 // chomp
             }
         }
+        return null;
+    }
+
+    /**
+     * The thread contention counter runs the deadlock scan itself, only when a deadlock is possible.
+     * @return True if the counter was added, in which case the deadlock detector should not be added.
+     */
+    private boolean addThreadContentionPerformanceCounter(ArrayList<PerformanceCounter> pcs, DeadLockDetectorPerformanceCounter deadLockDetector) {
+        try {
+            if (disabledJvmPCs.contains(ThreadContentionPerformanceCounter.NAME)) {
+                InternalLogger.INSTANCE.trace("ThreadContentionPerformanceCounter is disabled");
+                return false;
+            }
+
+            pcs.add(new ThreadContentionPerformanceCounter(deadLockDetector));
+            return true;
+        } catch (ThreadDeath td) {
+            throw td;
+        } catch (Throwable t) {
+            try {
+                InternalLogger.INSTANCE.error("Failed to create ThreadContentionPerformanceCounter, exception: %s",
+                        ExceptionUtils.getStackTrace(t));
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t2) {
+                // chomp
+            }
+        }
+        return false;
     }
 
     private void addJvmMemoryPerformanceCounter(ArrayList<PerformanceCounter> pcs) {
@@ -126,6 +161,34 @@ public class JvmPerformanceCountersFactory implements PerformanceCountersFactory
         }
     }
 
+    private void addGCNotificationPerformanceCounter(ArrayList<PerformanceCounter> pcs) {
+        try {
+            if (disabledJvmPCs.contains(GCNotificationPerformanceCounter.NAME)) {
+                InternalLogger.INSTANCE.trace("GCNotificationPerformanceCounter is disabled");
+                return;
+            }
+
+            if (!GCNotificationPerformanceCounter.isSupported()) {
+                InternalLogger.INSTANCE.trace("GCNotificationPerformanceCounter is not supported");
+                return;
+            }
+
+            GCNotificationPerformanceCounter gcpc = new GCNotificationPerformanceCounter();
+            pcs.add(gcpc);
+        } catch (ThreadDeath td) {
+            throw td;
+        } catch (Throwable t) {
+            try {
+                InternalLogger.INSTANCE.error("Failed to create GCNotificationPerformanceCounter, exception: %s",
+                        ExceptionUtils.getStackTrace(t));
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t2) {
+                // chomp
+            }
+        }
+    }
+
     public void setIsEnabled(boolean isEnabled) {
         this.isEnabled = isEnabled;
     }
@@ -29,8 +29,10 @@ import com.microsoft.applicationinsights.internal.config.JvmXmlElement;
 import com.microsoft.applicationinsights.internal.config.PerformanceCounterJvmSectionXmlElement;
 import com.microsoft.applicationinsights.internal.config.PerformanceCountersXmlElement;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.DeadLockDetectorPerformanceCounter;
+import com.microsoft.applicationinsights.internal.perfcounter.jvm.GCNotificationPerformanceCounter;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.GCPerformanceCounter;
 import com.microsoft.applicationinsights.internal.perfcounter.jvm.JvmHeapMemoryUsedPerformanceCounter;
+import com.microsoft.applicationinsights.internal.perfcounter.jvm.ThreadContentionPerformanceCounter;
 
 /**
  * The class loads the relevant Jvm PCs
@@ -79,7 +81,9 @@ public final class JvmPerformanceCountersModule extends AbstractPerformanceCount
     private String[] JvmPCNames = {
             DeadLockDetectorPerformanceCounter.NAME,
             JvmHeapMemoryUsedPerformanceCounter.NAME,
-            GCPerformanceCounter.NAME
+            GCPerformanceCounter.NAME,
+            GCNotificationPerformanceCounter.NAME,
+            ThreadContentionPerformanceCounter.NAME
     };
 
     public JvmPerformanceCountersModule() throws Exception {
@@ -0,0 +1,225 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of non negative values, such as latencies in milliseconds.
+ * <p>
+ * Values below {@value #SUB_BUCKET_COUNT} are counted exactly. Above that, every power of two range is split
+ * into {@value #SUB_BUCKET_COUNT} linear sub-buckets, so a value is reported with a relative error of at most
+ * 1/{@value #SUB_BUCKET_COUNT}. Values above {@link #getHighestTrackableValue()} are counted in the last bucket.
+ * <p>
+ * Recording only increments atomic counters. {@link #drain()} atomically takes and resets each counter, so every
+ * recorded value is counted by exactly one drain, even when recording and draining run concurrently.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // 2^22 milliseconds is a bit over an hour
+    private static final int DEFAULT_HIGHEST_POWER_OF_TWO = 22;
+
+    private final AtomicLongArray counts;
+    private final long highestTrackableValue;
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * The content of a histogram at the time it was drained.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        private Snapshot(long[] counts, long totalCount, long sum, long min, long max) {
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @return The number of values recorded.
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * @return The sum of the values recorded.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return The smallest value recorded.
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * @return The largest value recorded.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Gets the value below which the given percentage of the recorded values fall.
+         * @param percentile The percentile, between 0 and 100.
+         * @return The highest value that is equivalent to the percentile's bucket, capped by the largest value recorded,
+         *         or 0 if nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+
+            double clamped = Math.min(Math.max(percentile, 0.0), 100.0);
+            long rank = Math.max(1, (long) Math.ceil(clamped / 100.0 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(highestValueOf(i), max));
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Creates a histogram that tracks values up to 2^22, a bit over an hour in milliseconds.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_POWER_OF_TWO);
+    }
+
+    /**
+     * Creates a histogram that tracks values up to 2^highestPowerOfTwo.
+     * @param highestPowerOfTwo The power of two of the highest value tracked with the histogram's precision.
+     */
+    public LatencyHistogram(int highestPowerOfTwo) {
+        if (highestPowerOfTwo < SUB_BUCKET_BITS || highestPowerOfTwo > 62) {
+            throw new IllegalArgumentException("highestPowerOfTwo must be between " + SUB_BUCKET_BITS + " and 62");
+        }
+
+        this.highestTrackableValue = (1L << highestPowerOfTwo) - 1;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(indexOf(Math.min(value, highestTrackableValue)));
+        sum.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Takes the values recorded so far and resets the histogram.
+     * @return The values recorded since the last drain.
+     */
+    public Snapshot drain() {
+        long[] drained = new long[counts.length()];
+        long totalCount = 0;
+        for (int i = 0; i < drained.length; ++i) {
+            if (counts.get(i) != 0) {
+                drained[i] = counts.getAndSet(i, 0);
+                totalCount += drained[i];
+            }
+        }
+
+        long drainedMin = min.getAndSet(Long.MAX_VALUE);
+        long drainedMax = max.getAndSet(Long.MIN_VALUE);
+        long drainedSum = sum.getAndSet(0);
+        if (totalCount == 0) {
+            return new Snapshot(drained, 0, 0, 0, 0);
+        }
+
+        // a value recorded while draining may have its bucket in this snapshot and its min/max in the next one
+        if (drainedMin > drainedMax) {
+            drainedMin = 0;
+            drainedMax = highestTrackableValue;
+        }
+        return new Snapshot(drained, totalCount, drainedSum, drainedMin, drainedMax);
+    }
+
+    /**
+     * @return The highest value that is tracked with the histogram's precision.
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int powerOfTwo = 63 - Long.numberOfLeadingZeros(value);
+        int shift = powerOfTwo - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long subBucket = SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private void updateMin(long value) {
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    private void updateMax(long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
@@ -31,10 +31,12 @@ import com.google.common.base.Strings;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.extensibility.PerformanceCountersCollectionPlugin;
+import com.microsoft.applicationinsights.internal.jmx.JmxCollectionEngine;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.shutdown.SDKShutdownActivity;
 import com.microsoft.applicationinsights.internal.shutdown.Stoppable;
 import com.microsoft.applicationinsights.internal.util.ThreadPoolUtils;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 /**
@@ -75,6 +77,9 @@ public enum PerformanceCounterContainer implements Stoppable {
     private long startCollectingDelayInMillis = START_COLLECTING_DELAY_IN_MILLIS;
     private long collectionFrequencyInMS = DEFAULT_COLLECTION_FREQUENCY_IN_SEC * 1000;
 
+    // When shorter than the collection frequency, counters are sampled at this rate and aggregated until collection.
+    private long samplingFrequencyInMS = 0;
+
     private TelemetryClient telemetryClient;
 
     private ScheduledThreadPoolExecutor threads;
@@ -141,6 +146,15 @@ public enum PerformanceCounterContainer implements Stoppable {
         return collectionFrequencyInMS / 1000;
     }
 
+    /**
+     * Gets the timeout in seconds between samples of Performance Counters in high frequency mode.
+     *
+     * @return The timeout between samples, or 0 if the counters are sampled once per collection.
+     */
+    public long getSamplingFrequencyInSec() {
+        return samplingFrequencyInMS / 1000;
+    }
+
     /**
      * Stopping the collection of performance data.
      *
@@ -177,6 +191,27 @@ public enum PerformanceCounterContainer implements Stoppable {
         this.collectionFrequencyInMS = collectionFrequencyInSec * 1000;
     }
 
+    /**
+     * Sets the timeout to wait between samples of Performance Counters.
+     * <p>
+     * When the value is shorter than the collection frequency, the counters are sampled at this rate
+     * and the samples are aggregated into one item per counter value that is sent once per collection.
+     * Zero, or a value that is not shorter than the collection frequency, disables the high frequency mode.
+     * <p>
+     * Note that the method will be effective if called before the first call to the 'register' method.
+     *
+     * @param samplingFrequencyInSec The timeout to wait between samples of Performance Counters.
+     */
+    public void setSamplingFrequencyInSec(long samplingFrequencyInSec) {
+        if (samplingFrequencyInSec < 0) {
+            InternalLogger.INSTANCE.error("Sampling Interval: illegal value '%d'. High frequency sampling is disabled.", samplingFrequencyInSec);
+
+            samplingFrequencyInSec = 0;
+        }
+
+        this.samplingFrequencyInMS = samplingFrequencyInSec * 1000;
+    }
+
     /**
      * Sets the timeout to wait before the first reporting.
      * <p>
@@ -196,6 +231,10 @@ public enum PerformanceCounterContainer implements Stoppable {
         this.startCollectingDelayInMillis = startCollectingDelayInMillis;
     }
 
+    private boolean isHighFrequencySampling() {
+        return samplingFrequencyInMS > 0 && samplingFrequencyInMS < collectionFrequencyInMS;
+    }
+
     void clear() {
         performanceCounters.clear();
     }
@@ -221,74 +260,135 @@ public enum PerformanceCounterContainer implements Stoppable {
     }
 
     private void scheduleWork() {
+        final boolean highFrequency = isHighFrequencySampling();
+        final long periodInMillis = highFrequency ? samplingFrequencyInMS : collectionFrequencyInMS;
+        // exports follow the collection frequency even when it is not a multiple of the sampling frequency
+        final long exportIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(collectionFrequencyInMS);
+        final long toleranceInNanos = TimeUnit.MILLISECONDS.toNanos(periodInMillis) / 2;
+        final int samplesPerExport = (int) ((collectionFrequencyInMS + periodInMillis - 1) / periodInMillis);
+        if (highFrequency) {
+            InternalLogger.INSTANCE.info("Performance counters are sampled every %d ms and sent every %d ms",
+                    samplingFrequencyInMS, collectionFrequencyInMS);
+        }
+
         threads.scheduleAtFixedRate(
                 new Runnable() {
+                    private SamplingTelemetryClient samplingClient;
+                    private long nextExportInNanos;
+
                     @Override
                     public void run() {
                         if (telemetryClient == null) {
                             telemetryClient = new TelemetryClient();
                         }
 
-                        if (plugin != null) {
-                            try {
-                                plugin.preCollection();
-                            } catch (ThreadDeath td) {
-                                throw td;
-                            } catch (Throwable t) {
-                                try {
-                                    InternalLogger.INSTANCE.error("Error in thread scheduled for PerformanceCounterContainer" +
-                                            " Exception : %s ", ExceptionUtils.getStackTrace(t));
-                                } catch (ThreadDeath td) {
-                                    throw td;
-                                } catch (Throwable t2) {
-                                    // chomp
-                                }
-                            }
+                        if (!highFrequency) {
+                            collect(telemetryClient);
+                            return;
                         }
 
-                        for (PerformanceCounter performanceCounter : performanceCounters.values()) {
-                            try {
-                                performanceCounter.report(telemetryClient);
-                            } catch (ThreadDeath td) {
-                                throw td;
-                            } catch (Throwable t) {
-                                try {
-                                    InternalLogger.INSTANCE.error("Exception while reporting performance counter '%s': " +
-                                            " Exception : '%s'", performanceCounter.getId(), ExceptionUtils.getStackTrace(t));
-                                } catch (ThreadDeath td) {
-                                    throw td;
-                                } catch (Throwable t2) {
-                                    // chomp
-                                }
-                            }
+                        long nowInNanos = System.nanoTime();
+                        if (samplingClient == null) {
+                            samplingClient = new SamplingTelemetryClient(telemetryClient, samplesPerExport);
+                            nextExportInNanos = nowInNanos + exportIntervalInNanos;
                         }
-
-                        if (plugin != null) {
-                            try {
-                                plugin.postCollection();
-                            } catch (ThreadDeath td) {
-                                throw td;
-                            } catch (Throwable t) {
-                                try {
-                                    InternalLogger.INSTANCE.error("Error while executing post collection, Exception : %s ",
-                                            ExceptionUtils.getStackTrace(t));
-                                } catch (ThreadDeath td) {
-                                    throw td;
-                                } catch (Throwable t2) {
-                                    // chomp
-                                }
-                            }
+                        collect(samplingClient);
+                        if (nowInNanos - nextExportInNanos >= -toleranceInNanos) {
+                            nextExportInNanos += exportIntervalInNanos;
+                            samplingClient.export();
                         }
                     }
                 },
                 startCollectingDelayInMillis,
-                collectionFrequencyInMS,
+                periodInMillis,
                 TimeUnit.MILLISECONDS);
 
         // Register the instance so the container is stopped when the application exits.
         SDKShutdownActivity.INSTANCE.register(INSTANCE);
     }
 
+    private void collect(TelemetryClient telemetryClient) {
+        if (plugin != null) {
+            try {
+                plugin.preCollection();
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t) {
+                try {
+                    InternalLogger.INSTANCE.error("Error in thread scheduled for PerformanceCounterContainer" +
+                            " Exception : %s ", ExceptionUtils.getStackTrace(t));
+                } catch (ThreadDeath td) {
+                    throw td;
+                } catch (Throwable t2) {
+                    // chomp
+                }
+            }
+        }
+
+        JmxCollectionEngine.INSTANCE.beginCycle();
+        try {
+            for (PerformanceCounter performanceCounter : performanceCounters.values()) {
+                try {
+                    performanceCounter.report(telemetryClient);
+                } catch (ThreadDeath td) {
+                    throw td;
+                } catch (Throwable t) {
+                    try {
+                        InternalLogger.INSTANCE.error("Exception while reporting performance counter '%s': " +
+                                " Exception : '%s'", performanceCounter.getId(), ExceptionUtils.getStackTrace(t));
+                    } catch (ThreadDeath td) {
+                        throw td;
+                    } catch (Throwable t2) {
+                        // chomp
+                    }
+                }
+            }
+        } finally {
+            reportCollectionDuration(telemetryClient, JmxCollectionEngine.INSTANCE.endCycle());
+        }
+
+        if (plugin != null) {
+            try {
+                plugin.postCollection();
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t) {
+                try {
+                    InternalLogger.INSTANCE.error("Error while executing post collection, Exception : %s ",
+                            ExceptionUtils.getStackTrace(t));
+                } catch (ThreadDeath td) {
+                    throw td;
+                } catch (Throwable t2) {
+                    // chomp
+                }
+            }
+        }
+    }
+
+    private void reportCollectionDuration(TelemetryClient telemetryClient, long durationInNanos) {
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+        long intervalInMillis = isHighFrequencySampling() ? samplingFrequencyInMS : collectionFrequencyInMS;
+        if (durationInMillis > intervalInMillis) {
+            InternalLogger.INSTANCE.warn("Performance counters collection took %d ms, which is longer than the collection interval of %d ms",
+                    durationInMillis, intervalInMillis);
+        }
+
+        try {
+            telemetryClient.track(new MetricTelemetry(Constants.COLLECTION_DURATION_METRIC_NAME, durationInMillis));
+        } catch (ThreadDeath td) {
+            throw td;
+        } catch (Throwable t) {
+            try {
+                InternalLogger.INSTANCE.error("Error while reporting the collection duration, Exception : %s ",
+                        ExceptionUtils.getStackTrace(t));
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t2) {
+                // chomp
+            }
+        }
+    }
+
     private void createThreadToCollect() {
         threads = new ScheduledThreadPoolExecutor(1);
         threads.setThreadFactory(ThreadPoolUtils.createDaemonThreadFactory(PerformanceCounterContainer.class));
@@ -0,0 +1,184 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads small procfs/cgroupfs files into a reusable direct buffer and parses the numbers in place,
+ * without creating readers, lines or strings on every collection.
+ * <p>
+ * The class is not thread safe, every performance counter owns its own instance.
+ */
+final class ProcFsSampler {
+    static final long NOT_FOUND = -1;
+
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
+
+    private final ByteBuffer buffer;
+
+    ProcFsSampler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ProcFsSampler(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Reads the file into the buffer, content beyond the buffer's capacity is ignored.
+     * @param file The file to read.
+     * @throws IOException If the file could not be read.
+     */
+    void read(File file) throws IOException {
+        buffer.clear();
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read != -1 && buffer.hasRemaining());
+        } finally {
+            stream.close();
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Replaces the content of the buffer, used by tests.
+     */
+    void load(byte[] content) {
+        buffer.clear();
+        buffer.put(content, 0, Math.min(content.length, buffer.capacity()));
+        buffer.flip();
+    }
+
+    /**
+     * Finds the line that starts with the key, e.g. 'MemFree:' in '/proc/meminfo' or 'nr_throttled' in 'cpu.stat',
+     * and parses the number that follows it.
+     * @param key The key at the beginning of the line.
+     * @return The value, or {@link #NOT_FOUND} if there is no such line or it holds no number.
+     */
+    long getValue(String key) {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            if (startsWith(lineStart, key)) {
+                int position = lineStart + key.length();
+                if (position >= limit || isSeparator(buffer.get(position))) {
+                    return parseLong(skipSeparators(position));
+                }
+            }
+            lineStart = nextLine(lineStart);
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Parses the first number in the buffer, e.g. the content of 'memory.current'.
+     * @return The value, or {@link #NOT_FOUND} if the content does not start with a number (e.g. 'max').
+     */
+    long getSingleValue() {
+        return parseLong(skipSeparators(0));
+    }
+
+    /**
+     * Parses the numbers of the first line that follow its label, e.g. the 'cpu' line of '/proc/stat'.
+     * @param values The array to fill.
+     * @return The number of values that were parsed.
+     */
+    int getFirstLineValues(long[] values) {
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit && !isSeparator(buffer.get(position)) && buffer.get(position) != '\n') {
+            ++position;
+        }
+
+        int count = 0;
+        while (count < values.length) {
+            position = skipSeparators(position);
+            if (position >= limit || !isDigit(buffer.get(position))) {
+                break;
+            }
+            long value = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                value = value * 10 + (buffer.get(position++) - '0');
+            }
+            values[count++] = value;
+        }
+        return count;
+    }
+
+    private boolean startsWith(int position, String key) {
+        int length = key.length();
+        if (position + length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (buffer.get(position + i) != (byte) key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nextLine(int position) {
+        int limit = buffer.limit();
+        while (position < limit && buffer.get(position) != '\n') {
+            ++position;
+        }
+        return position + 1;
+    }
+
+    private int skipSeparators(int position) {
+        int limit = buffer.limit();
+        while (position < limit && isSeparator(buffer.get(position))) {
+            ++position;
+        }
+        return position;
+    }
+
+    private long parseLong(int position) {
+        int limit = buffer.limit();
+        if (position >= limit || !isDigit(buffer.get(position))) {
+            return NOT_FOUND;
+        }
+        long value = 0;
+        while (position < limit && isDigit(buffer.get(position))) {
+            value = value * 10 + (buffer.get(position++) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == ':';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
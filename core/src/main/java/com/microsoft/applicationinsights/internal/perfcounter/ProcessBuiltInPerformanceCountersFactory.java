@@ -90,6 +90,16 @@ final class ProcessBuiltInPerformanceCountersFactory implements PerformanceCount
         performanceCounters.add(new UnixTotalCpuPerformanceCounter());
         performanceCounters.add(new UnixTotalMemoryPerformanceCounter());
 
+        ContainerCGroup cgroup = ContainerCGroup.detect();
+        if (cgroup != null) {
+            if (cgroup.getCpuStatFile().canRead()) {
+                performanceCounters.add(new ContainerCpuThrottlingPerformanceCounter(cgroup));
+            }
+            if (cgroup.getMemoryUsageFile().canRead() && cgroup.getMemoryLimitFile().canRead()) {
+                performanceCounters.add(new ContainerMemoryPerformanceCounter(cgroup));
+            }
+        }
+
         return performanceCounters;
     }
 
@@ -0,0 +1,92 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+/**
+ * A preallocated ring of samples of a single performance counter value.
+ * When more samples than its capacity are added before a drain, the oldest ones are overwritten.
+ */
+final class SampleRingBuffer {
+    private final double[] samples;
+    private int next;
+    private int size;
+
+    private int count;
+    private double sum;
+    private double min;
+    private double max;
+
+    SampleRingBuffer(int capacity) {
+        samples = new double[Math.max(1, capacity)];
+    }
+
+    synchronized void add(double value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            ++size;
+        }
+    }
+
+    /**
+     * Aggregates the samples added since the last drain and empties the buffer,
+     * the results are available through the getters until the next drain.
+     * @return The number of samples that were aggregated.
+     */
+    synchronized int drain() {
+        count = size;
+        sum = 0.0;
+        for (int i = 0; i < size; ++i) {
+            double value = samples[i];
+            if (i == 0 || value < min) {
+                min = value;
+            }
+            if (i == 0 || value > max) {
+                max = value;
+            }
+            sum += value;
+        }
+        next = 0;
+        size = 0;
+        return count;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getSum() {
+        return sum;
+    }
+
+    double getAverage() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    double getMin() {
+        return min;
+    }
+
+    double getMax() {
+        return max;
+    }
+}
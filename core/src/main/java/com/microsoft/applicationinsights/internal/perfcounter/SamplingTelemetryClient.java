@@ -0,0 +1,210 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.PerformanceCounterTelemetry;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+
+/**
+ * The client the performance counters report to in high frequency mode.
+ *
+ * Metric and performance counter values are not sent, they are kept in a preallocated {@link SampleRingBuffer}
+ * per counter value, and {@link #export()} sends one aggregated item per counter value to the real client.
+ * Items that are already aggregations are merged until the export as well, any other telemetry is sent right away.
+ *
+ * Series without samples during an export period are dropped, and at most {@link #MAX_SERIES} are kept,
+ * so counter values with a changing dimension (e.g. a lock or pool name) cannot grow the client without bound.
+ */
+final class SamplingTelemetryClient extends TelemetryClient {
+    final static int MAX_SERIES = 1000;
+
+    private final static String MIN_PROPERTY = "Min";
+    private final static String MAX_PROPERTY = "Max";
+    private final static String COUNT_PROPERTY = "Count";
+
+    private static final class SeriesKey {
+        final String name;
+        final String instanceName;
+        final Map<String, String> properties;
+
+        SeriesKey(String name, String instanceName, Map<String, String> properties) {
+            this.name = name;
+            this.instanceName = instanceName;
+            this.properties = properties;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey that = (SeriesKey) o;
+            return name.equals(that.name)
+                    && (instanceName == null ? that.instanceName == null : instanceName.equals(that.instanceName))
+                    && properties.equals(that.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = name.hashCode();
+            result = 31 * result + (instanceName == null ? 0 : instanceName.hashCode());
+            return 31 * result + properties.hashCode();
+        }
+    }
+
+    private static final class Series {
+        final SampleRingBuffer samples;
+        final AggregatedMetric aggregated;
+        final MetricTelemetry metric;
+        final PerformanceCounterTelemetry performanceCounter;
+
+        Series(int capacity, MetricTelemetry metric, PerformanceCounterTelemetry performanceCounter, boolean aggregated) {
+            this.samples = aggregated ? null : new SampleRingBuffer(capacity);
+            this.aggregated = aggregated ? new AggregatedMetric() : null;
+            this.metric = metric;
+            this.performanceCounter = performanceCounter;
+        }
+    }
+
+    private final TelemetryClient telemetryClient;
+    private final int capacity;
+    private final Map<SeriesKey, Series> series = new HashMap<SeriesKey, Series>();
+    private boolean overflowLogged;
+
+    /**
+     * @param telemetryClient The client the aggregated items are sent to.
+     * @param capacity The number of samples kept per counter value between exports.
+     */
+    SamplingTelemetryClient(TelemetryClient telemetryClient, int capacity) {
+        super(TelemetryConfiguration.getActive());
+        this.telemetryClient = telemetryClient;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void track(Telemetry telemetry) {
+        if (telemetry instanceof MetricTelemetry) {
+            MetricTelemetry metric = (MetricTelemetry) telemetry;
+            boolean aggregated = metric.getCount() != null;
+            Series s = getSeries(new SeriesKey(metric.getName(), null, metric.getProperties()), metric, null, aggregated);
+            if (s == null) {
+                return;
+            }
+            if (aggregated) {
+                s.aggregated.merge(metric);
+            } else {
+                s.samples.add(metric.getValue());
+            }
+        } else if (telemetry instanceof PerformanceCounterTelemetry) {
+            PerformanceCounterTelemetry pc = (PerformanceCounterTelemetry) telemetry;
+            String name = pc.getCategoryName() + '\\' + pc.getCounterName();
+            Series s = getSeries(new SeriesKey(name, pc.getInstanceName(), pc.getProperties()), null, pc, false);
+            if (s != null) {
+                s.samples.add(pc.getValue());
+            }
+        } else {
+            telemetryClient.track(telemetry);
+        }
+    }
+
+    /**
+     * Sends the aggregation of the samples taken since the previous export, one item per counter value.
+     * Metrics are sent as aggregations; performance counters, whose schema has a single value, are sent
+     * with the average as their value and the min, max and count as properties.
+     */
+    synchronized void export() {
+        Iterator<Series> iterator = series.values().iterator();
+        while (iterator.hasNext()) {
+            Series s = iterator.next();
+            if (s.aggregated != null) {
+                MetricTelemetry telemetry = s.aggregated.drain(s.metric.getName());
+                if (telemetry == null) {
+                    iterator.remove();
+                    continue;
+                }
+                telemetry.getProperties().putAll(s.metric.getProperties());
+                telemetryClient.track(telemetry);
+                continue;
+            }
+
+            int count = s.samples.drain();
+            if (count == 0) {
+                iterator.remove();
+                continue;
+            }
+
+            if (s.metric != null) {
+                MetricTelemetry telemetry = new MetricTelemetry(s.metric.getName(), s.samples.getSum());
+                telemetry.setCount(count);
+                telemetry.setMin(s.samples.getMin());
+                telemetry.setMax(s.samples.getMax());
+                telemetry.getProperties().putAll(s.metric.getProperties());
+                telemetryClient.track(telemetry);
+            } else {
+                PerformanceCounterTelemetry telemetry = new PerformanceCounterTelemetry(
+                        s.performanceCounter.getCategoryName(),
+                        s.performanceCounter.getCounterName(),
+                        s.performanceCounter.getInstanceName(),
+                        s.samples.getAverage());
+                telemetry.getProperties().putAll(s.performanceCounter.getProperties());
+                telemetry.getProperties().put(MIN_PROPERTY, String.valueOf(s.samples.getMin()));
+                telemetry.getProperties().put(MAX_PROPERTY, String.valueOf(s.samples.getMax()));
+                telemetry.getProperties().put(COUNT_PROPERTY, String.valueOf(count));
+                telemetryClient.track(telemetry);
+            }
+        }
+        overflowLogged = false;
+    }
+
+    synchronized int getSeriesCount() {
+        return series.size();
+    }
+
+    private synchronized Series getSeries(SeriesKey key, MetricTelemetry metric, PerformanceCounterTelemetry performanceCounter, boolean aggregated) {
+        Series s = series.get(key);
+        if (s == null) {
+            if (series.size() >= MAX_SERIES) {
+                if (!overflowLogged) {
+                    InternalLogger.INSTANCE.warn("More than %d performance counter values were sampled since the last export, '%s' is dropped", MAX_SERIES, key.name);
+                    overflowLogged = true;
+                }
+                return null;
+            }
+            // the key keeps a copy, the properties of the telemetry are not ours
+            key = new SeriesKey(key.name, key.instanceName, new HashMap<String, String>(key.properties));
+            s = new Series(capacity, metric, performanceCounter, aggregated);
+            series.put(key, s);
+        }
+        return s;
+    }
+}
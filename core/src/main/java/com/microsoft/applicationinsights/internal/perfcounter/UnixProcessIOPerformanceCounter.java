@@ -21,9 +21,6 @@
 
 package com.microsoft.applicationinsights.internal.perfcounter;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.system.SystemInformation;
@@ -34,7 +31,7 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 /**
  * The class knows how to supply the io usage of the current process under the Unix OS.
  *
- * When activated the class will calculate the io usage based on the data under /proc/[pid]/io
+ * When activated the class will calculate the io usage based on the data under /proc/self/io
  * file and will create a {@link com.microsoft.applicationinsights.telemetry.PerformanceCounterTelemetry}
  * that will contain that data per the amount of time elapsed from the last check in seconds.
  *
@@ -42,13 +39,18 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
  */
 final class UnixProcessIOPerformanceCounter extends AbstractUnixPerformanceCounter {
     private final static double NANOS_IN_SECOND = 1000000000.0;
+    private final static String IO_FILE = "/proc/self/io";
+    private final static String READ_BYTES_KEY = "read_bytes:";
+    private final static String WRITE_BYTES_KEY = "write_bytes:";
+
+    private final ProcFsSampler sampler = new ProcFsSampler();
 
     private double prevProcessIO;
 
     private long lastCollectionInNanos = -1;
 
     public UnixProcessIOPerformanceCounter() {
-        super("/proc/" + SystemInformation.INSTANCE.getProcessId() + "/io");
+        super(IO_FILE);
     }
 
     @Override
@@ -91,33 +93,21 @@ final class UnixProcessIOPerformanceCounter extends AbstractUnixPerformanceCount
      * @return the current IO for current process, or null if the datum could not be measured.
      */
     public Double getCurrentIOForCurrentProcess() {
-        BufferedReader bufferedReader = null;
-
-        Double result = null;
-        UnixProcessIOtParser parser = new UnixProcessIOtParser();
         try {
-            bufferedReader = new BufferedReader(new FileReader(getProcessFile()));
-            String line;
-            while (!parser.done() && (line = bufferedReader.readLine()) != null) {
-                parser.process(line);
-            }
-
-            result = parser.getValue();
+            sampler.read(getProcessFile());
         } catch (Exception e) {
-            result = null;
             logPerfCounterErrorError("Error while parsing file: '%s'", getId());
             InternalLogger.INSTANCE.trace("Stack trace generated is %s", ExceptionUtils.getStackTrace(e));
-        } finally {
-            if (bufferedReader != null ) {
-                try {
-                    bufferedReader.close();
-                } catch (Exception e) {
-                    logPerfCounterErrorError("Error while closing file : '%s'", e.toString());
-                    InternalLogger.INSTANCE.trace("Stack trace generated is %s", ExceptionUtils.getStackTrace(e));
-                }
-            }
+            return null;
+        }
+
+        long readBytes = sampler.getValue(READ_BYTES_KEY);
+        long writeBytes = sampler.getValue(WRITE_BYTES_KEY);
+        if (readBytes == ProcFsSampler.NOT_FOUND || writeBytes == ProcFsSampler.NOT_FOUND) {
+            logPerfCounterErrorError("Could not find the read and write bytes");
+            return null;
         }
 
-        return result;
+        return (double) (readBytes + writeBytes);
     }
 }
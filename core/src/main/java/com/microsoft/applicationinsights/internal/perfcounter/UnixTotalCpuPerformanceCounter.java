@@ -21,16 +21,11 @@
 
 package com.microsoft.applicationinsights.internal.perfcounter;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.util.ArrayList;
-
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.PerformanceCounterTelemetry;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
 
-import com.google.common.base.Strings;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 /**
@@ -40,7 +35,10 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
  */
 final class UnixTotalCpuPerformanceCounter extends AbstractUnixPerformanceCounter {
     private final static String STAT_FILE = "/proc/stat";
+    private final static int MAX_CPU_COUNTERS = 16;
 
+    private final ProcFsSampler sampler = new ProcFsSampler();
+    private final long[] cpuCounters = new long[MAX_CPU_COUNTERS];
     private long[] prevCpuCounters;
     private long prevTotalCpuValue;
 
@@ -56,90 +54,60 @@ final class UnixTotalCpuPerformanceCounter extends AbstractUnixPerformanceCounte
 
     @Override
     public void report(TelemetryClient telemetryClient) {
-        String line = getLineOfData();
-
-        if (!Strings.isNullOrEmpty(line)) {
-            String[] rawStringValues = line.split(" ");
-
-            ArrayList<String> stringValues = new ArrayList<String>(rawStringValues.length - 1);
-            for (int i = 1; i < rawStringValues.length; ++i) {
-                String stringValue = rawStringValues[i];
-                if (Strings.isNullOrEmpty(stringValue)) {
-                    continue;
-                }
-
-                stringValues.add(stringValue);
-            }
-
-            String[] array = stringValues.toArray(new String[stringValues.size()]);
+        int count = readCpuCounters();
+        if (count == 0) {
+            return;
+        }
 
-            if (prevCpuCounters == null) {
-                getCountersForTheFirstTime(array);
-                return;
-            }
+        if (prevCpuCounters == null) {
+            getCountersForTheFirstTime(count);
+            return;
+        }
 
-            double totalCpuUsage = calculateTotalCpuUsage(array);
+        double totalCpuUsage = calculateTotalCpuUsage(count);
 
-            InternalLogger.INSTANCE.trace("Sending Performance Counter: %s %s %s: %s", Constants.TOTAL_CPU_PC_CATEGORY_NAME, Constants.CPU_PC_COUNTER_NAME, Constants.INSTANCE_NAME_TOTAL, totalCpuUsage);
-            Telemetry telemetry = new PerformanceCounterTelemetry(
-                    Constants.TOTAL_CPU_PC_CATEGORY_NAME,
-                    Constants.CPU_PC_COUNTER_NAME,
-                    Constants.INSTANCE_NAME_TOTAL,
-                    totalCpuUsage);
+        InternalLogger.INSTANCE.trace("Sending Performance Counter: %s %s %s: %s", Constants.TOTAL_CPU_PC_CATEGORY_NAME, Constants.CPU_PC_COUNTER_NAME, Constants.INSTANCE_NAME_TOTAL, totalCpuUsage);
+        Telemetry telemetry = new PerformanceCounterTelemetry(
+                Constants.TOTAL_CPU_PC_CATEGORY_NAME,
+                Constants.CPU_PC_COUNTER_NAME,
+                Constants.INSTANCE_NAME_TOTAL,
+                totalCpuUsage);
 
-            telemetryClient.track(telemetry);
-        }
+        telemetryClient.track(telemetry);
     }
 
-    private String getLineOfData() {
-        BufferedReader bufferedReader = null;
-
-        String line = null;
+    private int readCpuCounters() {
         try {
-            bufferedReader = new BufferedReader(new FileReader(getProcessFile()));
-            line = bufferedReader.readLine();
+            sampler.read(getProcessFile());
         } catch (Exception e) {
             logPerfCounterErrorError("Error while parsing file: '%s'", e.toString());
             InternalLogger.INSTANCE.trace("Stack trace generated is %s", ExceptionUtils.getStackTrace(e));
-        } finally {
-            if (bufferedReader != null ) {
-                try {
-                    bufferedReader.close();
-                } catch (Exception e) {
-                    logPerfCounterErrorError("Error while closing file : '%s'", e.toString());
-                    InternalLogger.INSTANCE.trace("Stack trace generated is %s", ExceptionUtils.getStackTrace(e));
-                }
-            }
+            return 0;
         }
 
-        return line;
+        return sampler.getFirstLineValues(cpuCounters);
     }
 
-    private void getCountersForTheFirstTime(String[] stringValues) {
-        prevCpuCounters = new long[stringValues.length];
+    private void getCountersForTheFirstTime(int count) {
+        prevCpuCounters = new long[count];
         prevTotalCpuValue = 0;
-        for (int i = 0; i < stringValues.length; ++i) {
-            String stringValue = stringValues[i];
-            long value = Long.parseLong(stringValue);
-            prevCpuCounters[i] = value;
-            prevTotalCpuValue += value;
+        for (int i = 0; i < count; ++i) {
+            prevCpuCounters[i] = cpuCounters[i];
+            prevTotalCpuValue += cpuCounters[i];
         }
     }
 
-    private double calculateTotalCpuUsage(String[] stringValues) {
-        long[] cpuCounters = new long[stringValues.length];
+    private double calculateTotalCpuUsage(int count) {
+        count = Math.min(count, prevCpuCounters.length);
         long totalCpuValue = 0;
         double diffIdle = 0.0;
-        for (int i = 0; i < stringValues.length; ++i) {
-            String stringValue = stringValues[i];
-            long value = Long.parseLong(stringValue);
-            cpuCounters[i] = value - prevCpuCounters[i];
-            prevCpuCounters[i] = value;
-
-            totalCpuValue += value;
+        for (int i = 0; i < count; ++i) {
+            long value = cpuCounters[i];
             if (i == 3) {
-                diffIdle = cpuCounters[i];
+                diffIdle = value - prevCpuCounters[i];
             }
+            prevCpuCounters[i] = value;
+            totalCpuValue += value;
         }
 
         double totalDiff = totalCpuValue - prevTotalCpuValue;
@@ -21,9 +21,6 @@
 
 package com.microsoft.applicationinsights.internal.perfcounter;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.PerformanceCounterTelemetry;
@@ -37,6 +34,11 @@ import com.microsoft.applicationinsights.telemetry.Telemetry;
 final class UnixTotalMemoryPerformanceCounter extends AbstractUnixPerformanceCounter {
     private final static String MEM_FILE = "/proc/meminfo";
     private final static double KB = 1024.0;
+    private final static String MEM_FREE_KEY = "MemFree:";
+    private final static String BUFFERS_KEY = "Buffers:";
+    private final static String CACHED_KEY = "Cached:";
+
+    private final ProcFsSampler sampler = new ProcFsSampler();
 
     public UnixTotalMemoryPerformanceCounter() {
         super(MEM_FILE);
@@ -65,32 +67,22 @@ final class UnixTotalMemoryPerformanceCounter extends AbstractUnixPerformanceCou
     }
 
     private Double getTotalAvailableMemory() {
-        BufferedReader bufferedReader = null;
-
-        Double result = null;
-        UnixTotalMemInfoParser reader = new UnixTotalMemInfoParser();
         try {
-            bufferedReader = new BufferedReader(new FileReader(getProcessFile()));
-            String line;
-            while (!reader.done() && (line = bufferedReader.readLine()) != null) {
-                reader.process(line);
-            }
-
-            // The value we get is in KB so we need to translate that to bytes.
-            result = reader.getValue() * KB;
+            sampler.read(getProcessFile());
         } catch (Exception e) {
-            result = null;
             logPerfCounterErrorError("Error while parsing file: '%s'", e.toString());
-        } finally {
-            if (bufferedReader != null ) {
-                try {
-                    bufferedReader.close();
-                } catch (Exception e) {
-                    logPerfCounterErrorError("Error while closing file : '%s'", e.toString());
-                }
-            }
+            return null;
+        }
+
+        long memFree = sampler.getValue(MEM_FREE_KEY);
+        long buffers = sampler.getValue(BUFFERS_KEY);
+        long cached = sampler.getValue(CACHED_KEY);
+        if (memFree == ProcFsSampler.NOT_FOUND || buffers == ProcFsSampler.NOT_FOUND || cached == ProcFsSampler.NOT_FOUND) {
+            logPerfCounterErrorError("Could not find the free, buffers and cached memory");
+            return null;
         }
 
-        return result;
+        // The value we get is in KB so we need to translate that to bytes.
+        return (memFree + buffers + cached) * KB;
     }
 }
@@ -51,13 +51,17 @@ public final class DeadLockDetectorPerformanceCounter implements PerformanceCoun
 
     private final static String INDENT = "    ";
     private final static String SEPERATOR = " | ";
-    private final static String METRIC_NAME = "Suspected Deadlocked Threads";
+    final static String METRIC_NAME = "Suspected Deadlocked Threads";
     private final static int MAX_STACK_TRACE = 3;
 
     private final ThreadMXBean threadBean;
 
     public DeadLockDetectorPerformanceCounter() {
-        threadBean = ManagementFactory.getThreadMXBean();
+        this(ManagementFactory.getThreadMXBean());
+    }
+
+    DeadLockDetectorPerformanceCounter(ThreadMXBean threadBean) {
+        this.threadBean = threadBean;
     }
 
     public boolean isSupported() {
@@ -80,14 +84,15 @@ public final class DeadLockDetectorPerformanceCounter implements PerformanceCoun
             ArrayList<Long> blockedThreads = new ArrayList<Long>();
 
             StringBuilder sb = new StringBuilder();
-            for (long threadId : threadIds) {
-                ThreadInfo threadInfo = threadBean.getThreadInfo(threadId);
+            ThreadInfo[] threadInfos = threadBean.getThreadInfo(threadIds,
+                    threadBean.isObjectMonitorUsageSupported(), threadBean.isSynchronizerUsageSupported());
+            for (ThreadInfo threadInfo : threadInfos) {
                 if (threadInfo == null) {
                     continue;
                 }
 
                 setThreadInfoAndStack(sb, threadInfo);
-                blockedThreads.add(threadId);
+                blockedThreads.add(threadInfo.getThreadId());
             }
 
             if (!blockedThreads.isEmpty()) {
@@ -0,0 +1,294 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter.jvm;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.internal.perfcounter.AggregatedMetric;
+import com.microsoft.applicationinsights.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.internal.shutdown.SDKShutdownActivity;
+import com.microsoft.applicationinsights.internal.shutdown.Stoppable;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * The class subscribes to the garbage collection notifications of the JVM and reports, per collection interval,
+ * the aggregated pause times and their 99th percentile per collector, the allocation and promotion rates,
+ * and the occupancy of each heap memory pool after collection.
+ *
+ * Unlike {@link GCPerformanceCounter} the data is taken from every collection, not from the cumulative counters,
+ * so single long pauses are not averaged away. Notifications of concurrent cycles (e.g. 'G1 Concurrent GC',
+ * 'ZGC Cycles') only contribute to the memory metrics, since their duration is not a pause.
+ *
+ * The listeners are removed when the SDK shuts down, so they do not pin the class loader of a redeployed web app.
+ */
+public final class GCNotificationPerformanceCounter implements PerformanceCounter, NotificationListener, Stoppable {
+    public final static String NAME = "GCNotifications";
+
+    private final static String GC_PAUSE_TIME = "GC Pause Time (ms)";
+    private final static String GC_PAUSE_TIME_P99 = "GC Pause Time P99 (ms)";
+    private final static String GC_ALLOCATION_RATE = "GC Allocation Rate (MB/sec)";
+    private final static String GC_PROMOTION_RATE = "GC Promotion Rate (MB/sec)";
+    private final static String GC_POOL_USED_AFTER_GC = "GC Memory Pool Used After GC (MB)";
+    private final static String COLLECTOR_PROPERTY = "Collector";
+    private final static String MEMORY_POOL_PROPERTY = "Memory Pool";
+
+    private final static String MINOR_GC_ACTION = "minor";
+    private final static int MAX_PAUSES_PER_INTERVAL = 1024;
+    private final static double MEGABYTE = 1024 * 1024;
+    private final static double NANOS_IN_SECOND = 1000000000.0;
+
+    private static final class PauseRecorder {
+        private final AggregatedMetric aggregate = new AggregatedMetric();
+        private final long[] pauses = new long[MAX_PAUSES_PER_INTERVAL];
+        private int size;
+
+        void record(long durationInMillis) {
+            aggregate.record(durationInMillis);
+            if (size < pauses.length) {
+                pauses[size++] = durationInMillis;
+            }
+        }
+
+        long getP99() {
+            Arrays.sort(pauses, 0, size);
+            int index = (int) Math.ceil(size * 0.99) - 1;
+            return pauses[Math.max(0, index)];
+        }
+    }
+
+    private final List<NotificationEmitter> emitters = new ArrayList<NotificationEmitter>();
+    private final Set<String> nonHeapPools = new HashSet<String>();
+    private final Map<String, PauseRecorder> pauses = new HashMap<String, PauseRecorder>();
+    private final Map<String, AggregatedMetric> poolsUsedAfterGc = new HashMap<String, AggregatedMetric>();
+    private final Map<String, Long> edenUsedAfterGc = new HashMap<String, Long>();
+    private long allocatedBytes;
+    private long promotedBytes;
+    private long lastReportInNanos;
+
+    /**
+     * @return True if the JVM publishes garbage collection notifications.
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName("com.sun.management.GarbageCollectionNotificationInfo");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    public GCNotificationPerformanceCounter() {
+        this(true);
+    }
+
+    GCNotificationPerformanceCounter(boolean subscribe) {
+        lastReportInNanos = System.nanoTime();
+        if (!subscribe) {
+            return;
+        }
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP) {
+                nonHeapPools.add(pool.getName());
+            }
+        }
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            } else {
+                InternalLogger.INSTANCE.trace("Garbage collector '%s' does not publish notifications", gc.getName());
+            }
+        }
+        SDKShutdownActivity.INSTANCE.register(this);
+    }
+
+    @Override
+    public void stop(long timeout, TimeUnit timeUnit) {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public String getId() {
+        return "GCNotificationPerformanceCounter";
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            GcInfo gcInfo = info.getGcInfo();
+            record(info.getGcName(), info.getGcAction(), gcInfo.getDuration(), gcInfo.getMemoryUsageBeforeGc(), gcInfo.getMemoryUsageAfterGc());
+        } catch (ThreadDeath td) {
+            throw td;
+        } catch (Throwable t) {
+            try {
+                InternalLogger.INSTANCE.error("Failed to process garbage collection notification: '%s'", t.toString());
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t2) {
+                // chomp
+            }
+        }
+    }
+
+    synchronized void record(String collector, String action, long durationInMillis, Map<String, MemoryUsage> before, Map<String, MemoryUsage> after) {
+        if (!isConcurrentCycle(collector, action)) {
+            PauseRecorder recorder = pauses.get(collector);
+            if (recorder == null) {
+                recorder = new PauseRecorder();
+                pauses.put(collector, recorder);
+            }
+            recorder.record(durationInMillis);
+        }
+
+        boolean minor = action != null && action.contains(MINOR_GC_ACTION);
+        for (Map.Entry<String, MemoryUsage> entry : after.entrySet()) {
+            String pool = entry.getKey();
+            if (nonHeapPools.contains(pool)) {
+                continue;
+            }
+
+            long usedAfter = entry.getValue().getUsed();
+            MemoryUsage usageBefore = before.get(pool);
+            long usedBefore = usageBefore == null ? usedAfter : usageBefore.getUsed();
+
+            AggregatedMetric used = poolsUsedAfterGc.get(pool);
+            if (used == null) {
+                used = new AggregatedMetric();
+                poolsUsedAfterGc.put(pool, used);
+            }
+            used.record(usedAfter / MEGABYTE);
+
+            if (isEden(pool)) {
+                // everything allocated in eden since the previous collection is what the current one found there
+                Long previousUsedAfter = edenUsedAfterGc.put(pool, usedAfter);
+                allocatedBytes += Math.max(0, usedBefore - (previousUsedAfter == null ? 0 : previousUsedAfter));
+            } else if (minor && isOldGen(pool)) {
+                promotedBytes += Math.max(0, usedAfter - usedBefore);
+            }
+        }
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+        // drained under the lock, but tracked outside of it so the notification thread never waits on the channel
+        List<MetricTelemetry> metrics = new ArrayList<MetricTelemetry>();
+        long currentReportInNanos = System.nanoTime();
+        synchronized (this) {
+            for (Map.Entry<String, PauseRecorder> entry : pauses.entrySet()) {
+                PauseRecorder recorder = entry.getValue();
+                if (recorder.size == 0) {
+                    continue;
+                }
+
+                long p99 = recorder.getP99();
+                recorder.size = 0;
+                add(metrics, recorder.aggregate.drain(GC_PAUSE_TIME), COLLECTOR_PROPERTY, entry.getKey());
+                add(metrics, new MetricTelemetry(GC_PAUSE_TIME_P99, p99), COLLECTOR_PROPERTY, entry.getKey());
+            }
+
+            for (Map.Entry<String, AggregatedMetric> entry : poolsUsedAfterGc.entrySet()) {
+                add(metrics, entry.getValue().drain(GC_POOL_USED_AFTER_GC), MEMORY_POOL_PROPERTY, entry.getKey());
+            }
+
+            double elapsedInSeconds = (currentReportInNanos - lastReportInNanos) / NANOS_IN_SECOND;
+            if (elapsedInSeconds > 0) {
+                add(metrics, new MetricTelemetry(GC_ALLOCATION_RATE, allocatedBytes / MEGABYTE / elapsedInSeconds), null, null);
+                add(metrics, new MetricTelemetry(GC_PROMOTION_RATE, promotedBytes / MEGABYTE / elapsedInSeconds), null, null);
+            }
+
+            allocatedBytes = 0;
+            promotedBytes = 0;
+            lastReportInNanos = currentReportInNanos;
+        }
+
+        for (MetricTelemetry telemetry : metrics) {
+            InternalLogger.INSTANCE.trace("Sending GC metric: %s: %s", telemetry.getName(), telemetry.getValue());
+            telemetryClient.track(telemetry);
+        }
+    }
+
+    private static void add(List<MetricTelemetry> metrics, MetricTelemetry telemetry, String propertyName, String propertyValue) {
+        if (telemetry == null) {
+            return;
+        }
+
+        telemetry.markAsCustomPerfCounter();
+        if (propertyName != null) {
+            telemetry.getProperties().put(propertyName, propertyValue);
+        }
+        metrics.add(telemetry);
+    }
+
+    static boolean isConcurrentCycle(String collector, String action) {
+        // 'end of GC cycle' of ZGC and Shenandoah, the concurrent collectors of G1 and CMS
+        return (action != null && action.contains("cycle"))
+                || collector.contains("Cycles")
+                || collector.contains("Concurrent");
+    }
+
+    private static boolean isEden(String pool) {
+        return pool.contains("Eden");
+    }
+
+    private static boolean isOldGen(String pool) {
+        return pool.contains("Old Gen") || pool.contains("Tenured Gen");
+    }
+}
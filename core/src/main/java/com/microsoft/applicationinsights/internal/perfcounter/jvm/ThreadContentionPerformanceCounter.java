@@ -0,0 +1,252 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter.jvm;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+
+/**
+ * The class samples the state of all the threads with a single ThreadMXBean call, without stack traces,
+ * and reports the number of blocked and waiting threads, and the most contended locks. Stack traces are only
+ * taken, in a second call, for the threads that wait for a lock owned by another thread.
+ *
+ * Contended locks are reported per lock class, with the number of threads waiting for them, the top frame and
+ * a fingerprint of the most common stack waiting for them, so the same contention can be followed across samples.
+ * The identity of the lock instance is not reported, since it would make every lock a new metric dimension.
+ *
+ * When a {@link DeadLockDetectorPerformanceCounter} is set, the deadlock scan is only done when some
+ * thread is waiting for a lock owned by another thread, since there can be no deadlock otherwise.
+ *
+ * The counter is sampled on every collection, or on every sample in the container's high frequency mode.
+ */
+public final class ThreadContentionPerformanceCounter implements PerformanceCounter {
+
+    public final static String NAME = "ThreadContention";
+
+    private final static String BLOCKED_THREADS_METRIC_NAME = "Blocked Threads";
+    private final static String WAITING_THREADS_METRIC_NAME = "Waiting Threads";
+    private final static String CONTENDED_LOCKS_METRIC_NAME = "Contended Locks";
+    private final static String LOCK_WAITING_THREADS_METRIC_NAME = "Lock Waiting Threads";
+    private final static String LOCK_PROPERTY = "Lock";
+    private final static String TOP_FRAME_PROPERTY = "Top Frame";
+    private final static String STACK_FINGERPRINT_PROPERTY = "Stack Fingerprint";
+
+    // Deep enough to get past the lock implementation frames of the waiting threads
+    private final static int MAX_STACK_DEPTH = 16;
+    private final static int MAX_FINGERPRINT_FRAMES = 3;
+    private final static int MAX_REPORTED_LOCKS = 5;
+    private final static String[] LOCK_IMPLEMENTATION_PACKAGES = {"java.util.concurrent.", "sun.misc.", "jdk.internal."};
+
+    private static final class ContendedLock {
+        final String name;
+        final HashMap<String, Integer> fingerprints = new HashMap<String, Integer>();
+        int waitingThreads;
+        String topFingerprint;
+        String topFrame;
+        int topFingerprintCount;
+
+        ContendedLock(String name) {
+            this.name = name;
+        }
+
+        void add(StackTraceElement[] stack) {
+            ++waitingThreads;
+
+            int first = firstApplicationFrame(stack);
+            String fingerprint = fingerprint(stack, first);
+            Integer count = fingerprints.get(fingerprint);
+            count = count == null ? 1 : count + 1;
+            fingerprints.put(fingerprint, count);
+            if (count > topFingerprintCount) {
+                topFingerprintCount = count;
+                topFingerprint = fingerprint;
+                topFrame = first < stack.length ? stack[first].toString() : "";
+            }
+        }
+    }
+
+    private final ThreadMXBean threadBean;
+    private final DeadLockDetectorPerformanceCounter deadLockDetector;
+
+    /**
+     * @param deadLockDetector The detector to use when a deadlock is possible, or null to skip deadlock detection.
+     */
+    public ThreadContentionPerformanceCounter(DeadLockDetectorPerformanceCounter deadLockDetector) {
+        this(ManagementFactory.getThreadMXBean(), deadLockDetector);
+    }
+
+    ThreadContentionPerformanceCounter(ThreadMXBean threadBean, DeadLockDetectorPerformanceCounter deadLockDetector) {
+        this.threadBean = threadBean;
+        this.deadLockDetector = deadLockDetector;
+    }
+
+    @Override
+    public String getId() {
+        return NAME;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+        ThreadInfo[] threads = threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0);
+
+        int blockedThreads = 0;
+        int waitingThreads = 0;
+        HashSet<String> contendedLocks = new HashSet<String>();
+        ArrayList<ThreadInfo> contendedThreads = new ArrayList<ThreadInfo>();
+        for (ThreadInfo thread : threads) {
+            if (thread == null) {
+                // The thread is no longer alive
+                continue;
+            }
+
+            switch (thread.getThreadState()) {
+                case BLOCKED:
+                    ++blockedThreads;
+                    break;
+
+                case WAITING:
+                case TIMED_WAITING:
+                    ++waitingThreads;
+                    break;
+
+                default:
+                    continue;
+            }
+
+            String lockName = thread.getLockName();
+            if (lockName == null || thread.getLockOwnerId() == -1) {
+                continue;
+            }
+
+            contendedLocks.add(lockName);
+            contendedThreads.add(thread);
+        }
+
+        HashMap<String, ContendedLock> locks = getLocksByClass(contendedThreads);
+
+        track(telemetryClient, new MetricTelemetry(BLOCKED_THREADS_METRIC_NAME, blockedThreads));
+        track(telemetryClient, new MetricTelemetry(WAITING_THREADS_METRIC_NAME, waitingThreads));
+        track(telemetryClient, new MetricTelemetry(CONTENDED_LOCKS_METRIC_NAME, contendedLocks.size()));
+        for (ContendedLock lock : getMostContended(locks)) {
+            MetricTelemetry mt = new MetricTelemetry(LOCK_WAITING_THREADS_METRIC_NAME, lock.waitingThreads);
+            mt.getProperties().put(LOCK_PROPERTY, lock.name);
+            mt.getProperties().put(TOP_FRAME_PROPERTY, lock.topFrame);
+            mt.getProperties().put(STACK_FINGERPRINT_PROPERTY, lock.topFingerprint);
+            track(telemetryClient, mt);
+        }
+
+        if (deadLockDetector == null) {
+            return;
+        }
+
+        if (locks.isEmpty()) {
+            // No thread waits for a lock owned by another thread, so no thread can be deadlocked
+            track(telemetryClient, new MetricTelemetry(DeadLockDetectorPerformanceCounter.METRIC_NAME, 0.0));
+        } else {
+            deadLockDetector.report(telemetryClient);
+        }
+    }
+
+    private HashMap<String, ContendedLock> getLocksByClass(List<ThreadInfo> contendedThreads) {
+        HashMap<String, ContendedLock> locks = new HashMap<String, ContendedLock>();
+        if (contendedThreads.isEmpty()) {
+            return locks;
+        }
+
+        long[] ids = new long[contendedThreads.size()];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = contendedThreads.get(i).getThreadId();
+        }
+        ThreadInfo[] withStacks = threadBean.getThreadInfo(ids, MAX_STACK_DEPTH);
+
+        for (int i = 0; i < ids.length; ++i) {
+            ThreadInfo thread = contendedThreads.get(i);
+            String lockClassName = thread.getLockInfo() != null ? thread.getLockInfo().getClassName() : thread.getLockName();
+            ContendedLock lock = locks.get(lockClassName);
+            if (lock == null) {
+                lock = new ContendedLock(lockClassName);
+                locks.put(lockClassName, lock);
+            }
+            // the thread may have ended or moved on since the first call
+            ThreadInfo withStack = withStacks[i];
+            lock.add(withStack == null ? new StackTraceElement[0] : withStack.getStackTrace());
+        }
+        return locks;
+    }
+
+    private static List<ContendedLock> getMostContended(HashMap<String, ContendedLock> locks) {
+        ArrayList<ContendedLock> sorted = new ArrayList<ContendedLock>(locks.values());
+        Collections.sort(sorted, new Comparator<ContendedLock>() {
+            @Override
+            public int compare(ContendedLock lock1, ContendedLock lock2) {
+                return lock2.waitingThreads - lock1.waitingThreads;
+            }
+        });
+        return sorted.subList(0, Math.min(MAX_REPORTED_LOCKS, sorted.size()));
+    }
+
+    private static void track(TelemetryClient telemetryClient, MetricTelemetry mt) {
+        mt.markAsCustomPerfCounter();
+        telemetryClient.track(mt);
+    }
+
+    private static int firstApplicationFrame(StackTraceElement[] stack) {
+        for (int i = 0; i < stack.length; ++i) {
+            if (!isLockImplementation(stack[i].getClassName())) {
+                return i;
+            }
+        }
+        return stack.length;
+    }
+
+    private static boolean isLockImplementation(String className) {
+        for (String lockPackage : LOCK_IMPLEMENTATION_PACKAGES) {
+            if (className.startsWith(lockPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String fingerprint(StackTraceElement[] stack, int first) {
+        int hash = 1;
+        int last = Math.min(stack.length, first + MAX_FINGERPRINT_FRAMES);
+        for (int i = first; i < last; ++i) {
+            StackTraceElement frame = stack[i];
+            hash = 31 * hash + frame.getClassName().hashCode();
+            hash = 31 * hash + frame.getMethodName().hashCode();
+            hash = 31 * hash + frame.getLineNumber();
+        }
+        return Integer.toHexString(hash);
+    }
+}
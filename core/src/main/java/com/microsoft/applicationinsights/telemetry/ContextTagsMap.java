@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.microsoft.applicationinsights.extensibility.context.ContextTagKeys;
 import org.apache.commons.lang3.StringUtils;
@@ -44,6 +45,9 @@ class ContextTagsMap implements ConcurrentMap<String, String> {
 
     private final ConcurrentMap<String, String> tags = new ConcurrentHashMap<>();
 
+    // changes after every modification made through this map, the key set, values and entry set views are not tracked
+    private final AtomicInteger version = new AtomicInteger();
+
     private static String sanitizeKey(String key) {
         return key;
     }
@@ -63,24 +67,52 @@ class ContextTagsMap implements ConcurrentMap<String, String> {
         return value;
     }
 
+    int getVersion() {
+        return version.get();
+    }
+
+    String putSanitizedIfAbsent(String key, String value) {
+        String previous = tags.putIfAbsent(key, value);
+        if (previous == null) {
+            version.incrementAndGet();
+        }
+        return previous;
+    }
+
     @Override
     public String putIfAbsent(String key, String value) {
-        return tags.putIfAbsent(key, sanitizeValue(key, value));
+        String previous = tags.putIfAbsent(key, sanitizeValue(key, value));
+        if (previous == null) {
+            version.incrementAndGet();
+        }
+        return previous;
     }
 
     @Override
     public boolean remove(Object key, Object value) {
-        return tags.remove(key, value);
+        boolean removed = tags.remove(key, value);
+        if (removed) {
+            version.incrementAndGet();
+        }
+        return removed;
     }
 
     @Override
     public boolean replace(String key, String oldValue, String newValue) {
-        return tags.replace(key, oldValue, sanitizeValue(key, newValue));
+        boolean replaced = tags.replace(key, oldValue, sanitizeValue(key, newValue));
+        if (replaced) {
+            version.incrementAndGet();
+        }
+        return replaced;
     }
 
     @Override
     public String replace(String key, String value) {
-        return tags.replace(key, sanitizeValue(key, value));
+        String previous = tags.replace(key, sanitizeValue(key, value));
+        if (previous != null) {
+            version.incrementAndGet();
+        }
+        return previous;
     }
 
     @Override
@@ -110,12 +142,18 @@ class ContextTagsMap implements ConcurrentMap<String, String> {
 
     @Override
     public String put(String key, String value) {
-        return tags.put(key, sanitizeValue(key, value));
+        String previous = tags.put(key, sanitizeValue(key, value));
+        version.incrementAndGet();
+        return previous;
     }
 
     @Override
     public String remove(Object key) {
-        return tags.remove(key);
+        String previous = tags.remove(key);
+        if (previous != null) {
+            version.incrementAndGet();
+        }
+        return previous;
     }
 
     @Override
@@ -125,11 +163,13 @@ class ContextTagsMap implements ConcurrentMap<String, String> {
             sanitized.put(entry.getKey(), sanitizeValue(entry.getKey(), entry.getValue()));
         }
         tags.putAll(sanitized);
+        version.incrementAndGet();
     }
 
     @Override
     public void clear() {
         tags.clear();
+        version.incrementAndGet();
     }
 
     @Override
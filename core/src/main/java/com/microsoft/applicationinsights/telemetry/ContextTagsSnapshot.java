@@ -0,0 +1,90 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable copy of some of the tags of a {@link TelemetryContext}.
+ * <p>
+ * The values were sanitized when they were set on the source context, so applying a snapshot to other
+ * contexts with {@link TelemetryContext#putTagsIfAbsent(ContextTagsSnapshot)} does not sanitize them again.
+ */
+public final class ContextTagsSnapshot {
+    /**
+     * A snapshot without tags.
+     */
+    public static final ContextTagsSnapshot EMPTY = new ContextTagsSnapshot(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+
+    private ContextTagsSnapshot(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    static ContextTagsSnapshot of(ContextTagsMap tags, String... keys) {
+        List<String> presentKeys = new ArrayList<String>(keys.length);
+        List<String> presentValues = new ArrayList<String>(keys.length);
+        for (String key : keys) {
+            String value = tags.get(key);
+            if (value != null) {
+                presentKeys.add(key);
+                presentValues.add(value);
+            }
+        }
+
+        if (presentKeys.isEmpty()) {
+            return EMPTY;
+        }
+        return new ContextTagsSnapshot(presentKeys.toArray(new String[presentKeys.size()]),
+            presentValues.toArray(new String[presentValues.size()]));
+    }
+
+    /**
+     * @return The number of tags in the snapshot.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param key The tag key.
+     * @return The value of the tag, or null if the snapshot does not hold it.
+     */
+    public String get(String key) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i].equals(key)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    void putIfAbsent(ContextTagsMap tags) {
+        for (int i = 0; i < keys.length; ++i) {
+            tags.putSanitizedIfAbsent(keys[i], values[i]);
+        }
+    }
+}
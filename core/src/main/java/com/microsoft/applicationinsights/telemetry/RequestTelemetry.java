@@ -22,11 +22,13 @@
 package com.microsoft.applicationinsights.telemetry;
 
 import com.google.common.base.Strings;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.schemav2.RequestData;
 import com.microsoft.applicationinsights.internal.util.LocalStringsUtils;
 import com.microsoft.applicationinsights.internal.util.Sanitizer;
 import org.apache.http.HttpStatus;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Date;
@@ -43,6 +45,25 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
     private final RequestData data;
     private String httpMethod;
     private boolean allowAgentToOverrideName;
+    private DeferredFields deferredName;
+    private DeferredFields deferredUrl;
+
+    /**
+     * Builds request fields that are costly to compute. The telemetry asks for each value at most once,
+     * the first time it is read, so items that are dropped by sampling or filtering never pay for them.
+     * Implementations should only hold values that stay valid once the request has completed.
+     */
+    public interface DeferredFields {
+        /**
+         * @return The request name, or null if there is none.
+         */
+        String buildName();
+
+        /**
+         * @return The request url, or null if there is none.
+         */
+        String buildUrl();
+    }
 
     /**
      * Envelope Name for this telemetry.
@@ -137,6 +158,7 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
      * @return A human-readable name
      */
     public String getName() {
+        resolveDeferredName();
         return data.getName();
     }
 
@@ -148,6 +170,7 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
         if (Strings.isNullOrEmpty(name)) {
             throw new IllegalArgumentException("The event name cannot be null or empty");
         }
+        deferredName = null;
         data.setName(name);
         allowAgentToOverrideName = false;
     }
@@ -238,6 +261,7 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
      * @throws MalformedURLException if the url is malformed
      */
     public URL getUrl() throws MalformedURLException {
+        resolveDeferredUrl();
         if (LocalStringsUtils.isNullOrEmpty(data.getUrl())) {
             return null;
         }
@@ -250,10 +274,12 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
      * @param url The URL
      */
     public void setUrl(URL url) {
+        deferredUrl = null;
         data.setUrl(url.toString());
     }
 
     public String getUrlString() {
+        resolveDeferredUrl();
         return getData().getUrl();
     }
 
@@ -264,9 +290,20 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
      */
     public void setUrl(String url) throws MalformedURLException {
         URL u = new URL(url); // to validate and normalize
+        deferredUrl = null;
         data.setUrl(u.toString());
     }
 
+    /**
+     * Sets the source of the name and url of the request, which are built the first time they are read
+     * or when the telemetry is serialized. Setting either value explicitly discards its deferred counterpart.
+     * @param deferredFields The source of the deferred values, or null to discard pending values.
+     */
+    public void setDeferredFields(DeferredFields deferredFields) {
+        this.deferredName = deferredFields;
+        this.deferredUrl = deferredFields;
+    }
+
     /**
      * @deprecated
      * Gets the HTTP method of the request.
@@ -300,12 +337,21 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
     @Override
     @Deprecated
     protected void additionalSanitize() {
+        resolveDeferredName();
+        resolveDeferredUrl();
         data.setName(Sanitizer.sanitizeName(data.getName()));
         data.setId(Sanitizer.sanitizeName(data.getId()));
         Sanitizer.sanitizeMeasurements(getMetrics());
         Sanitizer.sanitizeUri(data.getUrl());
     }
 
+    @Override
+    public void serialize(JsonTelemetryDataSerializer writer) throws IOException {
+        resolveDeferredName();
+        resolveDeferredUrl();
+        super.serialize(writer);
+    }
+
     @Override
     protected RequestData getData() {
         return data;
@@ -328,4 +374,36 @@ public final class RequestTelemetry extends BaseSampleSourceTelemetry<RequestDat
     public void setAllowAgentToOverrideName(boolean allowAgentToOverrideName) {
         this.allowAgentToOverrideName = allowAgentToOverrideName;
     }
+
+    private void resolveDeferredName() {
+        DeferredFields fields = deferredName;
+        if (fields == null) {
+            return;
+        }
+
+        deferredName = null;
+        String name = fields.buildName();
+        if (!Strings.isNullOrEmpty(name)) {
+            data.setName(name);
+        }
+    }
+
+    private void resolveDeferredUrl() {
+        DeferredFields fields = deferredUrl;
+        if (fields == null) {
+            return;
+        }
+
+        deferredUrl = null;
+        String url = fields.buildUrl();
+        if (Strings.isNullOrEmpty(url)) {
+            return;
+        }
+
+        try {
+            data.setUrl(new URL(url).toString()); // to validate and normalize
+        } catch (MalformedURLException e) {
+            InternalLogger.INSTANCE.error("Failed to build the request url '%s': '%s'", url, e.toString());
+        }
+    }
 }
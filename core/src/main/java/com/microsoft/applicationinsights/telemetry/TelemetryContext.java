@@ -196,6 +196,33 @@ public final class TelemetryContext {
         return tags;
     }
 
+    /**
+     * Takes an immutable copy of some of the tags of this context, to apply to other contexts
+     * with {@link #putTagsIfAbsent(ContextTagsSnapshot)}.
+     * @param keys The keys of the tags to copy, tags that are not set are skipped.
+     * @return The snapshot of the tags.
+     */
+    public ContextTagsSnapshot snapshotTags(String... keys) {
+        return ContextTagsSnapshot.of(tags, keys);
+    }
+
+    /**
+     * Gets a number that changes whenever a tag of this context is set or removed, used to tell
+     * whether a {@link ContextTagsSnapshot} of this context is still current.
+     * @return The version of the tags.
+     */
+    public int getTagsVersion() {
+        return tags.getVersion();
+    }
+
+    /**
+     * Sets the tags of the snapshot that are not already set on this context.
+     * @param snapshot The snapshot to apply.
+     */
+    public void putTagsIfAbsent(ContextTagsSnapshot snapshot) {
+        snapshot.putIfAbsent(tags);
+    }
+
     public void initialize(TelemetryContext source) {
         if (Strings.isNullOrEmpty(this.instrumentationKey) && !Strings.isNullOrEmpty(source.getInstrumentationKey()))
             setInstrumentationKey(source.getInstrumentationKey());
@@ -0,0 +1,195 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.TestFramework.StubTelemetryChannel;
+import com.microsoft.applicationinsights.agent.internal.sdk.SdkBridge;
+import com.microsoft.applicationinsights.telemetry.ExceptionTelemetry;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.RemoteDependencyTelemetry;
+import com.microsoft.applicationinsights.telemetry.SeverityLevel;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import com.microsoft.applicationinsights.telemetry.TraceTelemetry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractSdkBridgeTest {
+
+    private final List<Telemetry> sent = new ArrayList<Telemetry>();
+
+    private TestSdkBridge sdkBridge;
+
+    @Before
+    public void setUp() {
+        TelemetryConfiguration configuration = new TelemetryConfiguration();
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000000");
+        configuration.setChannel(new StubTelemetryChannel() {
+            @Override
+            public void send(Telemetry item) {
+                sent.add(item);
+            }
+        });
+        sdkBridge = new TestSdkBridge(new TelemetryClient(configuration));
+    }
+
+    @Test
+    public void testCreatedDependencyIsTrackedWithoutCopy() {
+        SdkBridge.RemoteDependencyTelemetry telemetry = sdkBridge.createRemoteDependencyTelemetry(1000, 5, "SQL", true);
+        telemetry.setName("name");
+        telemetry.setTarget("target");
+        telemetry.setCommandName("select 1");
+        telemetry.getProperties().put("Args", " [Batch]");
+        assertEquals("name", telemetry.getName());
+
+        sdkBridge.track(telemetry);
+
+        assertEquals(1, sent.size());
+        assertTrue(telemetry instanceof CoreBackedTelemetry.DependencyItem);
+        assertSame(((CoreBackedTelemetry.DependencyItem) telemetry).telemetry, sent.get(0));
+        verifyDependency((RemoteDependencyTelemetry) sent.get(0));
+    }
+
+    @Test
+    public void testInstantiatedDependencyIsCopied() {
+        SdkBridge.RemoteDependencyTelemetry telemetry = new SdkBridge.RemoteDependencyTelemetry(1000, 5, "SQL", true);
+        telemetry.setName("name");
+        telemetry.setTarget("target");
+        telemetry.setCommandName("select 1");
+        telemetry.getProperties().put("Args", " [Batch]");
+
+        sdkBridge.track(telemetry);
+
+        assertEquals(1, sent.size());
+        verifyDependency((RemoteDependencyTelemetry) sent.get(0));
+    }
+
+    @Test
+    public void testSamplingPercentage() {
+        SdkBridge.RemoteDependencyTelemetry created = sdkBridge.createRemoteDependencyTelemetry(1000, 5, "SQL", true);
+        created.setSamplingPercentage(10);
+        SdkBridge.RemoteDependencyTelemetry instantiated =
+                new SdkBridge.RemoteDependencyTelemetry(1000, 5, "SQL", true);
+        instantiated.setSamplingPercentage(25);
+
+        sdkBridge.track(created);
+        sdkBridge.track(instantiated);
+
+        assertEquals(2, sent.size());
+        assertEquals(10, ((RemoteDependencyTelemetry) sent.get(0)).getSamplingPercentage(), 0);
+        assertEquals(25, ((RemoteDependencyTelemetry) sent.get(1)).getSamplingPercentage(), 0);
+    }
+
+    @Test
+    public void testCreatedTraceAndException() {
+        SdkBridge.TraceTelemetry trace = sdkBridge.createTraceTelemetry(1000, "message", "WARN");
+        trace.getProperties().put("LoggerName", "logger");
+        sdkBridge.track(trace);
+        IllegalStateException exception = new IllegalStateException();
+        sdkBridge.track(sdkBridge.createExceptionTelemetry(2000, exception, "ERROR"));
+
+        assertEquals(2, sent.size());
+        TraceTelemetry sentTrace = (TraceTelemetry) sent.get(0);
+        assertEquals("message", sentTrace.getMessage());
+        assertEquals(SeverityLevel.Warning, sentTrace.getSeverityLevel());
+        assertEquals("logger", sentTrace.getProperties().get("LoggerName"));
+        assertEquals(1000, sentTrace.getTimestamp().getTime());
+        ExceptionTelemetry sentException = (ExceptionTelemetry) sent.get(1);
+        assertSame(exception, sentException.getThrowable());
+        assertEquals(SeverityLevel.Error, sentException.getSeverityLevel());
+        assertEquals(2000, sentException.getTimestamp().getTime());
+    }
+
+    @Test
+    public void testTrackMetric() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("Instrumentation Type", "SQL");
+
+        sdkBridge.trackMetric("Agent Span Count", 3, properties);
+
+        assertEquals(1, sent.size());
+        MetricTelemetry metric = (MetricTelemetry) sent.get(0);
+        assertEquals("Agent Span Count", metric.getName());
+        assertEquals(3, metric.getValue(), 0);
+        assertEquals("SQL", metric.getProperties().get("Instrumentation Type"));
+    }
+
+    private static void verifyDependency(RemoteDependencyTelemetry telemetry) {
+        assertEquals(1000, telemetry.getTimestamp().getTime());
+        assertEquals(5, telemetry.getDuration().getTotalMilliseconds());
+        assertEquals("SQL", telemetry.getType());
+        assertTrue(telemetry.getSuccess());
+        assertEquals("name", telemetry.getName());
+        assertEquals("target", telemetry.getTarget());
+        assertEquals("select 1", telemetry.getCommandName());
+        assertEquals(" [Batch]", telemetry.getProperties().get("Args"));
+    }
+
+    private static class TestSdkBridge extends AbstractSdkBridge<Object> {
+
+        TestSdkBridge(TelemetryClient client) {
+            super(client);
+        }
+
+        @Override
+        public void bindRequestTelemetryContext(Object requestTelemetryContext) {
+        }
+
+        @Override
+        public void unbindRequestTelemetryContext() {
+        }
+
+        @Override
+        public void setOperationName(Object requestTelemetryContext, String operationName) {
+        }
+
+        @Override
+        public String generateChildDependencyTarget(String requestContext, boolean w3c) {
+            return "";
+        }
+
+        @Override
+        public <C> String propagate(Setter<C> setter, C carrier, boolean w3c, boolean w3cBackCompat) {
+            return "";
+        }
+
+        @Override
+        public <C> Object startRequest(String name, String source, long timestamp, Getter<C> getter, C carrier,
+                                       boolean w3c) {
+            return new Object();
+        }
+
+        @Override
+        public void trackRequest(Object requestTelemetryContext, long durationMillis, boolean success) {
+        }
+    }
+}
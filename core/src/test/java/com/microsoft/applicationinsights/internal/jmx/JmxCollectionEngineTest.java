@@ -0,0 +1,130 @@
+package com.microsoft.applicationinsights.internal.jmx;
+
+import org.junit.*;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JmxCollectionEngineTest {
+    private static final String OBJECT_NAME = "JSDKTests:type=CollectionEngineStub";
+
+    private MBeanServer server;
+    private ObjectName mxbeanName;
+    private JmxDataFetcherTest.TestStub testStub;
+
+    @Before
+    public void registerStub() throws Exception {
+        server = ManagementFactory.getPlatformMBeanServer();
+        mxbeanName = new ObjectName(OBJECT_NAME);
+        testStub = new JmxDataFetcherTest.TestStub(1, 2.0, 3L);
+        server.registerMBean(testStub, mxbeanName);
+    }
+
+    @After
+    public void unregisterStub() throws Exception {
+        if (server.isRegistered(mxbeanName)) {
+            server.unregisterMBean(mxbeanName);
+        }
+        JmxCollectionEngine.INSTANCE.endCycle();
+        JmxCollectionEngine.INSTANCE.clearCache();
+    }
+
+    @Test
+    public void testFetchReadsAllAttributes() throws Exception {
+        Map<String, Collection<Object>> result = JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, createAttributes());
+
+        assertEquals(3, result.size());
+        verify(result, "Int", 1.0);
+        verify(result, "Double", 2.0);
+        verify(result, "Long", 3.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnregisteredObjectInvalidatesCache() throws Exception {
+        JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, createAttributes());
+
+        server.unregisterMBean(mxbeanName);
+
+        JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, createAttributes());
+    }
+
+    @Test
+    public void testRegisteredObjectInvalidatesCache() throws Exception {
+        String pattern = "JSDKTests:type=CollectionEngineStub*";
+        ObjectName otherName = new ObjectName("JSDKTests:type=CollectionEngineStub2");
+        List<JmxAttributeData> attributes = createAttributes();
+
+        assertEquals(1, JmxCollectionEngine.INSTANCE.fetch(pattern, attributes).get("Int").size());
+
+        server.registerMBean(new JmxDataFetcherTest.TestStub(10, 20.0, 30L), otherName);
+        try {
+            Map<String, Collection<Object>> result = JmxCollectionEngine.INSTANCE.fetch(pattern, attributes);
+            assertEquals(2, result.get("Int").size());
+            verify(result, "Int", 11.0);
+        } finally {
+            server.unregisterMBean(otherName);
+        }
+    }
+
+    @Test
+    public void testValuesAreSharedWithinCycle() throws Exception {
+        List<JmxAttributeData> attributes = createAttributes();
+
+        JmxCollectionEngine.INSTANCE.beginCycle();
+        verify(JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, attributes), "Int", 1.0);
+
+        testStub.i = 1000;
+        verify(JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, attributes), "Int", 1.0);
+
+        assertTrue(JmxCollectionEngine.INSTANCE.endCycle() > 0);
+        verify(JmxCollectionEngine.INSTANCE.fetch(OBJECT_NAME, attributes), "Int", 1000.0);
+    }
+
+    @Test
+    public void testCompositeAttribute() throws Exception {
+        List<JmxAttributeData> attributes = new ArrayList<JmxAttributeData>();
+        attributes.add(new JmxAttributeData("Heap", "HeapMemoryUsage.used", "COMPOSITE"));
+
+        Map<String, Collection<Object>> result = JmxCollectionEngine.INSTANCE.fetch(ManagementFactory.MEMORY_MXBEAN_NAME, attributes);
+
+        assertEquals(1, result.get("Heap").size());
+        assertTrue(JmxCollectionEngine.toDouble(result.get("Heap").iterator().next()) > 0.0);
+    }
+
+    @Test
+    public void testToDouble() {
+        assertEquals(3.0, JmxCollectionEngine.toDouble(3L), 0.0);
+        assertEquals(2.5, JmxCollectionEngine.toDouble(2.5f), 0.0);
+        assertEquals(7.0, JmxCollectionEngine.toDouble("7"), 0.0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testToDoubleWithNonNumericValue() {
+        JmxCollectionEngine.toDouble("not a number");
+    }
+
+    private static List<JmxAttributeData> createAttributes() {
+        List<JmxAttributeData> attributes = new ArrayList<JmxAttributeData>();
+        attributes.add(new JmxAttributeData("Int", "IntSample"));
+        attributes.add(new JmxAttributeData("Double", "DoubleSample"));
+        attributes.add(new JmxAttributeData("Long", "LongSample"));
+        return attributes;
+    }
+
+    private static void verify(Map<String, Collection<Object>> result, String key, double expectedValue) {
+        Collection<Object> objects = result.get(key);
+        assertNotNull(objects);
+        double value = 0.0;
+        for (Object obj : objects) {
+            value += JmxCollectionEngine.toDouble(obj);
+        }
+
+        assertEquals(expectedValue, value, 0.0);
+    }
+}
@@ -54,7 +54,7 @@ public class JmxDataFetcherTest {
         attributes.add(new JmxAttributeData("Int", "WrongNameIntSample"));
         attributes.add(new JmxAttributeData("Double", "WrongNameDoubleSample"));
         attributes.add(new JmxAttributeData("Long", "WrongNameLongSample"));
-        JmxDataFetcher.fetch("JSDKTests:type=TestStub3", attributes);
+        JmxCollectionEngine.INSTANCE.fetch("JSDKTests:type=TestStub3", attributes);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -65,7 +65,7 @@ public class JmxDataFetcherTest {
         server.registerMBean(testStub, mxbeanName);
         List<JmxAttributeData> attributes = new ArrayList<JmxAttributeData>();
         attributes.add(new JmxAttributeData("Int", "IntSample"));
-        JmxDataFetcher.fetch("JSDKTests:type=TestStub", attributes);
+        JmxCollectionEngine.INSTANCE.fetch("JSDKTests:type=TestStub", attributes);
     }
 
     @Test
@@ -94,7 +94,7 @@ public class JmxDataFetcherTest {
             double expectedInt,
             double expectedDouble,
             double expectedLong) throws Exception {
-        Map<String, Collection<Object>> result = JmxDataFetcher.fetch("JSDKTests:type=TestStub", attributes);
+        Map<String, Collection<Object>> result = JmxCollectionEngine.INSTANCE.fetch("JSDKTests:type=TestStub", attributes);
 
         assertNotNull(result);
         assertEquals(3, result.size());
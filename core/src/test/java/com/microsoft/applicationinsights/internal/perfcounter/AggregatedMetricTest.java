@@ -0,0 +1,88 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import com.microsoft.applicationinsights.internal.schemav2.DataPointType;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public final class AggregatedMetricTest {
+    @Test
+    public void testDrainWithoutSamples() {
+        assertNull(new AggregatedMetric().drain("metric"));
+    }
+
+    @Test
+    public void testDrain() {
+        AggregatedMetric metric = new AggregatedMetric();
+        metric.record(2.0);
+        metric.record(4.0);
+        metric.record(9.0);
+
+        MetricTelemetry telemetry = metric.drain("metric");
+
+        assertEquals("metric", telemetry.getName());
+        assertEquals(DataPointType.Aggregation, telemetry.getKind());
+        assertEquals(15.0, telemetry.getValue(), 0.0);
+        assertEquals(Integer.valueOf(3), telemetry.getCount());
+        assertEquals(2.0, telemetry.getMin(), 0.0);
+        assertEquals(9.0, telemetry.getMax(), 0.0);
+        assertEquals(Math.sqrt(26.0 / 3), telemetry.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testDrainStartsNewAggregation() {
+        AggregatedMetric metric = new AggregatedMetric();
+        metric.record(100.0);
+        metric.drain("metric");
+
+        assertEquals(0, metric.getCount());
+        assertNull(metric.drain("metric"));
+
+        metric.record(1.0);
+        MetricTelemetry telemetry = metric.drain("metric");
+        assertEquals(1.0, telemetry.getMin(), 0.0);
+        assertEquals(1.0, telemetry.getMax(), 0.0);
+    }
+
+    @Test
+    public void testMergeIsTheSameAsRecordingTheSamples() {
+        AggregatedMetric first = new AggregatedMetric();
+        first.record(2.0);
+        first.record(4.0);
+        AggregatedMetric second = new AggregatedMetric();
+        second.record(9.0);
+
+        AggregatedMetric merged = new AggregatedMetric();
+        merged.merge(first.drain("metric"));
+        merged.merge(second.drain("metric"));
+        MetricTelemetry telemetry = merged.drain("metric");
+
+        assertEquals(15.0, telemetry.getValue(), 0.0);
+        assertEquals(Integer.valueOf(3), telemetry.getCount());
+        assertEquals(2.0, telemetry.getMin(), 0.0);
+        assertEquals(9.0, telemetry.getMax(), 0.0);
+        assertEquals(Math.sqrt(26.0 / 3), telemetry.getStandardDeviation(), 1e-9);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public final class LatencyHistogramTest {
+    @Test
+    public void testEmptySnapshot() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().drain();
+
+        assertEquals(0, snapshot.getTotalCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; ++i) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.drain();
+        assertEquals(20, snapshot.getTotalCount());
+        assertEquals(210, snapshot.getSum());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(20, snapshot.getMax());
+        assertEquals(10, snapshot.getValueAtPercentile(50));
+        assertEquals(19, snapshot.getValueAtPercentile(95));
+        assertEquals(20, snapshot.getValueAtPercentile(100));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testLargeValuesAreWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; ++i) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.drain();
+        assertWithinPrecision(5000, snapshot.getValueAtPercentile(50));
+        assertWithinPrecision(9900, snapshot.getValueAtPercentile(99));
+        assertEquals(10000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (long value = 0; value < 1000000; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void testValuesAboveRangeAreCapped() {
+        LatencyHistogram histogram = new LatencyHistogram(10);
+        histogram.record(5000);
+        histogram.record(-3);
+
+        LatencyHistogram.Snapshot snapshot = histogram.drain();
+        assertEquals(2, snapshot.getTotalCount());
+        assertEquals(5000, snapshot.getMax());
+        assertEquals(0, snapshot.getMin());
+        assertWithinPrecision(histogram.getHighestTrackableValue(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testDrainResets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.drain();
+        histogram.record(3);
+
+        LatencyHistogram.Snapshot snapshot = histogram.drain();
+        assertEquals(1, snapshot.getTotalCount());
+        assertEquals(3, snapshot.getMax());
+    }
+
+    @Test
+    public void testConcurrentRecordingIsNotLost() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int perThread = 50000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; ++t) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; ++i) {
+                        histogram.record(i % 500);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        AtomicLong total = new AtomicLong();
+        while (done.getCount() > 0) {
+            total.addAndGet(histogram.drain().getTotalCount());
+        }
+        done.await();
+        total.addAndGet(histogram.drain().getTotalCount());
+
+        assertEquals(threads * perThread, total.get());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 32 + 1);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public final class ProcFsSamplerTest {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void testMemInfo() {
+        ProcFsSampler sampler = new ProcFsSampler();
+        sampler.load(("MemTotal:        3973736 kB\n" +
+                "MemFree:          431064 kB\n" +
+                "MemAvailable:    1431064 kB\n" +
+                "Buffers:           46604 kB\n" +
+                "Cached:           494648 kB\n" +
+                "SwapCached:           12 kB\n").getBytes(ASCII));
+
+        assertEquals(431064, sampler.getValue("MemFree:"));
+        assertEquals(46604, sampler.getValue("Buffers:"));
+        assertEquals(494648, sampler.getValue("Cached:"));
+        assertEquals(ProcFsSampler.NOT_FOUND, sampler.getValue("HugePages_Total:"));
+    }
+
+    @Test
+    public void testProcessIO() {
+        ProcFsSampler sampler = new ProcFsSampler();
+        sampler.load(("rchar: 3936\n" +
+                "wchar: 1120\n" +
+                "read_bytes: 8192\n" +
+                "write_bytes: 4096\n" +
+                "cancelled_write_bytes: 0").getBytes(ASCII));
+
+        assertEquals(8192, sampler.getValue("read_bytes:"));
+        assertEquals(4096, sampler.getValue("write_bytes:"));
+        assertEquals(0, sampler.getValue("cancelled_write_bytes:"));
+    }
+
+    @Test
+    public void testKeyMustMatchWholeToken() {
+        ProcFsSampler sampler = new ProcFsSampler();
+        sampler.load(("nr_throttled 12\n" +
+                "throttled_usec_total 99\n" +
+                "throttled_usec 3400\n").getBytes(ASCII));
+
+        assertEquals(3400, sampler.getValue("throttled_usec"));
+        assertEquals(ProcFsSampler.NOT_FOUND, sampler.getValue("throttled"));
+    }
+
+    @Test
+    public void testFirstLineValues() {
+        ProcFsSampler sampler = new ProcFsSampler();
+        sampler.load(("cpu  10132153 290696 3084719 46828483 16683 0 25195 0 0 0\n" +
+                "cpu0 1393280 32966 572056 13343292 6130 0 17875 0 0 0\n").getBytes(ASCII));
+
+        long[] values = new long[16];
+        assertEquals(10, sampler.getFirstLineValues(values));
+        assertEquals(10132153, values[0]);
+        assertEquals(46828483, values[3]);
+        assertEquals(0, values[9]);
+    }
+
+    @Test
+    public void testSingleValue() {
+        ProcFsSampler sampler = new ProcFsSampler(64);
+        sampler.load("536870912\n".getBytes(ASCII));
+        assertEquals(536870912, sampler.getSingleValue());
+
+        sampler.load("max\n".getBytes(ASCII));
+        assertEquals(ProcFsSampler.NOT_FOUND, sampler.getSingleValue());
+    }
+
+    @Test
+    public void testReadReusesBuffer() throws Exception {
+        File file = File.createTempFile("procfs", ".txt");
+        try {
+            write(file, "read_bytes: 100\nwrite_bytes: 200\n");
+            ProcFsSampler sampler = new ProcFsSampler();
+            sampler.read(file);
+            assertEquals(200, sampler.getValue("write_bytes:"));
+
+            write(file, "read_bytes: 1\n");
+            sampler.read(file);
+            assertEquals(1, sampler.getValue("read_bytes:"));
+            assertEquals(ProcFsSampler.NOT_FOUND, sampler.getValue("write_bytes:"));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testDetectCGroupV2() throws Exception {
+        File root = java.nio.file.Files.createTempDirectory("cgroup").toFile();
+        File controllers = new File(root, "cgroup.controllers");
+        try {
+            write(controllers, "cpu memory\n");
+
+            ContainerCGroup cgroup = ContainerCGroup.detect(root);
+            assertNotNull(cgroup);
+            assertEquals(new File(root, "cpu.stat"), cgroup.getCpuStatFile());
+            assertEquals(new File(root, "memory.max"), cgroup.getMemoryLimitFile());
+        } finally {
+            assertTrue(controllers.delete());
+            assertTrue(root.delete());
+        }
+    }
+
+    @Test
+    public void testNoCGroup() throws Exception {
+        File root = java.nio.file.Files.createTempDirectory("cgroup").toFile();
+        try {
+            assertNull(ContainerCGroup.detect(root));
+        } finally {
+            assertTrue(root.delete());
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(content.getBytes(ASCII));
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -23,38 +23,43 @@ package com.microsoft.applicationinsights.internal.perfcounter;
 
 import org.junit.Test;
 
-import static org.junit.Assert.*;
+import static org.junit.Assert.assertEquals;
 
-public final class UnixProcessIOtParserTest {
+public final class SampleRingBufferTest {
     @Test
-    public void testProcess() {
-        UnixProcessIOtParser parser = new UnixProcessIOtParser();
+    public void testDrainAggregatesSamples() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.add(3.0);
+        buffer.add(1.0);
+        buffer.add(5.0);
 
-        parser.process("rchar: 1661777");
-        assertFalse(parser.done());
-
-        parser.process("wchar: 7431");
-        assertFalse(parser.done());
-
-        parser.process("syscr: 1240");
-        assertFalse(parser.done());
-
-        parser.process("syscw: 123");
-        assertFalse(parser.done());
+        assertEquals(3, buffer.drain());
+        assertEquals(3, buffer.getCount());
+        assertEquals(9.0, buffer.getSum(), 0.0);
+        assertEquals(3.0, buffer.getAverage(), 0.0);
+        assertEquals(1.0, buffer.getMin(), 0.0);
+        assertEquals(5.0, buffer.getMax(), 0.0);
+    }
 
-        parser.process("read_bytes: 7335936");
-        assertFalse(parser.done());
+    @Test
+    public void testDrainEmptiesBuffer() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.add(3.0);
+        buffer.drain();
 
-        parser.process("write_bytes: 12288");
-        assertTrue(parser.done());
-        assertEquals(7335936 + 12288, parser.getValue(), 0.0);
+        assertEquals(0, buffer.drain());
+        assertEquals(0.0, buffer.getAverage(), 0.0);
+    }
 
-        parser.process("cancelled_write_bytes: 0");
-        assertTrue(parser.done());
-        assertEquals(7335936 + 12288, parser.getValue(), 0.0);
+    @Test
+    public void testOldestSamplesAreOverwritten() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        buffer.add(100.0);
+        buffer.add(1.0);
+        buffer.add(2.0);
 
-        parser.process("write_bytes: 12288");
-        assertTrue(parser.done());
-        assertEquals(7335936 + 12288, parser.getValue(), 0.0);
+        assertEquals(2, buffer.drain());
+        assertEquals(3.0, buffer.getSum(), 0.0);
+        assertEquals(2.0, buffer.getMax(), 0.0);
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class SamplingTelemetryClientTest {
+    private final List<Telemetry> sent = new ArrayList<Telemetry>();
+
+    private SamplingTelemetryClient client;
+
+    @Before
+    public void setUp() {
+        TelemetryConfiguration configuration = new TelemetryConfiguration();
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000000");
+        client = new SamplingTelemetryClient(new TelemetryClient(configuration) {
+            @Override
+            public void track(Telemetry telemetry) {
+                sent.add(telemetry);
+            }
+        }, 4);
+    }
+
+    @Test
+    public void testSamplesAreSentPerNameAndProperties() {
+        client.track(metric("Lock Contention", "Lock", "a", 1.0));
+        client.track(metric("Lock Contention", "Lock", "a", 3.0));
+        client.track(metric("Lock Contention", "Lock", "b", 5.0));
+        assertTrue(sent.isEmpty());
+
+        client.export();
+
+        assertEquals(2, sent.size());
+        for (Telemetry telemetry : sent) {
+            MetricTelemetry metric = (MetricTelemetry) telemetry;
+            if (metric.getProperties().get("Lock").equals("a")) {
+                assertEquals(Integer.valueOf(2), metric.getCount());
+                assertEquals(4.0, metric.getValue(), 0.0);
+            } else {
+                assertEquals(Integer.valueOf(1), metric.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testAggregatedMetricsAreMergedUntilExport() {
+        for (int i = 0; i < 3; ++i) {
+            AggregatedMetric aggregated = new AggregatedMetric();
+            aggregated.record(i);
+            aggregated.record(10.0);
+            client.track(aggregated.drain("GC Pause Time (ms)"));
+        }
+        assertTrue(sent.isEmpty());
+
+        client.export();
+
+        assertEquals(1, sent.size());
+        MetricTelemetry metric = (MetricTelemetry) sent.get(0);
+        assertEquals(Integer.valueOf(6), metric.getCount());
+        assertEquals(33.0, metric.getValue(), 0.0);
+        assertEquals(0.0, metric.getMin(), 0.0);
+        assertEquals(10.0, metric.getMax(), 0.0);
+    }
+
+    @Test
+    public void testIdleSeriesAreDropped() {
+        client.track(metric("metric", "Lock", "a", 1.0));
+        client.export();
+        assertEquals(1, client.getSeriesCount());
+
+        client.export();
+
+        assertEquals(0, client.getSeriesCount());
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void testSeriesAreCapped() {
+        for (int i = 0; i <= SamplingTelemetryClient.MAX_SERIES; ++i) {
+            client.track(metric("metric", "Lock", String.valueOf(i), 1.0));
+        }
+
+        assertEquals(SamplingTelemetryClient.MAX_SERIES, client.getSeriesCount());
+    }
+
+    private static MetricTelemetry metric(String name, String propertyName, String propertyValue, double value) {
+        MetricTelemetry metric = new MetricTelemetry(name, value);
+        metric.getProperties().put(propertyName, propertyValue);
+        return metric;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter.jvm;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public final class GCNotificationPerformanceCounterTest {
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void testPauseTimesAreAggregatedPerCollector() {
+        GCNotificationPerformanceCounter pc = new GCNotificationPerformanceCounter(false);
+        for (int i = 1; i <= 100; ++i) {
+            pc.record("G1 Young Generation", "end of minor GC", i, usage("G1 Eden Space", 0), usage("G1 Eden Space", 0));
+        }
+        pc.record("G1 Old Generation", "end of major GC", 500, usage("G1 Old Gen", 0), usage("G1 Old Gen", 0));
+
+        Map<String, MetricTelemetry> metrics = report(pc);
+
+        MetricTelemetry youngPauses = metrics.get("GC Pause Time (ms)|G1 Young Generation");
+        assertEquals(Integer.valueOf(100), youngPauses.getCount());
+        assertEquals(1.0, youngPauses.getMin(), 0.0);
+        assertEquals(100.0, youngPauses.getMax(), 0.0);
+        assertEquals(99.0, metrics.get("GC Pause Time P99 (ms)|G1 Young Generation").getValue(), 0.0);
+        assertEquals(500.0, metrics.get("GC Pause Time (ms)|G1 Old Generation").getMax(), 0.0);
+    }
+
+    @Test
+    public void testAllocationAndPromotion() {
+        GCNotificationPerformanceCounter pc = new GCNotificationPerformanceCounter(false);
+
+        Map<String, MemoryUsage> before = usage("PS Eden Space", 100 * MB);
+        before.putAll(usage("PS Old Gen", 10 * MB));
+        Map<String, MemoryUsage> after = usage("PS Eden Space", 0);
+        after.putAll(usage("PS Old Gen", 30 * MB));
+        pc.record("PS Scavenge", "end of minor GC", 5, before, after);
+
+        before = usage("PS Eden Space", 50 * MB);
+        before.putAll(usage("PS Old Gen", 30 * MB));
+        after = usage("PS Eden Space", 0);
+        after.putAll(usage("PS Old Gen", 5 * MB));
+        pc.record("PS MarkSweep", "end of major GC", 50, before, after);
+
+        Map<String, MetricTelemetry> metrics = report(pc);
+
+        assertTrue(metrics.get("GC Allocation Rate (MB/sec)").getValue() > 0.0);
+        assertTrue(metrics.get("GC Promotion Rate (MB/sec)").getValue() > 0.0);
+        MetricTelemetry oldGen = metrics.get("GC Memory Pool Used After GC (MB)|PS Old Gen");
+        assertEquals(5.0, oldGen.getMin(), 0.0);
+        assertEquals(30.0, oldGen.getMax(), 0.0);
+    }
+
+    @Test
+    public void testNothingIsSentForCollectorsWithoutCollections() {
+        GCNotificationPerformanceCounter pc = new GCNotificationPerformanceCounter(false);
+        pc.record("Copy", "end of minor GC", 3, usage("Eden Space", 0), usage("Eden Space", 0));
+        report(pc);
+
+        Map<String, MetricTelemetry> metrics = report(pc);
+
+        assertNull(metrics.get("GC Pause Time (ms)|Copy"));
+        assertNull(metrics.get("GC Memory Pool Used After GC (MB)|Eden Space"));
+        assertEquals(0.0, metrics.get("GC Allocation Rate (MB/sec)").getValue(), 0.0);
+    }
+
+    @Test
+    public void testConcurrentCyclesAreNotPauses() {
+        GCNotificationPerformanceCounter pc = new GCNotificationPerformanceCounter(false);
+        pc.record("G1 Concurrent GC", "end of concurrent GC pause", 400, usage("G1 Old Gen", 20 * MB), usage("G1 Old Gen", 10 * MB));
+        pc.record("ZGC Cycles", "end of GC cycle", 300, usage("ZHeap", 20 * MB), usage("ZHeap", 10 * MB));
+        pc.record("ZGC Pauses", "end of GC pause", 1, usage("ZHeap", 0), usage("ZHeap", 0));
+
+        Map<String, MetricTelemetry> metrics = report(pc);
+
+        assertNull(metrics.get("GC Pause Time (ms)|G1 Concurrent GC"));
+        assertNull(metrics.get("GC Pause Time (ms)|ZGC Cycles"));
+        assertEquals(1.0, metrics.get("GC Pause Time (ms)|ZGC Pauses").getMax(), 0.0);
+        assertEquals(10.0, metrics.get("GC Memory Pool Used After GC (MB)|G1 Old Gen").getMax(), 0.0);
+    }
+
+    @Test
+    public void testIsConcurrentCycle() {
+        assertTrue(GCNotificationPerformanceCounter.isConcurrentCycle("ConcurrentMarkSweep", "end of major GC"));
+        assertTrue(GCNotificationPerformanceCounter.isConcurrentCycle("Shenandoah Cycles", "end of GC cycle"));
+        assertFalse(GCNotificationPerformanceCounter.isConcurrentCycle("Shenandoah Pauses", "end of GC pause"));
+        assertFalse(GCNotificationPerformanceCounter.isConcurrentCycle("G1 Old Generation", "end of major GC"));
+    }
+
+    @Test
+    public void testStopRemovesListeners() throws Exception {
+        GCNotificationPerformanceCounter pc = new GCNotificationPerformanceCounter();
+        pc.stop(1, TimeUnit.SECONDS);
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) gc).removeNotificationListener(pc);
+                    fail("Listener is still registered on " + gc.getName());
+                } catch (ListenerNotFoundException e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    private static Map<String, MetricTelemetry> report(GCNotificationPerformanceCounter pc) {
+        TelemetryClient telemetryClient = mock(TelemetryClient.class);
+        pc.report(telemetryClient);
+
+        ArgumentCaptor<Telemetry> captor = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryClient, atLeastOnce()).track(captor.capture());
+
+        Map<String, MetricTelemetry> metrics = new HashMap<String, MetricTelemetry>();
+        List<Telemetry> tracked = captor.getAllValues();
+        for (Telemetry telemetry : tracked) {
+            MetricTelemetry metric = (MetricTelemetry) telemetry;
+            String dimension = metric.getProperties().get("Collector");
+            if (dimension == null) {
+                dimension = metric.getProperties().get("Memory Pool");
+            }
+            metrics.put(dimension == null ? metric.getName() : metric.getName() + "|" + dimension, metric);
+        }
+        return metrics;
+    }
+
+    private static Map<String, MemoryUsage> usage(String pool, long used) {
+        Map<String, MemoryUsage> usage = new HashMap<String, MemoryUsage>();
+        usage.put(pool, new MemoryUsage(0, used, Math.max(used, 1), -1));
+        return usage;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.internal.perfcounter.jvm;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public final class ThreadContentionPerformanceCounterTest {
+    private final Object monitor = new Object();
+
+    @Test
+    public void testDeadLockScanIsSkippedWithoutContention() {
+        ThreadMXBean deadLockBean = mock(ThreadMXBean.class);
+        ThreadContentionPerformanceCounter pc = new ThreadContentionPerformanceCounter(
+                ManagementFactory.getThreadMXBean(), new DeadLockDetectorPerformanceCounter(deadLockBean));
+
+        List<Telemetry> items = report(pc);
+
+        verify(deadLockBean, never()).findDeadlockedThreads();
+        assertEquals(0.0, find(items, "Suspected Deadlocked Threads").getValue(), 0.0);
+    }
+
+    @Test
+    public void testContendedMonitorIsReported() throws Exception {
+        ThreadMXBean deadLockBean = mock(ThreadMXBean.class);
+        ThreadContentionPerformanceCounter pc = new ThreadContentionPerformanceCounter(
+                ManagementFactory.getThreadMXBean(), new DeadLockDetectorPerformanceCounter(deadLockBean));
+
+        Thread thread;
+        List<Telemetry> items;
+        synchronized (monitor) {
+            final CountDownLatch started = new CountDownLatch(1);
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    synchronized (monitor) {
+                        monitor.notifyAll();
+                    }
+                }
+            });
+            thread.start();
+            started.await();
+            while (thread.getState() != Thread.State.BLOCKED) {
+                Thread.sleep(10);
+            }
+
+            items = report(pc);
+        }
+        thread.join();
+
+        verify(deadLockBean).findDeadlockedThreads();
+        assertTrue(find(items, "Blocked Threads").getValue() >= 1.0);
+
+        String lockName = monitor.getClass().getName();
+        MetricTelemetry lock = null;
+        for (Telemetry item : items) {
+            if (item instanceof MetricTelemetry && lockName.equals(item.getProperties().get("Lock"))) {
+                lock = (MetricTelemetry) item;
+            }
+        }
+        assertNotNull(lock);
+        assertEquals("Lock Waiting Threads", lock.getName());
+        assertEquals(1.0, lock.getValue(), 0.0);
+        assertTrue(lock.getProperties().get("Top Frame").contains(ThreadContentionPerformanceCounterTest.class.getName()));
+        assertNotNull(lock.getProperties().get("Stack Fingerprint"));
+    }
+
+    @Test
+    public void testStacksAreOnlyTakenForContendedThreads() {
+        ThreadInfo waiting = mock(ThreadInfo.class);
+        when(waiting.getThreadState()).thenReturn(Thread.State.WAITING);
+        ThreadMXBean threadBean = mock(ThreadMXBean.class);
+        when(threadBean.getAllThreadIds()).thenReturn(new long[] {1});
+        when(threadBean.getThreadInfo(any(long[].class), eq(0))).thenReturn(new ThreadInfo[] {waiting});
+
+        List<Telemetry> items = report(new ThreadContentionPerformanceCounter(threadBean, null));
+
+        assertEquals(1.0, find(items, "Waiting Threads").getValue(), 0.0);
+        // a single call without stack traces, since no thread waits for a lock owned by another thread
+        verify(threadBean, times(1)).getThreadInfo(any(long[].class), anyInt());
+        verify(threadBean).getThreadInfo(any(long[].class), eq(0));
+    }
+
+    @Test
+    public void testNoDeadLockDetector() {
+        ThreadContentionPerformanceCounter pc = new ThreadContentionPerformanceCounter(null);
+
+        List<Telemetry> items = report(pc);
+
+        assertNotNull(find(items, "Waiting Threads"));
+        assertNull(find(items, "Suspected Deadlocked Threads"));
+    }
+
+    private static List<Telemetry> report(ThreadContentionPerformanceCounter pc) {
+        TelemetryClient telemetryClient = mock(TelemetryClient.class);
+        pc.report(telemetryClient);
+
+        ArgumentCaptor<Telemetry> captor = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryClient, atLeastOnce()).track(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static MetricTelemetry find(List<Telemetry> items, String name) {
+        for (Telemetry item : items) {
+            if (item instanceof MetricTelemetry && name.equals(((MetricTelemetry) item).getName())) {
+                return (MetricTelemetry) item;
+            }
+        }
+        return null;
+    }
+}
@@ -55,4 +55,29 @@ public class ContextTagsMapTests {
         assertEquals(customValue, map.get(customKey));
     }
 
+    @Test
+    public void versionCountsConcurrentModifications() throws InterruptedException {
+        final int modificationsPerThread = 10000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final String key = "key" + i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < modificationsPerThread; j++) {
+                        map.put(key, String.valueOf(j));
+                    }
+                }
+            });
+        }
+        int initialVersion = map.getVersion();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(initialVersion + threads.length * modificationsPerThread, map.getVersion());
+    }
 }
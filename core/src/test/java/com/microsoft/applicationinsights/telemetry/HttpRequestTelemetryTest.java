@@ -21,11 +21,15 @@
 
 package com.microsoft.applicationinsights.telemetry;
 
+import java.io.StringWriter;
+import java.net.MalformedURLException;
 import java.util.Date;
 import org.junit.Test;
 import org.apache.http.HttpStatus;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public final class HttpRequestTelemetryTest {
@@ -61,4 +65,91 @@ public final class HttpRequestTelemetryTest {
         // TODO FIXME ummm....400 is success? or should the test be named setCodeDoesNotUpdateSuccessState?
         assertTrue(requestTelemetry.isSuccess());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDeferredFieldsAreBuiltOnlyWhenRead() throws MalformedURLException {
+        CountingDeferredFields fields = new CountingDeferredFields("GET /a", "http://host/a?b=c");
+        RequestTelemetry requestTelemetry = new RequestTelemetry();
+        requestTelemetry.setDeferredFields(fields);
+        requestTelemetry.setResponseCode("404");
+        requestTelemetry.getDuration();
+
+        assertEquals(0, fields.nameCalls);
+        assertEquals(0, fields.urlCalls);
+
+        assertEquals("GET /a", requestTelemetry.getName());
+        assertEquals("GET /a", requestTelemetry.getName());
+        assertEquals(1, fields.nameCalls);
+        assertEquals(0, fields.urlCalls);
+
+        assertEquals("http://host/a?b=c", requestTelemetry.getUrl().toString());
+        assertEquals("http://host/a?b=c", requestTelemetry.getUrlString());
+        assertEquals(1, fields.urlCalls);
+    }
+
+    @Test
+    public void testExplicitValuesOverrideDeferredFields() throws MalformedURLException {
+        CountingDeferredFields fields = new CountingDeferredFields("GET /a", "http://host/a");
+        RequestTelemetry requestTelemetry = new RequestTelemetry();
+        requestTelemetry.setDeferredFields(fields);
+        requestTelemetry.setAllowAgentToOverrideName(true);
+
+        requestTelemetry.setName("Custom");
+        requestTelemetry.setUrl("http://other/b");
+
+        assertEquals("Custom", requestTelemetry.getName());
+        assertEquals("http://other/b", requestTelemetry.getUrlString());
+        assertFalse(requestTelemetry.isAllowAgentToOverrideName());
+        assertEquals(0, fields.nameCalls);
+        assertEquals(0, fields.urlCalls);
+    }
+
+    @Test
+    public void testDeferredFieldsAreSerialized() throws Exception {
+        RequestTelemetry requestTelemetry = new RequestTelemetry();
+        requestTelemetry.setDeferredFields(new CountingDeferredFields("GET /a", "http://host/a"));
+        requestTelemetry.getContext().setInstrumentationKey("00000000-0000-0000-0000-000000000000");
+
+        StringWriter writer = new StringWriter();
+        JsonTelemetryDataSerializer serializer = new JsonTelemetryDataSerializer(writer);
+        requestTelemetry.serialize(serializer);
+        serializer.close();
+
+        String json = writer.toString();
+        assertTrue(json.contains("\"name\":\"GET /a\""));
+        assertTrue(json.contains("\"url\":\"http://host/a\""));
+    }
+
+    @Test
+    public void testMalformedDeferredUrlIsDropped() throws MalformedURLException {
+        RequestTelemetry requestTelemetry = new RequestTelemetry();
+        requestTelemetry.setDeferredFields(new CountingDeferredFields("GET /a", "not a url"));
+
+        assertNull(requestTelemetry.getUrl());
+        assertEquals("GET /a", requestTelemetry.getName());
+    }
+
+    private static final class CountingDeferredFields implements RequestTelemetry.DeferredFields {
+        private final String name;
+        private final String url;
+        int nameCalls;
+        int urlCalls;
+
+        CountingDeferredFields(String name, String url) {
+            this.name = name;
+            this.url = url;
+        }
+
+        @Override
+        public String buildName() {
+            ++nameCalls;
+            return name;
+        }
+
+        @Override
+        public String buildUrl() {
+            ++urlCalls;
+            return url;
+        }
+    }
+}
@@ -21,9 +21,11 @@
 
 package com.microsoft.applicationinsights.telemetry;
 
+import com.microsoft.applicationinsights.extensibility.context.ContextTagKeys;
 import org.junit.Assert;
 import org.junit.Test;
 
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
@@ -72,4 +74,43 @@ public final class TelemetryContextTest {
 
         Assert.assertEquals(TEST_IKEY, contextToInitialize.getInstrumentationKey());
     }
+
+    @Test
+    public void testSnapshotTagsAreAppliedIfAbsent() {
+        TelemetryContext source = new TelemetryContext();
+        source.getSession().setId("session");
+        source.getUser().setId("user");
+        source.getUser().setUserAgent("agent");
+
+        ContextTagsSnapshot snapshot = source.snapshotTags(source.getTags().keySet().iterator().next(), "notSet");
+        assertEquals(1, snapshot.size());
+
+        snapshot = source.snapshotTags(ContextTagKeys.getKeys().getSessionId(), ContextTagKeys.getKeys().getUserId());
+        TelemetryContext target = new TelemetryContext();
+        target.getUser().setId("other user");
+        target.putTagsIfAbsent(snapshot);
+
+        assertEquals("session", target.getSession().getId());
+        assertEquals("other user", target.getUser().getId());
+        assertNull(target.getUser().getUserAgent());
+    }
+
+    @Test
+    public void testTagsVersionChangesOnlyWhenTagsChange() {
+        TelemetryContext context = new TelemetryContext();
+        int version = context.getTagsVersion();
+
+        context.getSession().setId(null);
+        assertEquals(version, context.getTagsVersion());
+
+        context.getSession().setId("session");
+        assertNotEquals(version, context.getTagsVersion());
+
+        version = context.getTagsVersion();
+        context.putTagsIfAbsent(context.snapshotTags(ContextTagKeys.getKeys().getSessionId()));
+        assertEquals(version, context.getTagsVersion());
+
+        context.getSession().setId(null);
+        assertNotEquals(version, context.getTagsVersion());
+    }
 }
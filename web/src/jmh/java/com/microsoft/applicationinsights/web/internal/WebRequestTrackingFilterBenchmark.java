@@ -0,0 +1,456 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.internal.perfcounter.LatencyHistogram;
+import com.microsoft.applicationinsights.internal.util.PropertyHelper;
+import com.microsoft.applicationinsights.test.fakeingestion.MockedAppInsightsIngestionServer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+
+/**
+ * Measures the per-request cost of {@link WebRequestTrackingFilter} in an embedded Jetty.
+ *
+ * The same trivial servlet is served without the filter and then with it, while a keep-alive load generator runs
+ * a closed loop at each of the requested concurrency levels. The telemetry is sent to the standalone fake ingestion,
+ * so the cost of the channel is part of the measurement.
+ *
+ * For each run the latency percentiles, the throughput and the bytes allocated per request by every thread other
+ * than the load generator are reported, along with the difference between the two modes. The highest throughput
+ * reached is the max sustainable RPS. The results are written as JSON so they can be compared between releases.
+ *
+ * Run with: gradlew :web:filterBenchmark [-PfilterBenchmarkArgs='duration=10 warmup=5 concurrency=1,4,16,64 output=results.json']
+ */
+public class WebRequestTrackingFilterBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] REQUEST = ("GET /benchmark HTTP/1.1\r\nHost: localhost\r\nUser-Agent: filter-benchmark\r\n\r\n").getBytes(UTF_8);
+
+    private static final byte[] RESPONSE_BODY = "ok".getBytes(UTF_8);
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public static class BenchmarkServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.setContentLength(RESPONSE_BODY.length);
+            resp.getOutputStream().write(RESPONSE_BODY);
+        }
+    }
+
+    static final class RunResult {
+        final int concurrency;
+        final long requests;
+        final long errors;
+        final double requestsPerSecond;
+        final double allocatedBytesPerRequest;
+        final LatencyHistogram.Snapshot latencies;
+
+        RunResult(int concurrency, long requests, long errors, double requestsPerSecond, double allocatedBytesPerRequest, LatencyHistogram.Snapshot latencies) {
+            this.concurrency = concurrency;
+            this.requests = requests;
+            this.errors = errors;
+            this.requestsPerSecond = requestsPerSecond;
+            this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+            this.latencies = latencies;
+        }
+    }
+
+    private final int durationInSeconds;
+    private final int warmupInSeconds;
+    private final int[] concurrencyLevels;
+
+    WebRequestTrackingFilterBenchmark(int durationInSeconds, int warmupInSeconds, int[] concurrencyLevels) {
+        this.durationInSeconds = durationInSeconds;
+        this.warmupInSeconds = warmupInSeconds;
+        this.concurrencyLevels = concurrencyLevels;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+
+        int duration = Integer.parseInt(getOption(options, "duration", "10"));
+        int warmup = Integer.parseInt(getOption(options, "warmup", "5"));
+        String[] levels = getOption(options, "concurrency", "1,4,16,64").split(",");
+        int[] concurrencyLevels = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            concurrencyLevels[i] = Integer.parseInt(levels[i].trim());
+        }
+        File output = new File(getOption(options, "output", "build/reports/filter-benchmark/results.json"));
+
+        MockedAppInsightsIngestionServer ingestion = new MockedAppInsightsIngestionServer();
+        ingestion.startServer();
+        try {
+            TelemetryConfiguration configuration = TelemetryConfiguration.getActive();
+            configuration.setConnectionString("InstrumentationKey=00000000-0000-0000-0000-0000000000ff;IngestionEndpoint=http://localhost:"
+                + ingestion.getPort() + "/");
+
+            WebRequestTrackingFilterBenchmark benchmark = new WebRequestTrackingFilterBenchmark(duration, warmup, concurrencyLevels);
+            List<RunResult> baseline = benchmark.runAll(false, ingestion);
+            List<RunResult> filtered = benchmark.runAll(true, ingestion);
+
+            File parent = output.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Cannot create " + parent);
+            }
+            Writer writer = new OutputStreamWriter(new FileOutputStream(output), UTF_8);
+            try {
+                writer.write(toJson(benchmark, baseline, filtered));
+            } finally {
+                writer.close();
+            }
+            System.out.println("Results written to " + output.getAbsolutePath());
+        } finally {
+            ingestion.stopServer();
+        }
+    }
+
+    private static String getOption(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    List<RunResult> runAll(boolean withFilter, MockedAppInsightsIngestionServer ingestion) throws Exception {
+        Server server = startServer(withFilter);
+        try {
+            int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+            String mode = withFilter ? "filter" : "baseline";
+
+            System.out.printf("[%s] warming up for %ds%n", mode, warmupInSeconds);
+            run(port, concurrencyLevels[concurrencyLevels.length - 1], warmupInSeconds);
+
+            List<RunResult> results = new ArrayList<RunResult>();
+            for (int concurrency : concurrencyLevels) {
+                ingestion.resetData();
+                RunResult result = run(port, concurrency, durationInSeconds);
+                results.add(result);
+                System.out.printf("[%s] concurrency=%d rps=%.0f p50=%dus p99=%dus bytes/request=%.0f errors=%d%n", mode, concurrency,
+                    result.requestsPerSecond, result.latencies.getValueAtPercentile(50), result.latencies.getValueAtPercentile(99),
+                    result.allocatedBytesPerRequest, result.errors);
+            }
+            return results;
+        } finally {
+            server.stop();
+            server.join();
+        }
+    }
+
+    private static Server startServer(boolean withFilter) throws Exception {
+        Server server = new Server(new InetSocketAddress("localhost", 0));
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.addServlet(BenchmarkServlet.class, "/*");
+        if (withFilter) {
+            context.addFilter(WebRequestTrackingFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
+        }
+        server.setHandler(context);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Runs a closed loop: each client thread sends its next request as soon as it got the previous response.
+     */
+    RunResult run(final int port, int concurrency, int seconds) throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(30);
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] deadline = new long[1];
+
+        List<Thread> clients = new ArrayList<Thread>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread client = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        Socket socket = null;
+                        while (System.nanoTime() < deadline[0]) {
+                            try {
+                                if (socket == null) {
+                                    socket = new Socket("localhost", port);
+                                    socket.setTcpNoDelay(true);
+                                }
+                                long startNanos = System.nanoTime();
+                                sendRequest(socket);
+                                histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+                            } catch (IOException e) {
+                                errors.incrementAndGet();
+                                closeQuietly(socket);
+                                socket = null;
+                            }
+                        }
+                        closeQuietly(socket);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "filter-benchmark-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+        }
+
+        Map<Long, Long> allocatedBefore = getAllocatedBytes();
+        long startNanos = System.nanoTime();
+        deadline[0] = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocated = getAllocatedBytesSince(allocatedBefore);
+
+        LatencyHistogram.Snapshot latencies = histogram.drain();
+        long requests = latencies.getTotalCount();
+        double requestsPerSecond = requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        double bytesPerRequest = allocated < 0 || requests == 0 ? -1 : (double) allocated / requests;
+        return new RunResult(concurrency, requests, errors.get(), requestsPerSecond, bytesPerRequest, latencies);
+    }
+
+    private static void sendRequest(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(REQUEST);
+        out.flush();
+
+        // the servlet sets the content length, so the response is the headers followed by that many bytes
+        InputStream in = socket.getInputStream();
+        int contentLength = -1;
+        StringBuilder line = new StringBuilder();
+        boolean statusLine = true;
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                throw new IOException("connection closed by the server");
+            }
+            if (c == '\r') {
+                continue;
+            }
+            if (c != '\n') {
+                line.append((char) c);
+                continue;
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            if (statusLine) {
+                if (line.indexOf(" 200 ") < 0) {
+                    throw new IOException("unexpected response: " + line);
+                }
+                statusLine = false;
+            } else if (line.length() > 15 && line.substring(0, 15).equalsIgnoreCase("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+            line.setLength(0);
+        }
+        if (contentLength < 0) {
+            throw new IOException("response without content length");
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() < 0) {
+                throw new IOException("connection closed by the server");
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // chomp
+        }
+    }
+
+    /**
+     * The client threads have exited when this is called, so the bytes they allocated are not counted.
+     */
+    private static long getAllocatedBytesSince(Map<Long, Long> before) {
+        Map<Long, Long> after = getAllocatedBytes();
+        if (after == null || before == null) {
+            return -1;
+        }
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : after.entrySet()) {
+            Long previous = before.get(entry.getKey());
+            total += entry.getValue() - (previous == null ? 0 : previous);
+        }
+        return total;
+    }
+
+    private static Map<Long, Long> getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+
+        long[] ids = allocationBean.getAllThreadIds();
+        long[] bytes = allocationBean.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<Long, Long>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+
+    static String toJson(WebRequestTrackingFilterBenchmark benchmark, List<RunResult> baseline, List<RunResult> filtered) {
+        Map<String, Object> environment = new LinkedHashMap<String, Object>();
+        environment.put("sdkVersion", PropertyHelper.getSdkVersionNumber());
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("javaVmName", System.getProperty("java.vm.name"));
+        environment.put("osName", System.getProperty("os.name"));
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("durationInSeconds", benchmark.durationInSeconds);
+        environment.put("warmupInSeconds", benchmark.warmupInSeconds);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"environment\": ");
+        appendObject(sb, environment);
+        sb.append(",\n  \"baseline\": ");
+        appendRuns(sb, baseline);
+        sb.append(",\n  \"filter\": ");
+        appendRuns(sb, filtered);
+
+        sb.append(",\n  \"overhead\": [");
+        double maxBaseline = 0;
+        double maxFiltered = 0;
+        for (int i = 0; i < baseline.size(); i++) {
+            RunResult b = baseline.get(i);
+            RunResult f = filtered.get(i);
+            maxBaseline = Math.max(maxBaseline, b.requestsPerSecond);
+            maxFiltered = Math.max(maxFiltered, f.requestsPerSecond);
+
+            Map<String, Object> overhead = new LinkedHashMap<String, Object>();
+            overhead.put("concurrency", b.concurrency);
+            for (double percentile : PERCENTILES) {
+                overhead.put("addedLatencyMicros_p" + formatPercentile(percentile),
+                    f.latencies.getValueAtPercentile(percentile) - b.latencies.getValueAtPercentile(percentile));
+            }
+            overhead.put("addedAllocatedBytesPerRequest", f.allocatedBytesPerRequest < 0 || b.allocatedBytesPerRequest < 0
+                ? -1.0 : f.allocatedBytesPerRequest - b.allocatedBytesPerRequest);
+            overhead.put("throughputRatio", b.requestsPerSecond == 0 ? 0 : f.requestsPerSecond / b.requestsPerSecond);
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendObject(sb, overhead);
+        }
+        sb.append("\n  ],\n  \"maxSustainableRps\": ");
+        Map<String, Object> maxRps = new LinkedHashMap<String, Object>();
+        maxRps.put("baseline", maxBaseline);
+        maxRps.put("filter", maxFiltered);
+        appendObject(sb, maxRps);
+        sb.append("\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendRuns(StringBuilder sb, List<RunResult> runs) {
+        sb.append('[');
+        for (int i = 0; i < runs.size(); i++) {
+            RunResult run = runs.get(i);
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            values.put("concurrency", run.concurrency);
+            values.put("requests", run.requests);
+            values.put("errors", run.errors);
+            values.put("requestsPerSecond", run.requestsPerSecond);
+            values.put("allocatedBytesPerRequest", run.allocatedBytesPerRequest);
+            values.put("latencyMicros_min", run.latencies.getMin());
+            for (double percentile : PERCENTILES) {
+                values.put("latencyMicros_p" + formatPercentile(percentile), run.latencies.getValueAtPercentile(percentile));
+            }
+            values.put("latencyMicros_max", run.latencies.getMax());
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendObject(sb, values);
+        }
+        sb.append("\n  ]");
+    }
+
+    private static void appendObject(StringBuilder sb, Map<String, Object> values) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\": ");
+            Object value = entry.getValue();
+            if (value instanceof Double) {
+                sb.append(String.format(Locale.ROOT, "%.2f", (Double) value));
+            } else if (value instanceof Number) {
+                sb.append(value);
+            } else {
+                sb.append('"').append(String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        sb.append('}');
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile).replace('.', '_');
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal.correlation.tracecontext;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the traceparent and tracestate codec with the previous implementation, on the operations
+ * done for every incoming request and outgoing call.
+ *
+ * Run with: gradlew :web:jmh -PjmhArgs='TraceContextBenchmark -prof gc', the gc profiler shows the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceContextBenchmark {
+
+    private final String traceparent = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+    private final String tracestate = "congo=t61rcWkgMzE, rojo=00f067aa0ba902b7, az=cid-v1:c6c0a7f4-7b2d-4a1d-9d0e-0f4a5b2e7c11";
+    private final String appId = "cid-v1:2d9cbcbd-5e3e-4bd7-a3e1-6e1c06a3f2a7";
+
+    @Benchmark
+    public String newTraceparent() {
+        return new Traceparent().toString();
+    }
+
+    @Benchmark
+    public String newTraceparentLegacy() {
+        return new LegacyTraceparent().toString();
+    }
+
+    @Benchmark
+    public String parseTraceparent() {
+        return Traceparent.fromString(traceparent).getTraceId();
+    }
+
+    @Benchmark
+    public String parseTraceparentLegacy() {
+        return LegacyTraceparent.fromString(traceparent).getTraceId();
+    }
+
+    @Benchmark
+    public String childTraceparent() {
+        return new Traceparent(0, Traceparent.fromString(traceparent).getTraceId(), null, 0).toString();
+    }
+
+    @Benchmark
+    public String childTraceparentLegacy() {
+        return new LegacyTraceparent(0, LegacyTraceparent.fromString(traceparent).getTraceId(), null, 0).toString();
+    }
+
+    @Benchmark
+    public String tracestateWithAppId() {
+        return new Tracestate(Tracestate.fromString(tracestate), "az", appId).toString();
+    }
+
+    @Benchmark
+    public String tracestateWithAppIdLegacy() {
+        return new LegacyTracestate(LegacyTracestate.fromString(tracestate), "az", appId).toString();
+    }
+
+    @Benchmark
+    public String tracestateGet() {
+        return Tracestate.fromString(tracestate).get("az");
+    }
+
+    @Benchmark
+    public String tracestateGetLegacy() {
+        return LegacyTracestate.fromString(tracestate).get("az");
+    }
+}
@@ -7,6 +7,7 @@ public class WebReflectionUtils {
         addClass(com.microsoft.applicationinsights.web.extensibility.modules.WebRequestTrackingTelemetryModule.class);
         addClass(com.microsoft.applicationinsights.web.extensibility.modules.WebSessionTrackingTelemetryModule.class);
         addClass(com.microsoft.applicationinsights.web.extensibility.modules.WebUserTrackingTelemetryModule.class);
+        addClass(com.microsoft.applicationinsights.web.extensibility.modules.WebRequestLatencyTelemetryModule.class);
         addClass(com.microsoft.applicationinsights.web.internal.perfcounter.WebPerformanceCounterModule.class);
 
         addClass(com.microsoft.applicationinsights.web.extensibility.initializers.WebOperationIdTelemetryInitializer.class);
@@ -25,6 +25,7 @@ import com.microsoft.applicationinsights.common.CommonUtils;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
+import com.microsoft.applicationinsights.web.internal.RequestContextSnapshot;
 import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 import java.util.Map;
@@ -48,12 +49,13 @@ public class WebOperationIdTelemetryInitializer extends WebTelemetryInitializerB
         }
 
         RequestTelemetry requestTelemetry = telemetryContext.getHttpRequestTelemetry();
-        String currentOperationId = requestTelemetry.getContext().getOperation().getId();
+        RequestContextSnapshot snapshot = telemetryContext.getContextSnapshot();
+        String currentOperationId = snapshot.getOperationId();
 
         // if there's no current operation (e.g. telemetry being initialized outside of
         // request scope), just initialize operationId to the generic id currently in request
         if (currentOperationId == null || currentOperationId.isEmpty()) {
-            telemetry.getContext().getOperation().setId(requestTelemetry.getId());
+            telemetry.getContext().getOperation().setId(snapshot.getRequestId());
             return;
         }
 
@@ -65,7 +67,7 @@ public class WebOperationIdTelemetryInitializer extends WebTelemetryInitializerB
         // set operation parentId to the request telemetry's ID
         if (telemetry != requestTelemetry &&
                 CommonUtils.isNullOrEmpty(telemetry.getContext().getOperation().getParentId())) {
-            telemetry.getContext().getOperation().setParentId(requestTelemetry.getId());
+            telemetry.getContext().getOperation().setParentId(snapshot.getRequestId());
         }
 
         // add correlation context to properties
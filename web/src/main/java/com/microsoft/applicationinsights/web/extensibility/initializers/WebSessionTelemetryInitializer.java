@@ -23,7 +23,6 @@ package com.microsoft.applicationinsights.web.extensibility.initializers;
 
 import com.microsoft.applicationinsights.common.CommonUtils;
 import com.microsoft.applicationinsights.extensibility.context.SessionContext;
-import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 
@@ -45,17 +44,6 @@ public class WebSessionTelemetryInitializer extends WebTelemetryInitializerBase
             return;
         }
 
-        RequestTelemetry requestTelemetry = ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry();
-        SessionContext requestSessionContext = requestTelemetry.getContext().getSession();
-        if (requestSessionContext == null) {
-            return;
-        }
-
-        session.setId(requestSessionContext.getId());
-
-        Boolean isFirst = requestSessionContext.getIsFirst();
-        if (isFirst != null) {
-            session.setIsFirst(isFirst);
-        }
+        telemetry.getContext().putTagsIfAbsent(ThreadContext.getRequestTelemetryContext().getContextSnapshot().getSessionTags());
     }
 }
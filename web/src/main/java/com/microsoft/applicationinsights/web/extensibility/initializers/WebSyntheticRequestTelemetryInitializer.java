@@ -21,28 +21,26 @@
 
 package com.microsoft.applicationinsights.web.extensibility.initializers;
 
-import java.util.concurrent.ConcurrentMap;
-
-import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
 
+import com.microsoft.applicationinsights.telemetry.ContextTagsSnapshot;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
+import com.microsoft.applicationinsights.web.internal.RequestContextSnapshot;
 import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 
-import com.microsoft.applicationinsights.common.CommonUtils;
-
 /**
  * Created by gupele on 8/17/2015.
  */
 public class WebSyntheticRequestTelemetryInitializer extends WebTelemetryInitializerBase {
-    final static String SYNTHETIC_SOURCE_NAME = "Application Insights Availability Monitoring";
-    final static String SYNTHETIC_TEST_RUN_ID = "SyntheticTest-RunId";
-    final static String SYNTHETIC_TEST_LOCATION = "SyntheticTest-Location";
-    final static String SYNTHETIC_TEST_SOURCE = "SyntheticTest-Source";
-    final static String SYNTHETIC_TEST_TEST_NAME = "SyntheticTest-TestName";
-    final static String SYNTHETIC_TEST_SESSION_ID = "SyntheticTest-SessionId";
-    final static String SYNTHETIC_TEST_USER_ID = "SyntheticTest-UserId";
-    final static String SYNTHETIC_TEST_OPERATION_ID = "SyntheticTest-OperationId";
+    final static String SYNTHETIC_SOURCE_NAME = RequestContextSnapshot.SYNTHETIC_SOURCE_NAME;
+    final static String SYNTHETIC_TEST_RUN_ID = RequestContextSnapshot.SYNTHETIC_TEST_RUN_ID;
+    final static String SYNTHETIC_TEST_LOCATION = RequestContextSnapshot.SYNTHETIC_TEST_LOCATION;
+    final static String SYNTHETIC_TEST_SOURCE = RequestContextSnapshot.SYNTHETIC_TEST_SOURCE;
+    final static String SYNTHETIC_TEST_TEST_NAME = RequestContextSnapshot.SYNTHETIC_TEST_TEST_NAME;
+    final static String SYNTHETIC_TEST_SESSION_ID = RequestContextSnapshot.SYNTHETIC_TEST_SESSION_ID;
+    final static String SYNTHETIC_TEST_USER_ID = RequestContextSnapshot.SYNTHETIC_TEST_USER_ID;
+    final static String SYNTHETIC_TEST_OPERATION_ID = RequestContextSnapshot.SYNTHETIC_TEST_OPERATION_ID;
 
     @Override
     protected void onInitializeTelemetry(Telemetry telemetry) {
@@ -52,76 +50,16 @@ public class WebSyntheticRequestTelemetryInitializer extends WebTelemetryInitial
             return;
         }
 
-        HttpServletRequest request = telemetryContext.getHttpServletRequest();
-        if (request == null) {
+        // the synthetic headers are read once per request, most requests have none
+        RequestContextSnapshot snapshot = telemetryContext.getContextSnapshot();
+        ContextTagsSnapshot syntheticTags = snapshot.getSyntheticTags();
+        if (syntheticTags.size() == 0) {
             return;
         }
 
-        String syntheticSourceHeader = request.getHeader(SYNTHETIC_TEST_SOURCE);
-        if (CommonUtils.isNullOrEmpty(syntheticSourceHeader)) {
-            handlePossibleGSMSyntheticRequest(telemetry, request);
-        } else {
-            handleCommonSyntheticRequest(syntheticSourceHeader, telemetry, request);
-        }
-    }
-
-    private void handlePossibleGSMSyntheticRequest(Telemetry telemetry, HttpServletRequest request) {
-        String gsmSyntheticTestRunId = request.getHeader(SYNTHETIC_TEST_RUN_ID);
-        if (CommonUtils.isNullOrEmpty(gsmSyntheticTestRunId)) {
-            return;
-        }
-
-        String syntheticSource = telemetry.getContext().getOperation().getSyntheticSource();
-        if (CommonUtils.isNullOrEmpty(syntheticSource)) {
-            telemetry.getContext().getOperation().setSyntheticSource(SYNTHETIC_SOURCE_NAME);
-        }
-
-        String sessionId = telemetry.getContext().getSession().getId();
-        if (CommonUtils.isNullOrEmpty(sessionId)) {
-            telemetry.getContext().getSession().setId(gsmSyntheticTestRunId);
-        }
-
-        String userId = telemetry.getContext().getUser().getId();
-        if (CommonUtils.isNullOrEmpty(userId)) {
-            String header = request.getHeader(SYNTHETIC_TEST_LOCATION);
-            telemetry.getContext().getUser().setId(header);
-        }
-    }
-
-    private void handleCommonSyntheticRequest(String syntheticSourceHeader, Telemetry telemetry, HttpServletRequest request) {
-        String syntheticSource = telemetry.getContext().getOperation().getSyntheticSource();
-        if (CommonUtils.isNullOrEmpty(syntheticSource)) {
-            telemetry.getContext().getOperation().setSyntheticSource(syntheticSourceHeader);
-        }
-
-        String userId = telemetry.getContext().getUser().getId();
-        if (CommonUtils.isNullOrEmpty(userId)) {
-            String header = request.getHeader(SYNTHETIC_TEST_USER_ID);
-            telemetry.getContext().getUser().setId(header);
-        }
-
-        String sessionId = telemetry.getContext().getSession().getId();
-        if (CommonUtils.isNullOrEmpty(sessionId)) {
-            String header = request.getHeader(SYNTHETIC_TEST_SESSION_ID);
-            telemetry.getContext().getSession().setId(header);
-        }
-
-        String operationId = telemetry.getContext().getOperation().getId();
-        if (CommonUtils.isNullOrEmpty(operationId)) {
-            String header = request.getHeader(SYNTHETIC_TEST_OPERATION_ID);
-            telemetry.getContext().getOperation().setId(header);
-        }
-
-        putInProperties(telemetry, request, SYNTHETIC_TEST_TEST_NAME, SYNTHETIC_TEST_RUN_ID, SYNTHETIC_TEST_LOCATION);
-    }
-
-    private void putInProperties(Telemetry telemetry, HttpServletRequest request, String... headers) {
-        ConcurrentMap<String, String> properties = telemetry.getContext().getProperties();
-        for (String header : headers) {
-            String headerValue = request.getHeader(header);
-            if (headerValue != null) {
-                properties.put(header, headerValue);
-            }
+        telemetry.getContext().putTagsIfAbsent(syntheticTags);
+        for (Map.Entry<String, String> property : snapshot.getSyntheticProperties().entrySet()) {
+            telemetry.getContext().getProperties().put(property.getKey(), property.getValue());
         }
     }
 }
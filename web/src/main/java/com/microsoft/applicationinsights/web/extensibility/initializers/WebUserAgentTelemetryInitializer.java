@@ -21,7 +21,6 @@
 
 package com.microsoft.applicationinsights.web.extensibility.initializers;
 
-import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 
@@ -37,9 +36,6 @@ public class WebUserAgentTelemetryInitializer extends WebTelemetryInitializerBas
      */
     @Override
     protected void onInitializeTelemetry(Telemetry telemetry) {
-        RequestTelemetry requestTelemetry = ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry();
-
-        String userAgent = requestTelemetry.getContext().getUser().getUserAgent();
-        telemetry.getContext().getUser().setUserAgent(userAgent);
+        telemetry.getContext().putTagsIfAbsent(ThreadContext.getRequestTelemetryContext().getContextSnapshot().getUserAgentTags());
     }
 }
@@ -21,10 +21,8 @@
 
 package com.microsoft.applicationinsights.web.extensibility.initializers;
 
-import java.util.Date;
 import com.microsoft.applicationinsights.common.CommonUtils;
 import com.microsoft.applicationinsights.extensibility.context.UserContext;
-import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
 import com.microsoft.applicationinsights.telemetry.Telemetry;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 
@@ -46,15 +44,6 @@ public class WebUserTelemetryInitializer extends WebTelemetryInitializerBase {
             return;
         }
 
-        RequestTelemetry requestTelemetry = ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry();
-        UserContext requestUserContext = requestTelemetry.getContext().getUser();
-        if (requestUserContext == null) {
-            return;
-        }
-
-        userContext.setId(requestUserContext.getId());
-
-        Date requestUserAcquisitionDate = requestUserContext.getAcquisitionDate();
-        userContext.setAcquisitionDate(requestUserAcquisitionDate);
+        telemetry.getContext().putTagsIfAbsent(ThreadContext.getRequestTelemetryContext().getContextSnapshot().getUserTags());
     }
 }
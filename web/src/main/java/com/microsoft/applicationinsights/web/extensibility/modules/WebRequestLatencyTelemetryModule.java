@@ -0,0 +1,337 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.extensibility.modules;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.extensibility.TelemetryModule;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.internal.perfcounter.LatencyHistogram;
+import com.microsoft.applicationinsights.internal.shutdown.SDKShutdownActivity;
+import com.microsoft.applicationinsights.internal.util.PeriodicTaskPool;
+import com.microsoft.applicationinsights.telemetry.Duration;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
+import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
+import com.microsoft.applicationinsights.web.internal.ThreadContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * Records the duration of every request, sampled or not, into a latency histogram per operation name and
+ * response class (2xx, 4xx...), and periodically sends the percentiles of each histogram as metrics.
+ * <p>
+ * This keeps exact latency percentiles per endpoint while the request telemetry itself is sampled.
+ * The number of operation names is capped, the requests of any further operation are recorded under
+ * {@value #OTHER_OPERATION_NAME}.
+ */
+public class WebRequestLatencyTelemetryModule implements WebTelemetryModule, TelemetryModule {
+
+    // region Members
+
+    static final String DURATION_METRIC_NAME = "Request Duration";
+    static final String PERCENTILE_METRIC_NAME = "Request Duration Percentile";
+    static final String OPERATION_NAME_PROPERTY = "Operation Name";
+    static final String RESPONSE_CLASS_PROPERTY = "Response Class";
+    static final String PERCENTILE_PROPERTY = "Percentile";
+    static final String OTHER_OPERATION_NAME = "Other";
+
+    private static final String[] RESPONSE_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "Other"};
+    private static final int OTHER_RESPONSE_CLASS_INDEX = RESPONSE_CLASSES.length - 1;
+
+    private static final int DEFAULT_MAX_OPERATION_NAMES = 100;
+    private static final long DEFAULT_EXPORT_INTERVAL_IN_SECONDS = 60;
+    private static final double[] DEFAULT_PERCENTILES = {50, 95, 99};
+
+    /**
+     * The maximum number of distinct operation names that get their own histograms.
+     */
+    private final String MAX_OPERATION_NAMES_PARAMETER = "MaxOperationNames";
+
+    /**
+     * The interval between two exports of the histograms.
+     */
+    private final String EXPORT_INTERVAL_PARAMETER = "ExportIntervalInSeconds";
+
+    /**
+     * Comma separated list of the percentiles to export, e.g. "50,95,99.9".
+     */
+    private final String PERCENTILES_PARAMETER = "Percentiles";
+
+    private final ConcurrentMap<String, AtomicReferenceArray<LatencyHistogram>> histograms =
+        new ConcurrentHashMap<String, AtomicReferenceArray<LatencyHistogram>>();
+
+    private int maxOperationNames = DEFAULT_MAX_OPERATION_NAMES;
+    private long exportIntervalInSeconds = DEFAULT_EXPORT_INTERVAL_IN_SECONDS;
+    private double[] percentiles = DEFAULT_PERCENTILES;
+
+    private TelemetryClient telemetryClient;
+    private PeriodicTaskPool exportTaskPool;
+
+    // endregion Members
+
+    // region Public
+
+    public WebRequestLatencyTelemetryModule() {}
+
+    /**
+     * Ctor that parses incoming configuration.
+     * @param configurationData SDK config Object
+     */
+    public WebRequestLatencyTelemetryModule(Map<String, String> configurationData) {
+        if (configurationData == null) {
+            throw new NullPointerException("configurationData should not be null");
+        }
+
+        if (configurationData.containsKey(MAX_OPERATION_NAMES_PARAMETER)) {
+            try {
+                setMaxOperationNames(Integer.parseInt(configurationData.get(MAX_OPERATION_NAMES_PARAMETER).trim()));
+            } catch (NumberFormatException e) {
+                InternalLogger.INSTANCE.error("Illegal value for %s: '%s', using the default %d", MAX_OPERATION_NAMES_PARAMETER,
+                    configurationData.get(MAX_OPERATION_NAMES_PARAMETER), DEFAULT_MAX_OPERATION_NAMES);
+            }
+        }
+
+        if (configurationData.containsKey(EXPORT_INTERVAL_PARAMETER)) {
+            try {
+                setExportIntervalInSeconds(Long.parseLong(configurationData.get(EXPORT_INTERVAL_PARAMETER).trim()));
+            } catch (NumberFormatException e) {
+                InternalLogger.INSTANCE.error("Illegal value for %s: '%s', using the default %d", EXPORT_INTERVAL_PARAMETER,
+                    configurationData.get(EXPORT_INTERVAL_PARAMETER), DEFAULT_EXPORT_INTERVAL_IN_SECONDS);
+            }
+        }
+
+        if (configurationData.containsKey(PERCENTILES_PARAMETER)) {
+            try {
+                setPercentiles(parsePercentiles(configurationData.get(PERCENTILES_PARAMETER)));
+            } catch (NumberFormatException e) {
+                InternalLogger.INSTANCE.error("Illegal value for %s: '%s', using the default percentiles", PERCENTILES_PARAMETER,
+                    configurationData.get(PERCENTILES_PARAMETER));
+            }
+        }
+    }
+
+    public void setMaxOperationNames(int maxOperationNames) {
+        if (maxOperationNames < 1) {
+            InternalLogger.INSTANCE.error("Illegal value for %s: %d, using the default %d", MAX_OPERATION_NAMES_PARAMETER,
+                maxOperationNames, DEFAULT_MAX_OPERATION_NAMES);
+            return;
+        }
+        this.maxOperationNames = maxOperationNames;
+    }
+
+    public void setExportIntervalInSeconds(long exportIntervalInSeconds) {
+        if (exportIntervalInSeconds < 1) {
+            InternalLogger.INSTANCE.error("Illegal value for %s: %d, using the default %d", EXPORT_INTERVAL_PARAMETER,
+                exportIntervalInSeconds, DEFAULT_EXPORT_INTERVAL_IN_SECONDS);
+            return;
+        }
+        this.exportIntervalInSeconds = exportIntervalInSeconds;
+    }
+
+    public void setPercentiles(double[] percentiles) {
+        if (percentiles == null || percentiles.length == 0) {
+            InternalLogger.INSTANCE.error("No percentiles to export, using the default percentiles");
+            return;
+        }
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                InternalLogger.INSTANCE.error("Illegal percentile %s, using the default percentiles", percentile);
+                return;
+            }
+        }
+        this.percentiles = percentiles.clone();
+    }
+
+    /**
+     * Initializes the telemetry module and starts the periodic export of the histograms.
+     *
+     * @param configuration The configuration to used to initialize the module.
+     */
+    @Override
+    public void initialize(TelemetryConfiguration configuration) {
+        try {
+            telemetryClient = new TelemetryClient(configuration);
+            synchronized (this) {
+                if (exportTaskPool == null) {
+                    exportTaskPool = new PeriodicTaskPool(1, WebRequestLatencyTelemetryModule.class.getSimpleName());
+                    exportTaskPool.executePeriodicRunnableTask(PeriodicTaskPool.PeriodicRunnableTask.createTask(new Runnable() {
+                        @Override
+                        public void run() {
+                            export(telemetryClient);
+                        }
+                    }, exportIntervalInSeconds, exportIntervalInSeconds, TimeUnit.SECONDS, "requestLatencyExport"));
+                    SDKShutdownActivity.INSTANCE.register(exportTaskPool);
+                }
+            }
+        } catch (Exception e) {
+            InternalLogger.INSTANCE.error("Failed to initialize telemetry module %s. Exception: %s.", this.getClass().getSimpleName(), e.toString());
+        }
+    }
+
+    /**
+     * Begin request processing.
+     * @param req The request to process
+     * @param res The response to modify
+     */
+    @Override
+    public void onBeginRequest(ServletRequest req, ServletResponse res) {
+    }
+
+    /**
+     * End request processing, the request duration is already known at this point.
+     * @param req The request to process
+     * @param res The response to modify
+     */
+    @Override
+    public void onEndRequest(ServletRequest req, ServletResponse res) {
+        try {
+            RequestTelemetryContext context = ThreadContext.getRequestTelemetryContext();
+            if (context == null) {
+                return;
+            }
+
+            RequestTelemetry requestTelemetry = context.getHttpRequestTelemetry();
+            Duration duration = requestTelemetry.getDuration();
+            if (duration == null) {
+                return;
+            }
+            record(requestTelemetry.getName(), requestTelemetry.getResponseCode(), duration.getTotalMilliseconds());
+        } catch (Exception e) {
+            String moduleClassName = this.getClass().getSimpleName();
+            InternalLogger.INSTANCE.error("Telemetry module %s onEndRequest failed with exception: %s", moduleClassName, e.toString());
+        }
+    }
+
+    // endregion Public
+
+    // region Private
+
+    void record(String operationName, String responseCode, long durationInMS) {
+        getHistogram(operationName, responseClassIndexOf(responseCode)).record(durationInMS);
+    }
+
+    void export(TelemetryClient telemetryClient) {
+        for (Map.Entry<String, AtomicReferenceArray<LatencyHistogram>> entry : histograms.entrySet()) {
+            AtomicReferenceArray<LatencyHistogram> perResponseClass = entry.getValue();
+            for (int i = 0; i < perResponseClass.length(); ++i) {
+                LatencyHistogram histogram = perResponseClass.get(i);
+                if (histogram == null) {
+                    continue;
+                }
+
+                try {
+                    LatencyHistogram.Snapshot snapshot = histogram.drain();
+                    if (snapshot.getTotalCount() > 0) {
+                        send(telemetryClient, entry.getKey(), RESPONSE_CLASSES[i], snapshot);
+                    }
+                } catch (ThreadDeath td) {
+                    throw td;
+                } catch (Throwable t) {
+                    try {
+                        InternalLogger.INSTANCE.error("Failed to export the request latencies of '%s': '%s'", entry.getKey(), t.toString());
+                    } catch (ThreadDeath td) {
+                        throw td;
+                    } catch (Throwable t2) {
+                        // chomp
+                    }
+                }
+            }
+        }
+    }
+
+    private void send(TelemetryClient telemetryClient, String operationName, String responseClass, LatencyHistogram.Snapshot snapshot) {
+        MetricTelemetry duration = new MetricTelemetry(DURATION_METRIC_NAME, snapshot.getSum());
+        duration.setCount((int) Math.min(snapshot.getTotalCount(), Integer.MAX_VALUE));
+        duration.setMin((double) snapshot.getMin());
+        duration.setMax((double) snapshot.getMax());
+        duration.getProperties().put(OPERATION_NAME_PROPERTY, operationName);
+        duration.getProperties().put(RESPONSE_CLASS_PROPERTY, responseClass);
+        telemetryClient.track(duration);
+
+        for (double percentile : percentiles) {
+            MetricTelemetry value = new MetricTelemetry(PERCENTILE_METRIC_NAME, snapshot.getValueAtPercentile(percentile));
+            value.getProperties().put(OPERATION_NAME_PROPERTY, operationName);
+            value.getProperties().put(RESPONSE_CLASS_PROPERTY, responseClass);
+            value.getProperties().put(PERCENTILE_PROPERTY, formatPercentile(percentile));
+            telemetryClient.track(value);
+        }
+    }
+
+    private LatencyHistogram getHistogram(String operationName, int responseClassIndex) {
+        if (operationName == null) {
+            operationName = OTHER_OPERATION_NAME;
+        }
+
+        AtomicReferenceArray<LatencyHistogram> perResponseClass = histograms.get(operationName);
+        if (perResponseClass == null) {
+            // operation names are never evicted so that a histogram cannot be dropped while being recorded to
+            if (histograms.size() >= maxOperationNames) {
+                operationName = OTHER_OPERATION_NAME;
+                perResponseClass = histograms.get(operationName);
+            }
+            if (perResponseClass == null) {
+                AtomicReferenceArray<LatencyHistogram> created = new AtomicReferenceArray<LatencyHistogram>(RESPONSE_CLASSES.length);
+                perResponseClass = histograms.putIfAbsent(operationName, created);
+                if (perResponseClass == null) {
+                    perResponseClass = created;
+                }
+            }
+        }
+
+        LatencyHistogram histogram = perResponseClass.get(responseClassIndex);
+        if (histogram == null) {
+            perResponseClass.compareAndSet(responseClassIndex, null, new LatencyHistogram());
+            histogram = perResponseClass.get(responseClassIndex);
+        }
+        return histogram;
+    }
+
+    private static int responseClassIndexOf(String responseCode) {
+        if (responseCode == null || responseCode.length() != 3) {
+            return OTHER_RESPONSE_CLASS_INDEX;
+        }
+
+        int index = responseCode.charAt(0) - '1';
+        return index >= 0 && index < OTHER_RESPONSE_CLASS_INDEX ? index : OTHER_RESPONSE_CLASS_INDEX;
+    }
+
+    private static double[] parsePercentiles(String value) {
+        String[] parts = value.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; ++i) {
+            result[i] = Double.parseDouble(parts[i].trim());
+        }
+        return result;
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    // endregion Private
+}
@@ -28,8 +28,10 @@ import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
 import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
+import com.microsoft.applicationinsights.web.internal.correlation.InstrumentationKeyResolver;
 import com.microsoft.applicationinsights.web.internal.correlation.TelemetryCorrelationUtils;
 import com.microsoft.applicationinsights.web.internal.correlation.TraceContextCorrelation;
+import java.io.File;
 import java.util.Map;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -59,6 +61,24 @@ public class WebRequestTrackingTelemetryModule implements WebTelemetryModule, Te
      */
     private final String W3C_BACKCOMPAT_PARAMETER = "enableW3CBackCompat";
 
+    /**
+     * Tag for the folder resolved appIds are persisted to, use a persistent volume to keep correlation
+     * working across restarts when the appId cannot be resolved.
+     */
+    private final String APP_ID_PERSISTENCE_FOLDER_PARAMETER = "AppIdPersistenceFolder";
+
+    /**
+     * Tag for how many minutes an appId resolved in the background is used before it is resolved again.
+     * By default it is resolved again after 60 minutes.
+     */
+    private final String APP_ID_TTL_PARAMETER = "AppIdTtlInMinutes";
+
+    /**
+     * Tag to indicate if threads created during a request inherit its context.
+     * By default inheritance is turned ON, turn it off and use ThreadContextExecutors to carry the context explicitly.
+     */
+    private final String INHERIT_THREAD_CONTEXT_PARAMETER = "InheritThreadContext";
+
     // endregion Members
 
     // region Public
@@ -86,7 +106,23 @@ public class WebRequestTrackingTelemetryModule implements WebTelemetryModule, Te
             TraceContextCorrelation.setIsW3CBackCompatEnabled(enableBackCompatibilityForW3C);
         }
 
+        if (configurationData.containsKey(APP_ID_PERSISTENCE_FOLDER_PARAMETER)) {
+            InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(new File(configurationData.get(APP_ID_PERSISTENCE_FOLDER_PARAMETER)));
+        }
 
+        if (configurationData.containsKey(APP_ID_TTL_PARAMETER)) {
+            String appIdTtl = configurationData.get(APP_ID_TTL_PARAMETER);
+            try {
+                InstrumentationKeyResolver.INSTANCE.setAppIdTtlInMinutes(Long.parseLong(appIdTtl.trim()));
+            } catch (IllegalArgumentException e) {
+                InternalLogger.INSTANCE.error("%s: illegal value '%s', the default of %d minutes is used instead",
+                        APP_ID_TTL_PARAMETER, appIdTtl, InstrumentationKeyResolver.DEFAULT_APP_ID_TTL_IN_MINUTES);
+            }
+        }
+
+        if (configurationData.containsKey(INHERIT_THREAD_CONTEXT_PARAMETER)) {
+            ThreadContext.setInheritable(Boolean.valueOf(configurationData.get(INHERIT_THREAD_CONTEXT_PARAMETER)));
+        }
     }
 
     /**
@@ -181,6 +217,9 @@ public class WebRequestTrackingTelemetryModule implements WebTelemetryModule, Te
         try {
             telemetryClient = new TelemetryClient(configuration);
             isInitialized = true;
+
+            // resolve the appId before the first request needs it
+            InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
         } catch (Exception e) {
             InternalLogger.INSTANCE.error("Failed to initialize telemetry module %s. Exception: %s.", this.getClass().getSimpleName(), e.toString());
         }
@@ -63,9 +63,7 @@ public class WebSessionTrackingTelemetryModule implements WebTelemetryModule, Te
         }
         HttpServletRequest request = (HttpServletRequest) req;
         RequestTelemetryContext context = ThreadContext.getRequestTelemetryContext();
-        SessionCookie sessionCookie =
-            com.microsoft.applicationinsights.web.internal.cookies.Cookie.getCookie(
-                SessionCookie.class, request, SessionCookie.COOKIE_NAME);
+        SessionCookie sessionCookie = context.getRequestCookies(request).getSessionCookie();
         if (sessionCookie == null) {
             return;
         }
@@ -63,9 +63,7 @@ public class WebUserTrackingTelemetryModule implements WebTelemetryModule, Telem
         }
         HttpServletRequest request = (HttpServletRequest) req;
         RequestTelemetryContext context = ThreadContext.getRequestTelemetryContext();
-        UserCookie userCookie =
-            com.microsoft.applicationinsights.web.internal.cookies.Cookie.getCookie(
-                UserCookie.class, request, UserCookie.COOKIE_NAME);
+        UserCookie userCookie = context.getRequestCookies(request).getUserCookie();
         if (userCookie == null) {
             return;
         }
@@ -0,0 +1,192 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.microsoft.applicationinsights.common.CommonUtils;
+import com.microsoft.applicationinsights.extensibility.context.ContextTagKeys;
+import com.microsoft.applicationinsights.telemetry.ContextTagsSnapshot;
+import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
+import com.microsoft.applicationinsights.telemetry.TelemetryContext;
+
+/**
+ * The values the web telemetry initializers copy from the request to the telemetry tracked while it is processed,
+ * read once from the request telemetry and kept as ready-made tag sets.
+ * <p>
+ * A snapshot is tied to the version of the request tags it was taken from, see {@link RequestTelemetryContext#getContextSnapshot()}.
+ * The synthetic test headers do not change during the request, so they are only read by the first snapshot.
+ */
+public final class RequestContextSnapshot {
+    public final static String SYNTHETIC_SOURCE_NAME = "Application Insights Availability Monitoring";
+    public final static String SYNTHETIC_TEST_RUN_ID = "SyntheticTest-RunId";
+    public final static String SYNTHETIC_TEST_LOCATION = "SyntheticTest-Location";
+    public final static String SYNTHETIC_TEST_SOURCE = "SyntheticTest-Source";
+    public final static String SYNTHETIC_TEST_TEST_NAME = "SyntheticTest-TestName";
+    public final static String SYNTHETIC_TEST_SESSION_ID = "SyntheticTest-SessionId";
+    public final static String SYNTHETIC_TEST_USER_ID = "SyntheticTest-UserId";
+    public final static String SYNTHETIC_TEST_OPERATION_ID = "SyntheticTest-OperationId";
+
+    private final int tagsVersion;
+    private final String requestId;
+    private final String operationId;
+    private final ContextTagsSnapshot sessionTags;
+    private final ContextTagsSnapshot userTags;
+    private final ContextTagsSnapshot userAgentTags;
+    private final ContextTagsSnapshot syntheticTags;
+    private final Map<String, String> syntheticProperties;
+
+    private RequestContextSnapshot(RequestTelemetry requestTelemetry, HttpServletRequest request, RequestContextSnapshot previous) {
+        TelemetryContext context = requestTelemetry.getContext();
+        ContextTagKeys keys = ContextTagKeys.getKeys();
+
+        // read the version first, a change made while the tags are copied then makes the snapshot outdated
+        this.tagsVersion = context.getTagsVersion();
+        this.requestId = requestTelemetry.getId();
+        this.operationId = context.getOperation().getId();
+        this.sessionTags = context.snapshotTags(keys.getSessionId(), keys.getSessionIsFirst());
+        this.userTags = context.snapshotTags(keys.getUserId(), keys.getUserAccountAcquisitionDate());
+        this.userAgentTags = context.snapshotTags(keys.getUserAgent());
+
+        if (previous != null) {
+            this.syntheticTags = previous.syntheticTags;
+            this.syntheticProperties = previous.syntheticProperties;
+            return;
+        }
+
+        Map<String, String> properties = new HashMap<String, String>();
+        TelemetryContext synthetic = readSyntheticHeaders(request, properties);
+        this.syntheticTags = synthetic == null ? ContextTagsSnapshot.EMPTY : synthetic.snapshotTags(
+                keys.getSyntheticSource(), keys.getSessionId(), keys.getUserId(), keys.getOperationId());
+        this.syntheticProperties = properties.isEmpty()
+                ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * @param requestTelemetry The request telemetry to take the tags from.
+     * @param request The servlet request to read the synthetic test headers from, or null if there is none.
+     * @param previous The outdated snapshot of the same request, or null if this is the first one.
+     */
+    static RequestContextSnapshot create(RequestTelemetry requestTelemetry, HttpServletRequest request, RequestContextSnapshot previous) {
+        return new RequestContextSnapshot(requestTelemetry, request, previous);
+    }
+
+    /**
+     * Reads the tags and properties a synthetic test request sets on the telemetry tracked during the request.
+     * @return The synthetic tags, or null if the request is not a synthetic test request.
+     */
+    private static TelemetryContext readSyntheticHeaders(HttpServletRequest request, Map<String, String> properties) {
+        if (request == null) {
+            return null;
+        }
+
+        String syntheticSource = request.getHeader(SYNTHETIC_TEST_SOURCE);
+        if (CommonUtils.isNullOrEmpty(syntheticSource)) {
+            // availability tests that only send the run id and location
+            String runId = request.getHeader(SYNTHETIC_TEST_RUN_ID);
+            if (CommonUtils.isNullOrEmpty(runId)) {
+                return null;
+            }
+
+            TelemetryContext context = new TelemetryContext();
+            context.getOperation().setSyntheticSource(SYNTHETIC_SOURCE_NAME);
+            context.getSession().setId(runId);
+            context.getUser().setId(request.getHeader(SYNTHETIC_TEST_LOCATION));
+            return context;
+        }
+
+        TelemetryContext context = new TelemetryContext();
+        context.getOperation().setSyntheticSource(syntheticSource);
+        context.getUser().setId(request.getHeader(SYNTHETIC_TEST_USER_ID));
+        context.getSession().setId(request.getHeader(SYNTHETIC_TEST_SESSION_ID));
+        context.getOperation().setId(request.getHeader(SYNTHETIC_TEST_OPERATION_ID));
+        for (String header : new String[] {SYNTHETIC_TEST_TEST_NAME, SYNTHETIC_TEST_RUN_ID, SYNTHETIC_TEST_LOCATION}) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                properties.put(header, value);
+            }
+        }
+        return context;
+    }
+
+    boolean isCurrent(RequestTelemetry requestTelemetry) {
+        if (requestTelemetry.getContext().getTagsVersion() != tagsVersion) {
+            return false;
+        }
+
+        String currentRequestId = requestTelemetry.getId();
+        return currentRequestId == null ? requestId == null : currentRequestId.equals(requestId);
+    }
+
+    /**
+     * @return The id of the request telemetry.
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return The operation id of the request, or null if it has none.
+     */
+    public String getOperationId() {
+        return operationId;
+    }
+
+    /**
+     * @return The session id and session first flag of the request.
+     */
+    public ContextTagsSnapshot getSessionTags() {
+        return sessionTags;
+    }
+
+    /**
+     * @return The user id and user acquisition date of the request.
+     */
+    public ContextTagsSnapshot getUserTags() {
+        return userTags;
+    }
+
+    /**
+     * @return The user agent of the request.
+     */
+    public ContextTagsSnapshot getUserAgentTags() {
+        return userAgentTags;
+    }
+
+    /**
+     * @return The synthetic source, session, user and operation ids of a synthetic test request, empty for other requests.
+     */
+    public ContextTagsSnapshot getSyntheticTags() {
+        return syntheticTags;
+    }
+
+    /**
+     * @return The synthetic test headers that are copied to the telemetry properties, empty for other requests.
+     */
+    public Map<String, String> getSyntheticProperties() {
+        return syntheticProperties;
+    }
+}
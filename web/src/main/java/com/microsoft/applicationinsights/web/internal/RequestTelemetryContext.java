@@ -25,10 +25,13 @@ import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.T
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.http.HttpServletRequest;
 
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
+import com.microsoft.applicationinsights.web.internal.cookies.RequestCookies;
 import com.microsoft.applicationinsights.web.internal.cookies.SessionCookie;
 import com.microsoft.applicationinsights.web.internal.cookies.UserCookie;
 import com.microsoft.applicationinsights.web.internal.correlation.CorrelationContext;
+import com.microsoft.applicationinsights.web.internal.correlation.OutboundCorrelation;
 
 /**
  * Created by yonisha on 2/2/2015.
@@ -36,13 +39,19 @@ import com.microsoft.applicationinsights.web.internal.correlation.CorrelationCon
 public class RequestTelemetryContext {
     private RequestTelemetry requestTelemetry;
     private long requestStartTimeTicks;
+    private final long requestStartNanoTime;
     private SessionCookie sessionCookie;
     private UserCookie userCookie;
+    private RequestCookies requestCookies;
+    private volatile RequestContextSnapshot contextSnapshot;
     private boolean isNewSession = false;
     private HttpServletRequest servletRequest;
     private final CorrelationContext correlationContext;
     private Tracestate tracestate;
     private int traceflag;
+    private volatile OutboundCorrelation outboundCorrelation;
+    private volatile String invalidOutboundTraceId;
+    private volatile int invalidOutboundTraceflag;
     private final AtomicInteger currentChildId = new AtomicInteger();
 
     /**
@@ -70,6 +79,7 @@ public class RequestTelemetryContext {
     public RequestTelemetryContext(long ticks, HttpServletRequest servletRequest) {
         requestTelemetry = new RequestTelemetry();
         requestStartTimeTicks = ticks;
+        requestStartNanoTime = System.nanoTime();
         this.servletRequest = servletRequest;
         correlationContext = new CorrelationContext();
     }
@@ -82,6 +92,34 @@ public class RequestTelemetryContext {
         this.traceflag = traceflag;
     }
 
+    /**
+     * Gets the W3C header values shared by the outbound calls of the request. They are computed on first use
+     * and again only when the trace id, the trace flags or the tracestate of the request change. A trace id that is
+     * not valid is remembered, so it is not validated again by every outbound call.
+     * @return The outbound correlation, or null if the operation id of the request is not a valid W3C trace id.
+     */
+    public OutboundCorrelation getOutboundCorrelation() {
+        String traceId = requestTelemetry.getContext().getOperation().getId();
+        if (traceId == null) {
+            return null;
+        }
+
+        OutboundCorrelation current = outboundCorrelation;
+        if (current == null || !current.isFor(traceId, traceflag, tracestate)) {
+            if (traceId.equals(invalidOutboundTraceId) && traceflag == invalidOutboundTraceflag) {
+                return null;
+            }
+            current = OutboundCorrelation.create(traceId, traceflag, tracestate);
+            if (current == null) {
+                InternalLogger.INSTANCE.error("Failed to generate child ID, operation id %s with trace flags %d is not a valid W3C trace context", traceId, traceflag);
+                invalidOutboundTraceflag = traceflag;
+                invalidOutboundTraceId = traceId;
+            }
+            outboundCorrelation = current;
+        }
+        return current;
+    }
+
     /**
      * Gets the correlation context associated with the request
      * @return The correlation context map.
@@ -98,6 +136,20 @@ public class RequestTelemetryContext {
         return requestTelemetry;
     }
 
+    /**
+     * Gets the snapshot of the request values that the web telemetry initializers copy to the telemetry tracked
+     * during the request. The snapshot is taken again only when the tags or the id of the request telemetry change.
+     * @return The current snapshot.
+     */
+    public RequestContextSnapshot getContextSnapshot() {
+        RequestContextSnapshot snapshot = contextSnapshot;
+        if (snapshot == null || !snapshot.isCurrent(requestTelemetry)) {
+            snapshot = RequestContextSnapshot.create(requestTelemetry, servletRequest, snapshot);
+            contextSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
     /**
      * Gets the request start time in ticks
      * @return Request start time in ticks
@@ -106,6 +158,15 @@ public class RequestTelemetryContext {
         return requestStartTimeTicks;
     }
 
+    /**
+     * Gets the value of {@link System#nanoTime()} when the context was created, used to measure the
+     * request duration with a monotonic clock.
+     * @return Request start time in nanoseconds
+     */
+    public long getRequestStartNanoTime() {
+        return requestStartNanoTime;
+    }
+
     /**
      * Sets the session cookie.
      * @param sessionCookie The session cookie.
@@ -138,6 +199,19 @@ public class RequestTelemetryContext {
         return userCookie;
     }
 
+    /**
+     * Gets the Application Insights cookies of the request, they are parsed from the given request
+     * the first time this is called and shared by the modules that need them.
+     * @param request The http request of this context.
+     * @return The request cookies.
+     */
+    public RequestCookies getRequestCookies(HttpServletRequest request) {
+        if (requestCookies == null) {
+            requestCookies = RequestCookies.parse(request);
+        }
+        return requestCookies;
+    }
+
     /**
      * Sets if the session is new or not.
      * @param isNewSession Indicates whether the session is new or not.
@@ -21,17 +21,24 @@
 
 package com.microsoft.applicationinsights.web.internal;
 
+import java.util.Date;
+
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.internal.agent.AbstractSdkBridge;
+import com.microsoft.applicationinsights.telemetry.Duration;
 import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
+import com.microsoft.applicationinsights.web.internal.correlation.OutboundCorrelation;
 import com.microsoft.applicationinsights.web.internal.correlation.TelemetryCorrelationUtils;
 import com.microsoft.applicationinsights.web.internal.correlation.TraceContextCorrelation;
 import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Traceparent;
 
 class SdkBridgeImpl extends AbstractSdkBridge<RequestTelemetryContext> {
 
+    private final TelemetryClient client;
+
     SdkBridgeImpl(TelemetryClient client) {
         super(client);
+        this.client = client;
     }
 
     @Override
@@ -64,6 +71,26 @@ class SdkBridgeImpl extends AbstractSdkBridge<RequestTelemetryContext> {
     @Override
     public <C> String propagate(Setter<C> setter, C carrier, boolean w3c, boolean w3cBackCompat) {
         if (w3c) {
+            RequestTelemetryContext context = ThreadContext.getRequestTelemetryContext();
+            OutboundCorrelation outbound = context == null ? null : context.getOutboundCorrelation();
+            if (outbound != null) {
+                String spanId = outbound.nextSpanId();
+                setter.put(carrier, "traceparent", outbound.getTraceparent(spanId));
+                if (w3cBackCompat) {
+                    setter.put(carrier, "Request-Id", outbound.getRequestId(spanId));
+                }
+                String tracestate = outbound.getTracestate();
+                if (tracestate != null) {
+                    setter.put(carrier, "tracestate", tracestate);
+                }
+                return spanId;
+            }
+            if (context != null && context.getHttpRequestTelemetry().getContext().getOperation().getId() != null) {
+                // the trace id of the request is not valid in W3C, it was already logged and would only fail again
+                return new Traceparent().getSpanId();
+            }
+
+            // no request in scope, or no trace id yet
             Traceparent traceparent = TraceContextCorrelation.generateChildDependencyTraceparentObj();
             if (traceparent == null) {
                 // this means an error occurred (and was logged) in above method, so just return a valid outgoingSpanId
@@ -88,4 +115,43 @@ class SdkBridgeImpl extends AbstractSdkBridge<RequestTelemetryContext> {
             return outgoingSpanId;
         }
     }
+
+    @Override
+    public <C> RequestTelemetryContext startRequest(String name, String source, long timestamp, Getter<C> getter,
+                                                    C carrier, boolean w3c) {
+        RequestTelemetryContext context = new RequestTelemetryContext(timestamp);
+        RequestTelemetry requestTelemetry = context.getHttpRequestTelemetry();
+        requestTelemetry.setName(name);
+        requestTelemetry.setSource(source);
+        requestTelemetry.setTimestamp(new Date(timestamp));
+        // the correlation reads and writes the request telemetry context of the thread
+        ThreadContext.setRequestTelemetryContext(context);
+        if (w3c) {
+            TraceContextCorrelation.resolveCorrelation(
+                    getter.get(carrier, TraceContextCorrelation.TRACEPARENT_HEADER_NAME),
+                    getter.get(carrier, TraceContextCorrelation.TRACESTATE_HEADER_NAME),
+                    getter.get(carrier, TelemetryCorrelationUtils.CORRELATION_HEADER_NAME), requestTelemetry);
+        } else {
+            TelemetryCorrelationUtils.resolveCorrelation(
+                    getter.get(carrier, TelemetryCorrelationUtils.CORRELATION_HEADER_NAME),
+                    getter.get(carrier, TelemetryCorrelationUtils.CORRELATION_CONTEXT_HEADER_NAME), requestTelemetry);
+        }
+        return context;
+    }
+
+    @Override
+    public void trackRequest(RequestTelemetryContext requestTelemetryContext, long durationMillis, boolean success) {
+        RequestTelemetry requestTelemetry = requestTelemetryContext.getHttpRequestTelemetry();
+        requestTelemetry.setDuration(new Duration(durationMillis));
+        if (!success) {
+            requestTelemetry.setSuccess(false);
+            requestTelemetry.setResponseCode("500");
+        }
+        try {
+            // tracked while the request telemetry context is still bound, for the telemetry initializers
+            client.track(requestTelemetry);
+        } finally {
+            ThreadContext.remove();
+        }
+    }
 }
@@ -23,13 +23,38 @@ package com.microsoft.applicationinsights.web.internal;
 
 /**
  * Created by yonisha on 2/16/2015.
+ *
+ * By default the context is inherited by the threads created while a request is processed. That can be
+ * turned off with {@link #setInheritable(boolean)}, in which case the context is carried to other threads
+ * explicitly with the wrappers of {@link ThreadContextExecutors}.
  */
 public class ThreadContext {
 
     // No object creation allowed for this class.
     private ThreadContext() {}
 
-    private static final InheritableThreadLocal<RequestTelemetryContext> threadLocal = new InheritableThreadLocal<>();
+    private static volatile ThreadLocal<RequestTelemetryContext> threadLocal = new InheritableThreadLocal<>();
+
+    /**
+     * Sets whether threads created while a request is processed inherit its context. Inheritance copies the
+     * context on every thread creation, and leaks it into pooled threads that outlive the request.
+     * This should be set before requests are tracked, contexts that are set when it changes are dropped.
+     * @param inheritable True to let new threads inherit the context, which is the default.
+     */
+    public static synchronized void setInheritable(boolean inheritable) {
+        if (inheritable == isInheritable()) {
+            return;
+        }
+
+        threadLocal = inheritable ? new InheritableThreadLocal<RequestTelemetryContext>() : new ThreadLocal<RequestTelemetryContext>();
+    }
+
+    /**
+     * @return True if threads created while a request is processed inherit its context.
+     */
+    public static boolean isInheritable() {
+        return threadLocal instanceof InheritableThreadLocal;
+    }
 
     /**
      * Set the context in ThreadLocal
@@ -0,0 +1,239 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Carries the {@link RequestTelemetryContext} of the current request to the threads that run its asynchronous work,
+ * so the telemetry sent from those threads is correlated with the request.
+ * <p>
+ * A wrapped task captures the context of the thread that creates it. The task sets that context while it runs
+ * and then restores whatever context the executing thread had, so pooled threads never keep the context of a
+ * request they worked for. Tasks created outside of a request run without a context.
+ * <p>
+ * Wrapping the executor passed to asynchronous APIs, e.g. {@code CompletableFuture.supplyAsync(supplier, executor)},
+ * covers every stage that runs on it.
+ */
+public final class ThreadContextExecutors {
+
+    // No object creation allowed for this class.
+    private ThreadContextExecutors() {}
+
+    /**
+     * @param task The task to wrap.
+     * @return A task that runs with the context of the calling thread.
+     */
+    public static Runnable wrap(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task should not be null");
+        }
+        return new ContextRunnable(ThreadContext.getRequestTelemetryContext(), task);
+    }
+
+    /**
+     * @param task The task to wrap.
+     * @return A task that runs with the context of the calling thread.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        if (task == null) {
+            throw new NullPointerException("task should not be null");
+        }
+        return new ContextCallable<T>(ThreadContext.getRequestTelemetryContext(), task);
+    }
+
+    /**
+     * @param executor The executor to wrap.
+     * @return An executor that runs each task with the context of the thread that submitted it.
+     */
+    public static Executor wrapExecutor(final Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor should not be null");
+        }
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(wrap(command));
+            }
+        };
+    }
+
+    /**
+     * @param executorService The executor service to wrap.
+     * @return An executor service that runs each task with the context of the thread that submitted it.
+     */
+    public static ExecutorService wrapExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new NullPointerException("executorService should not be null");
+        }
+        return new ContextExecutorService(executorService);
+    }
+
+    private static RequestTelemetryContext attach(RequestTelemetryContext context) {
+        RequestTelemetryContext previous = ThreadContext.getRequestTelemetryContext();
+        if (context == null) {
+            ThreadContext.remove();
+        } else {
+            ThreadContext.setRequestTelemetryContext(context);
+        }
+        return previous;
+    }
+
+    private static void detach(RequestTelemetryContext previous) {
+        if (previous == null) {
+            ThreadContext.remove();
+        } else {
+            ThreadContext.setRequestTelemetryContext(previous);
+        }
+    }
+
+    private static final class ContextRunnable implements Runnable {
+        private final RequestTelemetryContext context;
+        private final Runnable task;
+
+        ContextRunnable(RequestTelemetryContext context, Runnable task) {
+            this.context = context;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            RequestTelemetryContext previous = attach(context);
+            try {
+                task.run();
+            } finally {
+                detach(previous);
+            }
+        }
+    }
+
+    private static final class ContextCallable<T> implements Callable<T> {
+        private final RequestTelemetryContext context;
+        private final Callable<T> task;
+
+        ContextCallable(RequestTelemetryContext context, Callable<T> task) {
+            this.context = context;
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            RequestTelemetryContext previous = attach(context);
+            try {
+                return task.call();
+            } finally {
+                detach(previous);
+            }
+        }
+    }
+
+    private static final class ContextExecutorService implements ExecutorService {
+        private final ExecutorService delegate;
+
+        ContextExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrap(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+            RequestTelemetryContext context = ThreadContext.getRequestTelemetryContext();
+            List<Callable<T>> wrapped = new ArrayList<Callable<T>>(tasks.size());
+            for (Callable<T> task : tasks) {
+                wrapped.add(new ContextCallable<T>(context, task));
+            }
+            return wrapped;
+        }
+    }
+}
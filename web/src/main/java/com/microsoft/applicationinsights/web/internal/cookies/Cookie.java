@@ -45,6 +45,7 @@ public class Cookie {
 
     /**
      * Gets the cookie from the given http request.
+     * To get both the session and the user cookies use {@link RequestCookies#parse(HttpServletRequest)}.
      * @param eClass The required cookie type.
      * @param request THe http request to get the cookies from.
      * @param cookieName The cookie name.
@@ -62,6 +63,7 @@ public class Cookie {
         for (javax.servlet.http.Cookie cookie : cookies) {
             if (cookie.getName().equals(cookieName)) {
                 httpCookie = cookie;
+                break;
             }
         }
 
@@ -73,7 +75,13 @@ public class Cookie {
 
         E instance = null;
         try {
-            instance = eClass.getConstructor(javax.servlet.http.Cookie.class).newInstance(httpCookie);
+            if (eClass == SessionCookie.class) {
+                instance = eClass.cast(new SessionCookie(httpCookie));
+            } else if (eClass == UserCookie.class) {
+                instance = eClass.cast(new UserCookie(httpCookie));
+            } else {
+                instance = eClass.getConstructor(javax.servlet.http.Cookie.class).newInstance(httpCookie);
+            }
         } catch (Exception e) {
             InternalLogger.INSTANCE.error("Failed to create %s cookie with error: %s", cookieName, e.toString());
         }
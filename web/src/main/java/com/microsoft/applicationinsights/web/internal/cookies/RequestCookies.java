@@ -0,0 +1,109 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal.cookies;
+
+import javax.servlet.http.HttpServletRequest;
+import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+
+/**
+ * The Application Insights cookies sent with a request, found in a single pass over the request cookies.
+ * <p>
+ * When a cookie name appears more than once the first one is used, which is the one with the most specific path.
+ */
+public final class RequestCookies {
+    private static final RequestCookies EMPTY = new RequestCookies(null, null);
+
+    private final SessionCookie sessionCookie;
+    private final UserCookie userCookie;
+
+    private RequestCookies(SessionCookie sessionCookie, UserCookie userCookie) {
+        this.sessionCookie = sessionCookie;
+        this.userCookie = userCookie;
+    }
+
+    /**
+     * Parses the session and user cookies of the given request.
+     * @param request The http request to get the cookies from.
+     * @return The cookies found, a cookie that is missing or malformed is null.
+     */
+    public static RequestCookies parse(HttpServletRequest request) {
+        javax.servlet.http.Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return EMPTY;
+        }
+
+        javax.servlet.http.Cookie sessionHttpCookie = null;
+        javax.servlet.http.Cookie userHttpCookie = null;
+        for (javax.servlet.http.Cookie cookie : cookies) {
+            String name = cookie.getName();
+            if (sessionHttpCookie == null && SessionCookie.COOKIE_NAME.equals(name)) {
+                sessionHttpCookie = cookie;
+            } else if (userHttpCookie == null && UserCookie.COOKIE_NAME.equals(name)) {
+                userHttpCookie = cookie;
+            } else {
+                continue;
+            }
+
+            if (sessionHttpCookie != null && userHttpCookie != null) {
+                break;
+            }
+        }
+
+        if (sessionHttpCookie == null && userHttpCookie == null) {
+            return EMPTY;
+        }
+
+        SessionCookie sessionCookie = null;
+        if (sessionHttpCookie != null) {
+            try {
+                sessionCookie = new SessionCookie(sessionHttpCookie);
+            } catch (Exception e) {
+                InternalLogger.INSTANCE.error("Failed to create %s cookie with error: %s", SessionCookie.COOKIE_NAME, e.toString());
+            }
+        }
+
+        UserCookie userCookie = null;
+        if (userHttpCookie != null) {
+            try {
+                userCookie = new UserCookie(userHttpCookie);
+            } catch (Exception e) {
+                InternalLogger.INSTANCE.error("Failed to create %s cookie with error: %s", UserCookie.COOKIE_NAME, e.toString());
+            }
+        }
+
+        return new RequestCookies(sessionCookie, userCookie);
+    }
+
+    /**
+     * @return The session cookie, or null if the request has none.
+     */
+    public SessionCookie getSessionCookie() {
+        return sessionCookie;
+    }
+
+    /**
+     * @return The user cookie, or null if the request has none.
+     */
+    public UserCookie getUserCookie() {
+        return userCookie;
+    }
+}
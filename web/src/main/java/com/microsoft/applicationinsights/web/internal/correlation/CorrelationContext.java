@@ -39,6 +39,11 @@ public class CorrelationContext {
      */
     private final StringBuilder contextAsString;
 
+    /**
+     * The string returned by {@link #toString()}, reset when content is appended.
+     */
+    private String formatted;
+
     public CorrelationContext() {
         this.mappings = new HashMap<String, String>();
         this.contextAsString = new StringBuilder();
@@ -59,6 +64,7 @@ public class CorrelationContext {
             this.contextAsString.append(",");
         }
         this.contextAsString.append(content);
+        this.formatted = null;
     }
 
     /**
@@ -66,6 +72,11 @@ public class CorrelationContext {
      */
     @Override
     public String toString() {
-        return this.contextAsString.toString();
+        String result = this.formatted;
+        if (result == null) {
+            result = this.contextAsString.toString();
+            this.formatted = result;
+        }
+        return result;
     }
 }
\ No newline at end of file
@@ -21,11 +21,31 @@
 
 package com.microsoft.applicationinsights.web.internal.correlation;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.microsoft.applicationinsights.TelemetryConfiguration;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
+import com.microsoft.applicationinsights.internal.shutdown.SDKShutdownActivity;
+import com.microsoft.applicationinsights.internal.util.LocalFileSystemUtils;
+import com.microsoft.applicationinsights.internal.util.ThreadPoolUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
@@ -33,16 +53,144 @@ public enum InstrumentationKeyResolver {
     INSTANCE;
 
     private static final String CorrelationIdFormat = "cid-v1:%s";
+    private static final String CorrelationIdPrefix = "cid-v1:";
+    private static final int MAX_PERSISTED_APP_ID_LENGTH = 128;
+    private static final String SDK_DEFAULT_FOLDER = ".applicationinsights";
+    private static final String APP_ID_DEFAULT_FOLDER = "appIds";
+    private static final String APP_ID_FILE_EXTENSION = ".appid";
+    private static final long INITIAL_BACKGROUND_RETRY_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    public static final long DEFAULT_APP_ID_TTL_IN_MINUTES = 60;
+
+    /**
+     * The last appId resolved, kept apart from the cache so request threads only read one volatile field.
+     */
+    private static final class ResolvedApplicationId {
+        final String instrumentationKey;
+        final String appId;
+
+        ResolvedApplicationId(String instrumentationKey, String appId) {
+            this.instrumentationKey = instrumentationKey;
+            this.appId = appId;
+        }
+    }
+
+    /**
+     * An instrumentation key whose appId is resolved and refreshed in the background.
+     * Failed and pending attempts are retried with an exponential backoff, capped by the appId TTL.
+     */
+    private static final class BackgroundResolution {
+        final TelemetryConfiguration configuration;
+        volatile long nextAttemptAtMillis;
+        volatile long retryIntervalInMillis;
+
+        BackgroundResolution(TelemetryConfiguration configuration) {
+            this.configuration = configuration;
+        }
+    }
+
     private volatile ApplicationIdResolver appIdResolver;
     private final ConcurrentMap<String, String> appIdCache;
+    private volatile ResolvedApplicationId resolvedAppId;
+    private final ConcurrentMap<String, BackgroundResolution> backgroundResolutions;
+    private ScheduledExecutorService backgroundExecutor;
+    private ScheduledFuture<?> nextBackgroundResolution;
+    private final Object backgroundResolutionLock = new Object();
+    private volatile File persistenceFolder;
+    private volatile long appIdTtlInMillis = TimeUnit.MINUTES.toMillis(DEFAULT_APP_ID_TTL_IN_MINUTES);
 
     InstrumentationKeyResolver() {
         this.appIdCache = new ConcurrentHashMap<>();
+        this.backgroundResolutions = new ConcurrentHashMap<>();
         this.appIdResolver = new CdsProfileFetcher();
     }
 
     public void clearCache() {
         this.appIdCache.clear();
+        this.resolvedAppId = null;
+        synchronized (this) {
+            this.backgroundResolutions.clear();
+            if (nextBackgroundResolution != null) {
+                nextBackgroundResolution.cancel(false);
+                nextBackgroundResolution = null;
+            }
+        }
+    }
+
+    /**
+     * Sets the folder resolved appIds are persisted to, so they are available right away after a restart.
+     * Defaults to a folder under the user's home directory, only accessible by that user.
+     */
+    public void setPersistenceFolder(File persistenceFolder) {
+        this.persistenceFolder = persistenceFolder;
+    }
+
+    /**
+     * Sets how long an appId resolved in the background is used before it is resolved again.
+     */
+    public void setAppIdTtlInMinutes(long appIdTtlInMinutes) {
+        if (appIdTtlInMinutes < 1) {
+            throw new IllegalArgumentException("appId TTL should be at least 1 minute");
+        }
+        this.appIdTtlInMillis = TimeUnit.MINUTES.toMillis(appIdTtlInMinutes);
+    }
+
+    /**
+     * Starts resolving the appId of the configuration's instrumentation key in the background.
+     * A previously persisted appId is used right away, the resolved appId is persisted and refreshed when its TTL expires.
+     * Until it is resolved, {@link #resolveInstrumentationKey(String, TelemetryConfiguration)} returns null
+     * for that key instead of polling the resolution.
+     *
+     * @param config The configuration whose instrumentation key is resolved.
+     */
+    public void startBackgroundResolution(TelemetryConfiguration config) {
+        if (config == null || StringUtils.isEmpty(config.getInstrumentationKey())) {
+            return;
+        }
+
+        String instrumentationKey = config.getInstrumentationKey();
+        if (backgroundResolutions.putIfAbsent(instrumentationKey, new BackgroundResolution(config)) != null) {
+            return;
+        }
+
+        String persistedAppId = readPersistedAppId(instrumentationKey);
+        if (persistedAppId != null) {
+            InternalLogger.INSTANCE.trace("InstrumentationKeyResolver - using persisted appId of instrumentation key: %s", instrumentationKey);
+            appIdCache.put(instrumentationKey, persistedAppId);
+            resolvedAppId = new ResolvedApplicationId(instrumentationKey, persistedAppId);
+        }
+
+        synchronized (this) {
+            if (backgroundExecutor == null) {
+                backgroundExecutor = Executors.newSingleThreadScheduledExecutor(ThreadPoolUtils.createDaemonThreadFactory(InstrumentationKeyResolver.class));
+                SDKShutdownActivity.INSTANCE.register(backgroundExecutor);
+            }
+        }
+        scheduleBackgroundResolution(0);
+    }
+
+    /**
+     * Schedules the next background resolution, unless one is already scheduled earlier or the cache was cleared.
+     */
+    private synchronized void scheduleBackgroundResolution(long delayInMillis) {
+        if (backgroundResolutions.isEmpty()) {
+            return;
+        }
+        if (nextBackgroundResolution != null && !nextBackgroundResolution.isDone()) {
+            if (nextBackgroundResolution.getDelay(TimeUnit.MILLISECONDS) <= delayInMillis) {
+                return;
+            }
+            nextBackgroundResolution.cancel(false);
+        }
+        try {
+            nextBackgroundResolution = backgroundExecutor.schedule(new BackgroundResolutionRunnable(), delayInMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the SDK is shutting down
+            nextBackgroundResolution = null;
+        }
+    }
+
+    /* Visible for Testing */ synchronized boolean isBackgroundResolutionScheduled() {
+        return nextBackgroundResolution != null && !nextBackgroundResolution.isDone();
     }
 
     /**
@@ -76,6 +224,11 @@ public enum InstrumentationKeyResolver {
             throw new IllegalArgumentException("config must not be null or empty");
         }
 
+        ResolvedApplicationId resolved = this.resolvedAppId;
+        if (resolved != null && resolved.instrumentationKey.equals(instrumentationKey)) {
+            return resolved.appId;
+        }
+
         try {
             String appId = this.appIdCache.get(instrumentationKey);
 
@@ -83,11 +236,17 @@ public enum InstrumentationKeyResolver {
                 return appId;
             }
 
+            if (this.backgroundResolutions.containsKey(instrumentationKey)) {
+                // resolved in the background, there is nothing to poll until it completes
+                return null;
+            }
+
             ProfileFetcherResult result = this.appIdResolver.fetchApplicationId(instrumentationKey, config);
             appId = processResult(result, instrumentationKey);
 
             if (appId != null) {
                 this.appIdCache.putIfAbsent(instrumentationKey, appId);
+                this.resolvedAppId = new ResolvedApplicationId(instrumentationKey, appId);
             }
 
             return appId;
@@ -122,4 +281,194 @@ public enum InstrumentationKeyResolver {
 
         return appId;
     }
-}
\ No newline at end of file
+
+    /**
+     * Resolves the keys whose appId expired or whose retry interval elapsed.
+     *
+     * @return The delay in milliseconds until the next key needs to be resolved.
+     */
+    /* Visible for Testing */ long resolveInBackground() {
+        // an attempt is never made for a key while another one is still in flight
+        synchronized (backgroundResolutionLock) {
+            return resolveExpiredKeys();
+        }
+    }
+
+    private long resolveExpiredKeys() {
+        long now = System.currentTimeMillis();
+        long nextAttemptInMillis = appIdTtlInMillis;
+        for (Map.Entry<String, BackgroundResolution> entry : backgroundResolutions.entrySet()) {
+            String instrumentationKey = entry.getKey();
+            BackgroundResolution resolution = entry.getValue();
+            if (now < resolution.nextAttemptAtMillis) {
+                nextAttemptInMillis = Math.min(nextAttemptInMillis, resolution.nextAttemptAtMillis - now);
+                continue;
+            }
+
+            // until the attempt succeeds, the key backs off so a failing fetcher is neither polled nor logged every second
+            long retryIntervalInMillis = resolution.retryIntervalInMillis == 0
+                    ? INITIAL_BACKGROUND_RETRY_INTERVAL_IN_MILLIS
+                    : Math.min(resolution.retryIntervalInMillis * 2, appIdTtlInMillis);
+            resolution.retryIntervalInMillis = retryIntervalInMillis;
+            resolution.nextAttemptAtMillis = now + retryIntervalInMillis;
+            nextAttemptInMillis = Math.min(nextAttemptInMillis, retryIntervalInMillis);
+
+            try {
+                ProfileFetcherResult result = this.appIdResolver.fetchApplicationId(instrumentationKey, resolution.configuration);
+                String appId = processResult(result, instrumentationKey);
+                if (appId == null) {
+                    // the previous or persisted appId, if any, is still used until this one is resolved
+                    continue;
+                }
+
+                // resolved, nothing to do until the TTL expires
+                resolution.retryIntervalInMillis = 0;
+                resolution.nextAttemptAtMillis = now + appIdTtlInMillis;
+                String previousAppId = this.appIdCache.put(instrumentationKey, appId);
+                this.resolvedAppId = new ResolvedApplicationId(instrumentationKey, appId);
+                if (!appId.equals(previousAppId)) {
+                    persistAppId(instrumentationKey, appId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return nextAttemptInMillis;
+            } catch (Exception e) {
+                if (InternalLogger.INSTANCE.isErrorEnabled()) {
+                    InternalLogger.INSTANCE.error("InstrumentationKeyResolver: failed to resolve instrumentation key: %s => Exception: %s", instrumentationKey, ExceptionUtils.getStackTrace(e));
+                }
+            }
+        }
+        return nextAttemptInMillis;
+    }
+
+    private File getPersistenceFile(String instrumentationKey) {
+        // the key is used as the file name
+        for (int i = 0; i < instrumentationKey.length(); i++) {
+            char c = instrumentationKey.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-') {
+                return null;
+            }
+        }
+
+        File folder = persistenceFolder;
+        if (folder == null) {
+            String userHome = System.getProperty("user.home");
+            if (StringUtils.isEmpty(userHome)) {
+                return null;
+            }
+            folder = new File(new File(userHome, SDK_DEFAULT_FOLDER), APP_ID_DEFAULT_FOLDER);
+        }
+        return new File(folder, instrumentationKey + APP_ID_FILE_EXTENSION);
+    }
+
+    /**
+     * Checks that the persisted file could only have been written by the current user, so another user
+     * cannot make requests propagate a spoofed appId. Only checked where POSIX attributes are supported.
+     */
+    private static boolean isOwnedByCurrentUser(Path path) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view == null) {
+            return true;
+        }
+        if (!view.getOwner().getName().equals(LocalFileSystemUtils.determineCurrentUserName())) {
+            return false;
+        }
+        Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+        return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    }
+
+    private static boolean isValidAppId(String appId) {
+        if (!appId.startsWith(CorrelationIdPrefix) || appId.length() == CorrelationIdPrefix.length() || appId.length() > MAX_PERSISTED_APP_ID_LENGTH) {
+            return false;
+        }
+        for (int i = CorrelationIdPrefix.length(); i < appId.length(); i++) {
+            char c = appId.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readPersistedAppId(String instrumentationKey) {
+        File file = getPersistenceFile(instrumentationKey);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        try {
+            if (!isOwnedByCurrentUser(file.getParentFile().toPath()) || !isOwnedByCurrentUser(file.toPath())) {
+                InternalLogger.INSTANCE.warn("InstrumentationKeyResolver - ignoring persisted appId in %s, it is writable by other users", file.getAbsolutePath());
+                return null;
+            }
+            String appId = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            if (!isValidAppId(appId)) {
+                InternalLogger.INSTANCE.warn("InstrumentationKeyResolver - ignoring invalid persisted appId in %s", file.getAbsolutePath());
+                return null;
+            }
+            return appId;
+        } catch (IOException e) {
+            InternalLogger.INSTANCE.warn("InstrumentationKeyResolver - failed to read persisted appId from %s: %s", file.getAbsolutePath(), e.toString());
+            return null;
+        }
+    }
+
+    private void persistAppId(String instrumentationKey, String appId) {
+        File file = getPersistenceFile(instrumentationKey);
+        if (file == null) {
+            return;
+        }
+
+        File folder = file.getParentFile();
+        if (!folder.isDirectory()) {
+            try {
+                if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                    Files.createDirectories(folder.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(folder.toPath());
+                }
+            } catch (IOException e) {
+                InternalLogger.INSTANCE.warn("InstrumentationKeyResolver - failed to create folder %s, appId is not persisted: %s", folder.getAbsolutePath(), e.toString());
+                return;
+            }
+        }
+
+        File tempFile = null;
+        try {
+            // written to a temporary file first, so a concurrent reader never sees a partial appId
+            tempFile = File.createTempFile(instrumentationKey, ".tmp", folder);
+            Files.write(tempFile.toPath(), appId.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            InternalLogger.INSTANCE.warn("InstrumentationKeyResolver - failed to persist appId to %s: %s", file.getAbsolutePath(), e.toString());
+        } finally {
+            if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+                InternalLogger.INSTANCE.trace("InstrumentationKeyResolver - failed to delete %s", tempFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private final class BackgroundResolutionRunnable implements Runnable {
+        @Override
+        public void run() {
+            long nextAttemptInMillis = INITIAL_BACKGROUND_RETRY_INTERVAL_IN_MILLIS;
+            try {
+                synchronized (InstrumentationKeyResolver.this) {
+                    nextBackgroundResolution = null;
+                }
+                nextAttemptInMillis = resolveInBackground();
+            } catch (ThreadDeath td) {
+                throw td;
+            } catch (Throwable t) {
+                try {
+                    InternalLogger.INSTANCE.error("InstrumentationKeyResolver - background resolution failed: %s", ExceptionUtils.getStackTrace(t));
+                } catch (ThreadDeath td) {
+                    throw td;
+                } catch (Throwable t2) {
+                    // chomp
+                }
+            }
+            scheduleBackgroundResolution(nextAttemptInMillis);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal.correlation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Traceparent;
+import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Tracestate;
+
+/**
+ * Holds the W3C header values that are common to every outbound call made while serving a request, so they are
+ * validated and formatted once per request instead of once per call.
+ * <p>
+ * Child span ids are derived from a per-request random base and a counter through a Weyl sequence: they are unique
+ * within the request, never all zeros as required by the W3C spec, and do not need a call to the random generator.
+ */
+public final class OutboundCorrelation {
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Odd constant (the 64 bit golden ratio), multiplying the counter by it visits every 64 bit value once.
+     */
+    private static final long SPAN_ID_STEP = 0x9E3779B97F4A7C15L;
+
+    private final String traceId;
+    private final int traceFlags;
+    private final Tracestate tracestate;
+
+    private final String traceparentPrefix;
+    private final String traceparentSuffix;
+    private final String tracestateHeader;
+
+    private final long spanIdBase;
+    private final AtomicLong spanIdCounter = new AtomicLong();
+
+    private OutboundCorrelation(String traceId, int traceFlags, Tracestate tracestate, String traceparent) {
+        this.traceId = traceId;
+        this.traceFlags = traceFlags;
+        this.tracestate = tracestate;
+
+        // "00-" + trace-id + "-" and "-" + trace-flags
+        int spanIdStart = traceparent.indexOf('-', 3) + 1;
+        this.traceparentPrefix = traceparent.substring(0, spanIdStart);
+        this.traceparentSuffix = traceparent.substring(traceparent.lastIndexOf('-'));
+        this.tracestateHeader = tracestate == null ? null : tracestate.toString();
+        this.spanIdBase = ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Creates the outbound correlation of a request.
+     * @param traceId The trace id of the request.
+     * @param traceFlags The trace flags to propagate.
+     * @param tracestate The tracestate to propagate, can be null.
+     * @return The outbound correlation, or null if the trace id or the flags are not valid W3C values.
+     */
+    public static OutboundCorrelation create(String traceId, int traceFlags, Tracestate tracestate) {
+        Traceparent traceparent;
+        try {
+            traceparent = new Traceparent(0, traceId, null, traceFlags);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return new OutboundCorrelation(traceId, traceFlags, tracestate, traceparent.toString());
+    }
+
+    /**
+     * Tells whether this instance was created for the given values.
+     */
+    public boolean isFor(String traceId, int traceFlags, Tracestate tracestate) {
+        return this.traceFlags == traceFlags && this.tracestate == tracestate && this.traceId.equals(traceId);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Generates the span id of the next outbound call.
+     * @return A 16 characters lowercase hexadecimal span id.
+     */
+    public String nextSpanId() {
+        long value;
+        do {
+            value = spanIdBase + spanIdCounter.incrementAndGet() * SPAN_ID_STEP;
+        } while (value == 0);
+
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX_CHARS[(int) value & 0xf];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Gets the traceparent header value of an outbound call.
+     * @param spanId The span id of the call.
+     */
+    public String getTraceparent(String spanId) {
+        return new StringBuilder(traceparentPrefix.length() + spanId.length() + traceparentSuffix.length())
+            .append(traceparentPrefix).append(spanId).append(traceparentSuffix).toString();
+    }
+
+    /**
+     * Gets the legacy Request-Id header value of an outbound call.
+     * @param spanId The span id of the call.
+     */
+    public String getRequestId(String spanId) {
+        return new StringBuilder(traceId.length() + spanId.length() + 3)
+            .append('|').append(traceId).append('.').append(spanId).append('.').toString();
+    }
+
+    /**
+     * Gets the tracestate header value, formatted once per request.
+     * @return The header value, or null if there is no tracestate to propagate.
+     */
+    public String getTracestate() {
+        return tracestateHeader;
+    }
+}
@@ -46,6 +46,21 @@ public class TelemetryCorrelationUtils {
     public static final String REQUEST_CONTEXT_HEADER_ROLENAME_KEY = "roleName";
     public static final int REQUESTID_MAXLENGTH = 1024;
 
+    private static final class ApplicationCorrelationId {
+        final String appId;
+        final String headerValue;
+
+        ApplicationCorrelationId(String appId) {
+            this.appId = appId;
+            this.headerValue = REQUEST_CONTEXT_HEADER_APPID_KEY + "=" + appId;
+        }
+    }
+
+    /**
+     * The last formatted Request-Context value, the appId rarely changes so it is formatted again only when it does.
+     */
+    private static volatile ApplicationCorrelationId applicationCorrelationId;
+
     private TelemetryCorrelationUtils() {}
 
     /**
@@ -71,25 +86,7 @@ public class TelemetryCorrelationUtils {
                 return;
             }
 
-            String rootId = null;
-            String parentId = null;
-            String currentId = null;
-
-            String requestId = request.getHeader(CORRELATION_HEADER_NAME);
-
-            if (requestId == null || requestId.isEmpty()) {
-                // no incoming requestId, no parent.
-                rootId = generateRootId();
-                currentId = '|' + rootId + '.';
-            } else {
-                parentId = requestId;
-                rootId = extractRootId(parentId);
-                currentId = generateId(parentId);
-            }
-
-            requestTelemetry.setId(currentId);
-            requestTelemetry.getContext().getOperation().setId(rootId);
-            requestTelemetry.getContext().getOperation().setParentId(parentId);
+            resolveIds(request.getHeader(CORRELATION_HEADER_NAME), requestTelemetry);
 
             // let us resolve the context now.
             resolveCorrelationContext(request, requestTelemetry);
@@ -103,6 +100,35 @@ public class TelemetryCorrelationUtils {
         }
     }
 
+    /**
+     * Resolves correlation ID's of a request that did not come in over HTTP (e.g. a received message), from the
+     * headers the sender propagated with it. The request telemetry context must be bound to the thread.
+     * @param requestId The Request-Id header, or null if the sender did not propagate one.
+     * @param correlationContext The Correlation-Context header, or null if the sender did not propagate one.
+     * @param requestTelemetry The request telemetry to be populated with correlation ID's.
+     */
+    public static void resolveCorrelation(String requestId, String correlationContext,
+                                          RequestTelemetry requestTelemetry) {
+
+        try {
+            if (requestTelemetry == null) {
+                InternalLogger.INSTANCE.error("Failed to resolve correlation. requestTelemetry is null.");
+                return;
+            }
+
+            resolveIds(requestId, requestTelemetry);
+
+            if (correlationContext != null) {
+                appendCorrelationContext(ThreadContext.getRequestTelemetryContext().getCorrelationContext(),
+                    correlationContext, requestTelemetry);
+            }
+        }
+        catch(Exception ex) {
+            InternalLogger.INSTANCE.error("Failed to resolve correlation. Exception information: %s", ex.toString());
+            InternalLogger.INSTANCE.trace("Stack trace generated is %s", ExceptionUtils.getStackTrace(ex));
+        }
+    }
+
     /**
      * Generates a child Id for dependencies. Dependencies are children of requests and, therefore, their ID's
      * reflect this. The generated ID is based on the current request scope (stored in TLS).
@@ -160,8 +186,8 @@ public class TelemetryCorrelationUtils {
      */
     public static String retrieveApplicationCorrelationId() {
 
-        String instrumentationKey = TelemetryConfiguration.getActive().getInstrumentationKey();
-        String appId = InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey(instrumentationKey, TelemetryConfiguration.getActive());
+        TelemetryConfiguration configuration = TelemetryConfiguration.getActive();
+        String appId = InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey(configuration.getInstrumentationKey(), configuration);
 
         //it's possible the appId returned is null (e.g. async task is still pending or has failed). In this case, just
         //return and let the next request resolve the ikey.
@@ -170,7 +196,12 @@ public class TelemetryCorrelationUtils {
             return "";
         }
 
-        return REQUEST_CONTEXT_HEADER_APPID_KEY + "=" + appId;
+        ApplicationCorrelationId cached = applicationCorrelationId;
+        if (cached == null || !cached.appId.equals(appId)) {
+            cached = new ApplicationCorrelationId(appId);
+            applicationCorrelationId = cached;
+        }
+        return cached.headerValue;
     }
 
     /**
@@ -282,12 +313,41 @@ public class TelemetryCorrelationUtils {
             ThreadContext.getRequestTelemetryContext().getCorrelationContext();
 
         while (baggages.hasMoreElements()) {
-            String baggage = baggages.nextElement();
-            currentCorrelationContext.append(baggage);
-            Map<String, String> propertyBag = getPropertyBag(baggage);
-            currentCorrelationContext.getMappings().putAll(propertyBag);
-            requestTelemetry.getProperties().putAll(propertyBag);
+            appendCorrelationContext(currentCorrelationContext, baggages.nextElement(), requestTelemetry);
+        }
+    }
+
+    private static void appendCorrelationContext(CorrelationContext currentCorrelationContext, String baggage,
+                                                 RequestTelemetry requestTelemetry) {
+        currentCorrelationContext.append(baggage);
+        Map<String, String> propertyBag = getPropertyBag(baggage);
+        currentCorrelationContext.getMappings().putAll(propertyBag);
+        requestTelemetry.getProperties().putAll(propertyBag);
+    }
+
+    /**
+     * Sets the id of the request, and its operation id and parent id from the incoming Request-Id.
+     * @param requestId The incoming Request-Id, or null if there is none.
+     * @param requestTelemetry The request telemetry item.
+     */
+    private static void resolveIds(String requestId, RequestTelemetry requestTelemetry) {
+        String rootId = null;
+        String parentId = null;
+        String currentId = null;
+
+        if (requestId == null || requestId.isEmpty()) {
+            // no incoming requestId, no parent.
+            rootId = generateRootId();
+            currentId = '|' + rootId + '.';
+        } else {
+            parentId = requestId;
+            rootId = extractRootId(parentId);
+            currentId = generateId(parentId);
         }
+
+        requestTelemetry.setId(currentId);
+        requestTelemetry.getContext().getOperation().setId(rootId);
+        requestTelemetry.getContext().getOperation().setParentId(parentId);
     }
 
     /**
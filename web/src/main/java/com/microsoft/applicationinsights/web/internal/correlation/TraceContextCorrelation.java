@@ -7,9 +7,7 @@ import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
 import com.microsoft.applicationinsights.web.internal.ThreadContext;
 import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Traceparent;
 import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Tracestate;
-import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -70,32 +68,43 @@ public class TraceContextCorrelation {
             }
 
             Traceparent incomingTraceparent = extractIncomingTraceparent(request);
-            Traceparent processedTraceParent = processIncomingTraceparent(incomingTraceparent, request);
-
-            // represents the id of the current request.
-            requestTelemetry.setId(processedTraceParent.getSpanId());
-
-            // represents the trace-id of this distributed trace
-            requestTelemetry.getContext().getOperation().setId(processedTraceParent.getTraceId());
-
-            // assign parent id
+            String incomingTracestate = null;
+            String requestId = null;
             if (incomingTraceparent != null) {
-                requestTelemetry.getContext().getOperation().setParentId(incomingTraceparent.getSpanId());
+                incomingTracestate = joinHeaderValues(request.getHeaders(TRACESTATE_HEADER_NAME));
+            } else if (isW3CBackCompatEnabled) {
+                requestId = request.getHeader(TelemetryCorrelationUtils.CORRELATION_HEADER_NAME);
             }
+            resolveCorrelation(incomingTraceparent, incomingTracestate, requestId, requestTelemetry);
 
-            // Propagate trace-flags
-            ThreadContext.getRequestTelemetryContext().setTraceflag(processedTraceParent.getTraceFlags());
+            // Let the callee know the caller's AppId
+            addTargetAppIdInResponseHeaderViaRequestContext(response);
 
-            String appId = getAppId();
+        } catch (java.lang.Exception e) {
+            InternalLogger.INSTANCE.error("unable to perform correlation :%s", ExceptionUtils.
+                getStackTrace(e));
+        }
+    }
 
-            // Get Tracestate header
-            Tracestate tracestate = getTracestate(request, incomingTraceparent, appId);
+    /**
+     * This method performs the correlation of a request that did not come in over HTTP (e.g. a received message),
+     * from the headers the sender propagated with it. The request telemetry context must be bound to the thread.
+     * @param traceparent The traceparent header, or null if the sender did not propagate one
+     * @param tracestate The tracestate header, or null if the sender did not propagate one
+     * @param requestId The Request-Id header, only used in backward compatibility mode, or null
+     * @param requestTelemetry
+     */
+    public static void resolveCorrelation(String traceparent, String tracestate, String requestId,
+        RequestTelemetry requestTelemetry) {
 
-            // add tracestate to threadlocal
-            ThreadContext.getRequestTelemetryContext().setTracestate(tracestate);
+        try {
+            if (requestTelemetry == null) {
+                InternalLogger.INSTANCE.error("Failed to resolve correlation. requestTelemetry is null.");
+                return;
+            }
 
-            // Let the callee know the caller's AppId
-            addTargetAppIdInResponseHeaderViaRequestContext(response);
+            Traceparent incomingTraceparent = traceparent == null ? null : parseTraceparent(traceparent);
+            resolveCorrelation(incomingTraceparent, tracestate, requestId, requestTelemetry);
 
         } catch (java.lang.Exception e) {
             InternalLogger.INSTANCE.error("unable to perform correlation :%s", ExceptionUtils.
@@ -103,24 +112,72 @@ public class TraceContextCorrelation {
         }
     }
 
+    /**
+     * Populates the traceId, spanId and parentId of the request from the incoming headers, and stores the
+     * trace-flags and tracestate into ThreadLocal for downstream propagation.
+     * @param incomingTraceparent
+     * @param incomingTracestate only used if there is an incoming traceparent
+     * @param requestId the legacy Request-Id, only used in backward compatibility mode if there is no incoming
+     * traceparent
+     * @param requestTelemetry
+     */
+    private static void resolveCorrelation(Traceparent incomingTraceparent, String incomingTracestate,
+        String requestId, RequestTelemetry requestTelemetry) {
+
+        Traceparent processedTraceParent = processIncomingTraceparent(incomingTraceparent, requestId);
+
+        // represents the id of the current request.
+        requestTelemetry.setId(processedTraceParent.getSpanId());
+
+        // represents the trace-id of this distributed trace
+        requestTelemetry.getContext().getOperation().setId(processedTraceParent.getTraceId());
+
+        // assign parent id
+        if (incomingTraceparent != null) {
+            requestTelemetry.getContext().getOperation().setParentId(incomingTraceparent.getSpanId());
+        }
+
+        // Propagate trace-flags
+        ThreadContext.getRequestTelemetryContext().setTraceflag(processedTraceParent.getTraceFlags());
+
+        String appId = getAppId();
+
+        // Get Tracestate header
+        Tracestate tracestate = getTracestate(incomingTraceparent == null ? null : incomingTracestate, appId);
+
+        // add tracestate to threadlocal
+        ThreadContext.getRequestTelemetryContext().setTracestate(tracestate);
+    }
+
     /**
      * Helper method to create extract Incoming Traceparent header. This method can return null.
      * @param request
      * @return Incoming Traceparent
      */
     private static Traceparent extractIncomingTraceparent(HttpServletRequest request) {
-        Traceparent incomingTraceparent = null;
-
         Enumeration<String> traceparents = request.getHeaders(TRACEPARENT_HEADER_NAME);
-        List<String> traceparentList = getEnumerationAsCollection(traceparents);
 
         // W3C spec mandates a request should exactly have 1 Traceparent header
-        if (traceparentList.size() != 1) {
+        if (traceparents == null || !traceparents.hasMoreElements()) {
+            return null;
+        }
+        String traceparent = traceparents.nextElement();
+        if (traceparents.hasMoreElements()) {
             return null;
         }
 
+        return parseTraceparent(traceparent);
+    }
+
+    /**
+     * Parses an incoming traceparent header, an invalid header is logged and null is returned.
+     * @param traceparent
+     * @return Incoming Traceparent
+     */
+    private static Traceparent parseTraceparent(String traceparent) {
+        Traceparent incomingTraceparent = null;
         try {
-            incomingTraceparent = Traceparent.fromString(traceparentList.get(0));
+            incomingTraceparent = Traceparent.fromString(traceparent);
         } catch (Exception e) {
             InternalLogger.INSTANCE.error(String.format("Received invalid traceparent header with exception %s, "
                 + "distributed trace might be broken", ExceptionUtils.getStackTrace(e)));
@@ -131,10 +188,10 @@ public class TraceContextCorrelation {
     /**
      * This method takes incoming traceparent object and creates a new outbound traceparent object
      * @param incomingTraceparent
+     * @param requestId the legacy Request-Id header, or null
      * @return
      */
-    private static Traceparent processIncomingTraceparent(Traceparent incomingTraceparent,
-        HttpServletRequest request) {
+    private static Traceparent processIncomingTraceparent(Traceparent incomingTraceparent, String requestId) {
 
         Traceparent processedTraceparent = null;
 
@@ -143,7 +200,7 @@ public class TraceContextCorrelation {
 
             // If BackCompt mode is enabled, read the Request-Id Header
             if (isW3CBackCompatEnabled) {
-                processedTraceparent = processLegacyCorrelation(request);
+                processedTraceparent = processLegacyCorrelation(requestId);
             }
 
             if (processedTraceparent == null){
@@ -160,12 +217,10 @@ public class TraceContextCorrelation {
 
     /**
      * This method processes the legacy Request-ID header for backward compatibility.
-     * @param request
+     * @param requestId
      * @return
      */
-    private static Traceparent processLegacyCorrelation(HttpServletRequest request) {
-
-        String requestId = request.getHeader(TelemetryCorrelationUtils.CORRELATION_HEADER_NAME);
+    private static Traceparent processLegacyCorrelation(String requestId) {
 
         try {
             if (requestId != null && !requestId.isEmpty()) {
@@ -186,21 +241,18 @@ public class TraceContextCorrelation {
     /**
      * Helper method that extracts tracestate header from request if available and add's Azure component
      * to it. If tracestate is not available, a new tracestate with Azure component is created.
-     * @param request
-     * @param incomingTraceparent
+     * @param incomingTracestate
      * @param appId
      * @return Tracestate
      */
-    private static Tracestate getTracestate(HttpServletRequest request, Traceparent incomingTraceparent, String appId) {
+    private static Tracestate getTracestate(String incomingTracestate, String appId) {
 
         Tracestate tracestate= null;
 
-        if (incomingTraceparent != null) {
-            Enumeration<String> tracestates = request.getHeaders(TRACESTATE_HEADER_NAME);
-            List<String> tracestateList = getEnumerationAsCollection(tracestates);
+        if (incomingTracestate != null) {
             try {
                 //create tracestate from incoming header
-                tracestate = Tracestate.fromString(StringUtils.join(tracestateList, ","));
+                tracestate = Tracestate.fromString(incomingTracestate);
                 // add appId to it if it's resolved
                 if (appId != null && !appId.isEmpty()) {
                     tracestate = new Tracestate(tracestate, AZURE_TRACEPARENT_COMPONENT_INITIAL,
@@ -221,7 +273,7 @@ public class TraceContextCorrelation {
                 }
             }
         } else {
-            // pass new tracestate if incoming traceparent is empty
+            // pass new tracestate if incoming traceparent or tracestate is empty
             try {
                 if (appId != null && !appId.isEmpty()) {
                     tracestate = new Tracestate(null, AZURE_TRACEPARENT_COMPONENT_INITIAL, appId);
@@ -235,17 +287,26 @@ public class TraceContextCorrelation {
     }
 
     /**
-     * Returns collection from Enumeration
+     * Joins the values of a header that may be sent more than once, the first value is returned as is
+     * when the header is sent once.
      * @param e
-     * @return List of headers
+     * @return The values separated by commas, or null if the header is absent
      */
-    private static List<String> getEnumerationAsCollection(Enumeration<String> e) {
+    private static String joinHeaderValues(Enumeration<String> e) {
+        if (e == null || !e.hasMoreElements()) {
+            return null;
+        }
 
-        List<String> list = new ArrayList<>();
+        String first = e.nextElement();
+        if (!e.hasMoreElements()) {
+            return first;
+        }
+
+        StringBuilder sb = new StringBuilder(first);
         while (e.hasMoreElements()) {
-            list.add(e.nextElement());
+            sb.append(',').append(e.nextElement());
         }
-        return list;
+        return sb.toString();
     }
 
     /**
@@ -273,8 +334,8 @@ public class TraceContextCorrelation {
      */
     public static String getAppId() {
 
-        String instrumentationKey = TelemetryConfiguration.getActive().getInstrumentationKey();
-        String appId = InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey(instrumentationKey, TelemetryConfiguration.getActive());
+        TelemetryConfiguration configuration = TelemetryConfiguration.getActive();
+        String appId = InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey(configuration.getInstrumentationKey(), configuration);
 
         //it's possible the appId returned is null (e.g. async task is still pending or has failed). In this case, just
         //return and let the next request resolve the ikey.
@@ -1,5 +1,6 @@
 package com.microsoft.applicationinsights.web.internal.correlation.tracecontext;
 
+import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.http.annotation.Experimental;
@@ -14,6 +15,20 @@ import org.apache.http.annotation.Experimental;
 @Experimental
 public class Traceparent {
 
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Value of each lowercase hexadecimal character, -1 for any other character
+     */
+    private static final int[] HEX_VALUES = new int[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, -1);
+        for (int i = 0; i < HEX_CHARS.length; i++) {
+            HEX_VALUES[HEX_CHARS[i]] = i;
+        }
+    }
+
     /**
      * Version number between range [0,255] inclusive
      */
@@ -34,6 +49,11 @@ public class Traceparent {
      */
     final int traceFlags;
 
+    /**
+     * Header representation, built on first use
+     */
+    private String header;
+
     private Traceparent(int version, String traceId, String spanId, int traceFlags, boolean check) {
         if (check) {
             validate(version, traceId, spanId, traceFlags);
@@ -106,22 +126,48 @@ public class Traceparent {
      */
     @Override
     public String toString() {
-        return String.format("%02x-%s-%s-%02x", version, traceId, spanId, traceFlags);
+        String result = header;
+        if (result == null) {
+            char[] chars = new char[traceId.length() + spanId.length() + 7];
+            int index = appendHexByte(chars, 0, version);
+            chars[index++] = '-';
+            traceId.getChars(0, traceId.length(), chars, index);
+            index += traceId.length();
+            chars[index++] = '-';
+            spanId.getChars(0, spanId.length(), chars, index);
+            index += spanId.length();
+            chars[index++] = '-';
+            appendHexByte(chars, index, traceFlags);
+
+            result = new String(chars);
+            header = result;
+        }
+        return result;
     }
 
     /**
      * Helper method to create a random hexadecimal string of n bytes.
+     * Every 8 bytes are taken from a single random long.
      *
      * @return n byte hexadecimal string
      */
     static String randomHex(int n) {
-        byte[] bytes = new byte[n];
-        ThreadLocalRandom.current().nextBytes(bytes);
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[n * 2];
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            if ((i & 7) == 0) {
+                bits = random.nextLong();
+            }
+            appendHexByte(chars, i * 2, (int) (bits >>> ((i & 7) << 3)));
         }
-        return sb.toString();
+        return new String(chars);
+    }
+
+    private static int appendHexByte(char[] chars, int index, int b) {
+        chars[index] = HEX_CHARS[(b >> 4) & 0xf];
+        chars[index + 1] = HEX_CHARS[b & 0xf];
+        return index + 2;
     }
 
     /**
@@ -133,22 +179,23 @@ public class Traceparent {
         if (s == null || s.length() == 0) {
             return false;
         }
-        if (s.length() != n) {
-            return false;
-        }
-        for (int i = 0; i < n; i++) {
+        return s.length() == n && isHex(s, 0, n);
+    }
+
+    private static boolean isHex(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
             char c = s.charAt(i);
-            if ('0' <= c && c <= '9') {
-                continue;
+            if (c >= HEX_VALUES.length || HEX_VALUES[c] < 0) {
+                return false;
             }
-            if ('a' <= c && c <= 'f') {
-                continue;
-            }
-            return false;
         }
         return true;
     }
 
+    private static int parseHexByte(String s, int start) {
+        return (HEX_VALUES[s.charAt(start)] << 4) + HEX_VALUES[s.charAt(start + 1)];
+    }
+
     /**
      * Converts traceparent from String to Traceparent object
      *
@@ -158,25 +205,34 @@ public class Traceparent {
         if (s == null || s.length() == 0) {
             return null;
         }
-        String[] arr = s.split("-");
-        if (arr.length < 4) {
+        int traceIdStart = s.indexOf('-') + 1;
+        int spanIdStart = traceIdStart == 0 ? 0 : s.indexOf('-', traceIdStart) + 1;
+        int traceFlagsStart = spanIdStart == 0 ? 0 : s.indexOf('-', spanIdStart) + 1;
+        if (traceFlagsStart == 0) {
             return null;
         }
-        if (!isHex(arr[0], 2)) {
+        int traceFlagsEnd = s.indexOf('-', traceFlagsStart);
+        boolean hasMoreFields = traceFlagsEnd >= 0;
+        if (!hasMoreFields) {
+            traceFlagsEnd = s.length();
+        }
+
+        if (traceIdStart != 3 || !isHex(s, 0, 2)) {
             return null;
         }
-        if (arr[0].equals("00") && arr.length > 4) {
+        int version = parseHexByte(s, 0);
+        if (version == 0 && hasMoreFields) {
             return null;
         }
-        if (!isHex(arr[3], 2)) {
+        if (traceFlagsEnd - traceFlagsStart != 2 || !isHex(s, traceFlagsStart, traceFlagsEnd)) {
             return null;
         }
 
         return new Traceparent(
-            (Character.digit(arr[0].charAt(0), 16) << 4) + Character.digit(arr[0].charAt(1), 16),
-            arr[1],
-            arr[2],
-            (Character.digit(arr[3].charAt(0), 16) << 4) + Character.digit(arr[3].charAt(1), 16));
+            version,
+            s.substring(traceIdStart, spanIdStart - 1),
+            s.substring(spanIdStart, traceFlagsStart - 1),
+            parseHexByte(s, traceFlagsStart));
     }
 
 }
@@ -1,10 +1,5 @@
 package com.microsoft.applicationinsights.web.internal.correlation.tracecontext;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.apache.http.annotation.Experimental;
 
 /**
@@ -15,35 +10,62 @@ import org.apache.http.annotation.Experimental;
  * @see <a href = "https://github.com/w3c/trace-context/blob/master/trace_context/HTTP_HEADER_FORMAT.md">Trace Context</a>
  *
  * Implementations can add vendor specific details here.
+ *
+ * The header is validated in a single pass when the object is created, which only records where each
+ * key-value pair starts and ends. Values are copied out of the header when they are looked up.
  */
 @Experimental
 public class Tracestate {
 
-    private static String KEY_WITHOUT_VENDOR_FORMAT = "[a-z][_0-9a-z\\-\\*\\/]{0,255}";
-    private static String KEY_WITH_VENDOR_FORMAT = "[a-z][_0-9a-z\\-\\*\\/]{0,240}@[a-z][_0-9a-z\\-\\*\\/]{0,13}";
-    private static String KEY_FORMAT = KEY_WITHOUT_VENDOR_FORMAT + "|" + KEY_WITH_VENDOR_FORMAT;
-    private static String VALUE_FORMAT = "[\\x20-\\x2b\\x2d-\\x3c\\x3e-\\x7e]{0,255}[\\x21-\\x2b\\x2d-\\x3c\\x3e-\\x7e]";
+    private static final int MAX_KEY_VALUE_PAIRS = 32;
+    private static final int MAX_KEY_LENGTH = 256;
+    private static final int MAX_TENANT_ID_LENGTH = 241;
+    private static final int MAX_VENDOR_LENGTH = 14;
+    private static final int MAX_VALUE_LENGTH = 256;
 
-    private static Pattern KEY_VALIDATION_RE = Pattern.compile("^" + KEY_FORMAT + "$");
-    private static Pattern VALUE_VALIDATION_RE = Pattern.compile("^" + VALUE_FORMAT + "$");
+    /**
+     * Characters allowed after the first character of a key: [_0-9a-z\-\*\/]
+     */
+    private static final boolean[] KEY_CHARS = new boolean[128];
 
-    private static String DELIMITER_FORMAT = "[ \\t]*,[ \\t]*";
-    private static String MEMBER_FORMAT = String.format("(%s)(=)(%s)", KEY_FORMAT, VALUE_FORMAT);
+    /**
+     * Characters allowed in a value: [\x20-\x2b\x2d-\x3c\x3e-\x7e]
+     */
+    private static final boolean[] VALUE_CHARS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            KEY_CHARS[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            KEY_CHARS[c] = true;
+        }
+        KEY_CHARS['_'] = true;
+        KEY_CHARS['-'] = true;
+        KEY_CHARS['*'] = true;
+        KEY_CHARS['/'] = true;
 
-    private static Pattern DELIMITER_FORMAT_RE = Pattern.compile(DELIMITER_FORMAT);
-    private static Pattern MEMBER_FORMAT_RE = Pattern.compile("^" + MEMBER_FORMAT + "$");
+        for (char c = 0x20; c <= 0x7e; c++) {
+            VALUE_CHARS[c] = c != ',' && c != '=';
+        }
+    }
 
-    private static final int MAX_KEY_VALUE_PAIRS = 32;
+    /**
+     * The header the key-value pairs are read from
+     */
+    private final String source;
 
     /**
-     * Internal representation of the tracestate
+     * Offsets of each key-value pair in the source: key start, '=' index and value end
      */
-    private LinkedHashMap<String, String> internalList = new LinkedHashMap<>(MAX_KEY_VALUE_PAIRS);
+    private final int[] members;
+
+    private final int size;
 
     /**
-     * String representation of the tracestate
+     * String representation of the tracestate, built on first use when the source is not already in that format
      */
-    private String internalString = null;
+    private String internalString;
 
     /**
      * Ctor that creates tracestate object from given value
@@ -53,24 +75,71 @@ public class Tracestate {
         if (input == null) {
             throw new IllegalArgumentException("input is null");
         }
+        if (input.isEmpty()) {
+            throw new IllegalArgumentException("input is empty");
+        }
+
+        source = input;
+        members = new int[MAX_KEY_VALUE_PAIRS * 3];
 
-        String[] values = DELIMITER_FORMAT_RE.split(input);
-        for (String item : values) {
-            Matcher m = MEMBER_FORMAT_RE.matcher(item);
-            if (!m.find()) {
-                throw new IllegalArgumentException(String.format("invalid string %s in tracestate", item));
+        int count = 0;
+        boolean normalized = true;
+        int length = input.length();
+        int start = 0;
+        do {
+            int comma = input.indexOf(',', start);
+            int end = comma < 0 ? length : comma;
+            if (comma >= 0) {
+                // optional white space before the delimiter
+                while (end > start && isWhitespace(input.charAt(end - 1))) {
+                    end--;
+                    normalized = false;
+                }
             }
-            String key = m.group(1);
-            String value = m.group(3);
-            if (internalList.get(key) != null) {
-                throw new IllegalArgumentException(String.format("duplicated keys %s in tracestate", key));
+
+            if (end == start) {
+                if (isDelimitersOnly(input, start)) {
+                    // trailing delimiters are ignored
+                    normalized = false;
+                    break;
+                }
+                throw new IllegalArgumentException(String.format("invalid string %s in tracestate", input.substring(start, end)));
             }
-            internalList.put(key, value);
-        }
-        if (internalList.size() > MAX_KEY_VALUE_PAIRS) {
-            throw new IllegalArgumentException(String.format("cannot have more than %d key-value pairs", MAX_KEY_VALUE_PAIRS));
+
+            int separator = input.indexOf('=', start);
+            if (separator < 0 || separator >= end || !isValidKey(input, start, separator) || !isValidValue(input, separator + 1, end)) {
+                throw new IllegalArgumentException(String.format("invalid string %s in tracestate", input.substring(start, end)));
+            }
+            if (indexOf(input, members, count, input, start, separator) >= 0) {
+                throw new IllegalArgumentException(String.format("duplicated keys %s in tracestate", input.substring(start, separator)));
+            }
+            if (count == MAX_KEY_VALUE_PAIRS) {
+                throw new IllegalArgumentException(String.format("cannot have more than %d key-value pairs", MAX_KEY_VALUE_PAIRS));
+            }
+
+            members[count * 3] = start;
+            members[count * 3 + 1] = separator;
+            members[count * 3 + 2] = end;
+            count++;
+
+            if (comma < 0) {
+                break;
+            }
+
+            // optional white space after the delimiter
+            start = comma + 1;
+            if (start < length && isWhitespace(input.charAt(start))) {
+                normalized = false;
+                while (start < length && isWhitespace(input.charAt(start))) {
+                    start++;
+                }
+            }
+        } while (true);
+
+        size = count;
+        if (normalized) {
+            internalString = input;
         }
-        internalString = toInternalString();
     }
 
     /**
@@ -80,28 +149,59 @@ public class Tracestate {
         if (key == null) {
             throw new IllegalArgumentException("key is null");
         }
-        if (!KEY_VALIDATION_RE.matcher(key).find()) {
+        if (!isValidKey(key, 0, key.length())) {
             throw new IllegalArgumentException("invalid key format");
         }
         if (value == null) {
             throw new IllegalArgumentException("value is null");
 
         }
-        if (!VALUE_VALIDATION_RE.matcher(value).find()) {
+        if (!isValidValue(value, 0, value.length())) {
             throw new IllegalArgumentException("invalid value format");
         }
-        internalList.put(key, value);
+
+        // the new key-value pair goes first, followed by the parent ones except the one it replaces
+        StringBuilder sb = new StringBuilder(key.length() + value.length() + 1 + (parent == null ? 0 : parent.source.length() + 1));
+        members = new int[MAX_KEY_VALUE_PAIRS * 3];
+        members[1] = key.length();
+        sb.append(key).append('=').append(value);
+        members[2] = sb.length();
+        int count = 1;
+
         if (parent != null) {
-            for (String k : parent.internalList.keySet()) {
-                internalList.put(k, parent.internalList.get(k));
+            for (int i = 0; i < parent.size; i++) {
+                int keyStart = parent.members[i * 3];
+                int separator = parent.members[i * 3 + 1];
+                int valueEnd = parent.members[i * 3 + 2];
+                if (separator - keyStart == key.length() && parent.source.regionMatches(keyStart, key, 0, key.length())) {
+                    continue;
+                }
+                if (count == MAX_KEY_VALUE_PAIRS) {
+                    // the right-most pairs are dropped when there is no room for the new one
+                    break;
+                }
+
+                sb.append(',');
+                members[count * 3] = sb.length();
+                members[count * 3 + 1] = sb.length() + separator - keyStart;
+                sb.append(parent.source, keyStart, valueEnd);
+                members[count * 3 + 2] = sb.length();
+                count++;
             }
-            internalList.put(key, value);
         }
-        internalString = toInternalString();
+
+        source = sb.toString();
+        size = count;
+        internalString = source;
     }
 
     public String get(String key) {
-        return internalList.get(key);
+        if (key == null) {
+            return null;
+        }
+
+        int index = indexOf(source, members, size, key, 0, key.length());
+        return index < 0 ? null : source.substring(members[index * 3 + 1] + 1, members[index * 3 + 2]);
     }
 
     /**
@@ -111,7 +211,12 @@ public class Tracestate {
      */
     @Override
     public String toString() {
-        return internalString;
+        String result = internalString;
+        if (result == null) {
+            result = toInternalString();
+            internalString = result;
+        }
+        return result;
     }
 
     /**
@@ -124,19 +229,89 @@ public class Tracestate {
     }
 
     private String toInternalString() {
-        boolean isFirst = true;
-        StringBuilder stringBuilder = new StringBuilder(512);
-        for (Map.Entry<String, String> entry : internalList.entrySet()) {
-            if (isFirst) {
-                isFirst = false;
-            } else {
+        StringBuilder stringBuilder = new StringBuilder(source.length());
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
                 stringBuilder.append(",");
             }
-            stringBuilder.append(entry.getKey());
-            stringBuilder.append("=");
-            stringBuilder.append(entry.getValue());
+            stringBuilder.append(source, members[i * 3], members[i * 3 + 2]);
         }
         return stringBuilder.toString();
     }
 
+    /**
+     * Looks up a key among the first count key-value pairs of a source.
+     *
+     * @return The index of the key-value pair, or -1 if the key is not found
+     */
+    private static int indexOf(String source, int[] members, int count, String key, int keyStart, int keyEnd) {
+        int keyLength = keyEnd - keyStart;
+        for (int i = 0; i < count; i++) {
+            int start = members[i * 3];
+            if (members[i * 3 + 1] - start == keyLength && source.regionMatches(start, key, keyStart, keyLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Validates a key: [a-z][_0-9a-z\-\*\/]{0,255} or [a-z][_0-9a-z\-\*\/]{0,240}@[a-z][_0-9a-z\-\*\/]{0,13}
+     */
+    private static boolean isValidKey(String s, int start, int end) {
+        if (end <= start || !isLowercaseLetter(s.charAt(start))) {
+            return false;
+        }
+
+        int at = -1;
+        for (int i = start + 1; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '@' && at < 0) {
+                at = i;
+            } else if (c >= KEY_CHARS.length || !KEY_CHARS[c]) {
+                return false;
+            }
+        }
+
+        if (at < 0) {
+            return end - start <= MAX_KEY_LENGTH;
+        }
+        return at - start <= MAX_TENANT_ID_LENGTH
+            && at + 1 < end && end - at - 1 <= MAX_VENDOR_LENGTH && isLowercaseLetter(s.charAt(at + 1));
+    }
+
+    /**
+     * Validates a value: [\x20-\x2b\x2d-\x3c\x3e-\x7e]{0,255}[\x21-\x2b\x2d-\x3c\x3e-\x7e]
+     */
+    private static boolean isValidValue(String s, int start, int end) {
+        if (end <= start || end - start > MAX_VALUE_LENGTH || s.charAt(end - 1) == ' ') {
+            return false;
+        }
+
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= VALUE_CHARS.length || !VALUE_CHARS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDelimitersOnly(String s, int start) {
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != ',' && !isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowercaseLetter(char c) {
+        return 'a' <= c && c <= 'z';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
 }
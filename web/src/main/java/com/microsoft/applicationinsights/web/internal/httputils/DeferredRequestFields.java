@@ -0,0 +1,63 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal.httputils;
+
+import com.microsoft.applicationinsights.common.CommonUtils;
+import com.microsoft.applicationinsights.telemetry.RequestTelemetry;
+
+/**
+ * Keeps the raw parts of an incoming request so that its name and url are only concatenated
+ * when the {@link RequestTelemetry} is actually read or sent.
+ * <p>
+ * Only the strings extracted from the request are kept, not the request itself, as containers
+ * recycle request objects once the response is complete and the telemetry may be serialized later.
+ */
+final class DeferredRequestFields implements RequestTelemetry.DeferredFields {
+    private final String method;
+    private final String scheme;
+    private final String host;
+    private final String uri;
+    private final String query;
+
+    DeferredRequestFields(String method, String scheme, String host, String uri, String query) {
+        this.method = method;
+        this.scheme = scheme;
+        this.host = host;
+        this.uri = uri;
+        this.query = query;
+    }
+
+    @Override
+    public String buildName() {
+        return method + " " + uri;
+    }
+
+    @Override
+    public String buildUrl() {
+        StringBuilder url = new StringBuilder();
+        url.append(scheme).append("://").append(host).append(uri);
+        if (!CommonUtils.isNullOrEmpty(query)) {
+            url.append('?').append(query);
+        }
+        return url.toString();
+    }
+}
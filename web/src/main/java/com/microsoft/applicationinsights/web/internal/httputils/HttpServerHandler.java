@@ -1,7 +1,6 @@
 package com.microsoft.applicationinsights.web.internal.httputils;
 
 import com.microsoft.applicationinsights.TelemetryClient;
-import com.microsoft.applicationinsights.common.CommonUtils;
 import com.microsoft.applicationinsights.internal.logger.InternalLogger;
 import com.microsoft.applicationinsights.internal.util.ThreadLocalCleaner;
 import com.microsoft.applicationinsights.telemetry.Duration;
@@ -12,6 +11,7 @@ import com.microsoft.applicationinsights.web.internal.WebModulesContainer;
 import java.net.MalformedURLException;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
@@ -75,24 +75,16 @@ public final class HttpServerHandler {
      * @throws MalformedURLException
      */
     public RequestTelemetryContext handleStart(ServletRequest request, ServletResponse response) throws MalformedURLException {
-        RequestTelemetryContext context = new RequestTelemetryContext(new Date().getTime(),null);
+        RequestTelemetryContext context = new RequestTelemetryContext(System.currentTimeMillis(), null);
         RequestTelemetry requestTelemetry = context.getHttpRequestTelemetry();
         ThreadContext.setRequestTelemetryContext(context);
         String method = extractor.getMethod(request);
-        String userAgent = extractor.getUserAgent(request);
-        String uriWithoutSessionId = extractor.getUri(request);
-        String scheme = extractor.getScheme(request);
-        String host = extractor.getHost(request);
-        String query = extractor.getQuery(request);
-        if (!CommonUtils.isNullOrEmpty(query)) {
-            requestTelemetry.setUrl(scheme + "://" + host + uriWithoutSessionId + "?" + query);
-        } else {
-            requestTelemetry.setUrl(scheme + "://" + host + uriWithoutSessionId);
-        }
+        // the name and url are only built if the telemetry is read or sent, see DeferredRequestFields
+        requestTelemetry.setDeferredFields(new DeferredRequestFields(method, extractor.getScheme(request),
+            extractor.getHost(request), extractor.getUri(request), extractor.getQuery(request)));
         requestTelemetry.setHttpMethod(method);
-        requestTelemetry.setName(method + " " + uriWithoutSessionId);
         requestTelemetry.setAllowAgentToOverrideName(true);
-        requestTelemetry.getContext().getUser().setUserAgent(userAgent);
+        requestTelemetry.getContext().getUser().setUserAgent(extractor.getUserAgent(request));
         requestTelemetry.setTimestamp(new Date(context.getRequestStartTimeTicks()));
         webModulesContainer.invokeOnBeginRequest(request, response);
         return context;
@@ -109,8 +101,8 @@ public final class HttpServerHandler {
     public void handleEnd(ServletRequest request, ServletResponse response,
                           RequestTelemetryContext context) {
         RequestTelemetry requestTelemetry = context.getHttpRequestTelemetry();
-        long endTime = new Date().getTime();
-        requestTelemetry.setDuration(new Duration(endTime - context.getRequestStartTimeTicks()));
+        long elapsedNanos = System.nanoTime() - context.getRequestStartNanoTime();
+        requestTelemetry.setDuration(new Duration(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
         if (request.getAttribute(WebRequestTrackingFilter.APPLICATION_INSIGHTS_CAUGHT_EXCEPTION) != null) {
             requestTelemetry.setSuccess(false);
             requestTelemetry.setResponseCode("500");
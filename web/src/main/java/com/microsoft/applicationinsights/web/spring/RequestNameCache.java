@@ -0,0 +1,83 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.spring;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the request names built by the interceptors, per http method and per java handler method or route template.
+ * The keys come from the application's mappings so the cache is naturally bounded, the limit is a safety net.
+ */
+final class RequestNameCache {
+
+    static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentMap<String, ConcurrentMap<Object, String>> namesPerHttpMethod = new ConcurrentHashMap<>();
+
+    RequestNameCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    RequestNameCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return The cached name, or null if there is none.
+     */
+    String get(String httpMethod, Object key) {
+        if (httpMethod == null || key == null) {
+            return null;
+        }
+        ConcurrentMap<Object, String> names = namesPerHttpMethod.get(httpMethod);
+        return names == null ? null : names.get(key);
+    }
+
+    /**
+     * Caches a name, unless the cache is full.
+     */
+    void put(String httpMethod, Object key, String name) {
+        if (httpMethod == null || key == null || size.get() >= maxSize) {
+            return;
+        }
+
+        ConcurrentMap<Object, String> names = namesPerHttpMethod.get(httpMethod);
+        if (names == null) {
+            ConcurrentMap<Object, String> newNames = new ConcurrentHashMap<>();
+            names = namesPerHttpMethod.putIfAbsent(httpMethod, newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+        if (names.putIfAbsent(key, name) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+}
@@ -21,6 +21,8 @@
 
 package com.microsoft.applicationinsights.web.spring;
 
+import java.lang.reflect.Method;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -39,6 +41,8 @@ import com.microsoft.applicationinsights.internal.logger.InternalLogger;
  */
 public class RequestNameHandlerInterceptorAdapter extends HandlerInterceptorAdapter {
 
+    private final RequestNameCache requestNames = new RequestNameCache();
+
     // region Public
 
     /**
@@ -76,9 +80,13 @@ public class RequestNameHandlerInterceptorAdapter extends HandlerInterceptorAdap
 
     // endregion Public
 
-    // region Private
+    // region Protected
 
-    private String generateRequestName(HttpServletRequest request, Object handler) {
+    /**
+     * Builds the name of the request, names are cached per http method and handler method.
+     * @return The request name, or null to keep the current one.
+     */
+    protected String generateRequestName(HttpServletRequest request, Object handler) {
 
         // Some handlers, such as built-in ResourceHttpRequestHandler are not of type HandlerMethod.
         if (!(handler instanceof HandlerMethod)) {
@@ -86,14 +94,30 @@ public class RequestNameHandlerInterceptorAdapter extends HandlerInterceptorAdap
         }
 
         HandlerMethod handlerMethod = (HandlerMethod) handler;
-        String controller = handlerMethod.getBeanType().getSimpleName();
-        String action = handlerMethod.getMethod().getName();
-
         String method = request.getMethod();
 
-        return String.format("%s %s/%s", method, controller, action);
+        // keyed by the java method: the handler method equals includes the bean, which can be a new instance per request
+        Method javaMethod = handlerMethod.getMethod();
+        String name = requestNames.get(method, javaMethod);
+        if (name == null) {
+            String controller = handlerMethod.getBeanType().getSimpleName();
+            String action = javaMethod.getName();
+            name = method + " " + controller + "/" + action;
+            // an inherited method is shared by several controllers, so its name is not cached
+            if (javaMethod.getDeclaringClass() == handlerMethod.getBeanType()) {
+                requestNames.put(method, javaMethod, name);
+            }
+        }
+
+        return name;
     }
 
-    // endregion Private
-}
+    /**
+     * Gets the cache of the request names built by this interceptor.
+     */
+    RequestNameCache getRequestNames() {
+        return requestNames;
+    }
 
+    // endregion Protected
+}
@@ -117,4 +117,26 @@ public class WebSyntheticRequestTelemetryInitializerTest {
         assertEquals("A5", telemetry.getContext().getProperties().get(WebSyntheticRequestTelemetryInitializer.SYNTHETIC_TEST_RUN_ID));
         assertEquals("A6", telemetry.getContext().getProperties().get(WebSyntheticRequestTelemetryInitializer.SYNTHETIC_TEST_LOCATION));
     }
+
+    @Test
+    public void headersAreReadOncePerRequestTest() {
+
+        WebSyntheticRequestTelemetryInitializer tested = new WebSyntheticRequestTelemetryInitializer();
+
+        HttpServletRequest mockRequest = Mockito.mock(HttpServletRequest.class);
+        Mockito.doReturn("A").when(mockRequest).getHeader(WebSyntheticRequestTelemetryInitializer.SYNTHETIC_TEST_SOURCE);
+        Mockito.doReturn("A1").when(mockRequest).getHeader(WebSyntheticRequestTelemetryInitializer.SYNTHETIC_TEST_USER_ID);
+
+        RequestTelemetryContext context = new RequestTelemetryContext(DateTimeUtils.getDateTimeNow().getTime(), mockRequest);
+        ThreadContext.setRequestTelemetryContext(context);
+
+        for (int i = 0; i < 3; ++i) {
+            TraceTelemetry telemetry = new TraceTelemetry();
+            tested.initialize(telemetry);
+
+            assertEquals("A", telemetry.getContext().getOperation().getSyntheticSource());
+            assertEquals("A1", telemetry.getContext().getUser().getId());
+        }
+        Mockito.verify(mockRequest, Mockito.times(1)).getHeader(WebSyntheticRequestTelemetryInitializer.SYNTHETIC_TEST_SOURCE);
+    }
 }
\ No newline at end of file
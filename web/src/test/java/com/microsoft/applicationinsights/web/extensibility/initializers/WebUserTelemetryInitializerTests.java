@@ -74,4 +74,18 @@ public class WebUserTelemetryInitializerTests {
 
         Assert.assertEquals(acquisitionTime, telemetry.getContext().getUser().getAcquisitionDate());
     }
+
+    @Test
+    public void testUserIdChangedDuringRequestIsUsedForLaterTelemetry() {
+        TraceTelemetry first = new TraceTelemetry();
+        userTelemetryInitializer.onInitializeTelemetry(first);
+
+        ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry().getContext().getUser().setId("authenticated");
+
+        TraceTelemetry second = new TraceTelemetry();
+        userTelemetryInitializer.onInitializeTelemetry(second);
+
+        Assert.assertEquals(REQUEST_USER_ID, first.getContext().getUser().getId());
+        Assert.assertEquals("authenticated", second.getContext().getUser().getId());
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.extensibility.modules;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+
+public class WebRequestLatencyTelemetryModuleTests {
+
+    @Test
+    public void exportSendsDurationAndPercentilesPerOperationAndResponseClass() {
+        WebRequestLatencyTelemetryModule module = new WebRequestLatencyTelemetryModule();
+        for (int i = 1; i <= 100; ++i) {
+            module.record("GET /a", "200", i);
+        }
+        module.record("GET /a", "503", 7);
+
+        List<Telemetry> items = export(module);
+
+        // 2 response classes, each with the duration and 3 default percentiles
+        assertEquals(8, items.size());
+
+        MetricTelemetry duration = find(items, WebRequestLatencyTelemetryModule.DURATION_METRIC_NAME, "GET /a", "2xx", null);
+        assertNotNull(duration);
+        assertEquals(Integer.valueOf(100), duration.getCount());
+        assertEquals(5050.0, duration.getValue(), 0.0);
+        assertEquals(1.0, duration.getMin(), 0.0);
+        assertEquals(100.0, duration.getMax(), 0.0);
+
+        assertEquals(50.0, find(items, WebRequestLatencyTelemetryModule.PERCENTILE_METRIC_NAME, "GET /a", "2xx", "50").getValue(), 1.0);
+        assertEquals(99.0, find(items, WebRequestLatencyTelemetryModule.PERCENTILE_METRIC_NAME, "GET /a", "2xx", "99").getValue(), 3.0);
+        assertEquals(7.0, find(items, WebRequestLatencyTelemetryModule.PERCENTILE_METRIC_NAME, "GET /a", "5xx", "95").getValue(), 0.0);
+    }
+
+    @Test
+    public void exportResetsTheHistograms() {
+        WebRequestLatencyTelemetryModule module = new WebRequestLatencyTelemetryModule();
+        module.record("GET /a", "200", 10);
+
+        assertEquals(4, export(module).size());
+
+        TelemetryClient telemetryClient = mock(TelemetryClient.class);
+        module.export(telemetryClient);
+        verify(telemetryClient, never()).track(any(Telemetry.class));
+    }
+
+    @Test
+    public void operationNamesAboveTheCapAreRecordedAsOther() {
+        Map<String, String> configuration = new HashMap<String, String>();
+        configuration.put("MaxOperationNames", "2");
+        configuration.put("Percentiles", "90");
+        WebRequestLatencyTelemetryModule module = new WebRequestLatencyTelemetryModule(configuration);
+
+        module.record("GET /a", "200", 1);
+        module.record("GET /b", "200", 1);
+        module.record("GET /c", "200", 1);
+        module.record("GET /d", "404", 1);
+
+        List<Telemetry> items = export(module);
+
+        assertNotNull(find(items, WebRequestLatencyTelemetryModule.DURATION_METRIC_NAME, "GET /a", "2xx", null));
+        assertNull(find(items, WebRequestLatencyTelemetryModule.DURATION_METRIC_NAME, "GET /c", "2xx", null));
+        assertEquals(Integer.valueOf(1), find(items, WebRequestLatencyTelemetryModule.DURATION_METRIC_NAME,
+            WebRequestLatencyTelemetryModule.OTHER_OPERATION_NAME, "2xx", null).getCount());
+        assertNotNull(find(items, WebRequestLatencyTelemetryModule.PERCENTILE_METRIC_NAME,
+            WebRequestLatencyTelemetryModule.OTHER_OPERATION_NAME, "4xx", "90"));
+    }
+
+    @Test
+    public void unknownResponseCodesAreRecordedAsOther() {
+        WebRequestLatencyTelemetryModule module = new WebRequestLatencyTelemetryModule();
+        module.record("GET /a", "0", 1);
+
+        assertNotNull(find(export(module), WebRequestLatencyTelemetryModule.DURATION_METRIC_NAME, "GET /a", "Other", null));
+    }
+
+    private static List<Telemetry> export(WebRequestLatencyTelemetryModule module) {
+        TelemetryClient telemetryClient = mock(TelemetryClient.class);
+        module.export(telemetryClient);
+
+        ArgumentCaptor<Telemetry> captor = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryClient, atLeast(0)).track(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static MetricTelemetry find(List<Telemetry> items, String name, String operationName, String responseClass, String percentile) {
+        for (Telemetry item : items) {
+            MetricTelemetry metric = (MetricTelemetry) item;
+            Map<String, String> properties = metric.getProperties();
+            if (name.equals(metric.getName())
+                && operationName.equals(properties.get(WebRequestLatencyTelemetryModule.OPERATION_NAME_PROPERTY))
+                && responseClass.equals(properties.get(WebRequestLatencyTelemetryModule.RESPONSE_CLASS_PROPERTY))
+                && (percentile == null || percentile.equals(properties.get(WebRequestLatencyTelemetryModule.PERCENTILE_PROPERTY)))) {
+                return metric;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThreadContextExecutorsTests {
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        ThreadContext.setInheritable(false);
+        pool = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        ThreadContext.remove();
+        ThreadContext.setInheritable(true);
+    }
+
+    @Test
+    public void testNewThreadDoesNotInheritContextWhenInheritanceIsOff() throws InterruptedException {
+        ThreadContext.setRequestTelemetryContext(new RequestTelemetryContext(0));
+
+        final AtomicReference<RequestTelemetryContext> context = new AtomicReference<RequestTelemetryContext>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                context.set(ThreadContext.getRequestTelemetryContext());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        Assert.assertFalse(ThreadContext.isInheritable());
+        Assert.assertNull(context.get());
+    }
+
+    @Test
+    public void testWrappedExecutorRunsTaskWithSubmitterContext() throws Exception {
+        RequestTelemetryContext requestContext = new RequestTelemetryContext(0);
+        ThreadContext.setRequestTelemetryContext(requestContext);
+
+        final AtomicReference<RequestTelemetryContext> context = new AtomicReference<RequestTelemetryContext>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Executor executor = ThreadContextExecutors.wrapExecutor(pool);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                context.set(ThreadContext.getRequestTelemetryContext());
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertSame(requestContext, context.get());
+    }
+
+    @Test
+    public void testPooledThreadDoesNotKeepContextAfterTask() throws Exception {
+        ThreadContext.setRequestTelemetryContext(new RequestTelemetryContext(0));
+        ExecutorService executorService = ThreadContextExecutors.wrapExecutorService(pool);
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        // the unwrapped pool reuses the same thread
+        Future<RequestTelemetryContext> leaked = pool.submit(new CurrentContext());
+        Assert.assertNull(leaked.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskCreatedOutsideOfRequestRunsWithoutContext() throws Exception {
+        final RequestTelemetryContext stale = new RequestTelemetryContext(0);
+        pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                ThreadContext.setRequestTelemetryContext(stale);
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        Future<RequestTelemetryContext> context = ThreadContextExecutors.wrapExecutorService(pool).submit(new CurrentContext());
+        Assert.assertNull(context.get(10, TimeUnit.SECONDS));
+
+        // the context the thread had is restored after the task
+        Assert.assertSame(stale, pool.submit(new CurrentContext()).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInvokeAllPropagatesContext() throws Exception {
+        RequestTelemetryContext requestContext = new RequestTelemetryContext(0);
+        ThreadContext.setRequestTelemetryContext(requestContext);
+
+        List<Future<RequestTelemetryContext>> results = ThreadContextExecutors.wrapExecutorService(pool)
+            .invokeAll(Arrays.<Callable<RequestTelemetryContext>>asList(new CurrentContext(), new CurrentContext()));
+
+        for (Future<RequestTelemetryContext> result : results) {
+            Assert.assertSame(requestContext, result.get());
+        }
+    }
+
+    private static class CurrentContext implements Callable<RequestTelemetryContext> {
+        @Override
+        public RequestTelemetryContext call() {
+            return ThreadContext.getRequestTelemetryContext();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.internal.cookies;
+
+import java.util.Date;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.Assert;
+import org.junit.Test;
+import com.microsoft.applicationinsights.internal.util.DateTimeUtils;
+import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestCookiesTests {
+
+    @Test
+    public void testBothCookiesAreParsed() {
+        HttpServletRequest request = createRequest(
+            new Cookie("other", "value"),
+            new Cookie(SessionCookie.COOKIE_NAME, "session1|more"),
+            new Cookie(UserCookie.COOKIE_NAME, formatUserCookie("user1")));
+
+        RequestCookies cookies = RequestCookies.parse(request);
+
+        Assert.assertEquals("session1", cookies.getSessionCookie().getSessionId());
+        Assert.assertEquals("user1", cookies.getUserCookie().getUserId());
+    }
+
+    @Test
+    public void testFirstCookieWithTheSameNameIsUsed() {
+        HttpServletRequest request = createRequest(
+            new Cookie(SessionCookie.COOKIE_NAME, "first"),
+            new Cookie(SessionCookie.COOKIE_NAME, "second"));
+
+        RequestCookies cookies = RequestCookies.parse(request);
+
+        Assert.assertEquals("first", cookies.getSessionCookie().getSessionId());
+        Assert.assertNull(cookies.getUserCookie());
+    }
+
+    @Test
+    public void testMalformedUserCookieIsIgnored() {
+        HttpServletRequest request = createRequest(
+            new Cookie(SessionCookie.COOKIE_NAME, "session1"),
+            new Cookie(UserCookie.COOKIE_NAME, "malformed"));
+
+        RequestCookies cookies = RequestCookies.parse(request);
+
+        Assert.assertEquals("session1", cookies.getSessionCookie().getSessionId());
+        Assert.assertNull(cookies.getUserCookie());
+    }
+
+    @Test
+    public void testRequestWithoutCookies() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        RequestCookies cookies = RequestCookies.parse(request);
+
+        Assert.assertNull(cookies.getSessionCookie());
+        Assert.assertNull(cookies.getUserCookie());
+    }
+
+    @Test
+    public void testCookiesAreParsedOncePerRequest() {
+        HttpServletRequest request = createRequest(new Cookie(SessionCookie.COOKIE_NAME, "session1"));
+        RequestTelemetryContext context = new RequestTelemetryContext(0);
+
+        RequestCookies cookies = context.getRequestCookies(request);
+
+        Assert.assertSame(cookies, context.getRequestCookies(request));
+        verify(request, times(1)).getCookies();
+    }
+
+    @Test
+    public void testGetCookieCreatesKnownCookiesDirectly() {
+        HttpServletRequest request = createRequest(new Cookie(UserCookie.COOKIE_NAME, formatUserCookie("user1")));
+
+        UserCookie userCookie = com.microsoft.applicationinsights.web.internal.cookies.Cookie.getCookie(
+            UserCookie.class, request, UserCookie.COOKIE_NAME);
+
+        Assert.assertEquals("user1", userCookie.getUserId());
+    }
+
+    private static HttpServletRequest createRequest(Cookie... cookies) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(cookies);
+        return request;
+    }
+
+    private static String formatUserCookie(String userId) {
+        return UserCookie.formatCookie(new String[] {userId, DateTimeUtils.formatAsRoundTripDate(new Date())});
+    }
+}
@@ -22,7 +22,13 @@
 package com.microsoft.applicationinsights.web.internal.correlation;
 
 import com.microsoft.applicationinsights.TelemetryConfiguration;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
 import org.junit.*;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -36,6 +42,9 @@ public class InstrumentationKeyResolverTests {
     private TelemetryConfiguration configuration = new TelemetryConfiguration();
     private String testAppId = "appId";
 
+    @Rule
+    public TemporaryFolder persistenceFolder = new TemporaryFolder();
+
     @Before
     public void testInitialize() throws Exception {
         mockResolver = mock(ApplicationIdResolver.class);
@@ -57,6 +66,8 @@ public class InstrumentationKeyResolverTests {
     @After
     public void tearDown() {
         InstrumentationKeyResolver.INSTANCE.setAppIdResolver(new CdsProfileFetcher());
+        InstrumentationKeyResolver.INSTANCE.clearCache();
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(null);
         mockResolver = null;
         testAppId = "appId";
     }
@@ -168,4 +179,109 @@ public class InstrumentationKeyResolverTests {
         assertNotNull(InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("ikey2", configuration));
         verify(mockResolver, times(2)).fetchApplicationId(anyString(), eq(configuration));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBackgroundResolutionIsPersisted() throws Exception {
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000001");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+        InstrumentationKeyResolver.INSTANCE.resolveInBackground();
+
+        assertEquals("cid-v1:appId", InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("00000000-0000-0000-0000-000000000001", configuration));
+        File persisted = new File(persistenceFolder.getRoot(), "00000000-0000-0000-0000-000000000001.appid");
+        assertEquals("cid-v1:appId", new String(Files.readAllBytes(persisted.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPersistedAppIdIsUsedUntilResolved() throws Exception {
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.PENDING);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        Files.write(persistenceFolder.newFile("00000000-0000-0000-0000-000000000002.appid").toPath(), "cid-v1:persisted".getBytes(StandardCharsets.UTF_8));
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000002");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+        InstrumentationKeyResolver.INSTANCE.resolveInBackground();
+
+        assertEquals("cid-v1:persisted", InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("00000000-0000-0000-0000-000000000002", configuration));
+    }
+
+    @Test
+    public void testRequestsDoNotPollPendingBackgroundResolution() throws Exception {
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.PENDING);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000003");
+        TelemetryConfiguration requestConfiguration = new TelemetryConfiguration();
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+
+        assertNull(InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("00000000-0000-0000-0000-000000000003", requestConfiguration));
+        verify(mockResolver, never()).fetchApplicationId(anyString(), eq(requestConfiguration));
+    }
+
+    @Test
+    public void testWritableByOthersPersistedAppIdIsIgnored() throws Exception {
+        Assume.assumeTrue(persistenceFolder.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.PENDING);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        File persisted = persistenceFolder.newFile("00000000-0000-0000-0000-000000000004.appid");
+        Files.write(persisted.toPath(), "cid-v1:spoofed".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(persisted.toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000004");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+
+        assertNull(InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("00000000-0000-0000-0000-000000000004", configuration));
+    }
+
+    @Test
+    public void testInvalidPersistedAppIdIsIgnored() throws Exception {
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.PENDING);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        Files.write(persistenceFolder.newFile("00000000-0000-0000-0000-000000000005.appid").toPath(), "cid-v1:<script>".getBytes(StandardCharsets.UTF_8));
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000005");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+
+        assertNull(InstrumentationKeyResolver.INSTANCE.resolveInstrumentationKey("00000000-0000-0000-0000-000000000005", configuration));
+    }
+
+    @Test
+    public void testFailedBackgroundResolutionBacksOff() throws Exception {
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.FAILED);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000006");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(InstrumentationKeyResolver.INSTANCE.resolveInBackground() > 0);
+        }
+
+        // the first attempt may run on the background thread as well as on this one, the others wait for the retry interval
+        verify(mockResolver, atMost(2)).fetchApplicationId(eq("00000000-0000-0000-0000-000000000006"), eq(configuration));
+    }
+
+    @Test
+    public void testResolvedKeyIsNotResolvedAgainUntilItsTtlExpires() throws Exception {
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000007");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+        InstrumentationKeyResolver.INSTANCE.resolveInBackground();
+        long nextAttemptInMillis = InstrumentationKeyResolver.INSTANCE.resolveInBackground();
+
+        assertTrue(nextAttemptInMillis > TimeUnit.MINUTES.toMillis(InstrumentationKeyResolver.DEFAULT_APP_ID_TTL_IN_MINUTES - 1));
+    }
+
+    @Test
+    public void testClearCacheCancelsBackgroundResolution() throws Exception {
+        mockResolverShouldReturnThisStatus(ProfileFetcherResultTaskStatus.PENDING);
+        InstrumentationKeyResolver.INSTANCE.setPersistenceFolder(persistenceFolder.getRoot());
+        configuration.setInstrumentationKey("00000000-0000-0000-0000-000000000008");
+
+        InstrumentationKeyResolver.INSTANCE.startBackgroundResolution(configuration);
+        InstrumentationKeyResolver.INSTANCE.clearCache();
+
+        assertFalse(InstrumentationKeyResolver.INSTANCE.isBackgroundResolutionScheduled());
+    }
+}
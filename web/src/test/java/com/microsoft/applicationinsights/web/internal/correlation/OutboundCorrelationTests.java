@@ -0,0 +1,91 @@
+package com.microsoft.applicationinsights.web.internal.correlation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
+import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Traceparent;
+import com.microsoft.applicationinsights.web.internal.correlation.tracecontext.Tracestate;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutboundCorrelationTests {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    @Test
+    public void testTraceparentIsValidAndCarriesTheRequestValues() {
+        OutboundCorrelation outbound = OutboundCorrelation.create(TRACE_ID, 1, null);
+
+        String spanId = outbound.nextSpanId();
+        Traceparent traceparent = Traceparent.fromString(outbound.getTraceparent(spanId));
+
+        assertNotNull(traceparent);
+        assertEquals(TRACE_ID, traceparent.getTraceId());
+        assertEquals(spanId, traceparent.getSpanId());
+        assertEquals(1, traceparent.getTraceFlags());
+        assertEquals("00-" + TRACE_ID + "-" + spanId + "-01", outbound.getTraceparent(spanId));
+    }
+
+    @Test
+    public void testSpanIdsAreUniqueWithinTheRequest() {
+        OutboundCorrelation outbound = OutboundCorrelation.create(TRACE_ID, 0, null);
+
+        Set<String> spanIds = new HashSet<String>();
+        for (int i = 0; i < 10000; i++) {
+            String spanId = outbound.nextSpanId();
+            assertTrue(spanId.matches("[0-9a-f]{16}"));
+            assertFalse("0000000000000000".equals(spanId));
+            assertTrue(spanIds.add(spanId));
+        }
+    }
+
+    @Test
+    public void testRequestIdUsesTheLegacyFormat() {
+        OutboundCorrelation outbound = OutboundCorrelation.create(TRACE_ID, 0, null);
+
+        assertEquals("|" + TRACE_ID + ".b7ad6b7169203331.", outbound.getRequestId("b7ad6b7169203331"));
+    }
+
+    @Test
+    public void testTracestateIsFormattedOnce() {
+        Tracestate tracestate = Tracestate.fromString("az=id1,congo=t61rcWkgMzE");
+        OutboundCorrelation outbound = OutboundCorrelation.create(TRACE_ID, 0, tracestate);
+
+        assertEquals("az=id1,congo=t61rcWkgMzE", outbound.getTracestate());
+        assertSame(outbound.getTracestate(), outbound.getTracestate());
+        assertNull(OutboundCorrelation.create(TRACE_ID, 0, null).getTracestate());
+    }
+
+    @Test
+    public void testInvalidTraceIdIsRejected() {
+        assertNull(OutboundCorrelation.create("not-a-trace-id", 0, null));
+        assertNull(OutboundCorrelation.create("00000000000000000000000000000000", 0, null));
+    }
+
+    @Test
+    public void testIsFor() {
+        Tracestate tracestate = Tracestate.fromString("az=id1");
+        OutboundCorrelation outbound = OutboundCorrelation.create(TRACE_ID, 1, tracestate);
+
+        assertTrue(outbound.isFor(TRACE_ID, 1, tracestate));
+        assertFalse(outbound.isFor(TRACE_ID, 0, tracestate));
+        assertFalse(outbound.isFor(TRACE_ID, 1, null));
+        assertFalse(outbound.isFor("4bf92f3577b34da6a3ce929d0e0e4736", 1, tracestate));
+    }
+
+    @Test
+    public void testInvalidTraceIdOfTheRequestIsRememberedUntilItChanges() {
+        RequestTelemetryContext context = new RequestTelemetryContext(0);
+        context.getHttpRequestTelemetry().getContext().getOperation().setId("not-a-w3c-trace-id");
+
+        assertNull(context.getOutboundCorrelation());
+        assertNull(context.getOutboundCorrelation());
+
+        context.getHttpRequestTelemetry().getContext().getOperation().setId(TRACE_ID);
+        OutboundCorrelation outbound = context.getOutboundCorrelation();
+        assertNotNull(outbound);
+        assertSame(outbound, context.getOutboundCorrelation());
+    }
+}
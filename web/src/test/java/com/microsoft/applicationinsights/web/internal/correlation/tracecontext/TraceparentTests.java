@@ -113,4 +113,37 @@ public class TraceparentTests {
         Traceparent t1 = Traceparent.fromString("");
         Assert.assertNull(t1);
     }
+
+    @Test
+    public void canConvertTraceParentToString() {
+        Traceparent t1 = new Traceparent(0, "0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", 1);
+        Assert.assertEquals("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", t1.toString());
+    }
+
+    @Test
+    public void randomHexHasTwoCharactersPerByte() {
+        String hex = Traceparent.randomHex(12);
+        Assert.assertEquals(24, hex.length());
+        Assert.assertTrue(hex.matches("[0-9a-f]+"));
+    }
+
+    @Test
+    public void ignoresAdditionalFieldsOfHigherVersions() {
+        Traceparent t1 = Traceparent.fromString("01-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-what-the-future-will-be-like");
+        Assert.assertEquals(1, t1.version);
+        Assert.assertEquals("0af7651916cd43dd8448eb211c80319c", t1.traceId);
+        Assert.assertEquals("b7ad6b7169203331", t1.spanId);
+        Assert.assertEquals(1, t1.traceFlags);
+    }
+
+    @Test
+    public void returnsNullTraceParentWhenVersionZeroHasAdditionalFields() {
+        Assert.assertNull(Traceparent.fromString("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra"));
+    }
+
+    @Test
+    public void returnsNullTraceParentWhenFieldsAreMissing() {
+        Assert.assertNull(Traceparent.fromString("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331"));
+        Assert.assertNull(Traceparent.fromString("0-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"));
+    }
 }
@@ -21,4 +21,45 @@ public class TracestateTests {
         Tracestate t1 = new Tracestate(tracestate);
         Assert.assertEquals(tracestate, t1.toString());
     }
+
+    @Test
+    public void canGetValuesByKey() {
+        Tracestate t1 = new Tracestate("congo=t61rcWkgMzE,rojo=00f067aa0ba902b7,tenant@vendor=x y");
+        Assert.assertEquals("t61rcWkgMzE", t1.get("congo"));
+        Assert.assertEquals("00f067aa0ba902b7", t1.get("rojo"));
+        Assert.assertEquals("x y", t1.get("tenant@vendor"));
+        Assert.assertNull(t1.get("cong"));
+        Assert.assertNull(t1.get("tenant"));
+    }
+
+    @Test
+    public void removesWhitespaceAroundDelimiters() {
+        Tracestate t1 = new Tracestate("congo=t61rcWkgMzE ,\trojo=00f067aa0ba902b7,");
+        Assert.assertEquals("congo=t61rcWkgMzE,rojo=00f067aa0ba902b7", t1.toString());
+        Assert.assertEquals("t61rcWkgMzE", t1.get("congo"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsWhenKeyIsDuplicated() {
+        new Tracestate("congo=1,rojo=2,congo=3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsWhenMemberIsEmpty() {
+        new Tracestate("congo=1,,rojo=2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsWhenValueEndsWithSpace() {
+        new Tracestate("congo=1 ");
+    }
+
+    @Test
+    public void newKeyValuePairReplacesParentOne() {
+        Tracestate parent = new Tracestate("congo=1,az=2,rojo=3");
+        Tracestate t1 = new Tracestate(parent, "az", "cid-v1:120");
+        Assert.assertEquals("az=cid-v1:120,congo=1,rojo=3", t1.toString());
+        Assert.assertEquals("cid-v1:120", t1.get("az"));
+        Assert.assertEquals("3", t1.get("rojo"));
+    }
 }
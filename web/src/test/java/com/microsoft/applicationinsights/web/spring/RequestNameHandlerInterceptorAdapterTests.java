@@ -92,4 +92,22 @@ public class RequestNameHandlerInterceptorAdapterTests {
 
         Assert.assertTrue("Adapter should return true.", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testNameIsCachedOncePerJavaMethod() throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(HttpMethod.GET.asString());
+
+        // a bean resolved per request gives a new handler method instance every time
+        interceptorAdapter.preHandle(request, null, new HandlerMethod(new RequestNameHandlerInterceptorAdapterTests(), "index"));
+        interceptorAdapter.preHandle(request, null, new HandlerMethod(new RequestNameHandlerInterceptorAdapterTests(), "index"));
+
+        Assert.assertEquals(1, interceptorAdapter.getRequestNames().size());
+        Assert.assertEquals(
+            String.format("%s %s/index", HttpMethod.GET.asString(), DEFAULT_CONTROLLER_NAME),
+            ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry().getName());
+    }
+
+    public void index() {
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.web.spring;
+
+import com.microsoft.applicationinsights.internal.util.DateTimeUtils;
+import com.microsoft.applicationinsights.web.internal.RequestTelemetryContext;
+import com.microsoft.applicationinsights.web.internal.ThreadContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RouteTemplateHandlerInterceptorAdapterTests {
+
+    private HandlerMethod handlerMethod;
+    private RouteTemplateHandlerInterceptorAdapter interceptorAdapter;
+
+    @Before
+    public void testInitialize() throws NoSuchMethodException {
+        handlerMethod = new HandlerMethod(this, "toString");
+        interceptorAdapter = new RouteTemplateHandlerInterceptorAdapter();
+        ThreadContext.setRequestTelemetryContext(new RequestTelemetryContext(DateTimeUtils.getDateTimeNow().getTime()));
+    }
+
+    @After
+    public void tearDown() {
+        ThreadContext.remove();
+    }
+
+    @Test
+    public void testRequestIsNamedAfterRouteTemplate() throws Exception {
+        interceptorAdapter.preHandle(createRequest("GET", "/orders/{id}"), null, handlerMethod);
+
+        Assert.assertEquals("GET /orders/{id}", getRequestName());
+    }
+
+    @Test
+    public void testNamesAreCachedPerHttpMethodAndTemplate() throws Exception {
+        interceptorAdapter.preHandle(createRequest("GET", "/orders/{id}"), null, handlerMethod);
+        String first = getRequestName();
+        interceptorAdapter.preHandle(createRequest("GET", "/orders/{id}"), null, handlerMethod);
+
+        Assert.assertSame(first, getRequestName());
+
+        interceptorAdapter.preHandle(createRequest("DELETE", "/orders/{id}"), null, handlerMethod);
+
+        Assert.assertEquals("DELETE /orders/{id}", getRequestName());
+        Assert.assertEquals(2, interceptorAdapter.getRequestNames().size());
+    }
+
+    @Test
+    public void testFallsBackToControllerAndActionWithoutTemplate() throws Exception {
+        interceptorAdapter.preHandle(createRequest("GET", null), null, handlerMethod);
+
+        Assert.assertEquals("GET " + getClass().getSimpleName() + "/toString", getRequestName());
+    }
+
+    @Test
+    public void testTemplateIsUsedForHandlersThatAreNotHandlerMethods() throws Exception {
+        interceptorAdapter.preHandle(createRequest("GET", "/static/**"), null, new Object());
+
+        Assert.assertEquals("GET /static/**", getRequestName());
+    }
+
+    private static HttpServletRequest createRequest(String method, String pattern) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)).thenReturn(pattern);
+        return request;
+    }
+
+    private static String getRequestName() {
+        return ThreadContext.getRequestTelemetryContext().getHttpRequestTelemetry().getName();
+    }
+}